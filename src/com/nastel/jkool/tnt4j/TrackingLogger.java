@@ -46,6 +46,8 @@ import com.nastel.jkool.tnt4j.dump.MXBeanDumpProvider;
 import com.nastel.jkool.tnt4j.dump.PropertiesDumpProvider;
 import com.nastel.jkool.tnt4j.dump.ThreadDeadlockDumpProvider;
 import com.nastel.jkool.tnt4j.dump.ThreadDumpProvider;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.selector.TrackingSelector;
 import com.nastel.jkool.tnt4j.sink.DefaultEventSinkFactory;
 import com.nastel.jkool.tnt4j.sink.EventSink;
@@ -54,6 +56,7 @@ import com.nastel.jkool.tnt4j.sink.SinkEventFilter;
 import com.nastel.jkool.tnt4j.sink.SinkLogEventListener;
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.source.SourceType;
+import com.nastel.jkool.tnt4j.tracker.ActivityTiming;
 import com.nastel.jkool.tnt4j.tracker.DefaultTrackerFactory;
 import com.nastel.jkool.tnt4j.tracker.Tracker;
 import com.nastel.jkool.tnt4j.tracker.TrackerFactory;
@@ -187,7 +190,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see DumpListener
  * @see SinkErrorListener
  *
- * @version $Revision: 21 $
+ * @version $Revision: 25 $
  *
  */
 public class TrackingLogger implements Tracker {
@@ -1137,6 +1140,101 @@ public class TrackingLogger implements Tracker {
 		logger.setTrackingFilter(filter);
 	}
 
+	/**
+	 * Set timing mode used by activities created by this logger from now on.
+	 *
+	 * @see ActivityTiming
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public void setActivityTiming(ActivityTiming timing) {
+		checkState();
+		logger.setActivityTiming(timing);
+	}
+
+	/**
+	 * Obtain timing mode used by activities created by this logger
+	 *
+	 * @see ActivityTiming
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public ActivityTiming getActivityTiming() {
+		checkState();
+		return logger.getActivityTiming();
+	}
+
+	/**
+	 * Set activity sampler which decides whether new root activities are traced.
+	 *
+	 * @see ActivitySampler
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public void setActivitySampler(ActivitySampler sampler) {
+		checkState();
+		logger.setActivitySampler(sampler);
+	}
+
+	/**
+	 * Obtain activity sampler associated with this logger
+	 *
+	 * @see ActivitySampler
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public ActivitySampler getActivitySampler() {
+		checkState();
+		return logger.getActivitySampler();
+	}
+
+	/**
+	 * Set retention policy used by activities created by this logger from now on.
+	 *
+	 * @see RetentionPolicy
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public void setRetentionPolicy(RetentionPolicy policy) {
+		checkState();
+		logger.setRetentionPolicy(policy);
+	}
+
+	/**
+	 * Obtain retention policy associated with this logger
+	 *
+	 * @see RetentionPolicy
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public RetentionPolicy getRetentionPolicy() {
+		checkState();
+		return logger.getRetentionPolicy();
+	}
+
+	/**
+	 * Set maximum number of events deferred by activities created by this logger from now on.
+	 *
+	 * @see com.nastel.jkool.tnt4j.sink.BatchEventSink
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public void setActivityBatchSize(int size) {
+		checkState();
+		logger.setActivityBatchSize(size);
+	}
+
+	/**
+	 * Obtain maximum number of events deferred by activities created by this logger
+	 *
+	 * @throws IllegalStateException when tracker is not initialized
+	 */
+	@Override
+	public int getActivityBatchSize() {
+		checkState();
+		return logger.getActivityBatchSize();
+	}
+
 	/**
 	 * Add a sink log listener, which is triggered log activities
 	 * occurs when writing to the event sink.
@@ -25,6 +25,8 @@ import com.nastel.jkool.tnt4j.format.EventFormatter;
 import com.nastel.jkool.tnt4j.format.Formatter;
 import com.nastel.jkool.tnt4j.logger.Log4JEventSinkFactory;
 import com.nastel.jkool.tnt4j.repository.TokenRepository;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.selector.DefaultTrackingSelector;
 import com.nastel.jkool.tnt4j.selector.TrackingSelector;
 import com.nastel.jkool.tnt4j.sink.EventSink;
@@ -37,6 +39,8 @@ import com.nastel.jkool.tnt4j.source.SourceFactory;
 import com.nastel.jkool.tnt4j.source.SourceType;
 import com.nastel.jkool.tnt4j.tracker.DefaultTrackerFactory;
 import com.nastel.jkool.tnt4j.tracker.TrackerFactory;
+import com.nastel.jkool.tnt4j.uuid.DefaultIdGenerator;
+import com.nastel.jkool.tnt4j.uuid.IdGenerator;
 
 /**
  * <p>
@@ -56,8 +60,11 @@ import com.nastel.jkool.tnt4j.tracker.TrackerFactory;
  * @see TrackingSelector
  * @see EventFormatter
  * @see EventSinkFactory
+ * @see IdGenerator
+ * @see ActivitySampler
+ * @see RetentionPolicy
  * 
- * @version $Revision: 9 $
+ * @version $Revision: 12 $
  * 
  */
 
@@ -77,6 +84,9 @@ public class TrackerConfig {
 	SinkEventFilter sinkFilter;
 
 	TrackingSelector tSelector = null;
+	IdGenerator idGenerator = null;
+	ActivitySampler sampler = null;
+	RetentionPolicy retention = null;
 
 	Properties props = new Properties();
 
@@ -347,6 +357,51 @@ public class TrackerConfig {
 		return this;
 	}
 
+	/**
+	 * Set configuration tracking id generator. Id generator is used to assign signatures
+	 * to new tracking events and activities.
+	 * 
+	 * @param generator
+	 *            tracking id generator instance
+	 * @see IdGenerator
+	 * 
+	 * @return current configuration instance
+	 */
+	public TrackerConfig setIdGenerator(IdGenerator generator) {
+		idGenerator = generator;
+		return this;
+	}
+
+	/**
+	 * Set configuration activity sampler. Activity sampler decides which root activities
+	 * are traced, null to trace all activities.
+	 * 
+	 * @param activitySampler
+	 *            activity sampler instance
+	 * @see ActivitySampler
+	 * 
+	 * @return current configuration instance
+	 */
+	public TrackerConfig setActivitySampler(ActivitySampler activitySampler) {
+		sampler = activitySampler;
+		return this;
+	}
+
+	/**
+	 * Set configuration retention policy. Retention policy decides which activities keep their
+	 * buffered events and snapshots when stopped, null to report all events as they are tracked.
+	 * 
+	 * @param policy
+	 *            retention policy instance
+	 * @see RetentionPolicy
+	 * 
+	 * @return current configuration instance
+	 */
+	public TrackerConfig setRetentionPolicy(RetentionPolicy policy) {
+		retention = policy;
+		return this;
+	}
+
 	/**
 	 * Set configuration user defined properties.
 	 * 
@@ -443,6 +498,36 @@ public class TrackerConfig {
 		return tSelector;
 	}
 
+	/**
+	 * Get configuration tracking id generator instance
+	 * 
+	 * @see IdGenerator
+	 * @return current tracking id generator instance
+	 */
+	public IdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	/**
+	 * Get configuration activity sampler instance
+	 * 
+	 * @see ActivitySampler
+	 * @return current activity sampler instance, null if all activities are traced
+	 */
+	public ActivitySampler getActivitySampler() {
+		return sampler;
+	}
+
+	/**
+	 * Get configuration retention policy instance
+	 * 
+	 * @see RetentionPolicy
+	 * @return current retention policy instance, null if events are not buffered
+	 */
+	public RetentionPolicy getRetentionPolicy() {
+		return retention;
+	}
+
 	/**
 	 * Get event logger instance created by <code>EventSinkFactory</code>
 	 * 
@@ -485,6 +570,9 @@ public class TrackerConfig {
 		config.dpFactory = this.dpFactory;
 		config.evFormatter = this.evFormatter;
 		config.tSelector = this.tSelector;
+		config.idGenerator = this.idGenerator;
+		config.sampler = this.sampler;
+		config.retention = this.retention;
 		config.activityListener = this.activityListener;
 		config.sinkLogEventListener = this.sinkLogEventListener;
 		config.sinkFilter= this.sinkFilter;
@@ -515,6 +603,8 @@ public class TrackerConfig {
 		if (tSelector == null) {
 			tSelector = new DefaultTrackingSelector();
 		}
+		if (idGenerator == null)
+			idGenerator = DefaultIdGenerator.getInstance();
 		return this;
 	}
 
@@ -530,6 +620,9 @@ public class TrackerConfig {
 			+ ", tracker.factory: " + trFactory 
 			+ ", dump.factory: " + dpFactory 
 			+ ", selector: " + tSelector 
+			+ ", id.generator: " + idGenerator 
+			+ ", sampler: " + sampler 
+			+ ", retention: " + retention 
 			+ ", activity.listener: " + activityListener 
 			+ ", sink.log.listener: " + sinkLogEventListener 
 			+ ", sink.event.filter: " + sinkFilter 
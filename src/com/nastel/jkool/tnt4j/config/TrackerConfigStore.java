@@ -31,6 +31,8 @@ import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.dump.DumpSinkFactory;
 import com.nastel.jkool.tnt4j.format.EventFormatter;
 import com.nastel.jkool.tnt4j.repository.TokenRepository;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.selector.TrackingSelector;
 import com.nastel.jkool.tnt4j.sink.DefaultEventSinkFactory;
 import com.nastel.jkool.tnt4j.sink.EventSink;
@@ -42,6 +44,7 @@ import com.nastel.jkool.tnt4j.source.SourceFactory;
 import com.nastel.jkool.tnt4j.source.SourceType;
 import com.nastel.jkool.tnt4j.tracker.TrackerFactory;
 import com.nastel.jkool.tnt4j.utils.Utils;
+import com.nastel.jkool.tnt4j.uuid.IdGenerator;
 
 /**
  * <p>
@@ -86,6 +89,12 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * event.formatter: com.nastel.jkool.tnt4j.format.JSONFormatter
  * tracking.selector: com.nastel.jkool.tnt4j.selector.DefaultTrackingSelector
  * tracking.selector.Repository: com.nastel.jkool.tnt4j.repository.FileTokenRepository
+ * tracking.id.generator: com.nastel.jkool.tnt4j.uuid.SnowflakeIdGenerator
+ * tracking.id.generator.NodeId: 17
+ * tracking.sampler: com.nastel.jkool.tnt4j.sampling.FixedRateSampler
+ * tracking.sampler.Rate: 0.01
+ * tracking.retention: com.nastel.jkool.tnt4j.sampling.LatencyRetentionPolicy
+ * tracking.retention.Percentile: 99
  * }
  * ; define source based on configuration from another source defined above
  * {
@@ -110,8 +119,9 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see TrackingSelector
  * @see EventFormatter
  * @see EventSinkFactory
+ * @see IdGenerator
  * 
- * @version $Revision: 11 $
+ * @version $Revision: 14 $
  * 
  */
 
@@ -217,6 +227,9 @@ public class TrackerConfigStore extends TrackerConfig {
 			setEventSinkFactory((EventSinkFactory) createConfigurableObject("event.sink.factory", "event.sink.factory."));
 			setEventFormatter((EventFormatter) createConfigurableObject("event.formatter", "event.formatter."));
 			setTrackingSelector((TrackingSelector) createConfigurableObject("tracking.selector", "tracking.selector."));
+			setIdGenerator((IdGenerator) createConfigurableObject("tracking.id.generator", "tracking.id.generator."));
+			setActivitySampler((ActivitySampler) createConfigurableObject("tracking.sampler", "tracking.sampler."));
+			setRetentionPolicy((RetentionPolicy) createConfigurableObject("tracking.retention", "tracking.retention."));
 			setDumpSinkFactory((DumpSinkFactory) createConfigurableObject("dump.sink.factory", "dump.sink.factory."));
 			setActivityListener((ActivityListener) createConfigurableObject("activity.listener", "activity.listener."));
 			setSinkLogEventListener((SinkLogEventListener) createConfigurableObject("sink.log.listener", "sink.log.listener."));
@@ -16,10 +16,11 @@
 package com.nastel.jkool.tnt4j.core;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 
 import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.utils.CompactSet;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
 /**
@@ -40,7 +41,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see Property
  * @see Trackable
  *
- * @version $Revision: 11 $
+ * @version $Revision: 13 $
  */
 public class Activity extends Operation implements Trackable {
 	private Source appl;
@@ -48,7 +49,7 @@ public class Activity extends Operation implements Trackable {
 	private String parentId;
 	private ActivityStatus status = ActivityStatus.BEGIN;
 
-	private HashSet<String> correlators = new HashSet<String>(89);
+	private CompactSet<String> correlators = null; // allocated on first linked item
 	private ArrayList<ActivityListener> activityListeners = null;
 
 	/**
@@ -267,24 +268,24 @@ public class Activity extends Operation implements Trackable {
 
 	/**
 	 * Adds the specified linked item to the list of items referenced in this Activity.
-	 * This method does NOT check for duplicates.
+	 * This method does NOT check for duplicates. Linked items may be added by multiple threads.
 	 *
 	 * @param item linked item referenced in Activity
 	 * @throws NullPointerException if item is <code>null</code>
 	 * @see #containsId(String)
 	 */
-	public void add(Trackable item) {
+	public synchronized void add(Trackable item) {
 		if (item == null)
 			throw new NullPointerException("msg must be non-null");
 		
 		String tid = item.getTrackingId();
 		if (tid != null) {
-			correlators.add(tid);
+			addId(tid);
 		}
 		
 		String cid = item.getCorrelator();
 		if (cid != null) {
-			correlators.add(cid);
+			addId(cid);
 		}
 		if (item instanceof Snapshot) {
 			addSnapshot((Snapshot)item);
@@ -300,19 +301,42 @@ public class Activity extends Operation implements Trackable {
 	 * @return <code>true</code> if the Activity contains specified item,
 	 *         <code>false</code> otherwise
 	 */
-	public boolean containsId(String id) {
-		if (id == null) return false;
+	public synchronized boolean containsId(String id) {
+		if (id == null || correlators == null) return false;
 		return correlators.contains(id);
 	}
 
+	/**
+	 * Adds the specified tracking id to the list of ids referenced in this Activity.
+	 *
+	 * @param id tracking id or correlator of a linked item
+	 * @see #containsId(String)
+	 */
+	public synchronized void addId(String id) {
+		if (correlators == null) {
+			correlators = new CompactSet<String>();
+		}
+		correlators.add(id);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void addSnapshot(Snapshot snapshot) {
+		super.addSnapshot(snapshot);
+	}
 
 	/**
 	 * Gets the list of tracking ids referenced in this Activity.
+	 * Callers iterating the returned set while linked items may still be added
+	 * must synchronize on this activity.
 	 *
 	 * @return list of tracking ids
 	 */
-	public Set<String> getIds() {
-		return correlators;
+	public synchronized Set<String> getIds() {
+		return correlators != null ? correlators : Collections.<String>emptySet();
 	}
 
 	/**
@@ -320,7 +344,7 @@ public class Activity extends Operation implements Trackable {
 	 *
 	 * @return number of linked items
 	 */
-	public int getIdCount() {
+	public synchronized int getIdCount() {
 		return correlators != null ? correlators.size() : 0;
 	}
 
@@ -30,11 +30,16 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * and age. Content is always represented as text and binary data encoded with base64.
  * </p>
  *
+ * <p>Message text is rendered lazily from the pattern and arguments at most once, on the first call
+ * to <code>getMessage()</code>, typically by the thread consuming the message. Call <code>snapshotMessageArgs()</code>
+ * before handing the message over to another thread to protect against later changes to mutable arguments.
+ * </p>
+ *
  * @see Activity
  * @see Operation
  * @see Trackable
  *
- * @version $Revision: 7 $
+ * @version $Revision: 10 $
  */
 public class Message {
 	public static final String ENCODING_BASE64 	= "base64";
@@ -50,6 +55,7 @@ public class Message {
 	private String		tag;
 	private String		strData;
 	private Object[]	argList;
+	private volatile String rendered;
 	private long		messageAge;
 	private String		mimeType = MIME_TYPE_TEXT_PLAIN;
 	private String		encoding = ENCODING_NONE;
@@ -111,6 +117,7 @@ public class Message {
 	 * @return message encoding
 	 */
 	public String getEncoding() {
+	    _checkState();
 	    return encoding;
     }
 
@@ -120,6 +127,7 @@ public class Message {
 	 * @param encoding message content encoding type such as "base64" see {@code Message.ENCODING_BASE64}
 	 */
 	public void setEncoding(String encoding) {
+	    _checkState();
 	    this.encoding = encoding;
     }
 
@@ -129,6 +137,7 @@ public class Message {
 	 * @return message encoding
 	 */
 	public String getCharset() {
+	    _checkState();
 	    return charset;
     }
 
@@ -138,6 +147,7 @@ public class Message {
 	 * @param charset character set of the body of the message see {@code Charset}
 	 */
 	public void setCharset(String charset) {
+	    _checkState();
 	    this.charset = charset;
     }
 
@@ -147,6 +157,7 @@ public class Message {
 	 * @return message encoding
 	 */
 	public String getMimeType() {
+	    _checkState();
 	    return mimeType;
     }
 
@@ -157,6 +168,7 @@ public class Message {
 	 *
 	 */
 	public void setMimeType(String mimeType) {
+	    _checkState();
 	    this.mimeType = mimeType;
     }
 
@@ -193,6 +205,7 @@ public class Message {
 	 * @return age of message, in microseconds
 	 */
 	public long getMessageAge() {
+		_checkState();
 		return messageAge;
 	}
 
@@ -205,6 +218,7 @@ public class Message {
 	 * @throws IllegalArgumentException if messageAge is negative
 	 */
 	public void setMessageAge(long messageAge) {
+		_checkState();
 		if (messageAge < 0)
 			throw new IllegalArgumentException("messageAge must be non-negative");
 		this.messageAge = messageAge;
@@ -216,6 +230,7 @@ public class Message {
 	 * @return user-defined message tag
 	 */
 	public String getTag() {
+		_checkState();
 		return tag;
 	}
 
@@ -226,6 +241,7 @@ public class Message {
 	 * @param tag user-defined message tag
 	 */
 	public void setTag(String tag) {
+		_checkState();
 		this.tag = tag;
 	}
 
@@ -236,6 +252,7 @@ public class Message {
 	 * @return message size, in bytes
 	 */
 	public int getSize() {
+		_checkState();
 		return size;
 	}
 
@@ -246,6 +263,7 @@ public class Message {
 	 * @throws IllegalArgumentException if size is negative
 	 */
 	public void setSize(int size) {
+		_checkState();
 		if (size < 0)
 			throw new IllegalArgumentException("size must be non-negative");
 		this.size = size;
@@ -258,7 +276,40 @@ public class Message {
 	 * @return string message data, or <code>null</code> if there is no data
 	 */
 	public String getMessage() {
-		return Utils.format(strData, argList);
+		_checkState();
+		String text = rendered;
+		if (text == null) {
+			synchronized (this) {
+				text = rendered;
+				if (text == null) {
+					rendered = text = Utils.format(strData, argList);
+				}
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Determine if formatted message has been rendered and cached
+	 * by a prior call to <code>getMessage()</code>
+	 *
+	 * @return true if formatted message is cached, false otherwise
+	 */
+	public boolean isMessageRendered() {
+		_checkState();
+		return rendered != null;
+	}
+
+	/**
+	 * Replace message arguments with a snapshot where mutable arguments are
+	 * frozen (see {@link Utils#snapshotArgs(Object...)}), so that the message can be rendered
+	 * later by another thread. Does nothing if message is already rendered.
+	 */
+	public void snapshotMessageArgs() {
+		_checkState();
+		if (rendered == null && argList != null && argList.length > 0) {
+			argList = Utils.snapshotArgs(argList);
+		}
 	}
 
 	/**
@@ -267,6 +318,7 @@ public class Message {
 	 * @return string non formatted message, or <code>null</code> if there is no data
 	 */
 	public String getMessagePattern() {
+		_checkState();
 		return strData;
 	}
 
@@ -276,9 +328,49 @@ public class Message {
 	 * @return message argument list
 	 */
 	public Object[] getMessageArgs() {
+		_checkState();
 		return argList;
 	}
 
+	/**
+	 * Reset this message to a given signature, message and arguments
+	 * and all other attributes to their initial values, so that it can be reused.
+	 *
+	 * @param signature unique signature identifying message
+	 * @param msg actual string message associated with this instance
+	 * @param args argument list passed along the message
+	 * @throws NullPointerException if signature is <code>null</code>
+	 * @throws IllegalArgumentException if signature is empty or too long
+	 */
+	protected void reset(String signature, String msg, Object...args) {
+		resetAttributes(signature);
+		setMessage(msg, args);
+	}
+
+	/**
+	 * Reset this message to a given signature, binary message and arguments
+	 * and all other attributes to their initial values, so that it can be reused.
+	 *
+	 * @param signature unique signature identifying message
+	 * @param msg actual byte message associated with this instance
+	 * @param args argument list passed along the message
+	 * @throws NullPointerException if signature is <code>null</code>
+	 * @throws IllegalArgumentException if signature is empty or too long
+	 */
+	protected void reset(String signature, byte[] msg, Object...args) {
+		resetAttributes(signature);
+		setMessage(msg, args);
+	}
+
+	private void resetAttributes(String signature) {
+		setTrackingId(signature);
+		tag = null;
+		messageAge = 0;
+		mimeType = MIME_TYPE_TEXT_PLAIN;
+		encoding = ENCODING_NONE;
+		charset = CHARSET_DEFAULT;
+	}
+
 	/**
 	 * Sets the data for the message.  This is usually the message body.
 	 *
@@ -286,11 +378,13 @@ public class Message {
 	 * @param args list of arguments
 	 */
 	public void setMessage(String pattern, Object...args) {
+		_checkState();
 		strData = pattern;
 		if (strData != null) {
 			setSize(strData.length());
 		} else setSize(0);
 		argList = args;
+		rendered = null;
 	}
 
 
@@ -302,6 +396,7 @@ public class Message {
 	 * @param args list of arguments associated with this message
 	 */
 	public void setMessage(byte[] bytes, Object...args) {
+		_checkState();
 		strData = new String(Base64.encodeBase64(bytes));
 		setEncoding(ENCODING_BASE64);
 		setMimeType(MIME_TYPE_BINARY);
@@ -309,9 +404,20 @@ public class Message {
 			setSize(strData.length());
 		} else setSize(0);
 		argList = args;
+		rendered = null;
 	}
 
 
+	/**
+	 * Override this method to check state of the message before its attributes are accessed.
+	 * Throws <code>IllegalStateException</code> if message is in wrong state.
+	 * Default implementation does nothing. Tracking id is always accessible.
+	 *
+	 * @throws IllegalStateException
+	 */
+	protected void _checkState() throws IllegalStateException {
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -16,11 +16,12 @@
 package com.nastel.jkool.tnt4j.core;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Set;
 
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.source.SourceType;
+import com.nastel.jkool.tnt4j.utils.CompactMap;
 import com.nastel.jkool.tnt4j.utils.Useconds;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
@@ -42,7 +43,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see Message
  * @see Trackable
  *
- * @version $Revision: 12 $
+ * @version $Revision: 14 $
  */
 public class Operation {
 	/**
@@ -74,7 +75,8 @@ public class Operation {
 	private String				correlator;
 	private long          		pid;
 	private long          		tid;
-	private HashMap<String, Snapshot> snapshots =  new HashMap<String, Snapshot>(32);
+	private CompactMap<String, Snapshot> snapshots = null; // allocated on first snapshot
+	private UsecTimestamp		spareStartTime, spareEndTime;
 
 	/**
 	 * Creates a Operation with the specified properties.
@@ -96,6 +98,45 @@ public class Operation {
 		setPID(Utils.getVMPID());
 	}
 
+	/**
+	 * Reset this operation to the state of a newly created operation
+	 * with the specified properties, so that it can be reused.
+	 * Snapshot map and time stamps allocated by this operation are retained
+	 * and recycled, so references obtained before reset must not be used afterwards.
+	 * 
+	 * @param opname function name triggering operation
+	 * @param opType operation type
+	 * @see #Operation(String, OpType)
+	 */
+	public void reset(String opname, OpType opType) {
+		opCC = OpCompCode.SUCCESS;
+		opLevel = OpLevel.INFO;
+		if (startTime != null) {
+			spareStartTime = startTime;
+			startTime = null;
+		}
+		if (endTime != null) {
+			spareEndTime = endTime;
+			endTime = null;
+		}
+		resource = null;
+		user = null;
+		elapsedTime = elapsedTimeNano = startTimeNano = stopTimeNano = 0;
+		waitTime = 0;
+		opRC = 0;
+		exceptionStr = null;
+		exHandle = null;
+		location = null;
+		correlator = null;
+		if (snapshots != null) {
+			snapshots.clear();
+		}
+		setName(opname);
+		setType(opType);
+		setTID(Thread.currentThread().getId());
+		setPID(Utils.getVMPID());
+	}
+
 	/**
 	 * Gets the name of the method that triggered the operation.
 	 *
@@ -525,7 +566,7 @@ public class Operation {
 	 */
 	public void start(long startTimeUsec) {
 		this.startTimeNano = System.nanoTime();
-		this.startTime = new UsecTimestamp(startTimeUsec);
+		this.startTime = newStartTime(startTimeUsec);
 	}
 
 
@@ -567,11 +608,11 @@ public class Operation {
 	 *  or if the stop time is less than the previously specified start time
 	 */
 	public void stop(long stopTimeUsec, long elaspedUsec) {
-		endTime = new UsecTimestamp(stopTimeUsec);
+		endTime = newEndTime(stopTimeUsec);
 
 		if (startTime == null) {
 			long startUsec = stopTimeUsec - elaspedUsec;
-			startTime = new UsecTimestamp(startUsec);
+			startTime = newStartTime(startUsec);
 		}
 
 		if (endTime.compareTo(startTime) < 0)
@@ -584,6 +625,26 @@ public class Operation {
 		}
 	}
 
+	private UsecTimestamp newStartTime(long usecTime) {
+		UsecTimestamp time = spareStartTime;
+		if (time == null) {
+			return new UsecTimestamp(usecTime);
+		}
+		time.reset(usecTime);
+		spareStartTime = null;
+		return time;
+	}
+
+	private UsecTimestamp newEndTime(long usecTime) {
+		UsecTimestamp time = spareEndTime;
+		if (time == null) {
+			return new UsecTimestamp(usecTime);
+		}
+		time.reset(usecTime);
+		spareEndTime = null;
+		return time;
+	}
+
 	/**
 	 * Indicates that the operation has stopped at the specified stop time.
 	 *
@@ -707,7 +768,7 @@ public class Operation {
 	 * @return a set of all available snapshot keys
 	 */
 	public Set<String> getSnapshotIds() {
-		return snapshots.keySet();
+		return snapshots != null ? snapshots.keySet() : Collections.<String>emptySet();
 	}
 
 	/**
@@ -717,7 +778,7 @@ public class Operation {
 	 * @see Snapshot
 	 */
 	public Snapshot getSnapshot(Object snapId) {
-		return snapshots.get(snapId);
+		return snapshots != null ? snapshots.get(snapId) : null;
 	}
 
 	/**
@@ -727,7 +788,10 @@ public class Operation {
 	 * @see Snapshot
 	 */
 	public void addSnapshot(Snapshot snapshot) {
-		snapshots.put(snapshot.getId(), snapshot);		
+		if (snapshots == null) {
+			snapshots = new CompactMap<String, Snapshot>();
+		}
+		snapshots.put(snapshot.getId(), snapshot);
 	}
 	
 	/**
@@ -737,7 +801,7 @@ public class Operation {
 	 * @see Snapshot
 	 */
 	public Collection<Snapshot> getSnapshots() {
-		return snapshots.values();
+		return snapshots != null ? snapshots.values() : Collections.<Snapshot>emptyList();
 	}
 
 	/**
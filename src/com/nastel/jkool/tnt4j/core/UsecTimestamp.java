@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.StringUtils;
 
 import com.nastel.jkool.tnt4j.utils.TimeService;
+import com.nastel.jkool.tnt4j.utils.TimestampFormatter;
 import com.nastel.jkool.tnt4j.utils.Useconds;
 
 /**
@@ -36,7 +37,7 @@ import com.nastel.jkool.tnt4j.utils.Useconds;
  * <p>Stores timestamp as <i>mmmmmmmmmm.uuu</i>, where <i>mmmmmmmmmm</i> is the
  * timestamp in milliseconds, and <i>uuu</i> is the fractional microseconds.</p>
  *
- * @version $Revision: 6 $
+ * @version $Revision: 8 $
  */
 public class UsecTimestamp implements Comparable<UsecTimestamp>, Cloneable, Serializable {
 	private static final long serialVersionUID = 3658590467907047916L;
@@ -89,6 +90,23 @@ public class UsecTimestamp implements Comparable<UsecTimestamp>, Cloneable, Seri
 		this.usecs = (int)(usecTime - (this.msecs * 1000));
 	}
 
+	/**
+	 * Reset this timestamp to a specified microsecond timestamp and assign
+	 * a new Lamport clock, same as a newly created instance. Used to recycle
+	 * timestamps owned by pooled objects.
+	 *
+	 * @param usecTime timestamp, in microsecond
+	 * @throws IllegalArgumentException if usecTime is negative
+	 */
+	void reset(long usecTime) {
+		if (usecTime < 0)
+			throw new IllegalArgumentException("usecTime must be non-negative");
+
+		this.msecs = usecTime / 1000L;
+		this.usecs = (int)(usecTime - (this.msecs * 1000));
+		this.currentLamportClock = LamportCounter.incrementAndGet();
+	}
+
 	/**
 	 * Creates UsecTimestamp based on specified millisecond timestamp
 	 * and fractional microsecond.
@@ -567,7 +585,8 @@ public class UsecTimestamp implements Comparable<UsecTimestamp>, Cloneable, Seri
 
 	/**
 	 * Returns the string representation of the timestamp based on the specified
-	 * format pattern, milliseconds and microseconds.
+	 * format pattern, milliseconds and microseconds. Uses a shared precompiled
+	 * <code>TimestampFormatter</code>.
 	 *
 	 * @param pattern format pattern
 	 * @param tz time zone
@@ -576,24 +595,7 @@ public class UsecTimestamp implements Comparable<UsecTimestamp>, Cloneable, Seri
 	 * @return formatted date/time string based on pattern
 	 */
 	public static String getTimeStamp(String pattern, TimeZone tz, long msecs, long usecs) {
-		if (pattern == null) {
-			SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS" + String.format("%03d",usecs) + " z");
-			df.setTimeZone(tz);
-			return df.format(new Date(msecs));
-		}
-
-		int fracSecPos = pattern.indexOf('S');
-		if (fracSecPos < 0) {
-			SimpleDateFormat df = new SimpleDateFormat(pattern);
-			df.setTimeZone(tz);
-			return df.format(new Date(msecs));
-		}
-
-		String usecStr = String.format("%03d", usecs);
-		pattern = pattern.replaceFirst("SS*", "SSS" + usecStr);
-		SimpleDateFormat df = new SimpleDateFormat(pattern);
-		df.setTimeZone(tz);
-		return df.format(new Date(msecs));
+		return TimestampFormatter.getInstance(pattern, tz).format(msecs, usecs);
 	}
 
 	/**
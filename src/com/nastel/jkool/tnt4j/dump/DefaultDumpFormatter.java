@@ -16,9 +16,11 @@
 package com.nastel.jkool.tnt4j.dump;
 
 
+import java.util.TimeZone;
+
 import com.nastel.jkool.tnt4j.core.Property;
-import com.nastel.jkool.tnt4j.core.UsecTimestamp;
 import com.nastel.jkool.tnt4j.utils.TimeService;
+import com.nastel.jkool.tnt4j.utils.TimestampFormatter;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
 /**
@@ -66,7 +68,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * </p>
  * 
  * 
- * @version $Revision: 10 $
+ * @version $Revision: 11 $
  * 
  * @see DumpSink
  * @see DumpFormatter
@@ -82,7 +84,8 @@ public class DefaultDumpFormatter implements DumpFormatter {
 		buffer.append(Utils.quote("dump.category")).append(": ").append(Utils.quote(dump.getCategory())).append(",\n");
 		buffer.append(Utils.quote("dump.provider")).append(": ").append(Utils.quote(dump.getDumpProvider().getProviderName())).append(",\n");
 		buffer.append(Utils.quote("dump.provider.category")).append(": ").append(Utils.quote(dump.getDumpProvider().getCategoryName())).append(",\n");
-		buffer.append(Utils.quote("dump.time.string")).append(": ").append(Utils.quote(UsecTimestamp.getTimeStamp(dump.getTime()))).append(",\n");
+		buffer.append(Utils.quote("dump.time.string")).append(": ");
+		quoteTime(buffer, dump.getTime()).append(",\n");
 		buffer.append(Utils.quote("dump.time.stamp")).append(": ").append(dump.getTime()).append(",\n");
 		buffer.append(Utils.quote("dump.collection")).append(": {\n");
 		int startLen = buffer.length();
@@ -102,6 +105,14 @@ public class DefaultDumpFormatter implements DumpFormatter {
 		return buffer.toString();
 	}
 
+	/**
+	 * Append a quoted time stamp string using default time zone
+	 */
+	private static StringBuilder quoteTime(StringBuilder buffer, long msecs) {
+		buffer.append('"');
+		return TimestampFormatter.getInstance(TimeZone.getDefault()).format(buffer, msecs, 0).append('"');
+	}
+
 	@Override
 	public String format(Object obj, Object...args) {
 		return Utils.format(String.valueOf(obj), args);
@@ -133,7 +144,8 @@ public class DefaultDumpFormatter implements DumpFormatter {
 		buffer.append(Utils.quote("vm.name")).append(": ").append(Utils.quote(Utils.getVMName())).append(",\n");
 		buffer.append(Utils.quote("vm.pid")).append(": ").append(Utils.getVMPID()).append(",\n");
 		buffer.append(Utils.quote("dump.sink")).append(": ").append(Utils.quote(sink)).append(",\n");
-		buffer.append(Utils.quote("dump.time.string")).append(": ").append(Utils.quote(UsecTimestamp.getTimeStamp())).append(",\n");
+		buffer.append(Utils.quote("dump.time.string")).append(": ");
+		quoteTime(buffer, TimeService.currentTimeMillis()).append(",\n");
 		long elapsed_ms = TimeService.currentTimeMillis() - TIME_TABLE.get();
 		buffer.append(Utils.quote("dump.elapsed.ms")).append(": ").append(elapsed_ms);
 		buffer.append("\n}");
@@ -151,7 +163,8 @@ public class DefaultDumpFormatter implements DumpFormatter {
 		buffer.append(Utils.quote("vm.name")).append(": ").append(Utils.quote(Utils.getVMName())).append(",\n");
 		buffer.append(Utils.quote("vm.pid")).append(": ").append(Utils.getVMPID()).append(",\n");
 		buffer.append(Utils.quote("dump.sink")).append(": ").append(Utils.quote(sink)).append(",\n");
-		buffer.append(Utils.quote("dump.time.string")).append(": ").append(Utils.quote(UsecTimestamp.getTimeStamp()));
+		buffer.append(Utils.quote("dump.time.string")).append(": ");
+		quoteTime(buffer, TimeService.currentTimeMillis());
 		buffer.append("\n}");
 		return buffer.toString();
     }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.config.DefaultConfigFactory;
+import com.nastel.jkool.tnt4j.config.TrackerConfig;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.sink.FileEventSinkFactory;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class measures the cost of reporting chatty requests (an activity with a number of events) to a file sink,
+ * with events reported as they are tracked and with events deferred and logged as a batch when the activity stops.
+ * Reports ns/request and number of events reported per request.
+ * Usage: [requests] [events-per-request] [batch-size]
+ *
+ * @version $Revision: 2 $
+ */
+public class ActivityBatchBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int events = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+		File file = File.createTempFile("tnt4j-batch-bench", ".log");
+		file.deleteOnExit();
+
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put("FileName", file.getPath());
+		props.put("Append", "false");
+		FileEventSinkFactory sinkFactory = new FileEventSinkFactory();
+		sinkFactory.setConfiguration(props);
+
+		TrackerConfig config = DefaultConfigFactory.getInstance().getConfig(ActivityBatchBench.class);
+		config.setEventSinkFactory(sinkFactory);
+		config.setEventFormatter(new JSONFormatter(false));
+		TrackingLogger tlogger = TrackingLogger.getInstance(config.build());
+		tlogger.open();
+
+		int[] sizes = { 0, batchSize };
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (int size : sizes) {
+				tlogger.setActivityBatchSize(size);
+				tlogger.resetStats();
+				long start = System.nanoTime();
+				for (int i = 0; i < count; i++) {
+					TrackingActivity activity = tlogger.newActivity(OpLevel.INFO, "request");
+					activity.appendDefaultSnapshot(false);
+					activity.start();
+					for (int e = 0; e < events; e++) {
+						TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "step", null, "Request={0}, step={1}", i, e);
+						event.start();
+						event.stop();
+						activity.tnt(event);
+					}
+					activity.stop();
+					tlogger.tnt(activity);
+				}
+				long nanos = System.nanoTime() - start;
+				if (report) {
+					Map<String, Object> stats = tlogger.getStats();
+					System.out.println("BatchSize=" + size
+					        + ": ns/request=" + (nanos / count)
+					        + ", events/request=" + ((Number) stats.get(Tracker.KEY_EVENT_COUNT)).doubleValue() / count);
+				}
+			}
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+
+/**
+ * This class measures the cost of short activities: <code>newActivity()</code>, <code>start()</code>,
+ * <code>stop()</code>, with and without default snapshots appended on stop. Reports ns/activity and allocated
+ * bytes/activity.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class ActivityMetricsBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(ActivityMetricsBench.class);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (int mode = 0; mode < 2; mode++) {
+				boolean append = mode > 0;
+				long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), snaps = 0;
+				for (int i = 0; i < count; i++) {
+					TrackingActivity activity = tlogger.newActivity(OpLevel.INFO, "benchActivity");
+					activity.appendDefaultSnapshot(append);
+					activity.start();
+					activity.stop();
+					snaps += activity.getSnapshotCount();
+				}
+				long nanos = System.nanoTime() - start;
+				long allocated = BenchUtils.allocatedBytes() - alloc;
+				if (report) {
+					System.out.println("AppendSnapshots=" + append + ": ns/activity=" + (nanos / count)
+					        + ", alloc.bytes/activity=" + (alloc >= 0 ? String.valueOf(allocated / count) : "n/a")
+					        + ", snapshots/activity=" + (snaps / count));
+				}
+			}
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.ActivityTiming;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+
+/**
+ * This class measures start/stop overhead of short activities for each <code>ActivityTiming</code> mode.
+ * Default snapshots are not appended, so reported cost covers timing only. Reports ns/activity and allocated
+ * bytes/activity.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class ActivityTimingBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(ActivityTimingBench.class);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (ActivityTiming timing : ActivityTiming.values()) {
+				tlogger.setActivityTiming(timing);
+				long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), cpu = 0;
+				for (int i = 0; i < count; i++) {
+					TrackingActivity activity = tlogger.newActivity(OpLevel.INFO, "benchActivity");
+					activity.appendDefaultSnapshot(false);
+					activity.start();
+					activity.stop();
+					cpu += activity.getUsedCpuTimeNanos() > 0 ? 1 : 0;
+				}
+				long nanos = System.nanoTime() - start;
+				long allocated = BenchUtils.allocatedBytes() - alloc;
+				if (report) {
+					System.out.println("Timing=" + timing + ": ns/activity=" + (nanos / count)
+					        + ", alloc.bytes/activity=" + (alloc >= 0 ? String.valueOf(allocated / count) : "n/a")
+					        + ", cpu.timed=" + cpu + "/" + count);
+				}
+			}
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+}
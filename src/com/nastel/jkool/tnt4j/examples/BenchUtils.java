@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class provides measurement helpers shared by benchmarks in this package.
+ *
+ * @version $Revision: 1 $
+ */
+final class BenchUtils {
+	private static final ThreadMXBean tmbean = ManagementFactory.getThreadMXBean();
+
+	private BenchUtils() {
+	}
+
+	/**
+	 * Obtain number of bytes allocated by the current thread, when supported by the JVM
+	 *
+	 * @return number of bytes allocated by the current thread, -1 if not supported
+	 */
+	static long allocatedBytes() {
+		if (tmbean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) tmbean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Run a given task on a number of threads released at the same time
+	 *
+	 * @param threads number of threads running the task
+	 * @param task task to run on every thread
+	 * @return nanoseconds elapsed until all threads completed the task
+	 * @throws InterruptedException if interrupted while waiting for threads
+	 */
+	static long run(int threads, final Runnable task) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						task.run();
+					} catch (InterruptedException e) {
+					}
+				}
+			});
+			workers[i].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return System.nanoTime() - begin;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.nio.ByteBuffer;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.format.BinaryDecoder;
+import com.nastel.jkool.tnt4j.format.BinaryFormatter;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class compares <code>BinaryFormatter</code> against <code>JSONFormatter</code>, both formatting
+ * directly into a reused <code>ByteBuffer</code>, and measures <code>BinaryDecoder</code> throughput.
+ * Reports ns/event, allocated bytes/event and output bytes/event
+ * for a tracking event and a stopped activity with default snapshots.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class BinaryFormatterBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(BinaryFormatterBench.class);
+		TrackingActivity activity = tlogger.newActivity(OpLevel.INFO, "benchActivity");
+		activity.start();
+		TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "benchOperation", "corr-1234",
+				"Processing order={0}, amount={1}", 123456, 99.95);
+		event.setTag("bench-tag");
+		PropertySnapshot snap = new PropertySnapshot("Bench", "Order");
+		snap.add("order-id", 123456);
+		snap.add("customer", "ACME");
+		event.getOperation().addSnapshot(snap);
+		event.start();
+		event.stop();
+		activity.tnt(event);
+		activity.stop();
+
+		JSONFormatter json = new JSONFormatter(false);
+		BinaryFormatter binary = new BinaryFormatter();
+		BinaryDecoder decoder = new BinaryDecoder();
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), bytes = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.clear();
+				json.format(buffer, event);
+				bytes += buffer.position();
+			}
+			report(report, "JSON event", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.clear();
+				binary.format(buffer, event);
+				bytes += buffer.position();
+			}
+			report(report, "Binary event", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			for (int i = 0; i < count; i++) {
+				buffer.rewind();
+				decoder.decode(buffer);
+			}
+			report(report, "Binary event decode", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.clear();
+				json.format(buffer, activity);
+				bytes += buffer.position();
+			}
+			report(report, "JSON activity", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.clear();
+				binary.format(buffer, activity);
+				bytes += buffer.position();
+			}
+			report(report, "Binary activity", count, start, alloc, bytes);
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+
+	private static void report(boolean report, String name, int count, long start, long alloc, long bytes) {
+		long nanos = System.nanoTime() - start;
+		long allocated = BenchUtils.allocatedBytes() - alloc;
+		if (report) {
+			System.out.println(name + ": ns/event=" + (nanos / count) + ", alloc.bytes/event="
+					+ (alloc >= 0 ? String.valueOf(allocated / count) : "n/a") + ", out.bytes/event=" + (bytes / count));
+		}
+	}
+}
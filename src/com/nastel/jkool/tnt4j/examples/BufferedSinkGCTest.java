@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.sink.BufferedEventSink;
+import com.nastel.jkool.tnt4j.sink.BufferedEventSinkFactory;
+import com.nastel.jkool.tnt4j.sink.FileEventSink;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class measures GC behavior of <code>BufferedEventSink</code> under a sustained backlog
+ * when event objects are queued vs. when events are encoded by the caller and only encoded
+ * records are queued. Run once per mode in a fresh JVM and compare old generation usage and
+ * GC counts, e.g.:
+ * <code>java -Xmx512m -Dtnt4j.pooled.logger.pool=1 -Dtnt4j.pooled.logger.capacity=100000 BufferedSinkGCTest serialize 1000000</code>
+ * Usage: [object|serialize] [event-count]
+ *
+ * @version $Revision: 1 $
+ */
+public class BufferedSinkGCTest {
+	public static void main(String[] args) throws Exception {
+		boolean serialize = args.length > 0 && args[0].equalsIgnoreCase("serialize");
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+		File file = File.createTempFile("tnt4j-gc-test", ".log");
+		file.deleteOnExit();
+		FileEventSink fileSink = new FileEventSink("GCTest", file.getPath(), false, new JSONFormatter(false));
+		fileSink.open();
+		BufferedEventSink sink = new BufferedEventSink(fileSink, serialize);
+		TrackingLogger tlogger = TrackingLogger.getInstance(BufferedSinkGCTest.class);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "gcTest", "corr-" + (i % 100),
+					"Processing item={0}, batch={1}", i, i / 1000);
+			event.start();
+			event.stop();
+			sink.log(event);
+		}
+		long producedNanos = System.nanoTime() - start;
+		while (BufferedEventSinkFactory.getPooledLogger().getQSize() > 0) {
+			Thread.sleep(10);
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		System.out.println("Mode=" + (sink.isSerializing() ? "serialize" : "object") + ", events=" + count
+				+ ", produce.ms=" + (producedNanos / 1000000) + ", total.ms=" + (elapsedNanos / 1000000)
+				+ ", dropped=" + sink.getDropCount());
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			System.out.println("GC=" + gc.getName() + ", count=" + gc.getCollectionCount() + ", time.ms="
+					+ gc.getCollectionTime());
+		}
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+				System.out.println("Pool=" + pool.getName() + ", peak.used=" + pool.getPeakUsage().getUsed()
+						+ ", used.after.gc=" + pool.getCollectionUsage().getUsed());
+			}
+		}
+		System.out.println("Stats=" + sink.getStats());
+		tlogger.close();
+		fileSink.close();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.format.BinaryDecoder;
+import com.nastel.jkool.tnt4j.format.BinaryFormatter;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class measures the output size of a stream of tracking events, messages and activities
+ * with repeated operation names, resources, users, tags and snapshot properties formatted with
+ * <code>JSONFormatter</code>, <code>BinaryFormatter</code> and <code>BinaryFormatter</code> with
+ * stream string dictionaries of several sizes. Dictionary encoded streams are decoded back
+ * to verify that all records are restored in order.
+ * Usage: [records]
+ *
+ * @version $Revision: 1 $
+ */
+public class DictionaryEncodingBench {
+	private static final String[] OPERATIONS = { "placeOrder", "cancelOrder", "getQuote", "checkCredit", "shipOrder",
+	        "sendInvoice", "receivePayment", "updateInventory" };
+	private static final String[] RESOURCES = { "queue://ORDERS.IN", "queue://ORDERS.OUT", "db://inventory",
+	        "http://billing.example.com/api" };
+	private static final String[] USERS = { "orders", "billing", "warehouse" };
+	private static final String[] CUSTOMERS = { "ACME", "Globex", "Initech", "Umbrella", "Hooli" };
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(DictionaryEncodingBench.class);
+		List<Object> records = new ArrayList<Object>(count);
+		TrackingActivity activity = null;
+		for (int i = 0; i < count; i++) {
+			if (i % 10 == 0) {
+				if (activity != null) {
+					activity.stop();
+					records.add(activity);
+				}
+				activity = tlogger.newActivity(OpLevel.INFO, OPERATIONS[i % OPERATIONS.length] + "Flow");
+				activity.start();
+			}
+			if (i % 4 == 3) {
+				records.add("Processed order=" + i + " for customer=" + CUSTOMERS[i % CUSTOMERS.length]);
+				continue;
+			}
+			TrackingEvent event = tlogger.newEvent(OpLevel.INFO, OPERATIONS[i % OPERATIONS.length], "corr-" + (i / 10),
+			        "Processing order={0}, amount={1}", i, i * 1.5);
+			event.setTag("order-" + i);
+			event.getOperation().setResource(RESOURCES[i % RESOURCES.length]);
+			event.getOperation().setUser(USERS[i % USERS.length]);
+			PropertySnapshot snap = new PropertySnapshot("Order", "Details");
+			snap.add("order-id", i);
+			snap.add("customer", CUSTOMERS[i % CUSTOMERS.length]);
+			snap.add("currency", "USD");
+			event.getOperation().addSnapshot(snap);
+			event.start();
+			event.stop();
+			activity.tnt(event);
+			records.add(event);
+		}
+
+		long jsonBytes = size(new JSONFormatter(false), records);
+		long binaryBytes = size(new BinaryFormatter(0), records);
+		System.out.println("Records: " + records.size() + ", JSON bytes=" + jsonBytes + ", binary bytes=" + binaryBytes
+		        + ", ratio=" + ratio(jsonBytes, binaryBytes));
+		int[] sizes = { 16, 64, 256, 1024 };
+		for (int i = 0; i < sizes.length; i++) {
+			BinaryFormatter formatter = new BinaryFormatter(sizes[i]);
+			byte[] stream = stream(formatter, records);
+			System.out.println("Dictionary size=" + sizes[i] + ": bytes=" + stream.length + ", ratio.json="
+			        + ratio(jsonBytes, stream.length) + ", ratio.binary=" + ratio(binaryBytes, stream.length)
+			        + ", decoded=" + verify(stream, records) + ", stats=" + formatter.getDictionaryStats());
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+
+	private static long size(JSONFormatter formatter, List<Object> records) {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long bytes = 0;
+		for (Object obj : records) {
+			buffer.clear();
+			if (obj instanceof TrackingActivity) {
+				formatter.format(buffer, (TrackingActivity) obj);
+			} else if (obj instanceof TrackingEvent) {
+				formatter.format(buffer, (TrackingEvent) obj);
+			} else {
+				formatter.format(buffer, null, OpLevel.INFO, obj.toString());
+			}
+			bytes += buffer.position();
+		}
+		return bytes;
+	}
+
+	private static long size(BinaryFormatter formatter, List<Object> records) {
+		return stream(formatter, records).length;
+	}
+
+	private static byte[] stream(BinaryFormatter formatter, List<Object> records) {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (Object obj : records) {
+			buffer.clear();
+			if (obj instanceof TrackingActivity) {
+				formatter.format(buffer, (TrackingActivity) obj);
+			} else if (obj instanceof TrackingEvent) {
+				formatter.format(buffer, (TrackingEvent) obj);
+			} else {
+				formatter.format(buffer, null, OpLevel.INFO, obj.toString());
+			}
+			out.write(buffer.array(), 0, buffer.position());
+		}
+		return out.toByteArray();
+	}
+
+	private static int verify(byte[] stream, List<Object> records) throws Exception {
+		BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(stream));
+		int decoded = 0;
+		for (Object obj = decoder.next(); obj != null; obj = decoder.next(), decoded++) {
+			Object expected = records.get(decoded);
+			if (expected instanceof TrackingEvent) {
+				TrackingEvent event = (TrackingEvent) obj, original = (TrackingEvent) expected;
+				if (!original.getOperation().getName().equals(event.getOperation().getName())
+				        || !original.getOperation().getResource().equals(event.getOperation().getResource())
+				        || !original.getTag().equals(event.getTag())) {
+					throw new IllegalStateException("Record mismatch at=" + decoded + ", decoded=" + obj);
+				}
+			}
+		}
+		return decoded;
+	}
+
+	private static String ratio(long base, long bytes) {
+		return String.format("%.2f", (double) base / bytes);
+	}
+}
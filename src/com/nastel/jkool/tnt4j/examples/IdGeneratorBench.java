@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import com.nastel.jkool.tnt4j.uuid.IdGenerator;
+import com.nastel.jkool.tnt4j.uuid.SequenceIdGenerator;
+import com.nastel.jkool.tnt4j.uuid.SnowflakeIdGenerator;
+import com.nastel.jkool.tnt4j.uuid.UUIDGenerator;
+
+/**
+ * This class compares tracking id generators at 1 to 64 threads, all threads sharing a single
+ * generator instance, same as trackers do. Reports aggregate ids/sec and id length.
+ * Usage: [iterations-per-thread] [max-threads]
+ *
+ * @version $Revision: 2 $
+ */
+public class IdGeneratorBench {
+	public static void main(String[] args) throws Exception {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		IdGenerator[] generators = { new UUIDGenerator(), new SequenceIdGenerator(), new SnowflakeIdGenerator(1) };
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+				for (final IdGenerator generator : generators) {
+					long elapsed = BenchUtils.run(threads, new Runnable() {
+						@Override
+						public void run() {
+							int length = 0;
+							for (int i = 0; i < count; i++) {
+								length += generator.newId().length();
+							}
+							if (length == 0) {
+								throw new IllegalStateException("Empty ids");
+							}
+						}
+					});
+					if (report) {
+						long ids = (long) threads * count;
+						System.out.println(generator.getClass().getSimpleName() + ": threads=" + threads + ", ns/id="
+						        + ((double) elapsed / ids) + ", ids/sec=" + (ids * 1000000000L / elapsed) + ", sample="
+						        + generator.newId());
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import com.nastel.jkool.tnt4j.utils.JSONEscaper;
+
+/**
+ * This class compares <code>StringEscapeUtils.escapeJson()</code> followed by quoting against
+ * <code>JSONEscaper</code> on message corpora: plain log messages, messages with quotes and paths,
+ * exception stack traces and non ASCII text. Verifies that both produce identical output.
+ * Reports ns/op and allocated bytes/op.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 3 $
+ */
+public class JSONEscaperBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		String[][] corpora = {
+		        { "plain", "Processing order=123456, amount=99.95, customer=ACME",
+		                "Connection established to host appsrv-01 port 6580 in 12 ms",
+		                "User jsmith logged in from 10.1.2.3 session=7f3a9c2e-5d1b-11e4-8f2a-0800200c9a66",
+		                "Cache refresh completed: 1024 entries, 3 evictions" },
+		        { "quoted", "Invalid value \"abc\" for field 'amount'", "Loading config from /opt/app/conf/tnt4j.properties",
+		                "Request GET /api/v1/orders?id=42 returned \"404 Not Found\"" },
+		        { "trace", stackTrace(new IllegalStateException("Queue \"orders\" is full")) },
+		        { "unicode", "Zahlung f\u00fcr Kunde M\u00fcller \u00fcber 100 \u20ac abgeschlossen", "\u6ce8\u6587 123456 \u51e6\u7406\u5b8c\u4e86" } };
+
+		for (String[] corpus : corpora) {
+			for (int i = 1; i < corpus.length; i++) {
+				String expected = "\"" + StringEscapeUtils.escapeJson(corpus[i]) + "\"";
+				String actual = JSONEscaper.escape(corpus[i], new StringBuilder().append('"')).append('"').toString();
+				if (!expected.equals(actual)) {
+					throw new IllegalStateException("Mismatch: expected=" + expected + ", actual=" + actual);
+				}
+			}
+		}
+
+		StringBuilder buffer = new StringBuilder(4096);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (String[] corpus : corpora) {
+				int items = corpus.length - 1;
+				long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), chars = 0;
+				for (int i = 0; i < count; i++) {
+					String text = corpus[1 + (i % items)];
+					chars += ("\"" + StringEscapeUtils.escapeJson(text) + "\"").length();
+				}
+				report(report, corpus[0] + " escapeJson", count, start, alloc, chars);
+
+				start = System.nanoTime();
+				alloc = BenchUtils.allocatedBytes();
+				chars = 0;
+				for (int i = 0; i < count; i++) {
+					String text = corpus[1 + (i % items)];
+					buffer.setLength(0);
+					chars += JSONEscaper.escape(text, buffer.append('"')).append('"').length();
+				}
+				report(report, corpus[0] + " JSONEscaper", count, start, alloc, chars);
+			}
+		}
+	}
+
+	private static String stackTrace(Throwable ex) {
+		StringWriter writer = new StringWriter();
+		ex.printStackTrace(new PrintWriter(writer));
+		return writer.toString();
+	}
+
+	private static void report(boolean report, String name, int count, long start, long alloc, long chars) {
+		long nanos = System.nanoTime() - start;
+		long allocated = BenchUtils.allocatedBytes() - alloc;
+		if (report) {
+			System.out.println(name + ": ns/op=" + (nanos / count) + ", alloc.bytes/op="
+					+ (alloc >= 0 ? String.valueOf(allocated / count) : "n/a") + ", chars/op=" + (chars / count));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.nio.ByteBuffer;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class compares <code>JSONFormatter</code> string formatting followed by encoding into bytes
+ * against streaming into a reused <code>StringBuilder</code> and directly into a <code>ByteBuffer</code>.
+ * Reports ns/event and allocated bytes/event.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class JSONFormatterBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(JSONFormatterBench.class);
+		TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "benchOperation", "corr-1234",
+				"Processing order={0}, amount={1}", 123456, 99.95);
+		event.setTag("bench-tag");
+		PropertySnapshot snap = new PropertySnapshot("Bench", "Order");
+		snap.add("order-id", 123456);
+		snap.add("customer", "ACME");
+		event.getOperation().addSnapshot(snap);
+		event.start();
+		event.stop();
+
+		JSONFormatter formatter = new JSONFormatter(false);
+		StringBuilder builder = new StringBuilder(4096);
+		ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), bytes = 0;
+			for (int i = 0; i < count; i++) {
+				bytes += formatter.format(event).getBytes("UTF-8").length;
+			}
+			report(report, "String+getBytes", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				builder.setLength(0);
+				formatter.format(builder, event);
+				bytes += builder.length();
+			}
+			report(report, "Appendable", count, start, alloc, bytes);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.clear();
+				formatter.format(buffer, event);
+				bytes += buffer.position();
+			}
+			report(report, "ByteBuffer", count, start, alloc, bytes);
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+
+	private static void report(boolean report, String name, int count, long start, long alloc, long bytes) {
+		long nanos = System.nanoTime() - start;
+		long allocated = BenchUtils.allocatedBytes() - alloc;
+		if (report) {
+			System.out.println(name + ": ns/event=" + (nanos / count) + ", alloc.bytes/event="
+					+ (alloc >= 0 ? String.valueOf(allocated / count) : "n/a") + ", out.bytes/event=" + (bytes / count));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+import com.nastel.jkool.tnt4j.utils.MessagePattern;
+
+/**
+ * This class compares <code>MessageFormat.format()</code> against compiled and cached <code>MessagePattern</code>
+ * formatting for typical tracking messages, including SLF4J style <code>{}</code> anchors.
+ * Verifies that compiled patterns produce output identical to <code>MessageFormat</code>.
+ * Reports ns/op and allocated bytes/op.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class MessagePatternBench {
+	private static final String[] CHECKS = { "Processing order={0}, amount={1}", "{2} | {1} | {0} | {3}",
+	        "Don''t touch '{0}' but use {1}", "It's {0}", "Missing {5} arg", "Date {3}, null {4}",
+	        "{0,number,#.##} choice", "{1}{0}{1}" };
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		Object[] params = { 123456, 99.95, "ACME", new Date(), null };
+		Object[] numbers = { -1234567L, Long.MIN_VALUE, (short) -12, 1000, 0.5f, 7 };
+		for (String check : CHECKS) {
+			verify(check, params);
+			verify(check, numbers);
+		}
+
+		String pattern = "Processing order={0}, customer={2}, amount={1}";
+		String anchors = "Processing order={}, amount={}, customer={}";
+		MessagePattern mp = MessagePattern.getInstance(anchors, true);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), chars = 0;
+			for (int i = 0; i < count; i++) {
+				chars += MessageFormat.format(pattern, params).length();
+			}
+			report(report, "MessageFormat", count, start, alloc, chars);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			chars = 0;
+			for (int i = 0; i < count; i++) {
+				chars += MessagePattern.format(pattern, params).length();
+			}
+			report(report, "MessagePattern {n}", count, start, alloc, chars);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			chars = 0;
+			for (int i = 0; i < count; i++) {
+				chars += mp.format(params).length();
+			}
+			report(report, "MessagePattern {}", count, start, alloc, chars);
+		}
+	}
+
+	private static void verify(String pattern, Object... params) {
+		String expected = MessageFormat.format(pattern, params);
+		String actual = MessagePattern.getInstance(pattern, false).format(params);
+		if (!expected.equals(actual)) {
+			throw new IllegalStateException("Mismatch: pattern=" + pattern + ", expected=" + expected + ", actual="
+			        + actual);
+		}
+	}
+
+	private static void report(boolean report, String name, int count, long start, long alloc, long chars) {
+		long nanos = System.nanoTime() - start;
+		long allocated = BenchUtils.allocatedBytes() - alloc;
+		if (report) {
+			System.out.println(name + ": ns/op=" + (nanos / count) + ", alloc.bytes/op="
+					+ (alloc >= 0 ? String.valueOf(allocated / count) : "n/a") + ", chars/op=" + (chars / count));
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class measures retained heap bytes per tracking event and per activity, by holding on to a
+ * large number of instances and comparing heap usage after GC. Events are measured with no snapshot and
+ * with one snapshot, activities with no linked items and with a few linked events. Message, source
+ * and snapshot instances are shared, so reported sizes cover the tracking objects themselves.
+ * Usage: [object-count]
+ *
+ * @version $Revision: 1 $
+ */
+public class RetainedSizeBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		TrackingLogger tlogger = TrackingLogger.getInstance(RetainedSizeBench.class);
+		PropertySnapshot snap = new PropertySnapshot("Bench", "Order");
+		snap.add("order-id", 123456);
+		TrackingEvent linked = tlogger.newEvent(OpLevel.INFO, "linked", "corr-1", "Linked event");
+
+		Object[] objects = new Object[count];
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long base = usedMemory();
+			for (int i = 0; i < count; i++) {
+				objects[i] = tlogger.newEvent(OpLevel.INFO, "benchEvent", "corr-1", "Bench event");
+			}
+			report(report, "Event", count, base, objects);
+
+			base = usedMemory();
+			for (int i = 0; i < count; i++) {
+				TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "benchEvent", "corr-1", "Bench event");
+				event.getOperation().addSnapshot(snap);
+				objects[i] = event;
+			}
+			report(report, "Event+1 snapshot", count, base, objects);
+
+			base = usedMemory();
+			for (int i = 0; i < count; i++) {
+				objects[i] = tlogger.newActivity(OpLevel.INFO, "benchActivity");
+			}
+			report(report, "Activity", count, base, objects);
+
+			base = usedMemory();
+			for (int i = 0; i < count; i++) {
+				TrackingActivity activity = tlogger.newActivity(OpLevel.INFO, "benchActivity");
+				activity.add(linked);
+				activity.add(snap);
+				objects[i] = activity;
+			}
+			report(report, "Activity+2 ids+1 snapshot", count, base, objects);
+		}
+		tlogger.close();
+		System.exit(0);
+	}
+
+	private static void report(boolean report, String name, int count, long base, Object[] objects) {
+		long used = usedMemory();
+		if (report) {
+			System.out.println(name + ": retained.bytes/object=" + ((used - base) / count));
+		}
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = null;
+		}
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
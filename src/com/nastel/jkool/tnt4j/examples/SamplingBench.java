@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.FixedRateSampler;
+import com.nastel.jkool.tnt4j.sampling.RateLimitingSampler;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class measures the cost of creating request traces (a root activity with nested child activities and events)
+ * with head based sampling. Each request is either traced completely or not at all. Traces are created but not
+ * reported, so reported cost covers tracking API overhead only. Reports ns/request and number of complete
+ * traces sampled.
+ * Usage: [requests] [sample-rate] [max-per-second]
+ *
+ * @version $Revision: 1 $
+ */
+public class SamplingBench {
+	private static final int CHILDREN = 3, EVENTS = 2;
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		double rate = args.length > 1 ? Double.parseDouble(args[1]) : 0.01d;
+		double max = args.length > 2 ? Double.parseDouble(args[2]) : 100;
+		TrackingLogger tlogger = TrackingLogger.getInstance(SamplingBench.class);
+		ActivitySampler[] samplers = { null, new FixedRateSampler(rate), new RateLimitingSampler(max) };
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (ActivitySampler sampler : samplers) {
+				tlogger.setActivitySampler(sampler);
+				long start = System.nanoTime(), traced = 0, partial = 0;
+				for (int i = 0; i < count; i++) {
+					int items = request(tlogger);
+					if (items == (1 + CHILDREN * (1 + EVENTS))) {
+						traced++;
+					} else if (items > 0) {
+						partial++;
+					}
+				}
+				long nanos = System.nanoTime() - start;
+				if (report) {
+					System.out.println("Sampler=" + (sampler != null ? sampler.getClass().getSimpleName() : "none")
+					        + ": ns/request=" + (nanos / count) + ", traced=" + traced + "/" + count + ", partial=" + partial);
+				}
+			}
+		}
+		tlogger.setActivitySampler(null);
+		tlogger.close();
+		System.exit(0);
+	}
+
+	private static int request(TrackingLogger tlogger) {
+		int items = 0;
+		TrackingActivity root = tlogger.newActivity(OpLevel.INFO, "request");
+		root.appendDefaultSnapshot(false);
+		root.start();
+		items += root.isNoop() ? 0 : 1;
+		for (int c = 0; c < CHILDREN; c++) {
+			TrackingActivity child = tlogger.newActivity(OpLevel.INFO, "step");
+			child.appendDefaultSnapshot(false);
+			child.start();
+			items += child.isNoop() ? 0 : 1;
+			for (int e = 0; e < EVENTS; e++) {
+				TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "work", null, "Step work");
+				items += event.isNoop() ? 0 : 1;
+			}
+			child.stop();
+		}
+		root.stop();
+		return items;
+	}
+}
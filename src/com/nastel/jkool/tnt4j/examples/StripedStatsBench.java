@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.utils.StripedStats;
+
+/**
+ * This class compares shared <code>AtomicLong</code> counters against <code>StripedStats</code> at 1 to 64
+ * threads. Each operation updates an event count and adds elapsed nanoseconds, same as
+ * <code>TrackerImpl.tnt()</code> does. Verifies counter totals and reports aggregate ns/op and Mops/s.
+ * Usage: [iterations-per-thread] [max-threads]
+ *
+ * @version $Revision: 2 $
+ */
+public class StripedStatsBench {
+	public static void main(String[] args) throws Exception {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+				final AtomicLong events = new AtomicLong(0), nanos = new AtomicLong(0);
+				long elapsed = BenchUtils.run(threads, new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < count; i++) {
+							events.incrementAndGet();
+							nanos.addAndGet(i & 0xF);
+						}
+					}
+				});
+				verify(threads, count, events.get(), nanos.get());
+				report(report, "AtomicLong", threads, count, elapsed);
+
+				final StripedStats stats = new StripedStats("events", "nanos");
+				elapsed = BenchUtils.run(threads, new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < count; i++) {
+							stats.increment(0);
+							stats.add(1, i & 0xF);
+						}
+					}
+				});
+				verify(threads, count, stats.get(0), stats.get(1));
+				report(report, "StripedStats", threads, count, elapsed);
+			}
+		}
+	}
+
+	private static void verify(int threads, int count, long events, long nanos) {
+		long perThread = 0;
+		for (int i = 0; i < count; i++) {
+			perThread += i & 0xF;
+		}
+		if (events != (long) threads * count || nanos != threads * perThread) {
+			throw new IllegalStateException("Mismatch: threads=" + threads + ", events=" + events + ", nanos=" + nanos);
+		}
+	}
+
+	private static void report(boolean report, String name, int threads, int count, long nanos) {
+		long ops = (long) threads * count;
+		if (report) {
+			System.out.println(name + ": threads=" + threads + ", ns/op=" + ((double) nanos / ops) + ", Mops/s="
+			        + (ops * 1000 / nanos));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.nastel.jkool.tnt4j.utils.TimestampFormatter;
+
+/**
+ * This class compares per-call <code>SimpleDateFormat</code> timestamp formatting (as previously done by
+ * <code>UsecTimestamp.getTimeStamp()</code>) against the shared precompiled <code>TimestampFormatter</code>.
+ * Timestamps advance by 1ms per iteration so the per-second cache is exercised realistically.
+ * Reports ns/call and allocated bytes/call and verifies both produce identical output.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class TimestampFormatterBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		TimeZone tz = TimeZone.getDefault();
+		TimestampFormatter formatter = TimestampFormatter.getInstance(tz);
+		StringBuilder buffer = new StringBuilder(64);
+		long base = System.currentTimeMillis();
+
+		for (int i = 0; i < 1000; i++) {
+			long usecs = i % 1000;
+			String expected = legacyFormat(tz, base + i * 7, usecs);
+			String actual = formatter.format(base + i * 7, usecs);
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException("Mismatch: expected=" + expected + ", actual=" + actual);
+			}
+		}
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes(), chars = 0;
+			for (int i = 0; i < count; i++) {
+				chars += legacyFormat(tz, base + i, i % 1000).length();
+			}
+			report(report, "SimpleDateFormat", count, start, alloc, chars);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			chars = 0;
+			for (int i = 0; i < count; i++) {
+				chars += formatter.format(base + i, i % 1000).length();
+			}
+			report(report, "TimestampFormatter", count, start, alloc, chars);
+
+			start = System.nanoTime();
+			alloc = BenchUtils.allocatedBytes();
+			chars = 0;
+			for (int i = 0; i < count; i++) {
+				buffer.setLength(0);
+				chars += formatter.format(buffer, base + i, i % 1000).length();
+			}
+			report(report, "TimestampFormatter (append)", count, start, alloc, chars);
+		}
+	}
+
+	private static String legacyFormat(TimeZone tz, long msecs, long usecs) {
+		SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS" + String.format("%03d", usecs) + " z");
+		df.setTimeZone(tz);
+		return df.format(new Date(msecs));
+	}
+
+	private static void report(boolean report, String name, int count, long start, long alloc, long chars) {
+		long nanos = System.nanoTime() - start;
+		long allocated = BenchUtils.allocatedBytes() - alloc;
+		if (report) {
+			System.out.println(name + ": ns/call=" + (nanos / count) + ", alloc.bytes/call="
+					+ (alloc >= 0 ? String.valueOf(allocated / count) : "n/a") + ", chars/call=" + (chars / count));
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.examples;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.nastel.jkool.tnt4j.TrackingLogger;
+import com.nastel.jkool.tnt4j.config.DefaultConfigFactory;
+import com.nastel.jkool.tnt4j.config.TrackerConfig;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+import com.nastel.jkool.tnt4j.sink.FileEventSinkFactory;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.tracker.TrackingEventPool;
+
+/**
+ * This class measures the full <code>newEvent()</code>, <code>start()</code>, <code>stop()</code>,
+ * <code>tnt()</code> cycle against a file sink. Reports ns/event and
+ * allocated bytes/event. Run once with and once without <code>-Dtnt4j.tracking.event.pool=true</code>
+ * and compare allocation rates.
+ * Usage: [iterations]
+ *
+ * @version $Revision: 2 $
+ */
+public class TrackingEventPoolBench {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		File file = File.createTempFile("tnt4j-pool-bench", ".log");
+		file.deleteOnExit();
+
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put("FileName", file.getPath());
+		props.put("Append", "false");
+		FileEventSinkFactory sinkFactory = new FileEventSinkFactory();
+		sinkFactory.setConfiguration(props);
+
+		TrackerConfig config = DefaultConfigFactory.getInstance().getConfig(TrackingEventPoolBench.class);
+		config.setEventSinkFactory(sinkFactory);
+		config.setEventFormatter(new JSONFormatter(false));
+		TrackingLogger tlogger = TrackingLogger.getInstance(config.build());
+		tlogger.open();
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean report = pass > 0;
+			long start = System.nanoTime(), alloc = BenchUtils.allocatedBytes();
+			for (int i = 0; i < count; i++) {
+				TrackingEvent event = tlogger.newEvent(OpLevel.INFO, "poolBench", "corr-1234",
+						"Processing item={0}, batch={1}", i, i / 1000);
+				event.start();
+				event.stop();
+				tlogger.tnt(event);
+			}
+			long nanos = System.nanoTime() - start;
+			long allocated = BenchUtils.allocatedBytes() - alloc;
+			if (report) {
+				System.out.println("Pooled=" + TrackingEventPool.POOL_ENABLED + ": ns/event=" + (nanos / count)
+						+ ", alloc.bytes/event=" + (alloc >= 0 ? String.valueOf(allocated / count) : "n/a")
+						+ ", pool.size=" + TrackingEventPool.getInstance().size());
+			}
+		}
+		System.out.println("Stats=" + tlogger.getStats());
+		tlogger.close();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,736 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.nastel.jkool.tnt4j.core.Activity;
+import com.nastel.jkool.tnt4j.core.ActivityStatus;
+import com.nastel.jkool.tnt4j.core.OpCompCode;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.OpType;
+import com.nastel.jkool.tnt4j.core.Operation;
+import com.nastel.jkool.tnt4j.core.Property;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.core.Trackable;
+import com.nastel.jkool.tnt4j.core.UsecTimestamp;
+import com.nastel.jkool.tnt4j.source.DefaultSource;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.source.SourceType;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class implements a streaming decoder for records produced by <code>BinaryFormatter</code>.
+ * Records are read one at a time from an <code>InputStream</code>, a <code>ByteBuffer</code>
+ * or a base64 encoded string and rebuilt into core objects:
+ * </p>
+ * <ul>
+ * <li><code>RECORD_EVENT</code> and <code>RECORD_MESSAGE</code> into <code>TrackingEvent</code></li>
+ * <li><code>RECORD_ACTIVITY</code> into <code>Activity</code></li>
+ * <li><code>RECORD_SNAPSHOT</code> into <code>PropertySnapshot</code></li>
+ * <li><code>RECORD_PROPERTY</code> into <code>Property</code></li>
+ * </ul>
+ * <p>
+ * Records of unknown types are skipped, records with a newer version are rejected.
+ * Decoded sources are cached and shared across records. Instances are not thread safe.
+ * </p>
+ * <p>
+ * Records written with a string dictionary refer to entries defined by earlier records,
+ * so a stream must be decoded in order by a single decoder. A reference to an entry
+ * which was never defined (e.g. records lost or decoded out of order) is reported as an <code>IOException</code>.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see BinaryFormatter
+ */
+public class BinaryDecoder {
+	public static final String MESSAGE_OPERATION = "message";
+	public static final int MAX_CACHED_SOURCES = 256;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	static final OpLevel[] LEVELS = OpLevel.values();
+	static final OpType[] TYPES = OpType.values();
+	static final OpCompCode[] COMP_CODES = OpCompCode.values();
+	static final ActivityStatus[] STATUSES = ActivityStatus.values();
+	static final SourceType[] SOURCE_TYPES = SourceType.values();
+
+	private InputStream input;
+	private byte[] header = new byte[3];
+	private byte[] body = new byte[BinaryFormatter.INITIAL_BUFFER_SIZE];
+	private int recordType;
+	private long recordTime;
+	private DictionaryTable dictionary = new DictionaryTable();
+	private Map<ByteBuffer, Source> sources = new LinkedHashMap<ByteBuffer, Source>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Source> eldest) {
+			return size() > MAX_CACHED_SOURCES;
+		}
+	};
+
+	/**
+	 * Create a decoder for records passed to <code>decode()</code> methods
+	 *
+	 */
+	public BinaryDecoder() {
+	}
+
+	/**
+	 * Create a decoder reading consecutive records from a given stream
+	 *
+	 * @param in input stream containing binary records
+	 */
+	public BinaryDecoder(InputStream in) {
+		input = in;
+	}
+
+	/**
+	 * Obtain type of the last decoded record
+	 *
+	 * @return record type, see <code>BinaryFormatter.RECORD_*</code>
+	 */
+	public int getRecordType() {
+		return recordType;
+	}
+
+	/**
+	 * Obtain time in usec when the last decoded event, activity or message was formatted
+	 *
+	 * @return record time in usec
+	 */
+	public long getRecordTime() {
+		return recordTime;
+	}
+
+	/**
+	 * Read and decode next record from the underlying stream
+	 *
+	 * @return decoded object or null at end of stream
+	 * @throws IOException if stream can not be read or contains invalid data
+	 */
+	public Object next() throws IOException {
+		while (true) {
+			int first = input.read();
+			if (first < 0) {
+				return null;
+			}
+			header[0] = (byte) first;
+			readFully(header, 1, 2);
+			checkHeader(header[0], header[1]);
+			int length = readLength();
+			if (body.length < length) {
+				body = new byte[Math.max(length, body.length * 2)];
+			}
+			readFully(body, 0, length);
+			Object obj = decodeBody(header[2], ByteBuffer.wrap(body, 0, length));
+			if (obj != null) {
+				return obj;
+			}
+		}
+	}
+
+	/**
+	 * Decode a single record starting at the current position of a given buffer.
+	 * Buffer position is advanced past the record.
+	 *
+	 * @param buffer buffer containing binary records
+	 * @return decoded object or null if record type is not supported
+	 * @throws IOException if buffer contains invalid or truncated data
+	 */
+	public Object decode(ByteBuffer buffer) throws IOException {
+		try {
+			checkHeader(buffer.get(), buffer.get());
+			int type = buffer.get();
+			int length = (int) new BinaryReader(buffer, null).varint();
+			ByteBuffer record = buffer.slice();
+			record.limit(length);
+			buffer.position(buffer.position() + length);
+			return decodeBody(type, record);
+		} catch (BufferUnderflowException e) {
+			throw new EOFException("Truncated record: " + buffer);
+		} catch (IllegalArgumentException e) {
+			throw new EOFException("Truncated record: " + buffer);
+		}
+	}
+
+	/**
+	 * Decode a single base64 encoded record as returned by <code>BinaryFormatter.format()</code>
+	 *
+	 * @param record base64 encoded record
+	 * @return decoded object or null if record type is not supported
+	 * @throws IOException if record is invalid or truncated
+	 */
+	public Object decode(String record) throws IOException {
+		return decode(ByteBuffer.wrap(Base64.decodeBase64(record.getBytes())));
+	}
+
+	private void checkHeader(byte magic, byte version) throws IOException {
+		if (magic != BinaryFormatter.MAGIC) {
+			throw new IOException("Invalid record magic=" + (magic & 0xFF));
+		}
+		if (version > BinaryFormatter.VERSION || version < 1) {
+			throw new IOException("Unsupported record version=" + version + ", supported=" + BinaryFormatter.VERSION);
+		}
+	}
+
+	private int readLength() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = input.read();
+			if (b < 0) {
+				throw new EOFException("Truncated record length");
+			}
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid record length");
+	}
+
+	private void readFully(byte[] data, int offset, int length) throws IOException {
+		while (length > 0) {
+			int n = input.read(data, offset, length);
+			if (n < 0) {
+				throw new EOFException("Truncated record");
+			}
+			offset += n;
+			length -= n;
+		}
+	}
+
+	private Object decodeBody(int type, ByteBuffer record) throws IOException {
+		boolean useDictionary = (type & BinaryFormatter.FLAG_DICTIONARY) != 0;
+		type &= BinaryFormatter.RECORD_TYPE_MASK;
+		recordType = type;
+		BinaryReader in = new BinaryReader(record, useDictionary ? dictionary : null);
+		try {
+			switch (type) {
+			case BinaryFormatter.RECORD_EVENT:
+				return readEvent(in);
+			case BinaryFormatter.RECORD_ACTIVITY:
+				return readActivity(in);
+			case BinaryFormatter.RECORD_SNAPSHOT:
+				return readSnapshot(in);
+			case BinaryFormatter.RECORD_MESSAGE:
+				return readMessage(in);
+			case BinaryFormatter.RECORD_PROPERTY:
+				return readProperty(in);
+			default:
+				return null;
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Malformed record type=" + type + ", length=" + record.limit());
+		}
+	}
+
+	private TrackingEvent readEvent(BinaryReader in) throws IOException {
+		String id = in.id();
+		String parentId = in.id();
+		Source source = readSource(in);
+		OpLevel severity = in.ordinal(LEVELS);
+		OpType type = in.ordinal(TYPES);
+		long pid = in.varint(), tid = in.varint();
+		OpCompCode ccode = in.ordinal(COMP_CODES);
+		int rcode = (int) in.zigzag();
+		String correlator = in.str(), location = in.dstr(), name = in.dstr(), resource = in.dstr(), user = in.dstr();
+		int flags = (int) in.varint();
+		long start = (flags & BinaryFormatter.TIME_STARTED) != 0 ? in.varint() : 0;
+		long end = 0, wait = 0, age = 0;
+		if ((flags & BinaryFormatter.TIME_STOPPED) != 0) {
+			end = start + in.zigzag();
+			wait = in.varint();
+			age = in.varint();
+		}
+		recordTime = start + in.zigzag();
+
+		String tag = in.dstr();
+		int size = (int) in.varint();
+		String mime = in.dstr(), encoding = in.dstr(), charset = in.dstr(), msg = in.str();
+		DecodedEvent event = new DecodedEvent(source, severity, type, name, correlator, tag, msg);
+		event.setTrackingId(id);
+		if (parentId != null) {
+			event.setParentId(new TrackableId(parentId, source));
+		}
+		Operation op = event.getOperation();
+		op.setPID(pid);
+		op.setTID(tid);
+		op.setCompCode(ccode);
+		op.setReasonCode(rcode);
+		op.setLocation(location);
+		op.setResource(resource);
+		op.setUser(user);
+		op.setException(in.str());
+		readTimes(op, flags, start, end, wait);
+		event.setMessageAge(age);
+		event.setSize(size);
+		event.setMimeType(mime);
+		event.setEncoding(encoding);
+		event.setCharset(charset);
+		readSnapshots(in, op);
+		return event;
+	}
+
+	private Activity readActivity(BinaryReader in) throws IOException {
+		String id = in.id();
+		String parentId = in.id();
+		Source source = readSource(in);
+		ActivityStatus status = in.ordinal(STATUSES);
+		OpLevel severity = in.ordinal(LEVELS);
+		OpType type = in.ordinal(TYPES);
+		long pid = in.varint(), tid = in.varint();
+		OpCompCode ccode = in.ordinal(COMP_CODES);
+		int rcode = (int) in.zigzag();
+		String correlator = in.str(), location = in.dstr(), name = in.dstr(), resource = in.dstr(), user = in.dstr();
+
+		Activity activity = source != null ? new Activity(id, name, source) : new Activity(id, name);
+		if (parentId != null) {
+			activity.setParentId(new TrackableId(parentId, source));
+		}
+		activity.setStatus(status);
+		activity.setSeverity(severity);
+		activity.setType(type);
+		activity.setPID(pid);
+		activity.setTID(tid);
+		activity.setCompCode(ccode);
+		activity.setReasonCode(rcode);
+		activity.setCorrelator(correlator);
+		activity.setLocation(location);
+		activity.setResource(resource);
+		activity.setUser(user);
+
+		int flags = (int) in.varint();
+		long start = (flags & BinaryFormatter.TIME_STARTED) != 0 ? in.varint() : 0;
+		long end = 0, wait = 0;
+		if ((flags & BinaryFormatter.TIME_STOPPED) != 0) {
+			end = start + in.zigzag();
+			wait = in.varint();
+		}
+		recordTime = start + in.zigzag();
+		readTimes(activity, flags, start, end, wait);
+		for (int count = (int) in.varint(); count > 0; count--) {
+			activity.addId(in.id());
+		}
+		activity.setException(in.str());
+		readSnapshots(in, activity);
+		return activity;
+	}
+
+	private void readTimes(Operation op, int flags, long start, long end, long wait) {
+		if ((flags & BinaryFormatter.TIME_STARTED) != 0) {
+			op.start(start);
+		}
+		if ((flags & BinaryFormatter.TIME_STOPPED) != 0) {
+			op.stop(end, end - start);
+			op.setWaitTime(wait);
+		}
+	}
+
+	private void readSnapshots(BinaryReader in, Operation op) throws IOException {
+		for (int count = (int) in.varint(); count > 0; count--) {
+			op.addSnapshot(readSnapshot(in));
+		}
+	}
+
+	private Snapshot readSnapshot(BinaryReader in) throws IOException {
+		String id = in.id();
+		String parentId = in.id();
+		String category = in.dstr(), name = in.dstr();
+		OpLevel severity = in.ordinal(LEVELS);
+		in.ordinal(TYPES);
+		UsecTimestamp time = new UsecTimestamp(in.varint());
+		Source source = readSource(in);
+		PropertySnapshot snap = new PropertySnapshot(category, name, severity, time);
+		snap.setTrackingId(id);
+		if (parentId != null) {
+			snap.setParentId(new TrackableId(parentId, source));
+		}
+		snap.setSource(source);
+		for (int count = (int) in.varint(); count > 0; count--) {
+			snap.add(readProperty(in));
+		}
+		return snap;
+	}
+
+	private Property readProperty(BinaryReader in) throws IOException {
+		String key = in.dstr();
+		int type = (int) in.varint();
+		switch (type) {
+		case BinaryFormatter.VALUE_NULL:
+			return new Property(key, null);
+		case BinaryFormatter.VALUE_STRING:
+			return new Property(key, in.dstr());
+		case BinaryFormatter.VALUE_INT:
+			return new Property(key, (int) in.zigzag());
+		case BinaryFormatter.VALUE_LONG:
+			return new Property(key, in.zigzag());
+		case BinaryFormatter.VALUE_DOUBLE:
+			return new Property(key, Double.longBitsToDouble(in.fixed64()));
+		case BinaryFormatter.VALUE_FLOAT:
+			return new Property(key, Float.intBitsToFloat(in.fixed32()));
+		case BinaryFormatter.VALUE_BOOLEAN:
+			return new Property(key, in.varint() != 0);
+		case BinaryFormatter.VALUE_BYTE:
+			return new Property(key, (byte) in.zigzag());
+		case BinaryFormatter.VALUE_SHORT:
+			return new Property(key, (short) in.zigzag());
+		case BinaryFormatter.VALUE_CHAR:
+			return new Property(key, (char) in.varint());
+		case BinaryFormatter.VALUE_DATE:
+			return new Property(key, new Date(in.zigzag()));
+		default:
+			throw new IOException("Unsupported value type=" + type + ", key=" + key);
+		}
+	}
+
+	private TrackingEvent readMessage(BinaryReader in) throws IOException {
+		OpLevel severity = in.ordinal(LEVELS);
+		long pid = in.varint(), tid = in.varint();
+		recordTime = in.varint();
+		Source source = readSource(in);
+		DecodedEvent event = new DecodedEvent(source, severity, OpType.EVENT, MESSAGE_OPERATION, null, null, in.str());
+		Operation op = event.getOperation();
+		op.setPID(pid);
+		op.setTID(tid);
+		op.setException(in.str());
+		op.start(recordTime);
+		return event;
+	}
+
+	/**
+	 * Read source, which is either null, a dictionary reference, a dictionary definition
+	 * followed by the source chain or a plain source chain
+	 */
+	private Source readSource(BinaryReader in) throws IOException {
+		if (in.dictionary == null) {
+			return readSourceChain(in);
+		}
+		long code = in.varint();
+		if (code == BinaryWriter.STRING_NULL) {
+			return null;
+		}
+		int slot = (int) (code >>> 2);
+		switch ((int) (code & 3)) {
+		case BinaryWriter.DICT_REF:
+			return in.dictionary.get(slot, Source.class);
+		case BinaryWriter.DICT_DEFINE:
+			Source source = readSourceChain(in);
+			in.dictionary.put(slot, source);
+			return source;
+		default:
+			return readSourceChain(in);
+		}
+	}
+
+	/**
+	 * Read source chain, reusing previously decoded sources with identical encoding
+	 */
+	private Source readSourceChain(BinaryReader in) throws IOException {
+		ByteBuffer data = in.buffer;
+		int start = data.position();
+		int depth = (int) in.varint();
+		if (depth == 0) {
+			return null;
+		}
+		for (int i = 0; i < depth; i++) {
+			in.varint();
+			in.skip();
+			in.skip();
+		}
+		in.skip();
+		in.skip();
+		ByteBuffer key = data.duplicate();
+		key.limit(data.position()).position(start);
+		Source source = sources.get(key);
+		if (source == null) {
+			int end = data.position();
+			data.position(start);
+			source = newSource(in);
+			data.position(end);
+			byte[] copy = new byte[key.remaining()];
+			key.get(copy);
+			sources.put(ByteBuffer.wrap(copy), source);
+		}
+		return source;
+	}
+
+	private Source newSource(BinaryReader in) throws IOException {
+		int depth = (int) in.varint();
+		ArrayList<DefaultSource> chain = new ArrayList<DefaultSource>(depth);
+		for (int i = 0; i < depth; i++) {
+			SourceType type = in.ordinal(SOURCE_TYPES);
+			String name = in.str(), user = in.str();
+			chain.add(new DefaultSource(name, type, null, user));
+		}
+		for (int i = depth - 1; i > 0; i--) {
+			chain.get(i - 1).setSource(chain.get(i));
+		}
+		DefaultSource source = chain.get(0);
+		source.setInfo(in.str());
+		source.setUrl(in.str());
+		return source;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{version: " + BinaryFormatter.VERSION + ", sources: " + sources.size()
+		        + ", dictionary: " + dictionary.size() + ", last.type: " + recordType + "}";
+	}
+}
+
+/**
+ * Binary record reader, counterpart of <code>BinaryWriter</code>
+ */
+class BinaryReader {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	ByteBuffer buffer;
+	DictionaryTable dictionary;
+
+	BinaryReader(ByteBuffer buf, DictionaryTable dict) {
+		buffer = buf;
+		dictionary = dict;
+	}
+
+	long varint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid varint at position=" + buffer.position());
+	}
+
+	long zigzag() throws IOException {
+		long value = varint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	long fixed64() {
+		return buffer.getLong();
+	}
+
+	int fixed32() {
+		return buffer.getInt();
+	}
+
+	<T extends Enum<T>> T ordinal(T[] values) throws IOException {
+		int ordinal = (int) varint();
+		if (ordinal == 0) {
+			return null;
+		}
+		if (ordinal > values.length) {
+			throw new IOException("Invalid ordinal=" + (ordinal - 1) + " for " + values[0].getDeclaringClass().getName());
+		}
+		return values[ordinal - 1];
+	}
+
+	String str() throws IOException {
+		int length = (int) varint();
+		return length == BinaryWriter.STRING_NULL ? null : utf8(length - 1);
+	}
+
+	/**
+	 * Read a string which may be dictionary encoded, see <code>BinaryWriter.dstr()</code>
+	 */
+	String dstr() throws IOException {
+		if (dictionary == null) {
+			return str();
+		}
+		long code = varint();
+		if (code == BinaryWriter.STRING_NULL) {
+			return null;
+		}
+		int value = (int) (code >>> 2);
+		switch ((int) (code & 3)) {
+		case BinaryWriter.DICT_REF:
+			return dictionary.get(value, String.class);
+		case BinaryWriter.DICT_DEFINE:
+			String str = str();
+			dictionary.put(value, str);
+			return str;
+		default:
+			return utf8(value);
+		}
+	}
+
+	/**
+	 * Skip a length prefixed string
+	 */
+	void skip() throws IOException {
+		int length = (int) varint();
+		if (length > 0) {
+			buffer.position(buffer.position() + length - 1);
+		}
+	}
+
+	String id() throws IOException {
+		int length = (int) varint();
+		if (length == BinaryWriter.STRING_NULL) {
+			return null;
+		}
+		if (length == BinaryWriter.ID_UUID) {
+			long high = buffer.getLong(), low = buffer.getLong();
+			char[] chars = new char[36];
+			hex(chars, 0, high >>> 32, 8);
+			chars[8] = '-';
+			hex(chars, 9, high >>> 16, 4);
+			chars[13] = '-';
+			hex(chars, 14, high, 4);
+			chars[18] = '-';
+			hex(chars, 19, low >>> 48, 4);
+			chars[23] = '-';
+			hex(chars, 24, low, 12);
+			return new String(chars);
+		}
+		return utf8(length - 2);
+	}
+
+	private static void hex(char[] chars, int offset, long value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			chars[i] = HEX[(int) (value & 0xF)];
+			value >>>= 4;
+		}
+	}
+
+	private String utf8(int length) {
+		String str;
+		if (buffer.hasArray()) {
+			str = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, BinaryDecoder.UTF8);
+			buffer.position(buffer.position() + length);
+		} else {
+			byte[] data = new byte[length];
+			buffer.get(data);
+			str = new String(data, BinaryDecoder.UTF8);
+		}
+		return str;
+	}
+}
+
+/**
+ * Decoder side dictionary: strings and sources indexed by slots assigned by the encoder
+ */
+class DictionaryTable {
+	private Object[] slots = new Object[64];
+	private int size = 0;
+
+	<T> T get(int slot, Class<T> type) throws IOException {
+		Object value = slot < slots.length ? slots[slot] : null;
+		if (!type.isInstance(value)) {
+			throw new IOException("Undefined dictionary slot=" + slot + ", expected=" + type.getSimpleName()
+			        + ", found=" + (value != null ? value.getClass().getSimpleName() : null));
+		}
+		return type.cast(value);
+	}
+
+	void put(int slot, Object value) {
+		if (slot >= slots.length) {
+			slots = Arrays.copyOf(slots, Math.max(slot + 1, slots.length * 2));
+		}
+		if (slots[slot] == null) {
+			size++;
+		}
+		slots[slot] = value;
+	}
+
+	int size() {
+		return size;
+	}
+}
+
+/**
+ * Tracking event rebuilt from a binary record
+ */
+class DecodedEvent extends TrackingEvent {
+	DecodedEvent(Source src, OpLevel severity, OpType type, String name, String correlator, String tag, String msg) {
+		super(src, severity, type, name, correlator, tag, msg);
+	}
+}
+
+/**
+ * Trackable reference used to restore parent ids of decoded objects
+ */
+class TrackableId implements Trackable {
+	private String id;
+	private Source source;
+
+	TrackableId(String tid, Source src) {
+		id = tid;
+		source = src;
+	}
+
+	@Override
+	public void setSource(Source src) {
+		source = src;
+	}
+
+	@Override
+	public Source getSource() {
+		return source;
+	}
+
+	@Override
+	public String getCorrelator() {
+		return null;
+	}
+
+	@Override
+	public void setCorrelator(String cid) {
+	}
+
+	@Override
+	public OpType getType() {
+		return OpType.NOOP;
+	}
+
+	@Override
+	public String getTrackingId() {
+		return id;
+	}
+
+	@Override
+	public String getParentId() {
+		return null;
+	}
+
+	@Override
+	public void setTrackingId(String signature) {
+		id = signature;
+	}
+
+	@Override
+	public void setParentId(Trackable parentObject) {
+	}
+}
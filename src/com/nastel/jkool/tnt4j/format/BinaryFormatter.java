@@ -0,0 +1,548 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+import com.nastel.jkool.tnt4j.core.Activity;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Operation;
+import com.nastel.jkool.tnt4j.core.Property;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.source.SourceCache;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.Useconds;
+import com.nastel.jkool.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Compact binary implementation of <code>EventFormatter</code> interface, which formats
+ * <code>TrackingEvent</code>, <code>TrackingActivity</code>, <code>Snapshot</code>, <code>Property</code>
+ * and log messages into self delimited tag-length-value records. Each record starts with a header:
+ * <code>MAGIC, VERSION, record type, body length</code> followed by the record body.
+ * Numbers are written as (zigzag) varints, enums as ordinals, strings as length prefixed UTF-8
+ * and UUID based tracking ids as 16 bytes. Source attributes are pre-serialized once per source.
+ * </p>
+ * <p>
+ * Optional stream level string dictionary (<code>DictionarySize</code>) replaces repeated sources,
+ * operation names, resources, users, snapshot categories, property keys and short property values
+ * with small ids: the first occurrence defines an entry in a given slot, later occurrences refer to
+ * the slot. Least recently used entries are evicted when the dictionary is full. Dictionary encoded
+ * records are flagged with <code>FLAG_DICTIONARY</code> in the record type and must be decoded in order
+ * by the same <code>BinaryDecoder</code>.
+ * </p>
+ * <p>
+ * Records are written directly into a <code>ByteBuffer</code> by <code>ByteEventFormatter</code> methods.
+ * String based <code>format()</code> methods return base64 encoded records for text only sinks.
+ * Use <code>BinaryDecoder</code> to read records back into objects.
+ * </p>
+ *
+ *
+ * @version $Revision: 4 $
+ *
+ * @see BinaryDecoder
+ * @see ByteEventFormatter
+ * @see JSONFormatter
+ * @see Configurable
+ */
+public class BinaryFormatter implements ByteEventFormatter, Configurable {
+	public static final byte MAGIC = (byte) 0xB7;
+	public static final byte VERSION = 1;
+
+	public static final int RECORD_EVENT = 1;
+	public static final int RECORD_ACTIVITY = 2;
+	public static final int RECORD_SNAPSHOT = 3;
+	public static final int RECORD_MESSAGE = 4;
+	public static final int RECORD_PROPERTY = 5;
+
+	public static final int FLAG_DICTIONARY = 0x40;
+	public static final int RECORD_TYPE_MASK = 0x3F;
+	public static final int DEFAULT_DICTIONARY_SIZE = Integer.getInteger("tnt4j.formatter.binary.dictionary.size", 0);
+	public static final int MAX_DICTIONARY_ENTRY = 256;
+	public static final int MAX_DICTIONARY_VALUE = 64;
+
+	static final int VALUE_NULL = 0;
+	static final int VALUE_STRING = 1;
+	static final int VALUE_INT = 2;
+	static final int VALUE_LONG = 3;
+	static final int VALUE_DOUBLE = 4;
+	static final int VALUE_FLOAT = 5;
+	static final int VALUE_BOOLEAN = 6;
+	static final int VALUE_BYTE = 7;
+	static final int VALUE_SHORT = 8;
+	static final int VALUE_CHAR = 9;
+	static final int VALUE_DATE = 10;
+
+	static final int TIME_STARTED = 1;
+	static final int TIME_STOPPED = 2;
+
+	static final int INITIAL_BUFFER_SIZE = 4096;
+	static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+
+	private Map<String, Object> config = null;
+	private StringDictionary dictionary = null;
+	private ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+	private SourceCache<byte[]> sourceCache = new SourceCache<byte[]>() {
+		@Override
+		protected byte[] create(Source source) {
+			return newSourceFragment(source);
+		}
+	};
+
+	/**
+	 * Create binary formatter with default dictionary size
+	 * (<code>tnt4j.formatter.binary.dictionary.size</code>, disabled by default)
+	 *
+	 */
+	public BinaryFormatter() {
+		this(DEFAULT_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * Create binary formatter with a given string dictionary size
+	 *
+	 * @param dictSize
+	 *            maximum number of dictionary entries, 0 to disable dictionary encoding
+	 */
+	public BinaryFormatter(int dictSize) {
+		setDictionarySize(dictSize);
+	}
+
+	private void setDictionarySize(int dictSize) {
+		dictionary = dictSize > 0 ? new StringDictionary(dictSize) : null;
+	}
+
+	/**
+	 * Determine if records written into byte buffers depend on previously written records,
+	 * which is the case when dictionary encoding is enabled. Such records must be written
+	 * in the order they are formatted and <code>reset()</code> must be called whenever
+	 * a new output stream starts or a formatted record is lost.
+	 *
+	 * @return true if dictionary encoding is enabled, false otherwise
+	 */
+	public boolean isStateful() {
+		return dictionary != null;
+	}
+
+	/**
+	 * Reset stream state, so that subsequent records do not refer to
+	 * dictionary entries defined by previous records.
+	 *
+	 */
+	public void reset() {
+		StringDictionary dict = dictionary;
+		if (dict != null) {
+			synchronized (dict) {
+				dict.clear();
+			}
+		}
+	}
+
+	/**
+	 * Obtain string dictionary statistics: size, capacity, hits, definitions and evictions
+	 *
+	 * @return dictionary statistics, empty if dictionary encoding is disabled
+	 */
+	public Map<String, Object> getDictionaryStats() {
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		StringDictionary dict = dictionary;
+		if (dict != null) {
+			synchronized (dict) {
+				dict.getStats(stats);
+			}
+		}
+		return stats;
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object size = config.get("DictionarySize");
+		if (size != null) {
+			setDictionarySize(Integer.parseInt(size.toString()));
+		}
+	}
+
+	@Override
+	public String format(Object obj, Object... args) {
+		return encode(obj, null, OpLevel.NONE, args);
+	}
+
+	/**
+	 * Format a given <code>TrackingEvent</code> into a base64 encoded binary record
+	 *
+	 * @param event
+	 *            tracking event instance to be formatted
+	 * @see TrackingEvent
+	 */
+	@Override
+	public String format(TrackingEvent event) {
+		return format((Object) event);
+	}
+
+	/**
+	 * Format a given <code>TrackingActivity</code> into a base64 encoded binary record
+	 *
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @see TrackingActivity
+	 */
+	@Override
+	public String format(TrackingActivity activity) {
+		return format((Object) activity);
+	}
+
+	/**
+	 * Format a given <code>Snapshot</code> into a base64 encoded binary record
+	 *
+	 * @param snapshot
+	 *            snapshot instance to be formatted
+	 * @see Snapshot
+	 */
+	@Override
+	public String format(Snapshot snapshot) {
+		return format((Object) snapshot);
+	}
+
+	/**
+	 * Format a given message, severity and source into a base64 encoded binary record
+	 *
+	 * @param source
+	 *            event source
+	 * @param level
+	 *            severity level
+	 * @param msg
+	 *            message to be formatted
+	 * @param args
+	 *            arguments associated with the message
+	 */
+	@Override
+	public String format(Source source, OpLevel level, String msg, Object... args) {
+		return encode(msg, source, level, args);
+	}
+
+	/**
+	 * Format a given object into a per thread buffer and return the record base64 encoded.
+	 * String dictionary is never used, so that each string record is self contained.
+	 */
+	private String encode(Object obj, Source source, OpLevel level, Object... args) {
+		ByteBuffer buffer = buffers.get();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+			buffers.set(buffer);
+		}
+		while (true) {
+			buffer.clear();
+			try {
+				if (obj instanceof TrackingActivity) {
+					write(buffer, RECORD_ACTIVITY, obj, null, null, null, false);
+				} else if (obj instanceof TrackingEvent) {
+					write(buffer, RECORD_EVENT, obj, null, null, null, false);
+				} else if (obj instanceof Snapshot) {
+					write(buffer, RECORD_SNAPSHOT, obj, null, null, null, false);
+				} else if (obj instanceof Property) {
+					write(buffer, RECORD_PROPERTY, obj, null, null, null, false);
+				} else {
+					write(buffer, RECORD_MESSAGE, obj != null ? obj.toString() : null, source, level, args, false);
+				}
+				return new String(Base64.encodeBase64(Arrays.copyOf(buffer.array(), buffer.position())));
+			} catch (BufferOverflowException e) {
+				if (buffer.capacity() >= MAX_BUFFER_SIZE) {
+					throw new IllegalArgumentException("Record exceeds max.size=" + MAX_BUFFER_SIZE, e);
+				}
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffers.set(buffer);
+			}
+		}
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingEvent event) {
+		write(buffer, RECORD_EVENT, event, null, null, null, true);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingActivity activity) {
+		write(buffer, RECORD_ACTIVITY, activity, null, null, null, true);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Snapshot snapshot) {
+		write(buffer, RECORD_SNAPSHOT, snapshot, null, null, null, true);
+	}
+
+	/**
+	 * Format a given <code>Property</code> into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param prop property to be formatted
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 * @see Property
+	 */
+	public void format(ByteBuffer buffer, Property prop) {
+		write(buffer, RECORD_PROPERTY, prop, null, null, null, true);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Source source, OpLevel level, String msg, Object... args) {
+		write(buffer, RECORD_MESSAGE, msg, source, level, args, true);
+	}
+
+	/**
+	 * Write a single record, using the string dictionary if enabled and requested.
+	 * Dictionary is cleared if the record can not be written, since
+	 * entries defined by a failed record never reach the stream.
+	 */
+	private void write(ByteBuffer buffer, int type, Object obj, Source source, OpLevel level, Object[] args,
+	        boolean useDictionary) {
+		StringDictionary dict = useDictionary ? dictionary : null;
+		if (dict == null) {
+			writeRecord(new BinaryWriter(buffer, null), type, obj, source, level, args);
+			return;
+		}
+		synchronized (dict) {
+			boolean written = false;
+			try {
+				writeRecord(new BinaryWriter(buffer, dict), type, obj, source, level, args);
+				written = true;
+			} finally {
+				if (!written) {
+					dict.clear();
+				}
+			}
+		}
+	}
+
+	private void writeRecord(BinaryWriter out, int type, Object obj, Source source, OpLevel level, Object[] args) {
+		int mark = out.begin(type);
+		switch (type) {
+		case RECORD_EVENT:
+			writeEvent(out, (TrackingEvent) obj);
+			break;
+		case RECORD_ACTIVITY:
+			writeActivity(out, (Activity) obj);
+			break;
+		case RECORD_SNAPSHOT:
+			writeSnapshot(out, (Snapshot) obj);
+			break;
+		case RECORD_PROPERTY:
+			writeProperty(out, (Property) obj);
+			break;
+		default:
+			writeMessage(out, source, level, (String) obj, args);
+		}
+		out.end(mark);
+	}
+
+	private void writeMessage(BinaryWriter out, Source source, OpLevel level, String msg, Object... args) {
+		out.ordinal(level);
+		out.varint(Utils.getVMPID());
+		out.varint(Thread.currentThread().getId());
+		out.varint(Useconds.CURRENT.get());
+		writeSource(out, source);
+		out.str(msg != null ? Utils.format(msg, args) : null);
+		Throwable ex = Utils.getThrowable(args);
+		out.str(ex != null ? ex.toString() : null);
+	}
+
+	private void writeEvent(BinaryWriter out, TrackingEvent event) {
+		Operation op = event.getOperation();
+		out.id(event.getTrackingId());
+		out.id(event.getParentId());
+		writeSource(out, event.getSource());
+		writeOperation(out, op);
+		long base = writeTimes(out, op);
+		if (op.getEndTime() != null) {
+			out.varint(event.getMessageAge());
+		}
+		out.zigzag(Useconds.CURRENT.get() - base);
+		out.dstr(event.getTag());
+		out.varint(event.getSize());
+		out.dstr(event.getMimeType());
+		out.dstr(event.getEncoding());
+		out.dstr(event.getCharset());
+		out.str(event.getMessage());
+		out.str(op.getExceptionString());
+		writeSnapshots(out, op.getSnapshots());
+	}
+
+	private void writeActivity(BinaryWriter out, Activity activity) {
+		out.id(activity.getTrackingId());
+		out.id(activity.getParentId());
+		writeSource(out, activity.getSource());
+		out.ordinal(activity.getStatus());
+		writeOperation(out, activity);
+		long base = writeTimes(out, activity);
+		out.zigzag(Useconds.CURRENT.get() - base);
+		synchronized (activity) {
+			Collection<String> ids = activity.getIds();
+			out.varint(ids.size());
+			for (String id : ids) {
+				out.id(id);
+			}
+		}
+		out.str(activity.getExceptionString());
+		writeSnapshots(out, activity.getSnapshots());
+	}
+
+	private void writeOperation(BinaryWriter out, Operation op) {
+		out.ordinal(op.getSeverity());
+		out.ordinal(op.getType());
+		out.varint(op.getPID());
+		out.varint(op.getTID());
+		out.ordinal(op.getCompCode());
+		out.zigzag(op.getReasonCode());
+		out.str(op.getCorrelator());
+		out.dstr(op.getLocation());
+		out.dstr(op.getResolvedName());
+		out.dstr(op.getResource());
+		out.dstr(op.getUser());
+	}
+
+	/**
+	 * Write start, end and wait times
+	 *
+	 * @return base time in usec used for subsequent deltas
+	 */
+	private long writeTimes(BinaryWriter out, Operation op) {
+		int flags = (op.getStartTime() != null ? TIME_STARTED : 0) | (op.getEndTime() != null ? TIME_STOPPED : 0);
+		long base = op.getStartTime() != null ? op.getStartTime().getTimeUsec() : 0;
+		out.varint(flags);
+		if (op.getStartTime() != null) {
+			out.varint(base);
+		}
+		if (op.getEndTime() != null) {
+			out.zigzag(op.getEndTime().getTimeUsec() - base);
+			out.varint(op.getWaitTime());
+		}
+		return base;
+	}
+
+	private void writeSnapshots(BinaryWriter out, Collection<Snapshot> snapshots) {
+		if (snapshots == null) {
+			out.varint(0);
+			return;
+		}
+		out.varint(snapshots.size());
+		for (Snapshot snap : snapshots) {
+			writeSnapshot(out, snap);
+		}
+	}
+
+	private void writeSnapshot(BinaryWriter out, Snapshot snap) {
+		out.id(snap.getTrackingId());
+		out.id(snap.getParentId());
+		out.dstr(snap.getCategory());
+		out.dstr(snap.getName());
+		out.ordinal(snap.getSeverity());
+		out.ordinal(snap.getType());
+		out.varint(snap.getTimeStamp().getTimeUsec());
+		writeSource(out, snap.getSource());
+		Collection<Property> props = snap.getSnapshot();
+		out.varint(props.size());
+		for (Property prop : props) {
+			writeProperty(out, prop);
+		}
+	}
+
+	private void writeProperty(BinaryWriter out, Property prop) {
+		out.dstr(prop.getKey());
+		Object value = prop.getValue();
+		if (value == null) {
+			out.varint(VALUE_NULL);
+		} else if (value instanceof String) {
+			out.varint(VALUE_STRING).dstr((String) value, MAX_DICTIONARY_VALUE);
+		} else if (value instanceof Integer) {
+			out.varint(VALUE_INT).zigzag(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			out.varint(VALUE_LONG).zigzag(((Long) value).longValue());
+		} else if (value instanceof Double) {
+			out.varint(VALUE_DOUBLE).fixed64(Double.doubleToLongBits(((Double) value).doubleValue()));
+		} else if (value instanceof Float) {
+			out.varint(VALUE_FLOAT).fixed32(Float.floatToIntBits(((Float) value).floatValue()));
+		} else if (value instanceof Boolean) {
+			out.varint(VALUE_BOOLEAN).varint(((Boolean) value).booleanValue() ? 1 : 0);
+		} else if (value instanceof Byte) {
+			out.varint(VALUE_BYTE).zigzag(((Byte) value).byteValue());
+		} else if (value instanceof Short) {
+			out.varint(VALUE_SHORT).zigzag(((Short) value).shortValue());
+		} else if (value instanceof Character) {
+			out.varint(VALUE_CHAR).varint(((Character) value).charValue());
+		} else if (value instanceof Date) {
+			out.varint(VALUE_DATE).zigzag(((Date) value).getTime());
+		} else {
+			out.varint(VALUE_STRING).dstr(value.toString(), MAX_DICTIONARY_VALUE);
+		}
+	}
+
+	/**
+	 * Write source chain (child first) followed by info and url of the given source
+	 * using a cached pre-serialized fragment, which is itself a dictionary entry
+	 */
+	private void writeSource(BinaryWriter out, Source source) {
+		if (source == null) {
+			out.varint(0);
+		} else {
+			out.dsource(sourceCache.get(source));
+		}
+	}
+
+	private byte[] newSourceFragment(Source source) {
+		for (int size = 512;; size *= 2) {
+			try {
+				BinaryWriter out = new BinaryWriter(ByteBuffer.allocate(size), null);
+				int depth = 0;
+				for (Source src = source; src != null; src = src.getSource()) {
+					depth++;
+				}
+				out.varint(depth);
+				for (Source src = source; src != null; src = src.getSource()) {
+					out.ordinal(src.getType());
+					out.str(src.getName());
+					out.str(src.getUser());
+				}
+				out.str(source.getInfo());
+				out.str(source.getUrl());
+				return Arrays.copyOf(out.buffer.array(), out.buffer.position());
+			} catch (BufferOverflowException e) {
+				if (size >= MAX_BUFFER_SIZE) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{version: " + VERSION + "}";
+	}
+}
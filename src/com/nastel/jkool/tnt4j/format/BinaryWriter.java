@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary record writer for varints, ordinals, length prefixed UTF-8 strings
+ * and UUIDs on top of a <code>ByteBuffer</code>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see BinaryFormatter
+ * @see BinaryDecoder
+ */
+class BinaryWriter {
+	static final int MAX_VARINT32 = 5;
+	static final int STRING_NULL = 0;
+	static final int ID_UUID = 1;
+
+	static final int DICT_REF = 1;
+	static final int DICT_DEFINE = 2;
+	static final int DICT_LITERAL = 3;
+
+	ByteBuffer buffer;
+	StringDictionary dictionary;
+
+	BinaryWriter(ByteBuffer buf, StringDictionary dict) {
+		buffer = buf;
+		dictionary = dict;
+	}
+
+	/**
+	 * Write record header and reserve space for body length
+	 *
+	 * @return mark to be passed to <code>end()</code>
+	 */
+	int begin(int type) {
+		if (buffer.remaining() < 3 + MAX_VARINT32) {
+			throw new BufferOverflowException();
+		}
+		if (dictionary != null) {
+			type |= BinaryFormatter.FLAG_DICTIONARY;
+		}
+		buffer.put(BinaryFormatter.MAGIC).put(BinaryFormatter.VERSION).put((byte) type);
+		int mark = buffer.position();
+		buffer.position(mark + MAX_VARINT32);
+		return mark;
+	}
+
+	/**
+	 * Write body length at a given mark and move the body next to it
+	 */
+	void end(int mark) {
+		int end = buffer.position();
+		int length = end - mark - MAX_VARINT32;
+		buffer.position(mark);
+		varint(length);
+		if (buffer.position() < mark + MAX_VARINT32) {
+			ByteBuffer body = buffer.duplicate();
+			body.limit(end).position(mark + MAX_VARINT32);
+			buffer.put(body);
+		} else {
+			buffer.position(end);
+		}
+	}
+
+	BinaryWriter varint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+		return this;
+	}
+
+	BinaryWriter zigzag(long value) {
+		return varint((value << 1) ^ (value >> 63));
+	}
+
+	BinaryWriter fixed64(long value) {
+		buffer.putLong(value);
+		return this;
+	}
+
+	BinaryWriter fixed32(int value) {
+		buffer.putInt(value);
+		return this;
+	}
+
+	BinaryWriter ordinal(Enum<?> value) {
+		return varint(value == null ? 0 : value.ordinal() + 1);
+	}
+
+	BinaryWriter bytes(byte[] data) {
+		buffer.put(data);
+		return this;
+	}
+
+	/**
+	 * Write a string as a varint (UTF-8 length + 1) followed by UTF-8 bytes, 0 for null
+	 */
+	BinaryWriter str(String str) {
+		if (str == null) {
+			return varint(STRING_NULL);
+		}
+		varint(utf8Length(str) + 1);
+		return utf8(str);
+	}
+
+	/**
+	 * Write a string using dictionary encoding if enabled
+	 */
+	BinaryWriter dstr(String str) {
+		return dstr(str, BinaryFormatter.MAX_DICTIONARY_ENTRY);
+	}
+
+	/**
+	 * Write a string using dictionary encoding if enabled: 0 for null,
+	 * (slot &lt;&lt; 2 | 1) for a reference, (slot &lt;&lt; 2 | 2) followed by a length prefixed string
+	 * for a new entry and (length &lt;&lt; 2 | 3) followed by UTF-8 bytes for strings longer than a given limit
+	 */
+	BinaryWriter dstr(String str, int maxLength) {
+		if (dictionary == null || str == null) {
+			return str(str);
+		}
+		if (str.length() > maxLength) {
+			varint(((long) utf8Length(str) << 2) | DICT_LITERAL);
+			return utf8(str);
+		}
+		int slot = dictionary.get(str);
+		if (slot >= 0) {
+			return varint(((long) slot << 2) | DICT_REF);
+		}
+		varint(((long) dictionary.define(str) << 2) | DICT_DEFINE);
+		return str(str);
+	}
+
+	/**
+	 * Write a pre-serialized source fragment, using dictionary encoding if enabled:
+	 * (slot &lt;&lt; 2 | 1) for a reference, (slot &lt;&lt; 2 | 2) followed by the fragment for a new entry
+	 */
+	BinaryWriter dsource(byte[] fragment) {
+		if (dictionary == null) {
+			return bytes(fragment);
+		}
+		int slot = dictionary.get(fragment);
+		if (slot >= 0) {
+			return varint(((long) slot << 2) | DICT_REF);
+		}
+		varint(((long) dictionary.define(fragment) << 2) | DICT_DEFINE);
+		return bytes(fragment);
+	}
+
+	/**
+	 * Write a tracking id: 0 for null, 1 followed by 16 bytes for lowercase
+	 * canonical UUIDs, otherwise varint (UTF-8 length + 2) followed by UTF-8 bytes
+	 */
+	BinaryWriter id(String id) {
+		if (id == null) {
+			return varint(STRING_NULL);
+		}
+		if (isUUID(id)) {
+			varint(ID_UUID);
+			buffer.putLong((hex(id, 0, 8) << 32) | (hex(id, 9, 13) << 16) | hex(id, 14, 18));
+			buffer.putLong((hex(id, 19, 23) << 48) | hex(id, 24, 36));
+			return this;
+		}
+		varint(utf8Length(id) + 2);
+		return utf8(id);
+	}
+
+	static boolean isUUID(String id) {
+		if (id.length() != 36) {
+			return false;
+		}
+		for (int i = 0; i < 36; i++) {
+			char ch = id.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (ch != '-') {
+					return false;
+				}
+			} else if (!((ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f'))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long hex(String str, int from, int to) {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			char ch = str.charAt(i);
+			value = (value << 4) | (ch <= '9' ? ch - '0' : ch - 'a' + 10);
+		}
+		return value;
+	}
+
+	static int utf8Length(String str) {
+		int length = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char ch = str.charAt(i);
+			if (ch < 0x80) {
+				length++;
+			} else if (ch < 0x800) {
+				length += 2;
+			} else if (isPair(str, i)) {
+				length += 4;
+				i++;
+			} else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private BinaryWriter utf8(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char ch = str.charAt(i);
+			if (ch < 0x80) {
+				buffer.put((byte) ch);
+			} else if (ch < 0x800) {
+				buffer.put((byte) (0xC0 | (ch >> 6)));
+				buffer.put((byte) (0x80 | (ch & 0x3F)));
+			} else if (isPair(str, i)) {
+				int cp = Character.toCodePoint(ch, str.charAt(++i));
+				buffer.put((byte) (0xF0 | (cp >> 18)));
+				buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (cp & 0x3F)));
+			} else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | (ch >> 12)));
+				buffer.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (ch & 0x3F)));
+			}
+		}
+		return this;
+	}
+
+	private static boolean isPair(String str, int i) {
+		return Character.isHighSurrogate(str.charAt(i)) && (i + 1 < str.length())
+		        && Character.isLowSurrogate(str.charAt(i + 1));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * Classes that implement this interface provide implementation for the <code>ByteEventFormatter</code> interface.
+ * This interface extends <code>EventFormatter</code> and allows formatting of tracking objects
+ * and log messages directly into a <code>ByteBuffer</code> as encoded bytes.
+ * Formatted bytes are written starting at the current buffer position.
+ * Implementations throw <code>BufferOverflowException</code> when the buffer has insufficient space,
+ * in which case buffer contents are undefined and callers should retry with a larger buffer.
+ * </p>
+ *
+ *
+ * @version $Revision: 1 $
+ *
+ * @see EventFormatter
+ * @see EncodingFormatter
+ */
+public interface ByteEventFormatter extends EventFormatter {
+	/**
+	 * Format a given <code>TrackingEvent</code> into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param event tracking event instance to be formatted
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 * @see TrackingEvent
+	 */
+	public void format(ByteBuffer buffer, TrackingEvent event) throws BufferOverflowException;
+
+	/**
+	 * Format a given <code>TrackingActivity</code> into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param activity tracking activity instance to be formatted
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 * @see TrackingActivity
+	 */
+	public void format(ByteBuffer buffer, TrackingActivity activity) throws BufferOverflowException;
+
+	/**
+	 * Format a given <code>Snapshot</code> into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param snapshot snapshot object to be formatted
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 * @see Snapshot
+	 */
+	public void format(ByteBuffer buffer, Snapshot snapshot) throws BufferOverflowException;
+
+	/**
+	 * Format a given message, severity and source into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param source event source
+	 * @param level severity level
+	 * @param msg message to be formatted
+	 * @param args arguments associated with the message
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 * @see OpLevel
+	 */
+	public void format(ByteBuffer buffer, Source source, OpLevel level, String msg, Object... args)
+	        throws BufferOverflowException;
+}
@@ -22,11 +22,12 @@ import java.util.TimeZone;
 import com.nastel.jkool.tnt4j.config.Configurable;
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.Snapshot;
-import com.nastel.jkool.tnt4j.core.UsecTimestamp;
 import com.nastel.jkool.tnt4j.source.DefaultSourceFactory;
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.TimeService;
+import com.nastel.jkool.tnt4j.utils.TimestampFormatter;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
 /**
@@ -37,7 +38,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * </p>
  * 
  * 
- * @version $Revision: 4 $
+ * @version $Revision: 5 $
  * 
  * @see Formatter
  * @see TrackingActivity
@@ -51,6 +52,7 @@ public class DefaultFormatter implements EventFormatter, Configurable   {
 	protected String formatString = "{2} | {1} | {0} | {3}";
 
 	private Map<String, Object> config = null;
+	private TimestampFormatter timeFormatter = null;
 	
 	/**
 	 * Create a default event formatter
@@ -119,8 +121,22 @@ public class DefaultFormatter implements EventFormatter, Configurable   {
 	@Override
     public String format(Source src, OpLevel level, String msg, Object...args) {
 		String srcName = src != null? src.getFQName(): DefaultSourceFactory.getInstance().getRootSource().getFQName();
-		return Utils.format(formatString, UsecTimestamp.getTimeStamp(timeZone), level, Utils.format(msg, args), srcName);
+		return Utils.format(formatString, getTimestampFormatter().format(TimeService.currentTimeMillis(), 0), level,
+		        Utils.format(msg, args), srcName);
     }
+
+	/**
+	 * Obtain shared timestamp formatter for the current time zone of this formatter
+	 *
+	 * @return timestamp formatter
+	 */
+	protected TimestampFormatter getTimestampFormatter() {
+		TimestampFormatter tf = timeFormatter;
+		if (tf == null || !tf.getTimeZoneId().equals(timeZone.getID())) {
+			timeFormatter = tf = TimestampFormatter.getInstance(timeZone);
+		}
+		return tf;
+	}
 	
 	@Override
 	public Map<String, Object> getConfiguration() {
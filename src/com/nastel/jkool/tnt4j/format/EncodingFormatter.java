@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class implements <code>ByteEventFormatter</code> on top of any <code>EventFormatter</code>.
+ * Objects are formatted using the underlying formatter and resulting strings are encoded
+ * directly into the destination buffer using a given character set (UTF-8 by default)
+ * without intermediate byte arrays.
+ * </p>
+ *
+ *
+ * @version $Revision: 1 $
+ *
+ * @see ByteEventFormatter
+ * @see EventFormatter
+ */
+public class EncodingFormatter implements ByteEventFormatter {
+	public static final String DEFAULT_CHARSET = "UTF-8";
+
+	private EventFormatter formatter;
+	private Charset charset;
+	private ThreadLocal<CharsetEncoder> encoders = new ThreadLocal<CharsetEncoder>();
+
+	/**
+	 * Create a UTF-8 encoding formatter on top of a given event formatter
+	 *
+	 * @param frm underlying event formatter
+	 */
+	public EncodingFormatter(EventFormatter frm) {
+		this(frm, DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Create an encoding formatter on top of a given event formatter
+	 *
+	 * @param frm underlying event formatter
+	 * @param charsetName name of the character set used to encode formatted strings
+	 */
+	public EncodingFormatter(EventFormatter frm, String charsetName) {
+		formatter = frm;
+		charset = Charset.forName(charsetName);
+	}
+
+	/**
+	 * Obtain a byte oriented formatter for a given event formatter
+	 *
+	 * @param frm event formatter
+	 * @return given formatter if it is already a <code>ByteEventFormatter</code>, encoding formatter otherwise
+	 */
+	public static ByteEventFormatter getByteFormatter(EventFormatter frm) {
+		return (frm instanceof ByteEventFormatter) ? (ByteEventFormatter) frm : new EncodingFormatter(frm);
+	}
+
+	/**
+	 * Obtain underlying event formatter
+	 *
+	 * @return underlying event formatter
+	 */
+	public EventFormatter getFormatter() {
+		return formatter;
+	}
+
+	/**
+	 * Encode a given string into a byte buffer
+	 *
+	 * @param buffer destination buffer
+	 * @param str string to be encoded
+	 * @throws BufferOverflowException if buffer has insufficient space
+	 */
+	public void encode(ByteBuffer buffer, CharSequence str) throws BufferOverflowException {
+		CharsetEncoder encoder = encoders.get();
+		if (encoder == null) {
+			encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+			        CodingErrorAction.REPLACE);
+			encoders.set(encoder);
+		}
+		encoder.reset();
+		CharBuffer chars = CharBuffer.wrap(str);
+		CoderResult result = encoder.encode(chars, buffer, true);
+		if (!result.isOverflow()) {
+			result = encoder.flush(buffer);
+		}
+		if (result.isOverflow()) {
+			throw new BufferOverflowException();
+		}
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingEvent event) {
+		encode(buffer, formatter.format(event));
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingActivity activity) {
+		encode(buffer, formatter.format(activity));
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Snapshot snapshot) {
+		encode(buffer, formatter.format(snapshot));
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Source source, OpLevel level, String msg, Object... args) {
+		encode(buffer, formatter.format(source, level, msg, args));
+	}
+
+	@Override
+	public String format(Object obj, Object... args) {
+		return formatter.format(obj, args);
+	}
+
+	@Override
+	public String format(TrackingEvent event) {
+		return formatter.format(event);
+	}
+
+	@Override
+	public String format(TrackingActivity activity) {
+		return formatter.format(activity);
+	}
+
+	@Override
+	public String format(Snapshot snapshot) {
+		return formatter.format(snapshot);
+	}
+
+	@Override
+	public String format(Source src, OpLevel level, String msg, Object... args) {
+		return formatter.format(src, level, msg, args);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{charset: " + charset + ", formatter: " + formatter + "}";
+	}
+}
@@ -1,12 +1,12 @@
 /*
  * Copyright 2014 Nastel Technologies, Inc.
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- *
+ * 
  *     http://www.apache.org/licenses/LICENSE-2.0
- *
+ * 
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,20 +15,29 @@
  */
 package com.nastel.jkool.tnt4j.format;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-
-import org.apache.commons.lang3.StringEscapeUtils;
+import java.util.Set;
 
 import com.nastel.jkool.tnt4j.config.Configurable;
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.OpType;
+import com.nastel.jkool.tnt4j.core.Operation;
 import com.nastel.jkool.tnt4j.core.Property;
 import com.nastel.jkool.tnt4j.core.Snapshot;
 import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.source.SourceCache;
 import com.nastel.jkool.tnt4j.source.SourceType;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.JSONEscaper;
 import com.nastel.jkool.tnt4j.utils.Useconds;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
@@ -36,19 +45,39 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * <p>
  * JSON implementation of <code>Formatter</code> interface provides default formatting of <code>TrackingActvity</code>,
  * <code>TrackingEvent</code>, <code>Snapshot</code>, <code>Property</code> into JSON format.
+ * Objects can also be streamed directly into any <code>Appendable</code> or into a <code>ByteBuffer</code> as UTF-8,
+ * without building intermediate strings. Labels are written from precomputed constants and
+ * numbers are written without boxing. Source attributes are pre-serialized once per source
+ * and reused until the source is modified. Message text, exceptions and property values are JSON escaped.
  * </p>
+ * <p>
+ * Fields written for each object type can be projected using comma separated lists of JSON labels:
+ * <code>Include</code>, <code>Exclude</code> apply to all object types, while <code>Event.Include</code>,
+ * <code>Event.Exclude</code> (likewise for <code>Activity</code>, <code>Snapshot</code>, <code>Property</code>,
+ * <code>Message</code>) apply to a given type only. Projection is compiled when configured, so values of excluded
+ * fields are never obtained (e.g. <code>operation</code> resolves method names by walking the stack). Setting
+ * <code>ShortKeys=true</code> replaces labels with single character keys, see <code>getShortKeys()</code>
+ * for the mapping. Example:
+ * </p>
+ * <pre>
+ * event.formatter: com.nastel.jkool.tnt4j.format.JSONFormatter
+ * event.formatter.Exclude: source-info,source-fqn,mime-type,encoding,charset,severity-no,type-no,comp-code-no
+ * event.formatter.Message.Include: severity,time-usec,source,msg-text,exception
+ * event.formatter.ShortKeys: true
+ * </pre>
  * 
  * 
- * @version $Revision: 22 $
+ * @version $Revision: 28 $
  * 
  * @see DefaultFormatter
  * @see TrackingActivity
  * @see TrackingEvent
  * @see Snapshot
  * @see Property
+ * @see ByteEventFormatter
  */
 
-public class JSONFormatter implements EventFormatter, Configurable {
+public class JSONFormatter implements ByteEventFormatter, Configurable {
 	// JSON elements
 	public static final String JSON_NAME_LABEL = "name";
 	public static final String JSON_CATEGORY_LABEL = "category";
@@ -106,12 +135,75 @@ public class JSONFormatter implements EventFormatter, Configurable {
 	protected static final String ARRAY_START = "[";
 	protected static final String ARRAY_START_LINE = "[\n";
 
+	// object types subject to field projection
+	private static final int OBJ_EVENT = 0;
+	private static final int OBJ_ACTIVITY = 1;
+	private static final int OBJ_SNAPSHOT = 2;
+	private static final int OBJ_PROPERTY = 3;
+	private static final int OBJ_MESSAGE = 4;
+	private static final String[] OBJ_NAMES = { "Event", "Activity", "Snapshot", "Property", "Message" };
+
+	// field labels and short keys, indexed by field number
+	private static final ArrayList<String> FIELD_LABELS = new ArrayList<String>();
+	private static final ArrayList<String> FIELD_KEYS = new ArrayList<String>();
+	private static final Map<String, String> SHORT_KEYS = new LinkedHashMap<String, String>();
+
+	private static final int F_TRACK_ID = field(JSON_TRACK_ID_LABEL, "i");
+	private static final int F_PARENT_TRACK_ID = field(JSON_PARENT_TRACK_ID_LABEL, "p");
+	private static final int F_SOURCE = field(JSON_SOURCE_LABEL, "s");
+	private static final int F_SOURCE_FQN = field(JSON_SOURCE_FQN_LABEL, "f");
+	private static final int F_SOURCE_INFO = field(JSON_SOURCE_INFO_LABEL, "o");
+	private static final int F_SOURCE_URL = field(JSON_SOURCE_URL_LABEL, "u");
+	private static final int F_FQN = field(JSON_FQN_LABEL, "F");
+	private static final int F_NAME = field(JSON_NAME_LABEL, "N");
+	private static final int F_CATEGORY = field(JSON_CATEGORY_LABEL, "g");
+	private static final int F_COUNT = field(JSON_COUNT_LABEL, "n");
+	private static final int F_STATUS = field(JSON_STATUS_LABEL, "S");
+	private static final int F_SEVERITY = field(JSON_SEVERITY_LABEL, "v");
+	private static final int F_SEVERITY_NO = field(JSON_SEVERITY_NO_LABEL, "V");
+	private static final int F_TYPE = field(JSON_TYPE_LABEL, "t");
+	private static final int F_TYPE_NO = field(JSON_TYPE_NO_LABEL, "T");
+	private static final int F_VALUE = field(JSON_VALUE_LABEL, "x");
+	private static final int F_PID = field(JSON_PID_LABEL, "P");
+	private static final int F_TID = field(JSON_TID_LABEL, "h");
+	private static final int F_COMP_CODE = field(JSON_COMP_CODE_LABEL, "c");
+	private static final int F_COMP_CODE_NO = field(JSON_COMP_CODE_NO_LABEL, "C");
+	private static final int F_REASON_CODE = field(JSON_REASON_CODE_LABEL, "r");
+	private static final int F_CORR_ID = field(JSON_CORR_ID_LABEL, "k");
+	private static final int F_LOCATION = field(JSON_LOCATION_LABEL, "l");
+	private static final int F_OPERATION = field(JSON_OPERATION_LABEL, "O");
+	private static final int F_RESOURCE = field(JSON_RESOURCE_LABEL, "R");
+	private static final int F_USER = field(JSON_USER_LABEL, "U");
+	private static final int F_TIME_USEC = field(JSON_TIME_USEC_LABEL, "z");
+	private static final int F_START_TIME_USEC = field(JSON_START_TIME_USEC_LABEL, "b");
+	private static final int F_END_TIME_USEC = field(JSON_END_TIME_USEC_LABEL, "e");
+	private static final int F_ELAPSED_TIME_USEC = field(JSON_ELAPSED_TIME_USEC_LABEL, "E");
+	private static final int F_WAIT_TIME_USEC = field(JSON_WAIT_TIME_USEC_LABEL, "w");
+	private static final int F_MSG_AGE_USEC = field(JSON_MSG_AGE_USEC_LABEL, "a");
+	private static final int F_MSG_TAG = field(JSON_MSG_TAG_LABEL, "q");
+	private static final int F_ID_COUNT = field(JSON_ID_COUNT_LABEL, "d");
+	private static final int F_SNAPSHOT_COUNT = field(JSON_SNAPSHOT_COUNT_LABEL, "Y");
+	private static final int F_MSG_SIZE = field(JSON_MSG_SIZE_LABEL, "Z");
+	private static final int F_MSG_MIME = field(JSON_MSG_MIME_LABEL, "M");
+	private static final int F_MSG_ENC = field(JSON_MSG_ENC_LABEL, "j");
+	private static final int F_MSG_CHARSET = field(JSON_MSG_CHARSET_LABEL, "J");
+	private static final int F_MSG_TEXT = field(JSON_MSG_TEXT_LABEL, "m");
+	private static final int F_EXCEPTION = field(JSON_EXCEPTION_LABEL, "X");
+	private static final int F_ID_SET = field(JSON_ID_SET_LABEL, "D");
+	private static final int F_SNAPSHOTS = field(JSON_SNAPSHOTS_LABEL, "Q");
+	private static final int F_PROPERTIES = field(JSON_PROPERTIES_LABEL, "y");
+
 	private Map<String, Object> config = null;
 	private boolean newLineFormat = true;
+	private boolean shortKeys = false;
 	private String START_JSON = START_LINE;
 	private String END_JSON = END_LINE;
 	private String ATTR_JSON = ATTR_END_LINE;
 	private String ARRAY_START_JSON = ARRAY_START_LINE;
+	private JSONToken[] labels;
+	private boolean[][] fields;
+	private boolean[] sourceFields;
+	private SourceCache<JSONToken>[] sourceCache;
 
 	/**
 	 * Create JSON formatter without newlines during formatting
@@ -132,11 +224,90 @@ public class JSONFormatter implements EventFormatter, Configurable {
 		initTags();
 	}
 
+	/**
+	 * Obtain mapping of JSON labels to single character keys
+	 * used when formatting with <code>ShortKeys=true</code>
+	 * 
+	 * @return unmodifiable map of JSON labels to short keys
+	 */
+	public static Map<String, String> getShortKeys() {
+		return Collections.unmodifiableMap(SHORT_KEYS);
+	}
+
+	private static int field(String label, String key) {
+		if (SHORT_KEYS.containsValue(key)) {
+			throw new IllegalStateException("Duplicate short key '" + key + "' for label '" + label + "'");
+		}
+		SHORT_KEYS.put(label, key);
+		FIELD_LABELS.add(label);
+		FIELD_KEYS.add(key);
+		return FIELD_LABELS.size() - 1;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	private void initTags() {
 		START_JSON = newLineFormat ? START_LINE : START;
 		END_JSON = newLineFormat ? END_LINE : END;
 		ATTR_JSON = newLineFormat ? ATTR_END_LINE : ATTR_END;
 		ARRAY_START_JSON = newLineFormat ? ARRAY_START_LINE : ARRAY_START;
+
+		labels = new JSONToken[FIELD_LABELS.size()];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new JSONToken(shortKeys ? FIELD_KEYS.get(i) : FIELD_LABELS.get(i));
+		}
+		initFields();
+		sourceCache = new SourceCache[OBJ_NAMES.length];
+		for (int type = 0; type < OBJ_NAMES.length; type++) {
+			final boolean[] on = fields[type];
+			sourceCache[type] = new SourceCache<JSONToken>() {
+				@Override
+				protected JSONToken create(Source source) {
+					return newSourceFragment(source, on);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Compile include/exclude lists into per object type field masks
+	 */
+	private void initFields() {
+		Set<String> include = getFieldSet("Include");
+		Set<String> exclude = getFieldSet("Exclude");
+		fields = new boolean[OBJ_NAMES.length][];
+		sourceFields = new boolean[OBJ_NAMES.length];
+		for (int type = 0; type < OBJ_NAMES.length; type++) {
+			Set<String> typeInclude = getFieldSet(OBJ_NAMES[type] + ".Include");
+			Set<String> typeExclude = getFieldSet(OBJ_NAMES[type] + ".Exclude");
+			Set<String> in = typeInclude != null ? typeInclude : include;
+			boolean[] on = new boolean[FIELD_LABELS.size()];
+			for (int i = 0; i < on.length; i++) {
+				String label = FIELD_LABELS.get(i);
+				on[i] = (in == null || in.contains(label)) && (exclude == null || !exclude.contains(label))
+				        && (typeExclude == null || !typeExclude.contains(label));
+			}
+			fields[type] = on;
+			sourceFields[type] = on[F_SOURCE] || on[F_SOURCE_FQN] || on[F_SOURCE_INFO] || on[F_SOURCE_URL];
+		}
+	}
+
+	private Set<String> getFieldSet(String key) {
+		Object value = config != null ? config.get(key) : null;
+		if (value == null) {
+			return null;
+		}
+		Set<String> set = new HashSet<String>();
+		for (String label : value.toString().split(",")) {
+			label = label.trim();
+			if (label.length() == 0) {
+				continue;
+			}
+			if (!SHORT_KEYS.containsKey(label)) {
+				throw new IllegalArgumentException("Unknown JSON field '" + label + "' in " + key);
+			}
+			set.add(label);
+		}
+		return set.isEmpty() ? null : set;
 	}
 
 	@Override
@@ -151,13 +322,11 @@ public class JSONFormatter implements EventFormatter, Configurable {
 			return format((Property) obj);
 		} else {
 			StringBuilder jsonString = new StringBuilder(1024);
-			jsonString.append(START_JSON);
-			jsonString.append(Utils.quote(JSON_TIME_USEC_LABEL)).append(ATTR_SEP).append(Useconds.CURRENT.get()).append(ATTR_JSON);
-			
-			String msgText = Utils.format(obj.toString(), args);
-			msgText = StringEscapeUtils.escapeJson(msgText); // escape double quote chars
-			jsonString.append(Utils.quote(JSON_MSG_TEXT_LABEL)).append(ATTR_SEP).append(Utils.quote(msgText));
-			jsonString.append(END_JSON);
+			try {
+				writeObject(new JSONWriter(jsonString), obj, args);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
 			return jsonString.toString();
 		}
 	}
@@ -172,106 +341,148 @@ public class JSONFormatter implements EventFormatter, Configurable {
 	@Override
 	public String format(TrackingEvent event) {
 		StringBuilder jsonString = new StringBuilder(1024);
+		try {
+			writeEvent(new JSONWriter(jsonString), event);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return jsonString.toString();
+	}
+
+	/**
+	 * Format a given <code>TrackingEvent</code> into JSON format
+	 * and append it to a given output
+	 * 
+	 * @param out
+	 *            output where JSON is appended
+	 * @param event
+	 *            tracking event instance to be formatted
+	 * @throws IOException
+	 *             if appending to the output fails
+	 * @see TrackingEvent
+	 */
+	public void format(Appendable out, TrackingEvent event) throws IOException {
+		writeEvent(new JSONWriter(out), event);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingEvent event) {
+		try {
+			writeEvent(new JSONWriter(buffer), event);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 
-		jsonString.append(START_JSON).append(Utils.quote(JSON_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getTrackingId())).append(ATTR_JSON);
-		if (event.getParentId() != null) {
-			jsonString.append(Utils.quote(JSON_PARENT_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(event.getParentId())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_SOURCE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getSource().getName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SOURCE_FQN_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getSource().getFQName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SOURCE_INFO_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getSource().getInfo())).append(ATTR_JSON);
-		if (event.getSource().getUrl() != null) {
-			jsonString.append(Utils.quote(JSON_SOURCE_URL_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(event.getSource().getUrl())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_SEVERITY_LABEL)).append(ATTR_SEP).append(Utils.quote(event.getSeverity()))
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_NO_LABEL)).append(ATTR_SEP).append(event.getSeverity().ordinal())
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getOperation().getType())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_NO_LABEL)).append(ATTR_SEP).append(
-		        event.getOperation().getType().ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_PID_LABEL)).append(ATTR_SEP).append(event.getOperation().getPID()).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TID_LABEL)).append(ATTR_SEP).append(event.getOperation().getTID()).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_COMP_CODE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getOperation().getCompCode())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_COMP_CODE_NO_LABEL)).append(ATTR_SEP).append(
-		        event.getOperation().getCompCode().ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_REASON_CODE_LABEL)).append(ATTR_SEP).append(
-		        event.getOperation().getReasonCode()).append(ATTR_JSON);
-
-		if (event.getCorrelator() != null) {
-			jsonString.append(Utils.quote(JSON_CORR_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(event.getCorrelator())).append(ATTR_JSON);
-		}
-		if (event.getLocation() != null) {
-			jsonString.append(Utils.quote(JSON_LOCATION_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(event.getLocation())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_OPERATION_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getOperation().getResolvedName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_RESOURCE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getOperation().getResource())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_USER_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(event.getOperation().getUser())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TIME_USEC_LABEL)).append(ATTR_SEP).append(Useconds.CURRENT.get()).append(ATTR_JSON);
-		if (event.getOperation().getStartTime() != null) {
-			jsonString.append(Utils.quote(JSON_START_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        event.getOperation().getStartTime().getTimeUsec()).append(ATTR_JSON);
-		}
-		if (event.getOperation().getEndTime() != null) {
-			jsonString.append(Utils.quote(JSON_END_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        event.getOperation().getEndTime().getTimeUsec()).append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_ELAPSED_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        event.getOperation().getElapsedTime()).append(ATTR_JSON);
-			if (event.getOperation().getWaitTime() > 0) {
-				jsonString.append(Utils.quote(JSON_WAIT_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-				        event.getOperation().getWaitTime()).append(ATTR_JSON);
+	private void writeEvent(JSONWriter out, TrackingEvent event) throws IOException {
+		boolean[] on = fields[OBJ_EVENT];
+		Operation op = event.getOperation();
+		begin(out);
+		if (on[F_TRACK_ID]) {
+			attr(out, F_TRACK_ID).quote(event.getTrackingId());
+		}
+		if (on[F_PARENT_TRACK_ID] && event.getParentId() != null) {
+			attr(out, F_PARENT_TRACK_ID).quote(event.getParentId());
+		}
+		writeSource(out, OBJ_EVENT, event.getSource());
+		if (on[F_SEVERITY]) {
+			attr(out, F_SEVERITY).quote(event.getSeverity());
+		}
+		if (on[F_SEVERITY_NO]) {
+			attr(out, F_SEVERITY_NO).number(event.getSeverity().ordinal());
+		}
+		if (on[F_TYPE]) {
+			attr(out, F_TYPE).quote(op.getType());
+		}
+		if (on[F_TYPE_NO]) {
+			attr(out, F_TYPE_NO).number(op.getType().ordinal());
+		}
+		if (on[F_PID]) {
+			attr(out, F_PID).number(op.getPID());
+		}
+		if (on[F_TID]) {
+			attr(out, F_TID).number(op.getTID());
+		}
+		if (on[F_COMP_CODE]) {
+			attr(out, F_COMP_CODE).quote(op.getCompCode());
+		}
+		if (on[F_COMP_CODE_NO]) {
+			attr(out, F_COMP_CODE_NO).number(op.getCompCode().ordinal());
+		}
+		if (on[F_REASON_CODE]) {
+			attr(out, F_REASON_CODE).number(op.getReasonCode());
+		}
+		if (on[F_CORR_ID] && event.getCorrelator() != null) {
+			attr(out, F_CORR_ID).quote(event.getCorrelator());
+		}
+		if (on[F_LOCATION] && event.getLocation() != null) {
+			attr(out, F_LOCATION).quote(event.getLocation());
+		}
+		if (on[F_OPERATION]) {
+			attr(out, F_OPERATION).quote(op.getResolvedName());
+		}
+		if (on[F_RESOURCE]) {
+			attr(out, F_RESOURCE).quote(op.getResource());
+		}
+		if (on[F_USER]) {
+			attr(out, F_USER).quote(op.getUser());
+		}
+		if (on[F_TIME_USEC]) {
+			attr(out, F_TIME_USEC).number(Useconds.CURRENT.get());
+		}
+		if (on[F_START_TIME_USEC] && op.getStartTime() != null) {
+			attr(out, F_START_TIME_USEC).number(op.getStartTime().getTimeUsec());
+		}
+		if (op.getEndTime() != null) {
+			if (on[F_END_TIME_USEC]) {
+				attr(out, F_END_TIME_USEC).number(op.getEndTime().getTimeUsec());
+			}
+			if (on[F_ELAPSED_TIME_USEC]) {
+				attr(out, F_ELAPSED_TIME_USEC).number(op.getElapsedTime());
 			}
-			if (event.getMessageAge() > 0) {
-				jsonString.append(Utils.quote(JSON_MSG_AGE_USEC_LABEL)).append(ATTR_SEP).append(event.getMessageAge())
-				        .append(ATTR_JSON);
+			if (on[F_WAIT_TIME_USEC] && op.getWaitTime() > 0) {
+				attr(out, F_WAIT_TIME_USEC).number(op.getWaitTime());
+			}
+			if (on[F_MSG_AGE_USEC] && event.getMessageAge() > 0) {
+				attr(out, F_MSG_AGE_USEC).number(event.getMessageAge());
 			}
 		}
-
-		if (event.getTag() != null) {
-			jsonString.append(Utils.quote(JSON_MSG_TAG_LABEL)).append(ATTR_SEP).append(Utils.quote(event.getTag()))
-			        .append(ATTR_JSON);
+		if (on[F_MSG_TAG] && event.getTag() != null) {
+			attr(out, F_MSG_TAG).quote(event.getTag());
 		}
-		int snapCount = event.getOperation().getSnapshotCount();
-		jsonString.append(Utils.quote(JSON_SNAPSHOT_COUNT_LABEL)).append(ATTR_SEP).append(snapCount).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_MSG_SIZE_LABEL)).append(ATTR_SEP).append(event.getSize()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_MSG_MIME_LABEL)).append(ATTR_SEP).append(Utils.quote(event.getMimeType())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_MSG_ENC_LABEL)).append(ATTR_SEP).append(Utils.quote(event.getEncoding())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_MSG_CHARSET_LABEL)).append(ATTR_SEP).append(Utils.quote(event.getCharset()));
-		
-		String msgText = event.getMessage();
-		if (msgText != null) {
-			jsonString.append(ATTR_JSON);
-			msgText = StringEscapeUtils.escapeJson(msgText); // escape double quote chars
-			jsonString.append(Utils.quote(JSON_MSG_TEXT_LABEL)).append(ATTR_SEP).append(Utils.quote(msgText));
+		int snapCount = (on[F_SNAPSHOT_COUNT] || on[F_SNAPSHOTS]) ? op.getSnapshotCount() : 0;
+		if (on[F_SNAPSHOT_COUNT]) {
+			attr(out, F_SNAPSHOT_COUNT).number(snapCount);
 		}
-
-		String exStr = event.getOperation().getExceptionString();
-		if (exStr != null) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_EXCEPTION_LABEL)).append(ATTR_SEP).append(Utils.quote(exStr));
+		if (on[F_MSG_SIZE]) {
+			attr(out, F_MSG_SIZE).number(event.getSize());
 		}
-		if (snapCount > 0) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SNAPSHOTS_LABEL)).append(ATTR_SEP).append(ARRAY_START_JSON).append(
-			        itemsToJSON(event.getOperation().getSnapshots())).append(ARRAY_END);
+		if (on[F_MSG_MIME]) {
+			attr(out, F_MSG_MIME).quote(event.getMimeType());
 		}
-		jsonString.append(END_JSON);
-		return jsonString.toString();
+		if (on[F_MSG_ENC]) {
+			attr(out, F_MSG_ENC).quote(event.getEncoding());
+		}
+		if (on[F_MSG_CHARSET]) {
+			attr(out, F_MSG_CHARSET).quote(event.getCharset());
+		}
+		if (on[F_MSG_TEXT]) {
+			String msgText = event.getMessage();
+			if (msgText != null) {
+				attr(out, F_MSG_TEXT).quoteEscaped(msgText);
+			}
+		}
+		if (on[F_EXCEPTION]) {
+			String exStr = op.getExceptionString();
+			if (exStr != null) {
+				attr(out, F_EXCEPTION).quoteEscaped(exStr);
+			}
+		}
+		if (on[F_SNAPSHOTS] && snapCount > 0) {
+			attr(out, F_SNAPSHOTS).raw(ARRAY_START_JSON);
+			writeItems(out, op.getSnapshots()).raw(ARRAY_END);
+		}
+		end(out);
 	}
 
 	/**
@@ -284,95 +495,136 @@ public class JSONFormatter implements EventFormatter, Configurable {
 	@Override
 	public String format(TrackingActivity activity) {
 		StringBuilder jsonString = new StringBuilder(1024);
-		String START_JSON = newLineFormat ? START_LINE : START;
-		String END_JSON = newLineFormat ? END_LINE : END;
-		String ATTR_JSON = newLineFormat ? ATTR_END_LINE : ATTR_END;
-
-		jsonString.append(START_JSON).append(Utils.quote(JSON_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getTrackingId())).append(ATTR_JSON);
-		if (activity.getParentId() != null) {
-			jsonString.append(Utils.quote(JSON_PARENT_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(activity.getParentId())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_SOURCE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getSource().getName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SOURCE_FQN_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getSource().getFQName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SOURCE_INFO_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getSource().getInfo())).append(ATTR_JSON);
-		if (activity.getSource().getUrl() != null) {
-			jsonString.append(Utils.quote(JSON_SOURCE_URL_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(activity.getSource().getUrl())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_STATUS_LABEL)).append(ATTR_SEP).append(Utils.quote(activity.getStatus()))
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_LABEL)).append(ATTR_SEP)
-		        .append(Utils.quote(activity.getSeverity())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_NO_LABEL)).append(ATTR_SEP)
-		        .append(activity.getSeverity().ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_LABEL)).append(ATTR_SEP).append(Utils.quote(activity.getType()))
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_NO_LABEL)).append(ATTR_SEP).append(activity.getType().ordinal())
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_PID_LABEL)).append(ATTR_SEP).append(activity.getPID()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TID_LABEL)).append(ATTR_SEP).append(activity.getTID()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_COMP_CODE_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getCompCode())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_COMP_CODE_NO_LABEL)).append(ATTR_SEP).append(
-		        activity.getCompCode().ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_REASON_CODE_LABEL)).append(ATTR_SEP).append(activity.getReasonCode())
-		        .append(ATTR_JSON);
-		if (activity.getCorrelator() != null) {
-			jsonString.append(Utils.quote(JSON_CORR_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(activity.getCorrelator())).append(ATTR_JSON);
-		}
-		if (activity.getLocation() != null) {
-			jsonString.append(Utils.quote(JSON_LOCATION_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(activity.getLocation())).append(ATTR_JSON);
-		}
-		jsonString.append(Utils.quote(JSON_OPERATION_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getResolvedName())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_RESOURCE_LABEL)).append(ATTR_SEP)
-		        .append(Utils.quote(activity.getResource())).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_USER_LABEL)).append(ATTR_SEP).append(
-		        Utils.quote(activity.getSource().getUser())).append(ATTR_JSON);
-
-		jsonString.append(Utils.quote(JSON_TIME_USEC_LABEL)).append(ATTR_SEP).append(Useconds.CURRENT.get()).append(ATTR_JSON);
-		if (activity.getStartTime() != null) {
-			jsonString.append(Utils.quote(JSON_START_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        activity.getStartTime().getTimeUsec()).append(ATTR_JSON);
+		try {
+			writeActivity(new JSONWriter(jsonString), activity);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return jsonString.toString();
+	}
+
+	/**
+	 * Format a given <code>TrackingActivity</code> into JSON format
+	 * and append it to a given output
+	 * 
+	 * @param out
+	 *            output where JSON is appended
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @throws IOException
+	 *             if appending to the output fails
+	 * @see TrackingActivity
+	 */
+	public void format(Appendable out, TrackingActivity activity) throws IOException {
+		writeActivity(new JSONWriter(out), activity);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, TrackingActivity activity) {
+		try {
+			writeActivity(new JSONWriter(buffer), activity);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void writeActivity(JSONWriter out, TrackingActivity activity) throws IOException {
+		boolean[] on = fields[OBJ_ACTIVITY];
+		begin(out);
+		if (on[F_TRACK_ID]) {
+			attr(out, F_TRACK_ID).quote(activity.getTrackingId());
+		}
+		if (on[F_PARENT_TRACK_ID] && activity.getParentId() != null) {
+			attr(out, F_PARENT_TRACK_ID).quote(activity.getParentId());
+		}
+		writeSource(out, OBJ_ACTIVITY, activity.getSource());
+		if (on[F_STATUS]) {
+			attr(out, F_STATUS).quote(activity.getStatus());
+		}
+		if (on[F_SEVERITY]) {
+			attr(out, F_SEVERITY).quote(activity.getSeverity());
+		}
+		if (on[F_SEVERITY_NO]) {
+			attr(out, F_SEVERITY_NO).number(activity.getSeverity().ordinal());
+		}
+		if (on[F_TYPE]) {
+			attr(out, F_TYPE).quote(activity.getType());
+		}
+		if (on[F_TYPE_NO]) {
+			attr(out, F_TYPE_NO).number(activity.getType().ordinal());
+		}
+		if (on[F_PID]) {
+			attr(out, F_PID).number(activity.getPID());
+		}
+		if (on[F_TID]) {
+			attr(out, F_TID).number(activity.getTID());
+		}
+		if (on[F_COMP_CODE]) {
+			attr(out, F_COMP_CODE).quote(activity.getCompCode());
+		}
+		if (on[F_COMP_CODE_NO]) {
+			attr(out, F_COMP_CODE_NO).number(activity.getCompCode().ordinal());
+		}
+		if (on[F_REASON_CODE]) {
+			attr(out, F_REASON_CODE).number(activity.getReasonCode());
+		}
+		if (on[F_CORR_ID] && activity.getCorrelator() != null) {
+			attr(out, F_CORR_ID).quote(activity.getCorrelator());
+		}
+		if (on[F_LOCATION] && activity.getLocation() != null) {
+			attr(out, F_LOCATION).quote(activity.getLocation());
+		}
+		if (on[F_OPERATION]) {
+			attr(out, F_OPERATION).quote(activity.getResolvedName());
+		}
+		if (on[F_RESOURCE]) {
+			attr(out, F_RESOURCE).quote(activity.getResource());
+		}
+		if (on[F_USER]) {
+			attr(out, F_USER).quote(activity.getSource().getUser());
+		}
+		if (on[F_TIME_USEC]) {
+			attr(out, F_TIME_USEC).number(Useconds.CURRENT.get());
+		}
+		if (on[F_START_TIME_USEC] && activity.getStartTime() != null) {
+			attr(out, F_START_TIME_USEC).number(activity.getStartTime().getTimeUsec());
 		}
 		if (activity.getEndTime() != null) {
-			jsonString.append(Utils.quote(JSON_END_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        activity.getEndTime().getTimeUsec()).append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_ELAPSED_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-			        activity.getElapsedTime()).append(ATTR_JSON);
-			if (activity.getWaitTime() > 0) {
-				jsonString.append(Utils.quote(JSON_WAIT_TIME_USEC_LABEL)).append(ATTR_SEP).append(
-				        activity.getWaitTime()).append(ATTR_JSON);
+			if (on[F_END_TIME_USEC]) {
+				attr(out, F_END_TIME_USEC).number(activity.getEndTime().getTimeUsec());
+			}
+			if (on[F_ELAPSED_TIME_USEC]) {
+				attr(out, F_ELAPSED_TIME_USEC).number(activity.getElapsedTime());
+			}
+			if (on[F_WAIT_TIME_USEC] && activity.getWaitTime() > 0) {
+				attr(out, F_WAIT_TIME_USEC).number(activity.getWaitTime());
 			}
 		}
-		jsonString.append(Utils.quote(JSON_ID_COUNT_LABEL)).append(ATTR_SEP).append(activity.getIdCount()).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SNAPSHOT_COUNT_LABEL)).append(ATTR_SEP).append(activity.getSnapshotCount());
-
-		String exStr = activity.getExceptionString();
-		if (exStr != null) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_EXCEPTION_LABEL)).append(ATTR_SEP).append(Utils.quote(exStr));
+		if (on[F_ID_COUNT]) {
+			attr(out, F_ID_COUNT).number(activity.getIdCount());
+		}
+		if (on[F_SNAPSHOT_COUNT]) {
+			attr(out, F_SNAPSHOT_COUNT).number(activity.getSnapshotCount());
 		}
-		if (activity.getIdCount() > 0) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_ID_SET_LABEL)).append(ATTR_SEP).append(ARRAY_START_JSON).append(
-			        itemsToJSON(activity.getIds())).append(ARRAY_END);
+		if (on[F_EXCEPTION]) {
+			String exStr = activity.getExceptionString();
+			if (exStr != null) {
+				attr(out, F_EXCEPTION).quoteEscaped(exStr);
+			}
+		}
+		if (on[F_ID_SET]) {
+			synchronized (activity) {
+				if (activity.getIdCount() > 0) {
+					attr(out, F_ID_SET).raw(ARRAY_START_JSON);
+					writeItems(out, activity.getIds()).raw(ARRAY_END);
+				}
+			}
 		}
-		if (activity.getSnapshotCount() > 0) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SNAPSHOTS_LABEL)).append(ATTR_SEP).append(ARRAY_START_JSON).append(
-			        itemsToJSON(activity.getSnapshots())).append(ARRAY_END);
+		if (on[F_SNAPSHOTS] && activity.getSnapshotCount() > 0) {
+			attr(out, F_SNAPSHOTS).raw(ARRAY_START_JSON);
+			writeItems(out, activity.getSnapshots()).raw(ARRAY_END);
 		}
-		jsonString.append(END_JSON);
-		return jsonString.toString();
+		end(out);
 	}
 
 	/**
@@ -382,59 +634,87 @@ public class JSONFormatter implements EventFormatter, Configurable {
 	 *            snapshot object to be formatted into JSON
 	 * @see Snapshot
 	 */
+	@Override
 	public String format(Snapshot snap) {
 		StringBuilder jsonString = new StringBuilder(1024);
-		jsonString.append(START_JSON);
-
-		if (snap.getTrackingId() != null) {
-			jsonString.append(START_JSON).append(Utils.quote(JSON_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(snap.getTrackingId())).append(ATTR_JSON);
+		try {
+			writeSnapshot(new JSONWriter(jsonString), snap);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
 		}
-		if (snap.getParentId() != null) {
-			jsonString.append(Utils.quote(JSON_PARENT_TRACK_ID_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(snap.getParentId())).append(ATTR_JSON);
+		return jsonString.toString();
+	}
+
+	/**
+	 * Format a given <code>Snapshot</code> into JSON format
+	 * and append it to a given output
+	 * 
+	 * @param out
+	 *            output where JSON is appended
+	 * @param snap
+	 *            snapshot object to be formatted into JSON
+	 * @throws IOException
+	 *             if appending to the output fails
+	 * @see Snapshot
+	 */
+	public void format(Appendable out, Snapshot snap) throws IOException {
+		writeSnapshot(new JSONWriter(out), snap);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Snapshot snap) {
+		try {
+			writeSnapshot(new JSONWriter(buffer), snap);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
 		}
+	}
 
-		if (snap.getId() != null) {
-			jsonString.append(Utils.quote(JSON_FQN_LABEL)).append(ATTR_SEP)
-			        .append(Utils.quote(snap.getId())).append(ATTR_JSON);
+	private void writeSnapshot(JSONWriter out, Snapshot snap) throws IOException {
+		boolean[] on = fields[OBJ_SNAPSHOT];
+		begin(out);
+		if (on[F_TRACK_ID] && snap.getTrackingId() != null) {
+			attr(out, F_TRACK_ID).quote(snap.getTrackingId());
 		}
-		if (snap.getCategory() != null) {
-			jsonString.append(Utils.quote(JSON_CATEGORY_LABEL)).append(ATTR_SEP)
-			        .append(Utils.quote(snap.getCategory())).append(ATTR_JSON);
+		if (on[F_PARENT_TRACK_ID] && snap.getParentId() != null) {
+			attr(out, F_PARENT_TRACK_ID).quote(snap.getParentId());
+		}
+		if (on[F_FQN] && snap.getId() != null) {
+			attr(out, F_FQN).quote(snap.getId());
+		}
+		if (on[F_CATEGORY] && snap.getCategory() != null) {
+			attr(out, F_CATEGORY).quote(snap.getCategory());
+		}
+		if (on[F_NAME]) {
+			attr(out, F_NAME).quote(snap.getName());
+		}
+		if (on[F_COUNT]) {
+			attr(out, F_COUNT).number(snap.size());
+		}
+		if (on[F_TIME_USEC]) {
+			attr(out, F_TIME_USEC).number(snap.getTimeStamp().getTimeUsec());
 		}
-		jsonString.append(Utils.quote(JSON_NAME_LABEL)).append(ATTR_SEP).append(Utils.quote(snap.getName())).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_COUNT_LABEL)).append(ATTR_SEP).append(snap.size()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TIME_USEC_LABEL)).append(ATTR_SEP).append(snap.getTimeStamp().getTimeUsec()).append(ATTR_JSON);
-
 		Source source = snap.getSource();
 		if (source != null) {
-			jsonString.append(Utils.quote(JSON_SOURCE_LABEL)).append(ATTR_SEP).append(Utils.quote(source.getName()))
-			        .append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SOURCE_FQN_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(source.getFQName())).append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SOURCE_INFO_LABEL)).append(ATTR_SEP).append(
-			        Utils.quote(source.getInfo())).append(ATTR_JSON);
-			if (source.getUrl() != null) {
-				jsonString.append(Utils.quote(JSON_SOURCE_URL_LABEL)).append(ATTR_SEP).append(
-				        Utils.quote(source.getUrl())).append(ATTR_JSON);
-			}
+			writeSource(out, OBJ_SNAPSHOT, source);
 		}
-		jsonString.append(Utils.quote(JSON_SEVERITY_LABEL)).append(ATTR_SEP).append(Utils.quote(snap.getSeverity()))
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_NO_LABEL)).append(ATTR_SEP).append(snap.getSeverity().ordinal())
-		        .append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_LABEL)).append(ATTR_SEP).append(Utils.quote(snap.getType())).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_NO_LABEL)).append(ATTR_SEP).append(snap.getType().ordinal());
-		if (snap.size() > 0) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_PROPERTIES_LABEL)).append(ATTR_SEP).append(ARRAY_START_JSON).append(
-			        itemsToJSON(snap.getSnapshot())).append(ARRAY_END);
-		}
-		jsonString.append(END_JSON);
-		return jsonString.toString();
+		if (on[F_SEVERITY]) {
+			attr(out, F_SEVERITY).quote(snap.getSeverity());
+		}
+		if (on[F_SEVERITY_NO]) {
+			attr(out, F_SEVERITY_NO).number(snap.getSeverity().ordinal());
+		}
+		if (on[F_TYPE]) {
+			attr(out, F_TYPE).quote(snap.getType());
+		}
+		if (on[F_TYPE_NO]) {
+			attr(out, F_TYPE_NO).number(snap.getType().ordinal());
+		}
+		if (on[F_PROPERTIES] && snap.size() > 0) {
+			attr(out, F_PROPERTIES).raw(ARRAY_START_JSON);
+			writeItems(out, snap.getSnapshot()).raw(ARRAY_END);
+		}
+		end(out);
 	}
 
 	/**
@@ -445,83 +725,221 @@ public class JSONFormatter implements EventFormatter, Configurable {
 	 * @see Property
 	 */
 	public String format(Property prop) {
-		StringBuilder jsonString = new StringBuilder(1024);
-		jsonString.append(START_JSON);
-		Object value = prop.getValue();
-		jsonString.append(Utils.quote(JSON_NAME_LABEL)).append(ATTR_SEP).append(Utils.quote(prop.getKey())).append(
-		        ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_LABEL)).append(ATTR_SEP).append(Utils.quote(prop.getValueType()))
-		        .append(ATTR_JSON);
-		if (value instanceof Number) {
-			jsonString.append(Utils.quote(JSON_VALUE_LABEL)).append(ATTR_SEP).append(value);
-		} else {
-			jsonString.append(Utils.quote(JSON_VALUE_LABEL)).append(ATTR_SEP).append(Utils.quote(value));
+		StringBuilder jsonString = new StringBuilder(256);
+		try {
+			writeProperty(new JSONWriter(jsonString), prop);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
 		}
-		jsonString.append(END_JSON);
 		return jsonString.toString();
 	}
 
+	private void writeProperty(JSONWriter out, Property prop) throws IOException {
+		boolean[] on = fields[OBJ_PROPERTY];
+		begin(out);
+		if (on[F_NAME]) {
+			attr(out, F_NAME).quote(prop.getKey());
+		}
+		if (on[F_TYPE]) {
+			attr(out, F_TYPE).quote(prop.getValueType());
+		}
+		if (on[F_VALUE]) {
+			Object value = prop.getValue();
+			if (value instanceof Number) {
+				attr(out, F_VALUE).text(String.valueOf(value));
+			} else {
+				attr(out, F_VALUE).quoteEscaped(value);
+			}
+		}
+		end(out);
+	}
+
 	@Override
 	public String format(Source source, OpLevel level, String msg, Object... args) {
 		StringBuilder jsonString = new StringBuilder(1024);
-		jsonString.append(START_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_LABEL)).append(ATTR_SEP).append(Utils.quote(level)).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_SEVERITY_NO_LABEL)).append(ATTR_SEP).append(level.ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_LABEL)).append(ATTR_SEP).append(Utils.quote(OpType.EVENT)).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TYPE_NO_LABEL)).append(ATTR_SEP).append(OpType.EVENT.ordinal()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_PID_LABEL)).append(ATTR_SEP).append(Thread.currentThread().getId()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TID_LABEL)).append(ATTR_SEP).append(Utils.getVMPID()).append(ATTR_JSON);
-		jsonString.append(Utils.quote(JSON_TIME_USEC_LABEL)).append(ATTR_SEP).append(Useconds.CURRENT.get()).append(ATTR_JSON);
+		try {
+			writeMessage(new JSONWriter(jsonString), source, level, msg, args);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return jsonString.toString();
+	}
+
+	/**
+	 * Format a given message, severity and source into JSON format
+	 * and append it to a given output
+	 * 
+	 * @param out
+	 *            output where JSON is appended
+	 * @param source
+	 *            event source
+	 * @param level
+	 *            severity level
+	 * @param msg
+	 *            message to be formatted
+	 * @param args
+	 *            arguments associated with the message
+	 * @throws IOException
+	 *             if appending to the output fails
+	 */
+	public void format(Appendable out, Source source, OpLevel level, String msg, Object... args) throws IOException {
+		writeMessage(new JSONWriter(out), source, level, msg, args);
+	}
+
+	@Override
+	public void format(ByteBuffer buffer, Source source, OpLevel level, String msg, Object... args) {
+		try {
+			writeMessage(new JSONWriter(buffer), source, level, msg, args);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void writeMessage(JSONWriter out, Source source, OpLevel level, String msg, Object... args)
+	        throws IOException {
+		boolean[] on = fields[OBJ_MESSAGE];
+		begin(out);
+		if (on[F_SEVERITY]) {
+			attr(out, F_SEVERITY).quote(level);
+		}
+		if (on[F_SEVERITY_NO]) {
+			attr(out, F_SEVERITY_NO).number(level.ordinal());
+		}
+		if (on[F_TYPE]) {
+			attr(out, F_TYPE).quote(OpType.EVENT);
+		}
+		if (on[F_TYPE_NO]) {
+			attr(out, F_TYPE_NO).number(OpType.EVENT.ordinal());
+		}
+		if (on[F_PID]) {
+			attr(out, F_PID).number(Utils.getVMPID());
+		}
+		if (on[F_TID]) {
+			attr(out, F_TID).number(Thread.currentThread().getId());
+		}
+		if (on[F_TIME_USEC]) {
+			attr(out, F_TIME_USEC).number(Useconds.CURRENT.get());
+		}
 		if (source != null) {
-			jsonString.append(Utils.quote(JSON_SOURCE_LABEL)).append(ATTR_SEP).append(Utils.quote(source.getName()))
-			        .append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SOURCE_FQN_LABEL)).append(ATTR_SEP).append(Utils.quote(source.getFQName())).append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_SOURCE_INFO_LABEL)).append(ATTR_SEP).append(Utils.quote(source.getInfo()));
-			if (source.getUrl() != null) {
-				jsonString.append(ATTR_JSON);
-				jsonString.append(Utils.quote(JSON_SOURCE_URL_LABEL)).append(ATTR_SEP).append(Utils.quote(source.getUrl()));
-			}
-			Source location = source.getSource(SourceType.GEOADDR);
+			writeSource(out, OBJ_MESSAGE, source);
+			Source location = on[F_LOCATION] ? source.getSource(SourceType.GEOADDR) : null;
 			if (location != null) {
-				jsonString.append(ATTR_JSON);
-				jsonString.append(Utils.quote(JSON_LOCATION_LABEL)).append(ATTR_SEP).append(Utils.quote(location.getName()));
+				attr(out, F_LOCATION).quote(location.getName());
 			}
 		}
-		if (msg != null) {
-			String msgText = Utils.format(msg, args);
-			msgText = StringEscapeUtils.escapeJson(msgText); // escape double quote chars
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_MSG_TEXT_LABEL)).append(ATTR_SEP).append(Utils.quote(msgText));
+		if (on[F_MSG_TEXT] && msg != null) {
+			attr(out, F_MSG_TEXT).quoteEscaped(Utils.format(msg, args));
 		}
-		Throwable ex = Utils.getThrowable(args);
+		Throwable ex = on[F_EXCEPTION] ? Utils.getThrowable(args) : null;
 		if (ex != null) {
-			jsonString.append(ATTR_JSON);
-			jsonString.append(Utils.quote(JSON_EXCEPTION_LABEL)).append(ATTR_SEP).append(Utils.quote(ex));
+			attr(out, F_EXCEPTION).quoteEscaped(ex);
 		}
-		jsonString.append(END_JSON);
-		return jsonString.toString();
+		end(out);
+	}
+
+	private void writeObject(JSONWriter out, Object obj, Object... args) throws IOException {
+		boolean[] on = fields[OBJ_MESSAGE];
+		begin(out);
+		if (on[F_TIME_USEC]) {
+			attr(out, F_TIME_USEC).number(Useconds.CURRENT.get());
+		}
+		if (on[F_MSG_TEXT]) {
+			attr(out, F_MSG_TEXT).quoteEscaped(Utils.format(obj.toString(), args));
+		}
+		end(out);
+	}
+
+	private JSONWriter begin(JSONWriter out) throws IOException {
+		out.first = true;
+		return out.raw(START_JSON);
 	}
 
-	private String itemsToJSON(Collection<?> items) {
+	private JSONWriter end(JSONWriter out) throws IOException {
+		out.first = false;
+		return out.raw(END_JSON);
+	}
+
+	/**
+	 * Write attribute separator unless first attribute of the current object
+	 */
+	private JSONWriter separate(JSONWriter out) throws IOException {
+		if (out.first) {
+			out.first = false;
+			return out;
+		}
+		return out.raw(ATTR_JSON);
+	}
+
+	/**
+	 * Write attribute label (preceded by attribute separator if needed)
+	 */
+	private JSONWriter attr(JSONWriter out, int field) throws IOException {
+		return separate(out).label(labels[field]);
+	}
+
+	/**
+	 * Write projected source name, fqn, info and optional url attributes
+	 * using a cached pre-serialized fragment
+	 */
+	private void writeSource(JSONWriter out, int type, Source source) throws IOException {
+		if (sourceFields[type]) {
+			JSONToken fragment = sourceCache[type].get(source);
+			if (fragment.chars.length() > 0) {
+				separate(out).label(fragment);
+			}
+		}
+	}
+
+	/**
+	 * Pre-serialize projected source attributes into a fragment as chars and UTF-8 bytes
+	 */
+	private JSONToken newSourceFragment(Source source, boolean[] on) {
+		try {
+			StringBuilder str = new StringBuilder(256);
+			JSONWriter out = new JSONWriter(str);
+			out.first = true;
+			if (on[F_SOURCE]) {
+				attr(out, F_SOURCE).quote(source.getName());
+			}
+			if (on[F_SOURCE_FQN]) {
+				attr(out, F_SOURCE_FQN).quote(source.getFQName());
+			}
+			if (on[F_SOURCE_INFO]) {
+				attr(out, F_SOURCE_INFO).quote(source.getInfo());
+			}
+			if (on[F_SOURCE_URL] && source.getUrl() != null) {
+				attr(out, F_SOURCE_URL).quote(source.getUrl());
+			}
+			String chars = str.toString();
+			ByteBuffer bytes = ByteBuffer.allocate(chars.length() * 3);
+			new JSONWriter(bytes).text(chars);
+			return new JSONToken(chars, Arrays.copyOf(bytes.array(), bytes.position()));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private JSONWriter writeItems(JSONWriter out, Collection<?> items) throws IOException {
 		if (items == null)
-			return "";
-		StringBuilder json = new StringBuilder(2048);
+			return out;
+		boolean first = true;
 		for (Object item : items) {
-			if (json.length() > 0)
-				json.append(ATTR_JSON);
+			if (!first)
+				out.raw(ATTR_JSON);
+			first = false;
 			if (item instanceof TrackingEvent) {
-				json.append(format((TrackingEvent) item));
+				writeEvent(out, (TrackingEvent) item);
 			} else if (item instanceof TrackingActivity) {
-				json.append(format((TrackingActivity) item));
+				writeActivity(out, (TrackingActivity) item);
 			} else if (item instanceof Snapshot) {
-				json.append(format((Snapshot) item));
+				writeSnapshot(out, (Snapshot) item);
 			} else if (item instanceof Property) {
-				json.append(format((Property) item));
+				writeProperty(out, (Property) item);
 			} else {
-				json.append(Utils.quote(String.valueOf(item)));
+				out.quote(item);
 			}
 		}
-		return json.toString();
+		return out;
 	}
 
 	@Override
@@ -534,6 +952,189 @@ public class JSONFormatter implements EventFormatter, Configurable {
 		config = settings;
 		newLineFormat = config.get("Newline") != null ? Boolean.valueOf(config.get("Newline").toString())
 		        : newLineFormat;
+		shortKeys = config.get("ShortKeys") != null ? Boolean.valueOf(config.get("ShortKeys").toString())
+		        : shortKeys;
 		initTags();
 	}
 }
+
+/**
+ * Precomputed quoted JSON label followed by attribute separator or a pre-serialized
+ * fragment, as chars and UTF-8 bytes
+ */
+class JSONToken {
+	final String chars;
+	final byte[] bytes;
+
+	JSONToken(String label) {
+		chars = "\"" + label + "\": ";
+		bytes = new byte[chars.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) chars.charAt(i);
+		}
+	}
+
+	JSONToken(String str, byte[] utf8) {
+		chars = str;
+		bytes = utf8;
+	}
+}
+
+/**
+ * JSON output which appends either to an <code>Appendable</code> or
+ * to a <code>ByteBuffer</code> encoding characters as UTF-8.
+ */
+class JSONWriter {
+	private Appendable out;
+	private ByteBuffer buffer;
+	private char[] digits;
+	private StringBuilder escaped;
+	boolean first;
+
+	JSONWriter(Appendable appendable) {
+		out = appendable;
+	}
+
+	JSONWriter(ByteBuffer buf) {
+		buffer = buf;
+	}
+
+	/**
+	 * Write ASCII only structural characters
+	 */
+	JSONWriter raw(CharSequence ascii) throws IOException {
+		if (buffer != null) {
+			for (int i = 0; i < ascii.length(); i++) {
+				buffer.put((byte) ascii.charAt(i));
+			}
+		} else {
+			out.append(ascii);
+		}
+		return this;
+	}
+
+	JSONWriter label(JSONToken token) throws IOException {
+		if (buffer != null) {
+			buffer.put(token.bytes);
+		} else {
+			out.append(token.chars);
+		}
+		return this;
+	}
+
+	JSONWriter text(CharSequence str) throws IOException {
+		if (buffer != null) {
+			for (int i = 0; i < str.length(); i++) {
+				i = put(str, i);
+			}
+		} else {
+			out.append(str);
+		}
+		return this;
+	}
+
+	JSONWriter quote(Object obj) throws IOException {
+		return quote(String.valueOf(obj));
+	}
+
+	JSONWriter quote(String str) throws IOException {
+		append('"');
+		text(str != null ? str : "null");
+		return append('"');
+	}
+
+	/**
+	 * Write a quoted string escaping characters using JSON escape rules
+	 * (see <code>JSONEscaper</code>). Strings without characters to escape
+	 * are written as is.
+	 */
+	JSONWriter quoteEscaped(String str) throws IOException {
+		append('"');
+		int first = JSONEscaper.indexOfEscape(str, 0);
+		if (first < 0) {
+			text(str);
+		} else if (buffer == null) {
+			JSONEscaper.escape(str, out);
+		} else {
+			if (escaped == null) {
+				escaped = new StringBuilder(8);
+			}
+			for (int i = 0; i < str.length(); i++) {
+				char ch = str.charAt(i);
+				if (i < first || !JSONEscaper.needsEscape(ch)) {
+					buffer.put((byte) ch);
+				} else {
+					escaped.setLength(0);
+					JSONEscaper.escapeChar(ch, escaped);
+					raw(escaped);
+				}
+			}
+		}
+		return append('"');
+	}
+
+	JSONWriter quoteEscaped(Object obj) throws IOException {
+		return quoteEscaped(String.valueOf(obj));
+	}
+
+	JSONWriter number(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			return raw(String.valueOf(value));
+		}
+		if (digits == null) {
+			digits = new char[20];
+		}
+		long v = value < 0 ? -value : value;
+		int pos = digits.length;
+		do {
+			digits[--pos] = (char) ('0' + (v % 10));
+			v /= 10;
+		} while (v != 0);
+		if (value < 0) {
+			digits[--pos] = '-';
+		}
+		for (int i = pos; i < digits.length; i++) {
+			append(digits[i]);
+		}
+		return this;
+	}
+
+	private JSONWriter append(char ch) throws IOException {
+		if (buffer != null) {
+			buffer.put((byte) ch);
+		} else {
+			out.append(ch);
+		}
+		return this;
+	}
+
+	/**
+	 * Encode character at a given index as UTF-8 into the buffer
+	 * 
+	 * @return index of the last consumed character
+	 */
+	private int put(CharSequence str, int i) {
+		char ch = str.charAt(i);
+		if (ch < 0x80) {
+			buffer.put((byte) ch);
+		} else if (ch < 0x800) {
+			buffer.put((byte) (0xC0 | (ch >> 6)));
+			buffer.put((byte) (0x80 | (ch & 0x3F)));
+		} else if (Character.isHighSurrogate(ch) && (i + 1) < str.length()
+		        && Character.isLowSurrogate(str.charAt(i + 1))) {
+			int cp = Character.toCodePoint(ch, str.charAt(i + 1));
+			buffer.put((byte) (0xF0 | (cp >> 18)));
+			buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+			buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+			buffer.put((byte) (0x80 | (cp & 0x3F)));
+			return i + 1;
+		} else if ((ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE)) {
+			buffer.put((byte) '?');
+		} else {
+			buffer.put((byte) (0xE0 | (ch >> 12)));
+			buffer.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+			buffer.put((byte) (0x80 | (ch & 0x3F)));
+		}
+		return i;
+	}
+}
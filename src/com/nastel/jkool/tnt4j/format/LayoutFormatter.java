@@ -0,0 +1,464 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Operation;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.TimeService;
+import com.nastel.jkool.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Layout based implementation of <code>EventFormatter</code>. A layout such as
+ * <code>"%time %sev %op %usec %corrid %msg"</code> is compiled once, when set or configured,
+ * into an array of field writers. Text between fields is written as is (use <code>%%</code> for
+ * a single <code>%</code>). Only fields present in the layout are ever computed, fields that are not
+ * set or do not apply to the formatted object are written as empty.
+ * </p>
+ * <p>
+ * Supported fields: <code>time</code> (current time), <code>sev</code>, <code>type</code>, <code>op</code>,
+ * <code>msg</code>, <code>usec</code>, <code>wait</code>, <code>age</code>, <code>start</code>, <code>end</code>,
+ * <code>corrid</code>, <code>tag</code>, <code>resource</code>, <code>location</code>, <code>user</code>,
+ * <code>ccode</code>, <code>rcode</code>, <code>status</code>, <code>error</code>, <code>source</code>,
+ * <code>trackid</code>, <code>parentid</code>, <code>pid</code>, <code>tid</code>, <code>snapcount</code>,
+ * <code>mime</code>, <code>charset</code>, <code>encoding</code>.
+ * </p>
+ * <p>
+ * Configured using <code>event.formatter.Layout</code> property, in addition to
+ * <code>TimeZone</code> and <code>Separator</code> (used for snapshots) supported by <code>DefaultFormatter</code>.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see DefaultFormatter
+ * @see SimpleFormatter
+ */
+public class LayoutFormatter extends DefaultFormatter {
+	public static final String DEFAULT_LAYOUT = "%time %sev %op %usec %corrid %msg";
+
+	private String layout;
+	private LayoutField[] fields;
+
+	/**
+	 * Create a layout formatter with default layout
+	 *
+	 * @see #DEFAULT_LAYOUT
+	 */
+	public LayoutFormatter() {
+		setLayout(DEFAULT_LAYOUT);
+	}
+
+	/**
+	 * Create a layout formatter with a given layout
+	 *
+	 * @param layout layout (e.g. "%time %sev %op %msg")
+	 * @throws IllegalArgumentException if layout contains unknown fields
+	 */
+	public LayoutFormatter(String layout) {
+		setLayout(layout);
+	}
+
+	/**
+	 * Create a layout formatter with a given layout and time zone
+	 *
+	 * @param layout layout (e.g. "%time %sev %op %msg")
+	 * @param tz time zone
+	 * @throws IllegalArgumentException if layout contains unknown fields
+	 */
+	public LayoutFormatter(String layout, TimeZone tz) {
+		setLayout(layout);
+		timeZone = tz;
+	}
+
+	/**
+	 * Obtain current layout
+	 *
+	 * @return layout string
+	 */
+	public String getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Set and compile a new layout
+	 *
+	 * @param layout layout (e.g. "%time %sev %op %msg")
+	 * @throws IllegalArgumentException if layout contains unknown fields
+	 */
+	public void setLayout(String layout) {
+		this.fields = LayoutField.compile(layout);
+		this.layout = layout;
+	}
+
+	@Override
+	public String format(TrackingEvent event) {
+		StringBuilder out = new StringBuilder(256);
+		for (LayoutField field : fields) {
+			field.write(this, out, event);
+		}
+		return out.toString();
+	}
+
+	@Override
+	public String format(TrackingActivity activity) {
+		StringBuilder out = new StringBuilder(256);
+		for (LayoutField field : fields) {
+			field.write(this, out, activity);
+		}
+		return out.toString();
+	}
+
+	@Override
+	public String format(Source src, OpLevel level, String msg, Object... args) {
+		StringBuilder out = new StringBuilder(256);
+		for (LayoutField field : fields) {
+			field.write(this, out, src, level, msg, args);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Append current time using configured time zone
+	 */
+	StringBuilder appendTime(StringBuilder out) {
+		return getTimestampFormatter().format(out, TimeService.currentTimeMillis(), 0);
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		super.setConfiguration(settings);
+		Object value = settings.get("Layout");
+		if (value != null) {
+			setLayout(value.toString());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{layout: " + layout + ", tz: " + timeZone.getID() + "}";
+	}
+}
+
+/**
+ * Field writer compiled from a layout. Writers for a given field are
+ * stateless and shared. Default implementations write nothing.
+ */
+abstract class LayoutField {
+	private static final Map<String, LayoutField> FIELDS = new HashMap<String, LayoutField>();
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+	}
+
+	/**
+	 * Compile layout into a list of field writers
+	 *
+	 * @throws IllegalArgumentException if layout contains unknown fields
+	 */
+	static LayoutField[] compile(String layout) {
+		List<LayoutField> list = new ArrayList<LayoutField>();
+		StringBuilder text = new StringBuilder();
+		int len = layout.length();
+		for (int i = 0; i < len; i++) {
+			char ch = layout.charAt(i);
+			if (ch != '%') {
+				text.append(ch);
+			} else if (i + 1 < len && layout.charAt(i + 1) == '%') {
+				text.append(ch);
+				i++;
+			} else {
+				int end = i + 1;
+				while (end < len && Character.isLetterOrDigit(layout.charAt(end))) {
+					end++;
+				}
+				String name = layout.substring(i + 1, end);
+				LayoutField field = FIELDS.get(name);
+				if (field == null) {
+					throw new IllegalArgumentException("Unknown layout field '%" + name + "' in layout: " + layout);
+				}
+				if (text.length() > 0) {
+					list.add(new TextField(text.toString()));
+					text.setLength(0);
+				}
+				list.add(field);
+				i = end - 1;
+			}
+		}
+		if (text.length() > 0) {
+			list.add(new TextField(text.toString()));
+		}
+		return list.toArray(new LayoutField[list.size()]);
+	}
+
+	static StringBuilder append(StringBuilder out, Object value) {
+		return value != null ? out.append(value) : out;
+	}
+
+	static StringBuilder appendNonZero(StringBuilder out, long value) {
+		return value != 0 ? out.append(value) : out;
+	}
+
+	static {
+		FIELDS.put("time", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				f.appendTime(out);
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				f.appendTime(out);
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+				f.appendTime(out);
+			}
+		});
+		FIELDS.put("sev", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				out.append(event.getSeverity());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				out.append(activity.getSeverity());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+				out.append(level);
+			}
+		});
+		FIELDS.put("msg", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getMessage());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+				out.append(Utils.format(msg, args));
+			}
+		});
+		FIELDS.put("error", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				write(out, event.getOperation());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				write(out, activity);
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+				append(out, Utils.getThrowable(args));
+			}
+
+			private void write(StringBuilder out, Operation op) {
+				if (op.getThrowable() != null) {
+					out.append(op.getExceptionString());
+				}
+			}
+		});
+		FIELDS.put("source", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				write(out, event.getSource());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				write(out, activity.getSource());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+				write(out, src);
+			}
+
+			private void write(StringBuilder out, Source src) {
+				if (src != null) {
+					out.append(src.getFQName());
+				}
+			}
+		});
+		FIELDS.put("trackid", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getTrackingId());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				append(out, activity.getTrackingId());
+			}
+		});
+		FIELDS.put("parentid", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getParentId());
+			}
+
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				append(out, activity.getParentId());
+			}
+		});
+		FIELDS.put("tag", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getTag());
+			}
+		});
+		FIELDS.put("age", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				appendNonZero(out, event.getMessageAge());
+			}
+		});
+		FIELDS.put("mime", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getMimeType());
+			}
+		});
+		FIELDS.put("charset", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getCharset());
+			}
+		});
+		FIELDS.put("encoding", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+				append(out, event.getEncoding());
+			}
+		});
+		FIELDS.put("status", new LayoutField() {
+			void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+				out.append(activity.getStatus());
+			}
+		});
+		FIELDS.put("type", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				out.append(op.getType());
+			}
+		});
+		FIELDS.put("op", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getResolvedName());
+			}
+		});
+		FIELDS.put("usec", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				appendNonZero(out, op.getElapsedTime());
+			}
+		});
+		FIELDS.put("wait", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				appendNonZero(out, op.getWaitTime());
+			}
+		});
+		FIELDS.put("start", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getStartTime());
+			}
+		});
+		FIELDS.put("end", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getEndTime());
+			}
+		});
+		FIELDS.put("corrid", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getCorrelator());
+			}
+		});
+		FIELDS.put("resource", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getResource());
+			}
+		});
+		FIELDS.put("location", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getLocation());
+			}
+		});
+		FIELDS.put("user", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				append(out, op.getUser());
+			}
+		});
+		FIELDS.put("ccode", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				out.append(op.getCompCode());
+			}
+		});
+		FIELDS.put("rcode", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				appendNonZero(out, op.getReasonCode());
+			}
+		});
+		FIELDS.put("pid", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				out.append(op.getPID());
+			}
+		});
+		FIELDS.put("tid", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				out.append(op.getTID());
+			}
+		});
+		FIELDS.put("snapcount", new OperationField() {
+			void write(StringBuilder out, Operation op) {
+				out.append(op.getSnapshotCount());
+			}
+		});
+	}
+}
+
+/**
+ * Literal layout text
+ */
+class TextField extends LayoutField {
+	final String text;
+
+	TextField(String txt) {
+		text = txt;
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+		out.append(text);
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+		out.append(text);
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, Source src, OpLevel level, String msg, Object... args) {
+		out.append(text);
+	}
+}
+
+/**
+ * Layout field taken from the event operation or the activity itself
+ */
+abstract class OperationField extends LayoutField {
+	abstract void write(StringBuilder out, Operation op);
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingEvent event) {
+		write(out, event.getOperation());
+	}
+
+	void write(LayoutFormatter f, StringBuilder out, TrackingActivity activity) {
+		write(out, activity);
+	}
+}
@@ -20,9 +20,9 @@ import java.util.TimeZone;
 
 import com.nastel.jkool.tnt4j.core.Property;
 import com.nastel.jkool.tnt4j.core.Snapshot;
-import com.nastel.jkool.tnt4j.core.UsecTimestamp;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.TimeService;
 
 /**
  * <p>
@@ -34,7 +34,7 @@ import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
  * </p>
  * 
  * 
- * @version $Revision: 1 $
+ * @version $Revision: 2 $
  * 
  * @see DefaultFormatter
  * @see TrackingActivity
@@ -74,7 +74,8 @@ public class SimpleFormatter extends DefaultFormatter {
 	public String format(TrackingEvent event) {
 		StringBuilder msg = new StringBuilder(1024);
 		msg.append(event.getMessage()).append(" ");
-		msg.append("{time: '").append(UsecTimestamp.getTimeStamp(timeZone)).append("'").append(separator);
+		msg.append("{time: '");
+		getTimestampFormatter().format(msg, TimeService.currentTimeMillis(), 0).append("'").append(separator);
 		msg.append("sev: '").append(event.getSeverity()).append("'").append(separator);
 		msg.append("type: '").append(event.getOperation().getType()).append("'").append(separator);
 		msg.append("name: '").append(event.getOperation().getResolvedName()).append("'").append(separator);
@@ -135,7 +136,8 @@ public class SimpleFormatter extends DefaultFormatter {
 	public String format(TrackingActivity activity) {
 		StringBuilder msg = new StringBuilder(1024);
 		msg.append("{status: '").append(activity.getStatus()).append("'").append(separator);
-		msg.append("time: '").append(UsecTimestamp.getTimeStamp(timeZone)).append("'").append(separator);
+		msg.append("time: '");
+		getTimestampFormatter().format(msg, TimeService.currentTimeMillis(), 0).append("'").append(separator);
 		msg.append("sev: '").append(activity.getSeverity()).append("'").append(separator);
 		msg.append("type: '").append(activity.getType()).append("'").append(separator);
 		msg.append("name: '").append(activity.getResolvedName()).append("'").append(separator);
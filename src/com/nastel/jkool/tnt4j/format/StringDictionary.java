@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.format;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded encoder side dictionary which maps strings and source fragments to slots.
+ * Least recently used entries are evicted and their slots reused when full.
+ * Source fragments (byte arrays) are matched by identity.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see BinaryWriter
+ */
+class StringDictionary {
+	private int capacity;
+	private int nextSlot = 0;
+	private long hits = 0, defines = 0, evictions = 0;
+	private LinkedHashMap<Object, Integer> slots;
+
+	StringDictionary(int size) {
+		capacity = size;
+		slots = new LinkedHashMap<Object, Integer>(Math.min(size, 1024), 0.75f, true);
+	}
+
+	/**
+	 * Obtain slot of an existing entry
+	 *
+	 * @return slot number or -1 if not defined
+	 */
+	int get(Object key) {
+		Integer slot = slots.get(key);
+		if (slot == null) {
+			return -1;
+		}
+		hits++;
+		return slot.intValue();
+	}
+
+	/**
+	 * Define a new entry, evicting the least recently used one if full
+	 *
+	 * @return slot assigned to the entry
+	 */
+	int define(Object key) {
+		int slot;
+		if (nextSlot < capacity) {
+			slot = nextSlot++;
+		} else {
+			Iterator<Integer> eldest = slots.values().iterator();
+			slot = eldest.next().intValue();
+			eldest.remove();
+			evictions++;
+		}
+		slots.put(key, slot);
+		defines++;
+		return slot;
+	}
+
+	void clear() {
+		slots.clear();
+		nextSlot = 0;
+	}
+
+	void getStats(Map<String, Object> stats) {
+		stats.put("dictionary-size", slots.size());
+		stats.put("dictionary-capacity", capacity);
+		stats.put("dictionary-hits", hits);
+		stats.put("dictionary-defines", defines);
+		stats.put("dictionary-evictions", evictions);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+
+/**
+ * <p>
+ * Classes that implement this interface decide whether a root activity is sampled (traced). The decision is
+ * made once, when a root activity is created using <code>Tracker.newActivity()</code>, and is inherited by all
+ * child activities and events created while the root activity is current, so sampled requests are always traced
+ * end-to-end. Root activities that are not sampled are replaced by an <code>UnsampledActivity</code>, and their
+ * children by <code>TrackerImpl.NULL_ACTIVITY</code>.
+ * Implementations must be thread safe. Implementations may also implement <code>Configurable</code> to be
+ * configured in <code>tnt4j.properties</code>, e.g.:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * tracking.sampler: com.nastel.jkool.tnt4j.sampling.FixedRateSampler
+ * tracking.sampler.Rate: 0.01
+ * }
+ * </pre>
+ *
+ * @see FixedRateSampler
+ * @see OperationRateSampler
+ * @see RateLimitingSampler
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public interface ActivitySampler {
+	/**
+	 * Decide whether a new root activity is sampled
+	 *
+	 * @param tracker tracker instance creating the activity
+	 * @param level activity severity level
+	 * @param name activity name
+	 * @return rate at which activity was sampled in (0, 1], recorded with the activity, or 0 if activity is dropped
+	 */
+	public double sample(Tracker tracker, OpLevel level, String name);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import java.util.Map;
+import java.util.Random;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+
+/**
+ * <p>
+ * This class samples a fixed fraction of root activities chosen at random. Random numbers are drawn from a per thread
+ * generator, so sampling decisions do not contend across threads.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>Rate</code> - fraction of root activities sampled between 0 and 1 (default 1).
+ * </p>
+ *
+ * @see ActivitySampler
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class FixedRateSampler implements ActivitySampler, Configurable {
+	public static final String RATE = "Rate";
+
+	private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	private volatile double rate;
+	protected Map<String, Object> config = null;
+
+	/**
+	 * Create a sampler which samples all root activities
+	 *
+	 */
+	public FixedRateSampler() {
+		this(1.0d);
+	}
+
+	/**
+	 * Create a sampler with a given sample rate
+	 *
+	 * @param rate fraction of root activities sampled between 0 and 1
+	 */
+	public FixedRateSampler(double rate) {
+		this.rate = checkRate(rate);
+	}
+
+	/**
+	 * Obtain sample rate
+	 *
+	 * @return fraction of root activities sampled
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	@Override
+	public double sample(Tracker tracker, OpLevel level, String name) {
+		return sample(rate);
+	}
+
+	/**
+	 * Make a random sampling decision with a given rate
+	 *
+	 * @param rate fraction of decisions which are positive
+	 * @return given rate if sampled, 0 otherwise
+	 */
+	protected static double sample(double rate) {
+		if (rate >= 1.0d) {
+			return 1.0d;
+		}
+		return (rate > 0 && RANDOM.get().nextDouble() < rate) ? rate : 0;
+	}
+
+	/**
+	 * Validate a given sample rate
+	 *
+	 * @param rate sample rate
+	 * @return sample rate
+	 * @throws IllegalArgumentException if rate is not between 0 and 1
+	 */
+	protected static double checkRate(double rate) {
+		if (rate < 0 || rate > 1.0d || Double.isNaN(rate)) {
+			throw new IllegalArgumentException("Sample rate must be between 0 and 1, rate=" + rate);
+		}
+		return rate;
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object value = config.get(RATE);
+		rate = value != null ? checkRate(Double.parseDouble(value.toString())) : rate;
+	}
+}
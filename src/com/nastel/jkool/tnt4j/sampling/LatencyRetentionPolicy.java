@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+import com.nastel.jkool.tnt4j.core.ActivityStatus;
+import com.nastel.jkool.tnt4j.core.OpCompCode;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+
+/**
+ * <p>
+ * This class retains activities which failed or were slow. An activity is retained when its status is
+ * <code>EXCEPTION</code>, its completion code is not <code>SUCCESS</code>, its elapsed time is at or above a fixed
+ * threshold, or its elapsed time is at or above a given percentile of recent elapsed times of activities with the
+ * same name. Percentiles are computed over a rolling window of most recent elapsed times per activity name and
+ * refreshed every eighth of a window, so activities are not retained by percentile until a name has enough history.
+ * Windows are kept for a bounded number of activity names, activities with names seen after the limit is reached are
+ * not retained by percentile.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>ThresholdUsec</code> - elapsed time threshold in microseconds, 0 to disable
+ * (default 0); <code>Percentile</code> - elapsed time percentile between 0 and 100, 0 to disable (default 0);
+ * <code>Window</code> - number of recent elapsed times per activity name (default 1024); <code>MaxBuffered</code> -
+ * maximum number of items buffered per activity (default 128); <code>MaxNames</code> - maximum number of activity
+ * names with a percentile window (default 256).
+ * </p>
+ *
+ * @see RetentionPolicy
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class LatencyRetentionPolicy implements RetentionPolicy, Configurable {
+	public static final String THRESHOLD_USEC = "ThresholdUsec";
+	public static final String PERCENTILE = "Percentile";
+	public static final String WINDOW = "Window";
+	public static final String MAX_BUFFERED = "MaxBuffered";
+	public static final String MAX_NAMES = "MaxNames";
+
+	private volatile long thresholdUsec = 0;
+	private volatile double percentile = 0;
+	private volatile int window = 1024;
+	private volatile int maxBuffered = 128;
+	private volatile int maxNames = 256;
+	private final ConcurrentHashMap<String, LatencyWindow> latency = new ConcurrentHashMap<String, LatencyWindow>();
+	private Map<String, Object> config = null;
+
+	/**
+	 * Create a policy which retains only failed activities
+	 *
+	 */
+	public LatencyRetentionPolicy() {
+	}
+
+	/**
+	 * Create a policy which retains failed activities and activities slower than given limits
+	 *
+	 * @param thresholdUsec elapsed time threshold in microseconds, 0 to disable
+	 * @param percentile elapsed time percentile between 0 and 100, 0 to disable
+	 */
+	public LatencyRetentionPolicy(long thresholdUsec, double percentile) {
+		this.thresholdUsec = thresholdUsec;
+		this.percentile = checkPercentile(percentile);
+	}
+
+	/**
+	 * Obtain elapsed time threshold
+	 *
+	 * @return elapsed time threshold in microseconds, 0 if disabled
+	 */
+	public long getThresholdUsec() {
+		return thresholdUsec;
+	}
+
+	/**
+	 * Obtain elapsed time percentile
+	 *
+	 * @return elapsed time percentile, 0 if disabled
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	@Override
+	public int getMaxBuffered() {
+		return maxBuffered;
+	}
+
+	@Override
+	public boolean isRetained(TrackingActivity activity) {
+		long elapsed = activity.getElapsedTime();
+		LatencyWindow lw = percentile > 0 ? getWindow(activity.getName()) : null;
+		boolean slow = lw != null && lw.add(elapsed, percentile);
+		return slow
+			|| activity.getStatus() == ActivityStatus.EXCEPTION
+			|| activity.getCompCode() != OpCompCode.SUCCESS
+			|| (thresholdUsec > 0 && elapsed >= thresholdUsec);
+	}
+
+	/**
+	 * Obtain elapsed time window for a given activity name
+	 *
+	 * @param name activity name
+	 * @return elapsed time window, null if maximum number of names is reached
+	 */
+	private LatencyWindow getWindow(String name) {
+		String key = name != null ? name : "";
+		LatencyWindow lw = latency.get(key);
+		if (lw == null) {
+			if (latency.size() >= maxNames) {
+				return null;
+			}
+			LatencyWindow prev = latency.putIfAbsent(key, lw = new LatencyWindow(window));
+			lw = prev != null ? prev : lw;
+		}
+		return lw;
+	}
+
+	private static double checkPercentile(double pct) {
+		if (pct < 0 || pct > 100 || Double.isNaN(pct)) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100, percentile=" + pct);
+		}
+		return pct;
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object value = config.get(THRESHOLD_USEC);
+		thresholdUsec = value != null ? Long.parseLong(value.toString()) : thresholdUsec;
+		value = config.get(PERCENTILE);
+		percentile = value != null ? checkPercentile(Double.parseDouble(value.toString())) : percentile;
+		value = config.get(WINDOW);
+		window = value != null ? Math.max(8, Integer.parseInt(value.toString())) : window;
+		value = config.get(MAX_BUFFERED);
+		maxBuffered = value != null ? Integer.parseInt(value.toString()) : maxBuffered;
+		value = config.get(MAX_NAMES);
+		maxNames = value != null ? Math.max(1, Integer.parseInt(value.toString())) : maxNames;
+		latency.clear();
+	}
+}
+
+class LatencyWindow {
+	private final long[] samples;
+	private final long[] sorted;
+	private final int refresh;
+	private int count = 0, next = 0, added = 0;
+	private long limit = Long.MAX_VALUE;
+
+	LatencyWindow(int size) {
+		samples = new long[size];
+		sorted = new long[size];
+		refresh = Math.max(1, size / 8);
+	}
+
+	/**
+	 * Record an elapsed time and determine if it is at or above a given percentile of recorded times
+	 *
+	 * @param elapsed elapsed time
+	 * @param pct percentile between 0 and 100
+	 * @return true if elapsed time is at or above the percentile, false otherwise
+	 */
+	synchronized boolean add(long elapsed, double pct) {
+		boolean above = elapsed >= limit;
+		samples[next] = elapsed;
+		next = (next + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+		if (++added >= refresh) {
+			added = 0;
+			System.arraycopy(samples, 0, sorted, 0, count);
+			Arrays.sort(sorted, 0, count);
+			int index = (int) Math.ceil((pct / 100.0d) * count) - 1;
+			limit = sorted[Math.max(0, Math.min(index, count - 1))];
+		}
+		return above;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+
+/**
+ * <p>
+ * This class samples a fixed fraction of root activities per activity name. Activities with no rate of their own
+ * are sampled at the default rate.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>Rate</code> - default fraction of root activities sampled (default 1),
+ * <code>Rate.&lt;activity-name&gt;</code> - fraction of root activities with a given name sampled. Example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * tracking.sampler: com.nastel.jkool.tnt4j.sampling.OperationRateSampler
+ * tracking.sampler.Rate: 0.01
+ * tracking.sampler.Rate.checkout: 0.5
+ * }
+ * </pre>
+ *
+ * @see ActivitySampler
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class OperationRateSampler extends FixedRateSampler {
+	public static final String RATE_PREFIX = RATE + ".";
+
+	private final ConcurrentHashMap<String, Double> rates = new ConcurrentHashMap<String, Double>();
+
+	/**
+	 * Create a sampler which samples all root activities by default
+	 *
+	 */
+	public OperationRateSampler() {
+		super();
+	}
+
+	/**
+	 * Create a sampler with a given default sample rate
+	 *
+	 * @param rate default fraction of root activities sampled between 0 and 1
+	 */
+	public OperationRateSampler(double rate) {
+		super(rate);
+	}
+
+	/**
+	 * Set sample rate for activities with a given name
+	 *
+	 * @param name activity name
+	 * @param rate fraction of root activities with a given name sampled between 0 and 1
+	 * @return this sampler
+	 */
+	public OperationRateSampler setRate(String name, double rate) {
+		rates.put(name, checkRate(rate));
+		return this;
+	}
+
+	/**
+	 * Obtain sample rate for activities with a given name
+	 *
+	 * @param name activity name
+	 * @return fraction of root activities with a given name sampled
+	 */
+	public double getRate(String name) {
+		Double rate = name != null ? rates.get(name) : null;
+		return rate != null ? rate.doubleValue() : getRate();
+	}
+
+	@Override
+	public double sample(Tracker tracker, OpLevel level, String name) {
+		return sample(getRate(name));
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		super.setConfiguration(settings);
+		for (Map.Entry<String, Object> entry : settings.entrySet()) {
+			if (entry.getKey().startsWith(RATE_PREFIX)) {
+				setRate(entry.getKey().substring(RATE_PREFIX.length()), Double.parseDouble(entry.getValue().toString()));
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+
+/**
+ * <p>
+ * This class samples at most a given number of root activities per second, using a token bucket refilled
+ * continuously at the configured rate and holding at most one second worth of tokens. Recorded sample rate
+ * is the fraction of root activities sampled during the previous second, so sampled activities can be weighted
+ * when computing totals.
+ * </p>
+ *
+ * <p>
+ * Sampling is lock free: the bucket is kept as a single theoretical arrival time, which is the time at which
+ * the bucket would be full again, and is advanced by one token interval per sampled activity using
+ * compare-and-set.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>MaxPerSecond</code> - maximum number of root activities sampled per second
+ * (default 10).
+ * </p>
+ *
+ * @see ActivitySampler
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class RateLimitingSampler implements ActivitySampler, Configurable {
+	public static final String MAX_PER_SECOND = "MaxPerSecond";
+
+	private static final long NANOS_PER_SEC = 1000000000L;
+	private static final long NO_REFILL_NANOS = Long.MAX_VALUE / 4;
+
+	private volatile double maxPerSecond;
+	private volatile Bucket bucket;
+	private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+	private final AtomicLong windowStart = new AtomicLong(fullAt.get());
+	private final AtomicLong windowSeen = new AtomicLong(), windowSampled = new AtomicLong();
+	private volatile double lastRate = 1.0d;
+	private Map<String, Object> config = null;
+
+	/**
+	 * Create a sampler which samples at most 10 root activities per second
+	 *
+	 */
+	public RateLimitingSampler() {
+		this(10);
+	}
+
+	/**
+	 * Create a sampler which samples at most a given number of root activities per second
+	 *
+	 * @param maxPerSecond maximum number of root activities sampled per second
+	 */
+	public RateLimitingSampler(double maxPerSecond) {
+		setMaxPerSecond(maxPerSecond);
+	}
+
+	/**
+	 * Set maximum number of root activities sampled per second
+	 *
+	 * @param max maximum number of root activities sampled per second
+	 * @throws IllegalArgumentException if max is negative
+	 */
+	public synchronized void setMaxPerSecond(double max) {
+		if (max < 0 || Double.isNaN(max)) {
+			throw new IllegalArgumentException("MaxPerSecond must be non-negative, max=" + max);
+		}
+		long now = System.nanoTime();
+		Bucket old = bucket, next = new Bucket(max);
+		if (old != null) {
+			// keep available tokens, capped at the new capacity
+			long ahead = Math.max(0, fullAt.get() - now);
+			double tokens = Math.min(next.capacity, old.capacity - ahead / (double) old.interval);
+			fullAt.set(now + (long) ((next.capacity - tokens) * next.interval));
+		}
+		maxPerSecond = max;
+		bucket = next;
+	}
+
+	/**
+	 * Obtain maximum number of root activities sampled per second
+	 *
+	 * @return maximum number of root activities sampled per second
+	 */
+	public double getMaxPerSecond() {
+		return maxPerSecond;
+	}
+
+	@Override
+	public double sample(Tracker tracker, OpLevel level, String name) {
+		long now = System.nanoTime();
+		long start = windowStart.get();
+		if (now - start >= NANOS_PER_SEC && windowStart.compareAndSet(start, now)) {
+			long seen = windowSeen.getAndSet(0), sampled = windowSampled.getAndSet(0);
+			lastRate = seen > 0 ? Math.max(sampled, 1) / (double) seen : 1.0d;
+		}
+		windowSeen.incrementAndGet();
+		if (!acquire(now)) {
+			return 0;
+		}
+		windowSampled.incrementAndGet();
+		return lastRate;
+	}
+
+	/**
+	 * Take one token from the bucket if available
+	 *
+	 * @param now current time in nanoseconds
+	 * @return true if token was taken, false if bucket is empty
+	 */
+	private boolean acquire(long now) {
+		Bucket limit = bucket;
+		for (;;) {
+			long full = fullAt.get();
+			long ahead = full - now;
+			if (ahead < 0) {
+				ahead = 0;
+			}
+			if (ahead + limit.interval > limit.tolerance) {
+				return false;
+			}
+			if (fullAt.compareAndSet(full, now + ahead + limit.interval)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object value = config.get(MAX_PER_SECOND);
+		if (value != null) {
+			setMaxPerSecond(Double.parseDouble(value.toString()));
+		}
+	}
+
+	/**
+	 * Immutable token bucket limits: nanoseconds per token and nanoseconds worth of bucket capacity
+	 */
+	private static final class Bucket {
+		final double capacity;
+		final long interval, tolerance;
+
+		Bucket(double max) {
+			capacity = Math.max(1.0d, max);
+			interval = max > 0 ? Math.max(1L, Math.min(NO_REFILL_NANOS, (long) (NANOS_PER_SEC / max))) : NO_REFILL_NANOS;
+			tolerance = (long) Math.min(NO_REFILL_NANOS, capacity * interval);
+		}
+	}
+}
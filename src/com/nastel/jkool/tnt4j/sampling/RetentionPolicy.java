@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sampling;
+
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+
+/**
+ * <p>
+ * Classes that implement this interface decide, when an activity stops, whether events and snapshots
+ * tracked by the activity are kept (tail based retention). When a retention policy is set, events and snapshots
+ * passed to <code>TrackingActivity.tnt()</code> are held in a bounded per activity buffer until the activity
+ * stops. Buffered items are reported only if the activity is retained, otherwise they are discarded and only
+ * the activity with a compact <code>Retention</code> summary snapshot is kept. Implementations must be thread safe.
+ * Implementations may also implement <code>Configurable</code> to be configured in <code>tnt4j.properties</code>, e.g.:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * tracking.retention: com.nastel.jkool.tnt4j.sampling.LatencyRetentionPolicy
+ * tracking.retention.ThresholdUsec: 500000
+ * tracking.retention.Percentile: 99
+ * }
+ * </pre>
+ *
+ * @see LatencyRetentionPolicy
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public interface RetentionPolicy {
+	/**
+	 * Obtain maximum number of events and snapshots buffered per activity.
+	 * Items tracked after the buffer is full are discarded and counted.
+	 *
+	 * @return maximum number of buffered items per activity
+	 */
+	public int getMaxBuffered();
+
+	/**
+	 * Decide whether buffered events and snapshots of a stopped activity are kept
+	 *
+	 * @param activity stopped activity with status, completion code and elapsed time set
+	 * @return true if buffered items should be reported, false if discarded
+	 */
+	public boolean isRetained(TrackingActivity activity);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.util.List;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.format.EventFormatter;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class implements a default abstract class for <code>EncodingEventSink</code>. Events are encoded
+ * using sink's formatter and encoded records are written by subclasses as is, without formatting them again.
+ * Developers should subclass from this class for all encoding event sinks.
+ * </p>
+ *
+ *
+ * @version $Revision: 1 $
+ *
+ * @see AbstractEventSink
+ * @see EncodingEventSink
+ * @see EncodedEvent
+ */
+public abstract class AbstractEncodingEventSink extends AbstractEventSink implements EncodingEventSink {
+
+	public AbstractEncodingEventSink(String nm) {
+		super(nm);
+	}
+
+	public AbstractEncodingEventSink(String nm, EventFormatter fmt) {
+		super(nm, fmt);
+	}
+
+	/**
+	 * Encode a given tracking activity into a compact record using sink's formatter.
+	 * Sink filters and severity checks are applied during encoding.
+	 *
+	 * @param activity
+	 *            tracking activity
+	 * @return encoded record, null if activity is filtered out
+	 */
+	@Override
+	public EncodedEvent encode(TrackingActivity activity) {
+		if (!filterEvent(activity) || !isSet(activity.getSeverity()))
+			return null;
+		return new EncodedEvent(activity.getSeverity(), getEventFormatter().format(activity), EncodedEvent.TYPE_ACTIVITY);
+	}
+
+	/**
+	 * Encode a given tracking event into a compact record using sink's formatter.
+	 * Sink filters and severity checks are applied during encoding.
+	 *
+	 * @param event
+	 *            tracking event
+	 * @return encoded record, null if event is filtered out
+	 */
+	@Override
+	public EncodedEvent encode(TrackingEvent event) {
+		if (!filterEvent(event) || !isSet(event.getSeverity()))
+			return null;
+		return new EncodedEvent(event.getSeverity(), getEventFormatter().format(event), EncodedEvent.TYPE_EVENT);
+	}
+
+	/**
+	 * Encode a batch of tracking events followed by the tracking activity into a single record
+	 * using sink's formatter, one formatted item per line. Sink filters and severity checks are
+	 * applied to every item during encoding.
+	 *
+	 * @param activity
+	 *            tracking activity, null if none
+	 * @param events
+	 *            list of tracking events
+	 * @return encoded record, null if all items are filtered out
+	 */
+	@Override
+	public EncodedEvent encode(TrackingActivity activity, List<TrackingEvent> events) {
+		List<TrackingEvent> batch = filterEvents(events);
+		if ((activity != null) && (!filterEvent(activity) || !isSet(activity.getSeverity())))
+			activity = null;
+		int count = batch.size() + (activity != null ? 1 : 0);
+		if (count == 0)
+			return null;
+		OpLevel sev = activity != null ? activity.getSeverity() : OpLevel.NONE;
+		for (TrackingEvent event : batch) {
+			sev = event.getSeverity().compareTo(sev) > 0 ? event.getSeverity() : sev;
+		}
+		return new EncodedEvent(sev, format(activity, batch), EncodedEvent.TYPE_BATCH, count);
+	}
+
+	/**
+	 * Encode a given snapshot into a compact record using sink's formatter.
+	 * Sink filters and severity checks are applied during encoding.
+	 *
+	 * @param snapshot
+	 *            property snapshot
+	 * @return encoded record, null if snapshot is filtered out
+	 */
+	@Override
+	public EncodedEvent encode(Snapshot snapshot) {
+		if (!filterEvent(snapshot) || !isSet(snapshot.getSeverity()))
+			return null;
+		return new EncodedEvent(snapshot.getSeverity(), getEventFormatter().format(snapshot), EncodedEvent.TYPE_SNAPSHOT);
+	}
+
+	/**
+	 * Encode a given message into a compact record using sink's formatter.
+	 * Sink filters and severity checks are applied during encoding.
+	 *
+	 * @param src
+	 *            event source handle
+	 * @param sev
+	 *            message severity
+	 * @param msg
+	 *            string message
+	 * @param args
+	 *            arguments passed along the message
+	 * @return encoded record, null if message is filtered out
+	 */
+	@Override
+	public EncodedEvent encode(Source src, OpLevel sev, String msg, Object... args) {
+		if (!passEvent(sev, msg) || !isSet(sev))
+			return null;
+		return new EncodedEvent(sev, getEventFormatter().format(src, sev, msg, args), EncodedEvent.TYPE_MESSAGE);
+	}
+
+	/**
+	 * Write a record previously encoded by this sink. Log listeners are not notified
+	 * since the original event is no longer available.
+	 *
+	 * @param record
+	 *            encoded event record
+	 */
+	@Override
+	public void log(EncodedEvent record) {
+		_checkState();
+		try {
+			_log(record);
+			countLogged(record);
+		} catch (Throwable ex) {
+			notifyListeners(record, ex);
+		}
+	}
+
+	/**
+	 * Override this method to write encoded records as is to the underlying storage.
+	 * The record text is already formatted by sink's formatter.
+	 *
+	 * @param record
+	 *            encoded record to be sent to the sink
+	 * @see EncodedEvent
+	 */
+	abstract protected void _log(EncodedEvent record) throws Exception;
+}
@@ -17,8 +17,8 @@ package com.nastel.jkool.tnt4j.sink;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.nastel.jkool.tnt4j.core.KeyValueStats;
 import com.nastel.jkool.tnt4j.core.OpLevel;
@@ -27,6 +27,7 @@ import com.nastel.jkool.tnt4j.format.EventFormatter;
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.StripedStats;
 
 /**
  * <p>
@@ -35,15 +36,16 @@ import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
  * </p>
  *
  *
- * @version $Revision: 9 $
+ * @version $Revision: 13 $
  *
  * @see EventSink
+ * @see BatchEventSink
  * @see SinkError
  * @see SinkErrorListener
  * @see SinkLogEvent
  * @see SinkLogEventListener
  */
-public abstract class AbstractEventSink implements EventSink {
+public abstract class AbstractEventSink implements BatchEventSink {
 	private static final EventSink logger = DefaultEventSinkFactory.defaultEventSink(AbstractEventSink.class);
 
 	protected ArrayList<SinkErrorListener> errorListeners = new ArrayList<SinkErrorListener>(10);
@@ -53,12 +55,16 @@ public abstract class AbstractEventSink implements EventSink {
 	private String name;
 	private EventFormatter formatter;
 	private Source source;
-	private AtomicLong loggedActivities = new AtomicLong(0);
-	private AtomicLong loggedEvents = new AtomicLong(0);
-	private AtomicLong loggedMsgs = new AtomicLong(0);
-	private AtomicLong loggedSnaps = new AtomicLong(0);
-	private AtomicLong errorCount = new AtomicLong(0);
-	private AtomicLong filteredCount = new AtomicLong(0);
+
+	// counter indexes into sink statistics
+	private static final int LOGGED_ACTIVITIES = 0;
+	private static final int LOGGED_EVENTS = 1;
+	private static final int LOGGED_SNAPS = 2;
+	private static final int ERROR_COUNT = 3;
+	private static final int LOGGED_MSGS = 4;
+	private static final int FILTERED_COUNT = 5;
+	private StripedStats counters = new StripedStats(KEY_LOGGED_ACTIVITIES, KEY_LOGGED_EVENTS, KEY_LOGGED_SNAPSHOTS,
+	        KEY_SINK_ERROR_COUNT, KEY_LOGGED_MSGS, KEY_SKIPPED_COUNT);
 
 	public AbstractEventSink(String nm) {
 		name = nm;
@@ -98,22 +104,13 @@ public abstract class AbstractEventSink implements EventSink {
 
 	@Override
 	public KeyValueStats getStats(Map<String, Object> stats) {
-		stats.put(KEY_LOGGED_ACTIVITIES, loggedActivities.get());
-		stats.put(KEY_LOGGED_EVENTS, loggedEvents.get());
-		stats.put(KEY_LOGGED_SNAPSHOTS, loggedSnaps.get());
-		stats.put(KEY_SINK_ERROR_COUNT, errorCount.get());
-		stats.put(KEY_LOGGED_MSGS, loggedMsgs.get());
-		stats.put(KEY_SKIPPED_COUNT, filteredCount.get());
+		counters.getStats(stats);
 		return this;
 	}
 
 	@Override
 	public void resetStats() {
-		loggedActivities.set(0);
-		loggedEvents.set(0);
-		errorCount.set(0);
-		loggedMsgs.set(0);
-		filteredCount.set(0);
+		counters.resetStats();
 	}
 
 	/**
@@ -203,7 +200,7 @@ public abstract class AbstractEventSink implements EventSink {
 	 *            exception to be reported to all registered event listeners
 	 */
 	protected void notifyListeners(Object msg, Throwable ex) {
-		errorCount.incrementAndGet();
+		counters.increment(ERROR_COUNT);
 		if (errorListeners.size() > 0) {
 			SinkError event = new SinkError(this, msg, ex);
 			notifyListeners(event);
@@ -230,7 +227,7 @@ public abstract class AbstractEventSink implements EventSink {
 		for (SinkEventFilter filter : filters) {
 			pass = (pass && filter.filter(this, level, msg, args));
 			if (!pass) {
-				filteredCount.incrementAndGet();
+				counters.increment(FILTERED_COUNT);
 				break;
 			}
 		}
@@ -253,7 +250,7 @@ public abstract class AbstractEventSink implements EventSink {
 		for (SinkEventFilter filter : filters) {
 			pass = (pass && filter.filter(this, snapshot));
 			if (!pass) {
-				filteredCount.incrementAndGet();
+				counters.increment(FILTERED_COUNT);
 				break;
 			}
 		}
@@ -276,7 +273,7 @@ public abstract class AbstractEventSink implements EventSink {
 		for (SinkEventFilter filter : filters) {
 			pass = (pass && filter.filter(this, activity));
 			if (!pass) {
-				filteredCount.incrementAndGet();
+				counters.increment(FILTERED_COUNT);
 				break;
 			}
 		}
@@ -299,7 +296,7 @@ public abstract class AbstractEventSink implements EventSink {
 		for (SinkEventFilter filter : filters) {
 			pass = (pass && filter.filter(this, event));
 			if (!pass) {
-				filteredCount.incrementAndGet();
+				counters.increment(FILTERED_COUNT);
 				break;
 			}
 		}
@@ -328,7 +325,7 @@ public abstract class AbstractEventSink implements EventSink {
 		if (isSet(activity.getSeverity())) {
 			try {
 				_log(activity);
-				loggedEvents.incrementAndGet();
+				counters.increment(LOGGED_EVENTS);
 				if (logListeners.size() > 0) {
 					notifyListeners(new SinkLogEvent(this, activity));
 				}
@@ -346,7 +343,7 @@ public abstract class AbstractEventSink implements EventSink {
 		if (isSet(event.getSeverity())) {
 			try {
 				_log(event);
-				loggedEvents.incrementAndGet();
+				counters.increment(LOGGED_EVENTS);
 				if (logListeners.size() > 0) {
 					notifyListeners(new SinkLogEvent(this, event));
 				}
@@ -356,6 +353,103 @@ public abstract class AbstractEventSink implements EventSink {
 		}
 	}
 
+	@Override
+	public void log(TrackingActivity activity, List<TrackingEvent> events) {
+		_checkState();
+		List<TrackingEvent> batch = filterEvents(events);
+		boolean logActivity = (activity != null) && filterEvent(activity) && isSet(activity.getSeverity());
+		if (batch.isEmpty() && !logActivity)
+			return;
+		try {
+			_log(logActivity ? activity : null, batch);
+			counters.add(LOGGED_EVENTS, batch.size() + (logActivity ? 1 : 0));
+			if (logListeners.size() > 0) {
+				for (TrackingEvent event : batch) {
+					notifyListeners(new SinkLogEvent(this, event));
+				}
+				if (logActivity) {
+					notifyListeners(new SinkLogEvent(this, activity));
+				}
+			}
+		} catch (Throwable ex) {
+			notifyListeners(activity != null ? activity : batch, ex);
+		}
+	}
+
+	/**
+	 * Apply sink filters and severity checks to a list of tracking events.
+	 * The given list is returned as is when all events pass.
+	 *
+	 * @param events
+	 *            list of tracking events
+	 * @return list of events which passed all filters
+	 */
+	List<TrackingEvent> filterEvents(List<TrackingEvent> events) {
+		ArrayList<TrackingEvent> passed = null;
+		for (int i = 0; i < events.size(); i++) {
+			TrackingEvent event = events.get(i);
+			boolean pass = filterEvent(event) && isSet(event.getSeverity());
+			if (!pass && passed == null) {
+				passed = new ArrayList<TrackingEvent>(events.subList(0, i));
+			} else if (pass && passed != null) {
+				passed.add(event);
+			}
+		}
+		return passed != null ? passed : events;
+	}
+
+	/**
+	 * Format a batch of tracking events followed by the tracking activity using sink's formatter,
+	 * one formatted item per line. Items are not filtered.
+	 *
+	 * @param activity
+	 *            tracking activity, null if none
+	 * @param events
+	 *            list of tracking events
+	 * @return formatted items separated by new lines
+	 */
+	protected String format(TrackingActivity activity, List<TrackingEvent> events) {
+		EventFormatter frm = getEventFormatter();
+		StringBuilder buffer = new StringBuilder(256 * (events.size() + 1));
+		for (TrackingEvent event : events) {
+			if (buffer.length() > 0)
+				buffer.append('\n');
+			buffer.append(frm.format(event));
+		}
+		if (activity != null) {
+			if (buffer.length() > 0)
+				buffer.append('\n');
+			buffer.append(frm.format(activity));
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Update sink statistics for an encoded record which was written to the sink.
+	 *
+	 * @param record
+	 *            encoded record written to the sink
+	 * @see AbstractEncodingEventSink
+	 */
+	void countLogged(EncodedEvent record) {
+		switch (record.getType()) {
+		case EncodedEvent.TYPE_ACTIVITY:
+			counters.increment(LOGGED_ACTIVITIES);
+			break;
+		case EncodedEvent.TYPE_EVENT:
+			counters.increment(LOGGED_EVENTS);
+			break;
+		case EncodedEvent.TYPE_SNAPSHOT:
+			counters.increment(LOGGED_SNAPS);
+			break;
+		case EncodedEvent.TYPE_BATCH:
+			counters.add(LOGGED_EVENTS, record.getCount());
+			break;
+		default:
+			counters.increment(LOGGED_MSGS);
+		}
+	}
+
 	@Override
 	public void log(Snapshot snapshot) {
 		_checkState();
@@ -364,7 +458,7 @@ public abstract class AbstractEventSink implements EventSink {
 		if (isSet(snapshot.getSeverity())) {
 			try {
 				_log(snapshot);
-				loggedSnaps.incrementAndGet();
+				counters.increment(LOGGED_SNAPS);
 				if (logListeners.size() > 0) {
 					notifyListeners(new SinkLogEvent(this, snapshot));
 				}
@@ -386,7 +480,7 @@ public abstract class AbstractEventSink implements EventSink {
 		if (isSet(sev)) {
 			try {
 				_log(src, sev, msg, args);
-				loggedMsgs.incrementAndGet();
+				counters.increment(LOGGED_MSGS);
 				if (logListeners.size() > 0) {
 					notifyListeners(new SinkLogEvent(this, src, sev, msg, args));
 				}
@@ -445,4 +539,22 @@ public abstract class AbstractEventSink implements EventSink {
 	 * @see OpLevel
 	 */
 	abstract protected void _log(Source src, OpLevel sev, String msg, Object... args) throws Exception;;
-}
+
+	/**
+	 * Override this method to write a batch of tracking events followed by the tracking activity
+	 * in a single operation. Default implementation writes every item separately.
+	 *
+	 * @param activity
+	 *            tracking activity to be sent to the sink, null if none
+	 * @param events
+	 *            list of tracking events to be sent to the sink
+	 * @see BatchEventSink
+	 */
+	protected void _log(TrackingActivity activity, List<TrackingEvent> events) throws Exception {
+		for (TrackingEvent event : events) {
+			_log(event);
+		}
+		if (activity != null) {
+			_log(activity);
+		}
+	}}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.util.List;
+
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>Classes that implement this interface provide implementation for
+ * event sinks which can log an activity together with its deferred child events
+ * in a single call. Sink state is checked once per batch and sinks may write
+ * the whole batch as a single record, instead of paying filtering, queueing and
+ * a write for every child event.
+ * </p>
+ *
+ * @see com.nastel.jkool.tnt4j.tracker.TrackingActivity
+ * @see BufferedEventSink
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public interface BatchEventSink extends EventSink {
+	/**
+	 * Log a batch of tracking events followed by the tracking activity which tracked them.
+	 * Sink filters and severity checks are applied to every item.
+	 *
+	 * @param activity tracking activity, null if events are flushed before the activity is reported
+	 * @param events list of tracking events
+	 */
+	void log(TrackingActivity activity, List<TrackingEvent> events);
+}
@@ -16,6 +16,7 @@
 package com.nastel.jkool.tnt4j.sink;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -26,6 +27,7 @@ import com.nastel.jkool.tnt4j.format.EventFormatter;
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.Utils;
 
 /**
  * <p>
@@ -34,20 +36,41 @@ import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
  * writer from the actual sink write and can improve performance during bursts.
  * </p>
  * 
+ * <p>
+ * When created in serialize mode with an out sink implementing <code>EncodingEventSink</code>, events
+ * are filtered, formatted and encoded into compact <code>EncodedEvent</code> records on the caller's thread
+ * and only these records are queued. Event object graphs are not retained during backlogs, which
+ * avoids promoting them into old generation. Sink log listeners are not notified in this mode.
+ * </p>
+ * 
+ * <p>
+ * Otherwise message arguments are snapshot when queued and messages are rendered lazily
+ * by the logging thread, only if they pass the out sink filters. Pooled tracking events
+ * are retained while queued and released once logged.
+ * </p>
+ * 
+ * <p>
+ * Batches of activity events are queued as a single entry, if the out sink implements
+ * <code>BatchEventSink</code>, otherwise every item is queued separately.
+ * </p>
  * 
- * @version $Revision: 1 $
+ * 
+ * @version $Revision: 5 $
  * 
  * @see EventSink
  * @see SinkError
  * @see SinkErrorListener
  * @see SinkLogEvent
  * @see SinkLogEventListener
+ * @see EncodingEventSink
+ * @see BatchEventSink
  */
-public class BufferedEventSink implements EventSink {
+public class BufferedEventSink implements BatchEventSink {
 	static final String KEY_OBJECTS_DROPPED = "buffered-objects-dropped";
 
 	private Source source;
 	private EventSink outSink = null;
+	private EncodingEventSink encoder = null;
 	private AtomicLong dropCount = new AtomicLong(0);	
 
 	/**
@@ -58,7 +81,39 @@ public class BufferedEventSink implements EventSink {
 	 * @param sink out sink where events/log message are written out
 	 */
 	public BufferedEventSink(EventSink sink) {
+		this(sink, false);
+	}
+
+	/**
+	 * Create a buffered sink instance with a specified out sink.
+	 * In serialize mode events are encoded by the calling thread and only encoded
+	 * records are queued, if the out sink implements <code>EncodingEventSink</code>.
+	 * 
+	 * @param sink out sink where events/log message are written out
+	 * @param serialize true to queue encoded records instead of event objects
+	 * @see EncodingEventSink
+	 */
+	public BufferedEventSink(EventSink sink, boolean serialize) {
 		outSink = sink;
+		if (serialize && (sink instanceof EncodingEventSink)) {
+			encoder = (EncodingEventSink) sink;
+		}
+	}
+
+	/**
+	 * Determine if events are encoded by the calling thread before being queued
+	 * 
+	 * @return true if encoded records are queued, false if event objects are queued
+	 */
+	public boolean isSerializing() {
+		return encoder != null;
+	}
+
+	private void offer(EncodedEvent record) {
+		if (record != null) {
+			boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, record));
+			if (!flag) dropCount.incrementAndGet();
+		}
 	}
 
 	/**
@@ -97,24 +152,69 @@ public class BufferedEventSink implements EventSink {
 
 	@Override
     public void write(Object msg, Object... args) throws IOException, InterruptedException {
-		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, null, OpLevel.NONE, String.valueOf(msg), args));
+		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, null, OpLevel.NONE, String.valueOf(msg), Utils.snapshotArgs(args)));
 		if (!flag) dropCount.incrementAndGet();
 	}
 
 	@Override
     public void log(TrackingActivity activity) {
+		if (encoder != null) {
+			offer(encoder.encode(activity));
+			return;
+		}
 		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, activity));
 		if (!flag) dropCount.incrementAndGet();
    }
 
 	@Override
     public void log(TrackingEvent event) {
+		if (encoder != null) {
+			offer(encoder.encode(event));
+			return;
+		}
+		event.snapshotMessageArgs();
+		event.retain();
 		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, event));
-		if (!flag) dropCount.incrementAndGet();
+		if (!flag) {
+			dropCount.incrementAndGet();
+			event.release();
+		}
+    }
+
+	@Override
+    public void log(TrackingActivity activity, List<TrackingEvent> events) {
+		if (encoder != null) {
+			offer(encoder.encode(activity, events));
+			return;
+		}
+		if (!(outSink instanceof BatchEventSink)) {
+			for (TrackingEvent event : events) {
+				log(event);
+			}
+			if (activity != null) {
+				log(activity);
+			}
+			return;
+		}
+		for (TrackingEvent event : events) {
+			event.snapshotMessageArgs();
+			event.retain();
+		}
+		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, activity, events));
+		if (!flag) {
+			dropCount.incrementAndGet();
+			for (TrackingEvent event : events) {
+				event.release();
+			}
+		}
     }
 
 	@Override
     public void log(Snapshot props) {
+		if (encoder != null) {
+			offer(encoder.encode(props));
+			return;
+		}
 		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, props));
 		if (!flag) dropCount.incrementAndGet();
     }
@@ -126,7 +226,11 @@ public class BufferedEventSink implements EventSink {
 
 	@Override
     public void log(Source src, OpLevel sev, String msg, Object... args) {
-		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, src, sev, msg, args));
+		if (encoder != null) {
+			offer(encoder.encode(src, sev, msg, args));
+			return;
+		}
+		boolean flag = BufferedEventSinkFactory.getPooledLogger().offer(new SinkLogEvent(outSink, src, sev, msg, Utils.snapshotArgs(args)));
 		if (!flag) dropCount.incrementAndGet();
     }
 
@@ -17,6 +17,9 @@ package com.nastel.jkool.tnt4j.sink;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.nastel.jkool.tnt4j.config.ConfigException;
 import com.nastel.jkool.tnt4j.format.EventFormatter;
@@ -28,19 +31,34 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * specified concrete <code>EventSinkFactory</code> instance specified by <code>EventSinkFactory</code>
  * configuration attribute. This factory uses specified event sink factory to create event sinks and wraps
  * then with instances of <code>BufferedEventSink</code>.
+ * All buffered sinks share a single <code>PooledLogger</code> configured using the following java properties:
+ * <code>tnt4j.pooled.logger.pool</code> (number of logging threads), <code>tnt4j.pooled.logger.capacity</code>
+ * (queue capacity) and <code>tnt4j.pooled.logger.lanes</code> (optional severity lanes, see <code>SeverityLaneQueue</code>).
+ * Example: <code>-Dtnt4j.pooled.logger.lanes=ERROR:1000:4,INFO:3000:2,NONE:1000:1</code>.
+ * Setting <code>tnt4j.pooled.logger.thread.capacity</code> enables per producer thread buffers instead
+ * (see <code>PerThreadEventQueue</code>), <code>tnt4j.pooled.logger.thread.ordered=true</code> dequeues the oldest events first.
+ * Setting <code>tnt4j.pooled.logger.max.bytes</code> bounds any of the above by estimated heap bytes
+ * (see <code>ByteBudgetQueue</code>), <code>tnt4j.pooled.logger.size.calibration=N</code> calibrates
+ * estimates using <code>SizeOf</code> once every N events.
+ * Setting <code>Serialize=true</code> factory attribute queues events encoded by the caller instead of event objects
+ * (see <code>BufferedEventSink</code>).
  *
  *
  * @see EventSink
  * @see BufferedEventSink
+ * @see PooledLogger
+ * @see SeverityLaneQueue
+ * @see PerThreadEventQueue
+ * @see ByteBudgetQueue
  *
- * @version $Revision: 1 $
+ * @version $Revision: 3 $
  *
  */
 public class BufferedEventSinkFactory extends AbstractEventSinkFactory {
-	private static PooledLogger pooledLogger = new PooledLogger(Integer.getInteger("tnt4j.pooled.logger.pool", 5),
-			Integer.getInteger("tnt4j.pooled.logger.capacity", 5000));
+	private static PooledLogger pooledLogger = createPooledLogger();
 	
 	private EventSinkFactory sinkFactory;
+	private boolean serialize = false;
 		
 	/**
 	 * Create a default buffered sink factory 
@@ -59,6 +77,41 @@ public class BufferedEventSinkFactory extends AbstractEventSinkFactory {
 		sinkFactory = factory;
 	}
 	
+	/**
+	 * Create a default buffered sink factory with a given sink factory
+	 * used to create concrete event sinks.
+	 * 
+	 * @param factory concrete event sink factory instance
+	 * @param serial true to queue encoded records instead of event objects
+	 * @see EncodingEventSink
+	 */
+	public BufferedEventSinkFactory(EventSinkFactory factory, boolean serial) {
+		sinkFactory = factory;
+		serialize = serial;
+	}
+	
+	private static PooledLogger createPooledLogger() {
+		int poolSize = Integer.getInteger("tnt4j.pooled.logger.pool", 5);
+		String lanes = System.getProperty("tnt4j.pooled.logger.lanes");
+		Integer threadCapacity = Integer.getInteger("tnt4j.pooled.logger.thread.capacity");
+		Long maxBytes = Long.getLong("tnt4j.pooled.logger.max.bytes");
+		BlockingQueue<SinkLogEvent> queue;
+		if (threadCapacity != null) {
+			queue = new PerThreadEventQueue(threadCapacity, Boolean.getBoolean("tnt4j.pooled.logger.thread.ordered"));
+		} else if (lanes != null) {
+			queue = new SeverityLaneQueue(lanes);
+		} else if (maxBytes != null && Integer.getInteger("tnt4j.pooled.logger.capacity") == null) {
+			queue = new LinkedBlockingQueue<SinkLogEvent>();
+		} else {
+			queue = new ArrayBlockingQueue<SinkLogEvent>(Integer.getInteger("tnt4j.pooled.logger.capacity", 5000));
+		}
+		if (maxBytes != null) {
+			queue = new ByteBudgetQueue(maxBytes, queue, 
+					new EventSizeEstimator(Integer.getInteger("tnt4j.pooled.logger.size.calibration", 0)));
+		}
+		return new PooledLogger(poolSize, queue);
+	}
+	
 	/**
 	 * Obtain an instance of pooled logger, which allows logging of events
 	 * asynchronously by a thread pool.
@@ -70,22 +123,24 @@ public class BufferedEventSinkFactory extends AbstractEventSinkFactory {
 	
 	@Override
 	public EventSink getEventSink(String name) {
-		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name)));
+		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name), serialize));
 	}
 
 	@Override
 	public EventSink getEventSink(String name, Properties props) {
-		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name, props)));
+		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name, props), serialize));
 	}
 
 	@Override
 	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
-		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name, props, frmt)));
+		return configureSink(new BufferedEventSink(sinkFactory.getEventSink(name, props, frmt), serialize));
 	}
 
 	@Override
 	public void setConfiguration(Map<String, Object> props) throws ConfigException {
 		sinkFactory = (EventSinkFactory) Utils.createConfigurableObject("EventSinkFactory", "EventSinkFactory.", props);
+		Object flag = props.get("Serialize");
+		serialize = flag != null? Boolean.parseBoolean(flag.toString()): serialize;
 		super.setConfiguration(props);
 	}
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+
+/**
+ * <p>
+ * This class implements a blocking queue of <code>SinkLogEvent</code> instances bounded by
+ * an estimated number of heap bytes rather than number of events. Events are sized on enqueue using
+ * <code>EventSizeEstimator</code> and rejected (counted as dropped) when the byte budget is exhausted.
+ * Events are stored in an underlying queue, which determines ordering and event count limits, so
+ * a byte budget can be combined with any other queueing mode.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see PooledLogger
+ * @see EventSizeEstimator
+ * @see SinkLogEvent
+ */
+public class ByteBudgetQueue extends AbstractQueue<SinkLogEvent> implements BlockingQueue<SinkLogEvent>, KeyValueStats {
+	static final String KEY_QUEUE_BYTES = "pooled-queue-bytes";
+	static final String KEY_MAX_BYTES = "pooled-queue-max-bytes";
+	static final String KEY_PEAK_BYTES = "pooled-queue-peak-bytes";
+	static final String KEY_BYTES_DROPPED = "pooled-bytes-dropped";
+	static final String KEY_EVENTS_DROPPED = "pooled-budget-dropped";
+	static final String KEY_SIZE_FACTOR = "pooled-size-factor";
+
+	private long maxBytes;
+	private BlockingQueue<SinkLogEvent> queue;
+	private EventSizeEstimator estimator;
+
+	private AtomicLong queuedBytes = new AtomicLong(0);
+	private AtomicLong peakBytes = new AtomicLong(0);
+	private AtomicLong dropBytes = new AtomicLong(0);
+	private AtomicLong dropCount = new AtomicLong(0);
+
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition released = lock.newCondition();
+	private AtomicInteger waiting = new AtomicInteger(0);
+
+	/**
+	 * Create a byte budgeted queue on top of a given queue
+	 *
+	 * @param budget maximum number of estimated bytes retained by queued events
+	 * @param q underlying queue used to store events
+	 */
+	public ByteBudgetQueue(long budget, BlockingQueue<SinkLogEvent> q) {
+		this(budget, q, new EventSizeEstimator());
+	}
+
+	/**
+	 * Create a byte budgeted queue on top of a given queue
+	 *
+	 * @param budget maximum number of estimated bytes retained by queued events
+	 * @param q underlying queue used to store events
+	 * @param est event size estimator
+	 */
+	public ByteBudgetQueue(long budget, BlockingQueue<SinkLogEvent> q, EventSizeEstimator est) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Byte budget must be > 0, budget=" + budget);
+		}
+		maxBytes = budget;
+		queue = q;
+		estimator = est;
+	}
+
+	/**
+	 * Obtain maximum number of estimated bytes retained by queued events
+	 *
+	 * @return byte budget
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Obtain estimated number of bytes retained by currently queued events
+	 *
+	 * @return estimated number of queued bytes
+	 */
+	public long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+	/**
+	 * Obtain number of events dropped due to exhausted byte budget
+	 *
+	 * @return number of dropped events since last reset
+	 */
+	public long getDropCount() {
+		return dropCount.get();
+	}
+
+	/**
+	 * Reserve bytes for a given event within the budget.
+	 * Events larger than the whole budget are accepted only into an empty queue.
+	 */
+	private boolean reserve(SinkLogEvent event) {
+		long size = event.getSizeEstimate();
+		while (true) {
+			long current = queuedBytes.get();
+			long next = current + size;
+			if (next > maxBytes && current > 0) {
+				return false;
+			}
+			if (queuedBytes.compareAndSet(current, next)) {
+				long peak = peakBytes.get();
+				while (next > peak && !peakBytes.compareAndSet(peak, next)) {
+					peak = peakBytes.get();
+				}
+				return true;
+			}
+		}
+	}
+
+	private void release(SinkLogEvent event) {
+		if (event != null) {
+			queuedBytes.addAndGet(-event.getSizeEstimate());
+			if (waiting.get() > 0) {
+				lock.lock();
+				try {
+					released.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private void drop(SinkLogEvent event) {
+		dropCount.incrementAndGet();
+		dropBytes.addAndGet(event.getSizeEstimate());
+	}
+
+	/**
+	 * Wait until bytes for a given event are reserved within the budget.
+	 *
+	 * @param event event to reserve bytes for
+	 * @param deadline <code>System.nanoTime()</code> deadline, ignored if not timed
+	 * @param timed true to give up at the deadline, false to wait indefinitely
+	 * @return true if bytes were reserved, false if deadline passed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private boolean awaitBudget(SinkLogEvent event, long deadline, boolean timed) throws InterruptedException {
+		long slice = TimeUnit.MILLISECONDS.toNanos(10);
+		lock.lockInterruptibly();
+		waiting.incrementAndGet();
+		try {
+			while (!reserve(event)) {
+				long nanos = timed ? deadline - System.nanoTime() : slice;
+				if (nanos <= 0) {
+					return false;
+				}
+				released.awaitNanos(Math.min(nanos, slice));
+			}
+			return true;
+		} finally {
+			waiting.decrementAndGet();
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		event.setSizeEstimate(estimator.estimate(event));
+		if (!reserve(event)) {
+			drop(event);
+			return false;
+		}
+		if (!queue.offer(event)) {
+			release(event);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event, long timeout, TimeUnit unit) throws InterruptedException {
+		event.setSizeEstimate(estimator.estimate(event));
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!reserve(event) && !awaitBudget(event, deadline, true)) {
+			drop(event);
+			return false;
+		}
+		if (!queue.offer(event, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+			release(event);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		event.setSizeEstimate(estimator.estimate(event));
+		if (!reserve(event)) {
+			awaitBudget(event, 0, false);
+		}
+		try {
+			queue.put(event);
+		} catch (InterruptedException e) {
+			release(event);
+			throw e;
+		}
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		SinkLogEvent event = queue.take();
+		release(event);
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		SinkLogEvent event = queue.poll(timeout, unit);
+		release(event);
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		SinkLogEvent event = queue.poll();
+		release(event);
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent peek() {
+		return queue.peek();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Obtain total capacity of the underlying queue in number of events
+	 *
+	 * @return total number of events which can be queued within the byte budget
+	 */
+	public int getCapacity() {
+		return PooledLogger.getCapacity(queue);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return queue.remainingCapacity();
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c, int maxElements) {
+		int count = 0;
+		SinkLogEvent event;
+		while (count < maxElements && (event = poll()) != null) {
+			c.add(event);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns an iterator over events in the underlying queue.
+	 * Removal is not supported.
+	 */
+	@Override
+	public Iterator<SinkLogEvent> iterator() {
+		final Iterator<SinkLogEvent> it = queue.iterator();
+		return new Iterator<SinkLogEvent>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public SinkLogEvent next() {
+				return it.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<String, Object>();
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		stats.put(KEY_QUEUE_BYTES, queuedBytes.get());
+		stats.put(KEY_MAX_BYTES, maxBytes);
+		stats.put(KEY_PEAK_BYTES, peakBytes.get());
+		stats.put(KEY_BYTES_DROPPED, dropBytes.get());
+		stats.put(KEY_EVENTS_DROPPED, dropCount.get());
+		stats.put(KEY_SIZE_FACTOR, estimator.getCalibrationFactor());
+		if (queue instanceof KeyValueStats) {
+			((KeyValueStats) queue).getStats(stats);
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		peakBytes.set(queuedBytes.get());
+		dropBytes.set(0);
+		dropCount.set(0);
+		if (queue instanceof KeyValueStats) {
+			((KeyValueStats) queue).resetStats();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{max.bytes: " + maxBytes + ", queue: " + queue + "}";
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+
+/**
+ * <p>
+ * This class implements a multi-producer, single-consumer ring of bytes backed by a direct
+ * or memory mapped <code>ByteBuffer</code>, so buffered data is kept outside of java heap.
+ * Producers reserve space by advancing a shared offset using CAS, copy their record and publish
+ * it in reservation order. A single drainer hands contiguous published regions directly to
+ * a <code>WritableByteChannel</code> such as <code>FileChannel</code> or <code>SocketChannel</code>,
+ * which avoids copying data back to heap. Records that do not fit into the free space are dropped.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see ByteRingEventSink
+ */
+public class ByteRing implements KeyValueStats {
+	static final String KEY_RING_CAPACITY = "ring-capacity";
+	static final String KEY_RING_USED = "ring-used";
+	static final String KEY_RING_DROPPED = "ring-dropped";
+	static final String KEY_RING_DROPPED_BYTES = "ring-dropped-bytes";
+	static final String KEY_RING_BYTES_WRITTEN = "ring-bytes-written";
+	static final String KEY_RING_WRITES = "ring-writes";
+
+	private static final int SPINS = 100;
+
+	private ByteBuffer ring;
+	private ByteBuffer reader;
+	private int capacity;
+
+	private AtomicLong reserved = new AtomicLong(0);
+	private AtomicLong published = new AtomicLong(0);
+	private AtomicLong consumed = new AtomicLong(0);
+
+	private AtomicLong dropCount = new AtomicLong(0);
+	private AtomicLong dropBytes = new AtomicLong(0);
+	private AtomicLong bytesWritten = new AtomicLong(0);
+	private AtomicLong writeCount = new AtomicLong(0);
+
+	private ThreadLocal<ByteBuffer> writers = new ThreadLocal<ByteBuffer>();
+
+	/**
+	 * Create a byte ring on top of a given buffer. The whole buffer
+	 * (from 0 to its capacity) is used by the ring.
+	 *
+	 * @param buffer underlying buffer, typically direct or memory mapped
+	 */
+	public ByteRing(ByteBuffer buffer) {
+		ring = buffer;
+		capacity = buffer.capacity();
+		reader = ring.duplicate();
+	}
+
+	/**
+	 * Create a byte ring backed by a direct buffer of a given size
+	 *
+	 * @param size ring capacity in bytes
+	 * @return new byte ring instance
+	 */
+	public static ByteRing allocate(int size) {
+		return new ByteRing(ByteBuffer.allocateDirect(size));
+	}
+
+	/**
+	 * Create a byte ring backed by a memory mapped file of a given size.
+	 * File is created or extended as required.
+	 *
+	 * @param file file to be mapped
+	 * @param size ring capacity in bytes
+	 * @return new byte ring instance
+	 * @throws IOException if file can not be mapped
+	 */
+	public static ByteRing map(File file, int size) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			return new ByteRing(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Obtain ring capacity in bytes
+	 *
+	 * @return ring capacity in bytes
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Obtain number of bytes reserved by producers and not yet drained
+	 *
+	 * @return number of used bytes
+	 */
+	public long size() {
+		return reserved.get() - consumed.get();
+	}
+
+	/**
+	 * Obtain number of bytes published by producers and not yet drained
+	 *
+	 * @return number of bytes available to the drainer
+	 */
+	public long available() {
+		return published.get() - consumed.get();
+	}
+
+	/**
+	 * Obtain number of records dropped since last reset
+	 *
+	 * @return number of dropped records
+	 */
+	public long getDropCount() {
+		return dropCount.get();
+	}
+
+	/**
+	 * Append remaining bytes of a given buffer to the ring as a single record.
+	 * The record is either appended as a whole or dropped.
+	 *
+	 * @param src buffer containing the record
+	 * @return true if record was appended, false if dropped because the ring is full
+	 */
+	public boolean offer(ByteBuffer src) {
+		int len = src.remaining();
+		long start, end;
+		do {
+			start = reserved.get();
+			end = start + len;
+			if (end - consumed.get() > capacity) {
+				dropCount.incrementAndGet();
+				dropBytes.addAndGet(len);
+				return false;
+			}
+		} while (!reserved.compareAndSet(start, end));
+
+		copy(src, (int) (start % capacity), len);
+		publish(start, end);
+		return true;
+	}
+
+	private void copy(ByteBuffer src, int offset, int len) {
+		ByteBuffer dest = writers.get();
+		if (dest == null) {
+			dest = ring.duplicate();
+			writers.set(dest);
+		}
+		int first = Math.min(len, capacity - offset);
+		int limit = src.limit();
+		src.limit(src.position() + first);
+		dest.limit(offset + first).position(offset);
+		dest.put(src);
+		src.limit(limit);
+		if (first < len) {
+			dest.limit(len - first).position(0);
+			dest.put(src);
+		}
+	}
+
+	/**
+	 * Publish reserved range once all preceding reservations are published,
+	 * so that the drainer only sees fully copied data.
+	 */
+	private void publish(long start, long end) {
+		int spins = 0;
+		while (published.get() != start) {
+			if (++spins > SPINS) {
+				Thread.yield();
+			}
+		}
+		published.set(end);
+	}
+
+	/**
+	 * Write all published data to a given channel. Must be called by a single drainer thread.
+	 * Data is drained starting at a record boundary. Bytes accepted by the channel are consumed as they are written,
+	 * so if a write fails, only data not yet written remains in the ring and the channel ends with
+	 * a partial record.
+	 *
+	 * @param channel destination channel
+	 * @return number of bytes written
+	 * @throws IOException if write fails
+	 */
+	public long drainTo(WritableByteChannel channel) throws IOException {
+		long start = consumed.get();
+		long end = published.get();
+		if (end == start) {
+			return 0;
+		}
+		int offset = (int) (start % capacity);
+		int len = (int) (end - start);
+		int first = Math.min(len, capacity - offset);
+		write(channel, offset, first);
+		if (first < len) {
+			write(channel, 0, len - first);
+		}
+		return len;
+	}
+
+	private void write(WritableByteChannel channel, int offset, int len) throws IOException {
+		reader.limit(offset + len).position(offset);
+		while (reader.hasRemaining()) {
+			int count = channel.write(reader);
+			consumed.addAndGet(count);
+			bytesWritten.addAndGet(count);
+		}
+		writeCount.incrementAndGet();
+	}
+
+	/**
+	 * Discard all published data without writing it out. Must be called by the drainer thread.
+	 *
+	 * @return number of discarded bytes
+	 */
+	public long skip() {
+		long start = consumed.get();
+		long end = published.get();
+		consumed.set(end);
+		dropBytes.addAndGet(end - start);
+		return end - start;
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<String, Object>();
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		stats.put(KEY_RING_CAPACITY, capacity);
+		stats.put(KEY_RING_USED, size());
+		stats.put(KEY_RING_DROPPED, dropCount.get());
+		stats.put(KEY_RING_DROPPED_BYTES, dropBytes.get());
+		stats.put(KEY_RING_BYTES_WRITTEN, bytesWritten.get());
+		stats.put(KEY_RING_WRITES, writeCount.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		dropCount.set(0);
+		dropBytes.set(0);
+		bytesWritten.set(0);
+		writeCount.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{capacity: " + capacity + ", direct: " + ring.isDirect() + ", used: "
+		        + size() + "}";
+	}
+}
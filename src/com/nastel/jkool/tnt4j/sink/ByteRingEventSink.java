@@ -0,0 +1,419 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.format.ByteEventFormatter;
+import com.nastel.jkool.tnt4j.format.EventFormatter;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class implements <code>EventSink</code> which formats events on the caller's thread
+ * directly into bytes using a <code>ByteEventFormatter</code>, appends them to an off-heap
+ * <code>ByteRing</code> and drains the ring into a <code>FileChannel</code> or <code>SocketChannel</code>
+ * using a dedicated drainer thread. In-flight events occupy no java heap. Events that do not
+ * fit into the ring are dropped and counted in ring statistics. Stateful formatters
+ * (<code>BinaryFormatter</code> with a string dictionary) are reset on open, drop and drain failure.
+ * The drainer is woken up by producers when it is idle. When a write fails, data not yet written is discarded
+ * and the channel is reopened with exponential backoff, events that do not fit into the ring
+ * while the channel is down are dropped. Since drains start at a record boundary, a file cut by a failed
+ * drain is truncated back to the start of that drain when reopened, so no partial record precedes the next one.
+ * A socket is reconnected as a new stream starting at a record boundary.
+ * </p>
+ *
+ * <p>
+ * Events with severity below the sink level (<code>OpLevel.NONE</code> by default) are not logged.
+ * </p>
+ *
+ *
+ * @version $Revision: 5 $
+ *
+ * @see ByteRing
+ * @see ByteEventFormatter
+ * @see EncodingFormatter
+ * @see AbstractEncodingEventSink
+ */
+public class ByteRingEventSink extends AbstractEncodingEventSink {
+	static final long DRAIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	static final long RETRY_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	static final long RETRY_MAX_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private ByteRing ring;
+	private LineEncoder encoder;
+	private String fileName, hostName;
+	private int portNo;
+	private boolean append = true;
+	private OpLevel level = OpLevel.NONE;
+	private volatile long cutAt = -1;
+
+	private volatile WritableByteChannel channel;
+	private volatile RingDrainer drainer;
+
+	/**
+	 * Create a ring event sink which drains into a given file
+	 *
+	 * @param nm logical event sink name
+	 * @param file name of the file where all entries are recorded
+	 * @param app true to append to file, false otherwise (file recreated)
+	 * @param frm event formatter to be used for formatting event entries
+	 * @param rng byte ring used to buffer formatted events
+	 */
+	public ByteRingEventSink(String nm, String file, boolean app, EventFormatter frm, ByteRing rng) {
+		super(nm, frm);
+		fileName = file;
+		append = app;
+		ring = rng;
+		encoder = new LineEncoder(frm, rng.getCapacity());
+	}
+
+	/**
+	 * Create a ring event sink which drains into a given socket
+	 *
+	 * @param nm logical event sink name
+	 * @param host name where all messages are sent
+	 * @param port number where all messages are sent
+	 * @param frm event formatter to be used for formatting event entries
+	 * @param rng byte ring used to buffer formatted events
+	 */
+	public ByteRingEventSink(String nm, String host, int port, EventFormatter frm, ByteRing rng) {
+		super(nm, frm);
+		hostName = host;
+		portNo = port;
+		ring = rng;
+		encoder = new LineEncoder(frm, rng.getCapacity());
+	}
+
+	/**
+	 * Obtain byte ring used by this sink
+	 *
+	 * @return byte ring
+	 */
+	public ByteRing getRing() {
+		return ring;
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) {
+		offer(event, null, null);
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) {
+		offer(activity, null, null);
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) {
+		offer(snapshot, null, null);
+	}
+
+	@Override
+	protected void _log(Source src, OpLevel sev, String msg, Object... args) {
+		offer(msg, src, sev, args);
+	}
+
+	@Override
+	protected void _log(EncodedEvent record) {
+		offer(record, null, null);
+	}
+
+	@Override
+	public void write(Object msg, Object... args) throws IOException {
+		_checkState();
+		offer(new EncodedEvent(OpLevel.NONE, getEventFormatter().format(msg, args), EncodedEvent.TYPE_MESSAGE), null, null);
+	}
+
+	/**
+	 * Encode and append a record to the ring. Stateful encoders are reset when
+	 * a record is dropped, so that later records do not refer to its dictionary entries.
+	 */
+	private void offer(Object obj, Source src, OpLevel sev, Object... args) {
+		boolean published;
+		if (!encoder.isStateful()) {
+			published = ring.offer(encoder.encode(obj, src, sev, args));
+		} else {
+			synchronized (encoder) {
+				published = ring.offer(encoder.encode(obj, src, sev, args));
+				if (!published) {
+					encoder.reset();
+				}
+			}
+		}
+		RingDrainer out = drainer;
+		if (published && out != null) {
+			out.wakeup();
+		}
+	}
+
+	/**
+	 * Set minimum severity of events logged by this sink
+	 *
+	 * @param sev minimum severity level
+	 */
+	public void setLevel(OpLevel sev) {
+		if (sev == null) {
+			throw new IllegalArgumentException("Level can not be null");
+		}
+		level = sev;
+	}
+
+	/**
+	 * Obtain minimum severity of events logged by this sink
+	 *
+	 * @return minimum severity level
+	 */
+	public OpLevel getLevel() {
+		return level;
+	}
+
+	@Override
+	public boolean isSet(OpLevel sev) {
+		return sev.ordinal() >= level.ordinal();
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return channel;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return drainer != null;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		if (drainer == null) {
+			channel = openChannel(append);
+			encoder.reset();
+			drainer = new RingDrainer(this, "ByteRingEventSink/" + getName());
+			drainer.start();
+		}
+	}
+
+	private WritableByteChannel openChannel(boolean app) throws IOException {
+		if (hostName != null) {
+			return SocketChannel.open(new InetSocketAddress(hostName, portNo));
+		}
+		FileChannel file = new FileOutputStream(fileName, app).getChannel();
+		long cut = cutAt;
+		if (cut >= 0) {
+			try {
+				if (file.size() > cut) {
+					file.truncate(cut);
+				}
+			} catch (IOException e) {
+				file.close();
+				throw e;
+			}
+			cutAt = -1;
+		}
+		return file;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		RingDrainer out = drainer;
+		if (out != null) {
+			drainer = null;
+			try {
+				out.shutdown();
+				out.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				closeChannel();
+			}
+		}
+	}
+
+	private void closeChannel() throws IOException {
+		WritableByteChannel out = channel;
+		channel = null;
+		if (out != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Determine if the channel is connected. Called by the drainer thread.
+	 *
+	 * @return true if channel is connected, false if it must be reopened
+	 */
+	boolean isConnected() {
+		return channel != null;
+	}
+
+	/**
+	 * Reopen the channel after a drain failure. Files are reopened in append mode.
+	 * Called by the drainer thread.
+	 *
+	 * @return true if channel was reopened, false otherwise
+	 */
+	boolean reconnect() {
+		try {
+			channel = openChannel(true);
+			return true;
+		} catch (Throwable ex) {
+			notifyListeners("Failed to reopen " + (hostName != null? (hostName + ":" + portNo): fileName), ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Determine if there is published ring data to drain
+	 *
+	 * @return true if drainer has work to do
+	 */
+	boolean hasData() {
+		return ring.available() > 0;
+	}
+
+	/**
+	 * Drain all published ring data to the channel. If the write fails,
+	 * data not yet written is discarded, error listeners are notified and the channel is closed
+	 * to be reopened by the drainer. Files are truncated back to their size before the failed drain when reopened.
+	 * Stateful encoders are reset together with the discard. Called by the drainer thread.
+	 *
+	 * @return number of bytes drained
+	 */
+	long drain() {
+		WritableByteChannel out = channel;
+		if (out == null) {
+			return 0;
+		}
+		long boundary = -1;
+		try {
+			boundary = (out instanceof FileChannel)? ((FileChannel) out).position(): -1;
+			return ring.drainTo(out);
+		} catch (Throwable ex) {
+			cutAt = boundary;
+			long skipped;
+			if (encoder.isStateful()) {
+				synchronized (encoder) {
+					skipped = ring.skip();
+					encoder.reset();
+				}
+			} else {
+				skipped = ring.skip();
+			}
+			notifyListeners("Failed to drain " + skipped + " bytes to " + out, ex);
+			try {
+				closeChannel();
+			} catch (Throwable e) {
+			}
+			return skipped;
+		}
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		ring.getStats(stats);
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		ring.resetStats();
+	}
+
+	@Override
+	protected void _checkState() throws IllegalStateException {
+		if (!isOpen())
+			throw new IllegalStateException("Sink closed");
+	}
+
+	@Override
+	public String toString() {
+		return super.toString()
+			+ "{" + (hostName != null? ("host: " + hostName + ", port: " + portNo): ("file: " + fileName + ", append: " + append))
+			+ ", ring: " + ring
+			+ ", formatter: " + encoder.getFormatter()
+			+ "}";
+	}
+}
+
+class RingDrainer extends Thread {
+	private ByteRingEventSink sink;
+	private volatile boolean running = true;
+	private volatile boolean waiting = false;
+
+	RingDrainer(ByteRingEventSink snk, String name) {
+		super(name);
+		setDaemon(true);
+		sink = snk;
+	}
+
+	void shutdown() {
+		running = false;
+		LockSupport.unpark(this);
+	}
+
+	/**
+	 * Wake up the drainer if it is idle. Called by producers after publishing data.
+	 */
+	void wakeup() {
+		if (waiting) {
+			LockSupport.unpark(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		long retryNanos = 0;
+		while (true) {
+			boolean active = running;
+			if (!sink.isConnected()) {
+				if (!active) {
+					break;
+				}
+				if (!sink.reconnect()) {
+					retryNanos = Math.min(Math.max(ByteRingEventSink.RETRY_MIN_NANOS, retryNanos * 2), ByteRingEventSink.RETRY_MAX_NANOS);
+					LockSupport.parkNanos(this, retryNanos);
+					continue;
+				}
+				retryNanos = 0;
+			}
+			if (sink.drain() == 0) {
+				if (!active) {
+					break;
+				}
+				waiting = true;
+				if (running && !sink.hasData()) {
+					LockSupport.parkNanos(this, ByteRingEventSink.DRAIN_WAIT_NANOS);
+				}
+				waiting = false;
+			}
+		}
+	}
+}
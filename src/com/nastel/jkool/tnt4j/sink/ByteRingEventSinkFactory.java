@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.nastel.jkool.tnt4j.config.ConfigException;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.UsecTimestamp;
+import com.nastel.jkool.tnt4j.format.EventFormatter;
+import com.nastel.jkool.tnt4j.format.JSONFormatter;
+
+/**
+ * <p>Concrete implementation of <code>EventSinkFactory</code> interface, which
+ * creates instances of <code>ByteRingEventSink</code>. Each sink gets its own off-heap
+ * <code>ByteRing</code> and drains into a file or, when <code>Host</code> is configured, into a socket.
+ * By default this factory uses <code>JSONFormatter</code> to format log messages.
+ * Supported attributes: <code>FileName, Append, Host, Port, RingSize</code> (bytes),
+ * <code>RingFile</code> (optional memory mapped file prefix used instead of direct buffers) and
+ * <code>Level</code> (minimum severity logged, defaults to <code>Filter.Level</code> when set).
+ * </p>
+ *
+ *
+ * @see EventSink
+ * @see ByteRingEventSink
+ * @see ByteRing
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class ByteRingEventSinkFactory extends AbstractEventSinkFactory {
+	boolean append = true;
+	String fileName = UsecTimestamp.getTimeStamp("yyyy-MM-dd") + ".log";
+	String hostName = null;
+	int port = 6400;
+	int ringSize = Integer.getInteger("tnt4j.sink.factory.ring.size", 32 * 1024 * 1024);
+	String ringFile = null;
+	OpLevel level = OpLevel.NONE;
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties(), new JSONFormatter(false));
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return getEventSink(name, props, new JSONFormatter(false));
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		ByteRing ring = createRing(name);
+		ByteRingEventSink sink = hostName != null? new ByteRingEventSink(name, hostName, port, frmt, ring)
+				: new ByteRingEventSink(name, fileName, append, frmt, ring);
+		sink.setLevel(level);
+		return configureSink(sink);
+	}
+
+	private ByteRing createRing(String name) {
+		if (ringFile != null) {
+			try {
+				return ByteRing.map(new File(ringFile + "." + name + ".ring"), ringSize);
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to map ring file=" + ringFile + ", sink=" + name, e);
+			}
+		}
+		return ByteRing.allocate(ringSize);
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> props) throws ConfigException {
+		fileName = props.get("FileName") == null? fileName: props.get("FileName").toString();
+		hostName = props.get("Host") == null? hostName: props.get("Host").toString();
+		port = props.get("Port") == null? port: Integer.parseInt(props.get("Port").toString());
+		ringSize = props.get("RingSize") == null? ringSize: Integer.parseInt(props.get("RingSize").toString());
+		ringFile = props.get("RingFile") == null? ringFile: props.get("RingFile").toString();
+		Object sev = props.get("Level") != null? props.get("Level"): props.get("Filter.Level");
+		level = sev == null? level: OpLevel.valueOf(sev);
+
+		Object flag  = props.get("Append");
+		append = flag == null? append: Boolean.valueOf(flag.toString());
+		super.setConfiguration(props);
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.io.UnsupportedEncodingException;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+
+/**
+ * <p>
+ * This class represents a formatted event encoded into a compact byte record.
+ * Encoded events are produced by <code>EncodingEventSink.encode()</code> on the producer thread,
+ * so the original event object graph can be collected before the record is written out.
+ * </p>
+ *
+ * @version $Revision: 2 $
+ *
+ * @see EncodingEventSink
+ * @see BufferedEventSink
+ */
+public class EncodedEvent {
+	public static final String ENCODING = "UTF-8";
+
+	static final int TYPE_MESSAGE = 0;
+	static final int TYPE_EVENT = 1;
+	static final int TYPE_ACTIVITY = 2;
+	static final int TYPE_SNAPSHOT = 3;
+	static final int TYPE_BATCH = 4;
+
+	private byte[] data;
+	private OpLevel level;
+	private int type;
+	private int count = 1;
+
+	/**
+	 * Create an encoded event from a formatted string
+	 *
+	 * @param sev severity of the original event
+	 * @param msg formatted event
+	 * @param tp type of the original event
+	 */
+	EncodedEvent(OpLevel sev, String msg, int tp) {
+		level = sev;
+		type = tp;
+		data = encode(msg);
+	}
+
+	/**
+	 * Create an encoded record from a number of formatted items
+	 *
+	 * @param sev highest severity of the original items
+	 * @param msg formatted items, one per line
+	 * @param tp type of the original items
+	 * @param cnt number of items in the record
+	 */
+	EncodedEvent(OpLevel sev, String msg, int tp, int cnt) {
+		this(sev, msg, tp);
+		count = cnt;
+	}
+
+	/**
+	 * Create an encoded event from already encoded bytes
+	 *
+	 * @param sev severity of the original event
+	 * @param bytes encoded event record
+	 */
+	public EncodedEvent(OpLevel sev, byte[] bytes) {
+		level = sev;
+		data = bytes;
+	}
+
+	static byte[] encode(String msg) {
+		try {
+			return msg.getBytes(ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return msg.getBytes();
+		}
+	}
+
+	/**
+	 * Obtain severity of the original event
+	 *
+	 * @return severity level
+	 */
+	public OpLevel getSeverity() {
+		return level;
+	}
+
+	/**
+	 * Obtain encoded event record
+	 *
+	 * @return encoded bytes
+	 */
+	public byte[] getBytes() {
+		return data;
+	}
+
+	/**
+	 * Obtain length of the encoded record in bytes
+	 *
+	 * @return number of bytes
+	 */
+	public int length() {
+		return data.length;
+	}
+
+	int getType() {
+		return type;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		try {
+			return new String(data, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return new String(data);
+		}
+	}
+}
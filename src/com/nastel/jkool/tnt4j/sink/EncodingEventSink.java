@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.util.List;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>Classes that implement this interface provide implementation for
+ * event sinks which can split logging into two steps: encoding an event into a compact
+ * <code>EncodedEvent</code> record and writing an encoded record to the underlying storage.
+ * Encoding applies sink filters and severity checks, formats the event
+ * using sink's formatter and can be done on a different thread than writing.
+ * </p>
+ *
+ * @see EncodedEvent
+ * @see BufferedEventSink
+ * @see AbstractEncodingEventSink
+ *
+ * @version $Revision: 3 $
+ *
+ */
+public interface EncodingEventSink extends EventSink {
+	/**
+	 * Encode a given tracking activity
+	 *
+	 * @param activity tracking activity
+	 * @return encoded record, null if activity is filtered out
+	 */
+	EncodedEvent encode(TrackingActivity activity);
+
+	/**
+	 * Encode a given tracking event
+	 *
+	 * @param event tracking event
+	 * @return encoded record, null if event is filtered out
+	 */
+	EncodedEvent encode(TrackingEvent event);
+
+	/**
+	 * Encode a batch of tracking events followed by the tracking activity
+	 * into a single record, one formatted item per line
+	 *
+	 * @param activity tracking activity, null if none
+	 * @param events list of tracking events
+	 * @return encoded record, null if all items are filtered out
+	 */
+	EncodedEvent encode(TrackingActivity activity, List<TrackingEvent> events);
+
+	/**
+	 * Encode a given snapshot
+	 *
+	 * @param snapshot property snapshot
+	 * @return encoded record, null if snapshot is filtered out
+	 */
+	EncodedEvent encode(Snapshot snapshot);
+
+	/**
+	 * Encode a given message
+	 *
+	 * @param src event source handle
+	 * @param sev message severity
+	 * @param msg string message
+	 * @param args arguments passed along the message
+	 * @return encoded record, null if message is filtered out
+	 */
+	EncodedEvent encode(Source src, OpLevel sev, String msg, Object... args);
+
+	/**
+	 * Write an encoded record to the underlying storage
+	 *
+	 * @param record encoded event record
+	 */
+	void log(EncodedEvent record);
+}
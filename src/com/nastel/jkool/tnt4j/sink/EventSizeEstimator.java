@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.Tracker;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.SizeOf;
+
+/**
+ * <p>
+ * This class computes a cheap estimate of heap retained by a <code>SinkLogEvent</code> while it is
+ * queued. Estimates are based on message length, argument, snapshot and property counts and
+ * do not walk the object graph. Estimates can be calibrated by sampling actual object sizes using
+ * <code>SizeOf</code>, which requires <code>SizeOf</code> to be registered as a java agent.
+ * </p>
+ *
+ * @version $Revision: 2 $
+ *
+ * @see SinkLogEvent
+ * @see ByteBudgetQueue
+ * @see SizeOf
+ */
+public class EventSizeEstimator {
+	static final int EVENT_OVERHEAD = 64;
+	static final int TRACKING_EVENT_BYTES = 640;
+	static final int ACTIVITY_BYTES = 1024;
+	static final int SNAPSHOT_BYTES = 224;
+	static final int PROPERTY_BYTES = 96;
+	static final int ID_BYTES = 136;
+	static final int ARG_BYTES = 32;
+	static final int STRING_BYTES = 40;
+
+	private static final Class<?>[] SHARED_TYPES = { Source.class, EventSink.class, Tracker.class,
+			ThreadMXBean.class };
+
+	private int sampleRate;
+	private volatile double factor = 1.0d;
+	private AtomicLong count = new AtomicLong(0);
+
+	/**
+	 * Create a size estimator without calibration
+	 */
+	public EventSizeEstimator() {
+		this(0);
+	}
+
+	/**
+	 * Create a size estimator that calibrates estimates using <code>SizeOf</code>
+	 * once for every given number of estimates
+	 *
+	 * @param calibrationRate sample one out of this many events, 0 to disable calibration
+	 */
+	public EventSizeEstimator(int calibrationRate) {
+		sampleRate = calibrationRate;
+	}
+
+	/**
+	 * Obtain current calibration factor applied to raw estimates
+	 *
+	 * @return calibration factor (1.0 if not calibrated)
+	 */
+	public double getCalibrationFactor() {
+		return factor;
+	}
+
+	/**
+	 * Estimate heap retained by a given sink log event in bytes
+	 *
+	 * @param event sink log event
+	 * @return estimated number of bytes
+	 */
+	public long estimate(SinkLogEvent event) {
+		long raw = rawEstimate(event);
+		if (sampleRate > 0 && SizeOf.isAvailable() && (count.incrementAndGet() % sampleRate) == 0) {
+			calibrate(event.getSinkObject(), raw);
+		}
+		return (long) (raw * factor);
+	}
+
+	private void calibrate(Object obj, long raw) {
+		long actual = SizeOf.deepSizeOf(obj, SHARED_TYPES) + EVENT_OVERHEAD;
+		if (actual > 0 && raw > 0) {
+			factor = (0.9d * factor) + (0.1d * ((double) actual / (double) raw));
+		}
+	}
+
+	/**
+	 * Compute uncalibrated size estimate of a given sink log event in bytes
+	 *
+	 * @param event sink log event
+	 * @return estimated number of bytes
+	 */
+	public static long rawEstimate(SinkLogEvent event) {
+		Object obj = event.getSinkObject();
+		long size = EVENT_OVERHEAD + argSize(event.getArguments());
+		if (obj instanceof EncodedEvent) {
+			size += ARG_BYTES + ((EncodedEvent) obj).length();
+		} else if (obj instanceof TrackingEvent) {
+			size += eventSize((TrackingEvent) obj);
+		} else if (obj instanceof TrackingActivity) {
+			TrackingActivity activity = (TrackingActivity) obj;
+			size += ACTIVITY_BYTES + (activity.getIdCount() * ID_BYTES) + snapshotSize(activity.getSnapshots());
+		} else if (obj instanceof Snapshot) {
+			size += snapshotSize((Snapshot) obj);
+		} else if (obj instanceof String) {
+			size += stringSize((String) obj);
+		}
+		if (event.getBatch() != null) {
+			for (TrackingEvent tevent : event.getBatch()) {
+				size += ARG_BYTES + eventSize(tevent);
+			}
+		}
+		return size;
+	}
+
+	private static long eventSize(TrackingEvent tevent) {
+		return TRACKING_EVENT_BYTES + stringSize(tevent.getMessagePattern()) + argSize(tevent.getMessageArgs())
+				+ (tevent.isMessageRendered()? stringSize(tevent.getMessage()): 0)
+				+ stringSize(tevent.getOperation().getCorrelator()) + stringSize(tevent.getTag())
+				+ snapshotSize(tevent.getOperation().getSnapshots());
+	}
+
+	private static long stringSize(String str) {
+		return str != null? STRING_BYTES + (str.length() << 1): 0;
+	}
+
+	private static long argSize(Object[] args) {
+		return args != null? (args.length * ARG_BYTES): 0;
+	}
+
+	private static long snapshotSize(Snapshot snapshot) {
+		return SNAPSHOT_BYTES + (snapshot.size() * PROPERTY_BYTES);
+	}
+
+	private static long snapshotSize(Collection<Snapshot> snapshots) {
+		long size = 0;
+		for (Snapshot snapshot : snapshots) {
+			size += snapshotSize(snapshot);
+		}
+		return size;
+	}
+}
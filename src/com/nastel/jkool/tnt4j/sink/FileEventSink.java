@@ -17,6 +17,7 @@ package com.nastel.jkool.tnt4j.sink;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.List;
 
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.Snapshot;
@@ -31,14 +32,16 @@ import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
  * </p>
  * 
  * 
- * @version $Revision: 1 $
+ * @version $Revision: 3 $
  * 
  * @see OpLevel
  * @see FileSink
  * @see EventFormatter
- * @see AbstractEventSink
+ * @see AbstractEncodingEventSink
+ * @see EncodingEventSink
+ * @see BatchEventSink
  */
-public class FileEventSink extends AbstractEventSink {
+public class FileEventSink extends AbstractEncodingEventSink {
 
 	FileSink fileSink;
 	
@@ -102,6 +105,11 @@ public class FileEventSink extends AbstractEventSink {
         fileSink.write(activity);
     }
 
+	@Override
+    protected void _log(TrackingActivity activity, List<TrackingEvent> events) throws IOException {
+		fileSink.writeLine(EncodedEvent.encode(format(activity, events)));
+    }
+
 	@Override
     protected void _log(Snapshot snapshot) {
 		PrintStream printer = fileSink.getPrintStream();
@@ -115,4 +123,9 @@ public class FileEventSink extends AbstractEventSink {
 		printer.println(getEventFormatter().format(src, sev, msg, args));		
 		printer.flush();
 	}	
+
+	@Override
+    protected void _log(EncodedEvent record) throws IOException {
+		fileSink.writeLine(record.getBytes());
+	}
 }
@@ -26,11 +26,12 @@ import com.nastel.jkool.tnt4j.format.Formatter;
 
 /**
  * <p>
- * This class implements <code>Sink</code> with file as the underlying storage
+ * This class implements <code>Sink</code> with file as the underlying storage.
+ * All entries are written using <code>UTF-8</code> encoding.
  * </p>
  * 
  * 
- * @version $Revision: 4 $
+ * @version $Revision: 5 $
  * 
  * @see Sink
  * @see Formatter
@@ -111,7 +112,7 @@ public class FileSink implements Sink {
 	@Override
     public synchronized void open() throws IOException {
 		if (printer == null) {
-			printer = new PrintStream(new FileOutputStream(file, append));
+			printer = new PrintStream(new FileOutputStream(file, append), false, EncodedEvent.ENCODING);
 		}
     }
 
@@ -130,6 +131,25 @@ public class FileSink implements Sink {
 		}
     }
 	
+	/**
+	 * Write already formatted and <code>UTF-8</code> encoded bytes as a single line
+	 * 
+	 * @param bytes encoded line (without line separator)
+	 * @throws IOException if sink is closed
+	 */
+    public void writeLine(byte[] bytes) throws IOException {
+		PrintStream out = printer;
+		if (out != null) {
+			synchronized (out) {
+				out.write(bytes, 0, bytes.length);
+				out.println();
+			}
+			out.flush();
+		} else {
+			throw new IOException("Sink is closed, sink.file=" + file);
+		}
+    }
+	
 	@Override
 	public String toString() {
 		return super.toString() + "{file: " + file + ", append: " + append + ", is.open: " + isOpen() + "}";
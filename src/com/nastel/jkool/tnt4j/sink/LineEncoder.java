@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.format.BinaryFormatter;
+import com.nastel.jkool.tnt4j.format.ByteEventFormatter;
+import com.nastel.jkool.tnt4j.format.EncodingFormatter;
+import com.nastel.jkool.tnt4j.format.EventFormatter;
+import com.nastel.jkool.tnt4j.source.Source;
+import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
+import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class formats objects into new line terminated byte records using a <code>ByteEventFormatter</code>.
+ * Records are formatted into a per thread buffer, which grows as needed up to a given maximum size,
+ * so sinks can write formatted bytes without intermediate strings. Records produced by
+ * <code>BinaryFormatter</code> are self delimited and written without a new line; encoded events
+ * carrying base64 text produced by such formatter are written as raw binary records.
+ * Stateful encoders (see <code>isStateful()</code>) require sinks to write records in encoding order.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see ByteEventFormatter
+ * @see ByteRingEventSink
+ * @see SocketEventSink
+ */
+class LineEncoder {
+	static final int INITIAL_BUFFER_SIZE = 4096;
+
+	private ByteEventFormatter formatter;
+	private int maxSize;
+	private boolean newLine;
+	private ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+
+	/**
+	 * Create a line encoder
+	 *
+	 * @param frm event formatter, wrapped with <code>EncodingFormatter</code> if not byte oriented
+	 * @param max maximum record size in bytes
+	 */
+	LineEncoder(EventFormatter frm, int max) {
+		formatter = EncodingFormatter.getByteFormatter(frm);
+		maxSize = max;
+		newLine = !(formatter instanceof BinaryFormatter);
+	}
+
+	ByteEventFormatter getFormatter() {
+		return formatter;
+	}
+
+	/**
+	 * Determine if encoded records depend on previously encoded ones
+	 * (e.g. <code>BinaryFormatter</code> with a string dictionary), in which case records must be
+	 * written in the order they are encoded, with encode and write done under the encoder lock,
+	 * and <code>reset()</code> must be called when a record is lost or a new stream is opened.
+	 *
+	 * @return true if records depend on previously encoded records, false otherwise
+	 */
+	boolean isStateful() {
+		return (formatter instanceof BinaryFormatter) && ((BinaryFormatter) formatter).isStateful();
+	}
+
+	/**
+	 * Reset encoder stream state, see <code>isStateful()</code>
+	 *
+	 */
+	void reset() {
+		if (formatter instanceof BinaryFormatter) {
+			((BinaryFormatter) formatter).reset();
+		}
+	}
+
+	/**
+	 * Format a given object into a new line terminated record
+	 *
+	 * @return buffer containing the record between its position and limit, valid until
+	 * next call by the same thread
+	 * @throws IllegalArgumentException if record exceeds maximum size
+	 */
+	ByteBuffer encode(Object obj, Source src, OpLevel sev, Object... args) {
+		ByteBuffer buffer = buffers.get();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocate(Math.min(INITIAL_BUFFER_SIZE, maxSize));
+			buffers.set(buffer);
+		}
+		while (true) {
+			buffer.clear();
+			try {
+				if (obj instanceof TrackingEvent) {
+					formatter.format(buffer, (TrackingEvent) obj);
+				} else if (obj instanceof TrackingActivity) {
+					formatter.format(buffer, (TrackingActivity) obj);
+				} else if (obj instanceof Snapshot) {
+					formatter.format(buffer, (Snapshot) obj);
+				} else if (obj instanceof EncodedEvent) {
+					byte[] data = ((EncodedEvent) obj).getBytes();
+					buffer.put(newLine ? data : Base64.decodeBase64(data));
+				} else {
+					formatter.format(buffer, src, sev, String.valueOf(obj), args);
+				}
+				if (newLine && (buffer.position() == 0 || buffer.get(buffer.position() - 1) != '\n')) {
+					buffer.put((byte) '\n');
+				}
+				break;
+			} catch (BufferOverflowException e) {
+				if (buffer.capacity() >= maxSize) {
+					throw new IllegalArgumentException("Record exceeds max.size=" + maxSize, e);
+				}
+				buffer = ByteBuffer.allocate((int) Math.min(buffer.capacity() * 2L, maxSize));
+				buffers.set(buffer);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
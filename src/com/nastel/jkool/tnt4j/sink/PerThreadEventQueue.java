@@ -0,0 +1,478 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+
+/**
+ * <p>
+ * This class implements a blocking queue of <code>SinkLogEvent</code> instances where every producer
+ * thread gets its own single producer/single consumer ring buffer, registered lazily in a <code>ThreadLocal</code>.
+ * Producers never contend with each other: enqueue is a plain write followed by an ordered store.
+ * Consumers sweep all registered buffers round-robin and claim a buffer before removing events from it, so each buffer
+ * has at most one consumer at any given time.
+ * </p>
+ *
+ * <p>
+ * Events enqueued by the same thread are always dequeued in the order they were enqueued. With a single consumer
+ * (pool size of 1) this order is also preserved when events are written to the sink. When created in ordered mode
+ * consumers merge buffers by enqueue time (<code>System.nanoTime()</code> taken by the producer) and always dequeue
+ * the oldest available event across all threads, at the cost of visiting every buffer on each dequeue.
+ * </p>
+ *
+ * <p>
+ * Buffers of threads that have terminated are removed during the sweep once they are drained.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see PooledLogger
+ * @see SinkLogEvent
+ */
+public class PerThreadEventQueue extends AbstractQueue<SinkLogEvent> implements BlockingQueue<SinkLogEvent>, KeyValueStats {
+	static final String KEY_THREAD_BUFFERS = "pooled-thread-buffers";
+	static final String KEY_THREAD_CAPACITY = "pooled-thread-capacity";
+	static final String KEY_THREAD_DROPPED = "pooled-thread-dropped";
+	static final String KEY_THREAD_RELEASED = "pooled-thread-released";
+
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private int threadCapacity;
+	private boolean ordered;
+	private CopyOnWriteArrayList<ThreadBuffer> buffers = new CopyOnWriteArrayList<ThreadBuffer>();
+	private ThreadLocal<ThreadBuffer> localBuffer = new ThreadLocal<ThreadBuffer>();
+	private AtomicInteger cursor = new AtomicInteger(0);
+	private AtomicInteger waiting = new AtomicInteger(0);
+	private AtomicLong releasedCount = new AtomicLong(0), releasedDrops = new AtomicLong(0);
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition notEmpty = lock.newCondition();
+
+	/**
+	 * Create a per thread event queue with a given per thread capacity
+	 * and round-robin dequeue order.
+	 *
+	 * @param capacity maximum number of events buffered per producer thread
+	 */
+	public PerThreadEventQueue(int capacity) {
+		this(capacity, false);
+	}
+
+	/**
+	 * Create a per thread event queue with a given per thread capacity
+	 *
+	 * @param capacity maximum number of events buffered per producer thread
+	 *        (rounded up to the nearest power of 2)
+	 * @param timeOrdered true to dequeue oldest events first across all threads,
+	 *        false to sweep thread buffers round-robin
+	 */
+	public PerThreadEventQueue(int capacity, boolean timeOrdered) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be > 0, capacity=" + capacity);
+		}
+		threadCapacity = Integer.highestOneBit(capacity) == capacity? capacity: Integer.highestOneBit(capacity) << 1;
+		ordered = timeOrdered;
+	}
+
+	private ThreadBuffer getLocalBuffer() {
+		ThreadBuffer buffer = localBuffer.get();
+		if (buffer == null) {
+			buffer = new ThreadBuffer(Thread.currentThread(), threadCapacity);
+			localBuffer.set(buffer);
+			buffers.add(buffer);
+		}
+		return buffer;
+	}
+
+	private void signalNotEmpty() {
+		if (waiting.get() > 0) {
+			lock.lock();
+			try {
+				notEmpty.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void release(ThreadBuffer buffer) {
+		if (buffers.remove(buffer)) {
+			releasedCount.incrementAndGet();
+			releasedDrops.addAndGet(buffer.dropCount);
+		}
+	}
+
+	/**
+	 * Remove one event from a given buffer, if the buffer can be claimed.
+	 * Drained buffers of dead threads are released. Buffer is polled again once
+	 * the owner is seen dead, since termination makes all its prior enqueues visible.
+	 */
+	private SinkLogEvent pollBuffer(ThreadBuffer buffer) {
+		if (!buffer.claimed.compareAndSet(false, true)) {
+			return null;
+		}
+		try {
+			SinkLogEvent event = buffer.poll();
+			if (event == null && !buffer.isOwnerAlive()) {
+				event = buffer.poll();
+				if (event == null) {
+					release(buffer);
+				}
+			}
+			return event;
+		} finally {
+			buffer.claimed.set(false);
+		}
+	}
+
+	private SinkLogEvent pollRoundRobin() {
+		Object[] list = buffers.toArray();
+		int start = cursor.getAndIncrement();
+		for (int i = 0; i < list.length; i++) {
+			SinkLogEvent event = pollBuffer((ThreadBuffer) list[((start + i) & Integer.MAX_VALUE) % list.length]);
+			if (event != null) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	private SinkLogEvent pollOldest() {
+		Object[] list = buffers.toArray();
+		while (true) {
+			ThreadBuffer oldest = null;
+			long oldestStamp = 0;
+			for (Object item : list) {
+				ThreadBuffer buffer = (ThreadBuffer) item;
+				if (buffer.isEmpty()) {
+					if (!buffer.isOwnerAlive()) {
+						SinkLogEvent last = pollBuffer(buffer);
+						if (last != null) {
+							return last;
+						}
+					}
+					continue;
+				}
+				long stamp = buffer.peekStamp();
+				if (oldest == null || (stamp - oldestStamp) < 0) {
+					oldest = buffer;
+					oldestStamp = stamp;
+				}
+			}
+			if (oldest == null) {
+				return null;
+			}
+			SinkLogEvent event = pollBuffer(oldest);
+			if (event != null) {
+				return event;
+			}
+		}
+	}
+
+	/**
+	 * Obtain number of currently registered producer thread buffers
+	 *
+	 * @return number of registered producer thread buffers
+	 */
+	public int getBufferCount() {
+		return buffers.size();
+	}
+
+	/**
+	 * Obtain total number of events dropped because producer thread buffers were full
+	 *
+	 * @return number of events dropped since last reset
+	 */
+	public long getDropCount() {
+		long drops = releasedDrops.get();
+		for (ThreadBuffer buffer : buffers) {
+			drops += buffer.dropCount;
+		}
+		return drops;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		boolean flag = getLocalBuffer().offer(event, System.nanoTime());
+		if (flag) {
+			signalNotEmpty();
+		}
+		return flag;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event, long timeout, TimeUnit unit) throws InterruptedException {
+		ThreadBuffer buffer = getLocalBuffer();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!buffer.offer(event, System.nanoTime(), false)) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (System.nanoTime() - deadline >= 0) {
+				buffer.dropCount++;
+				return false;
+			}
+			Thread.yield();
+		}
+		signalNotEmpty();
+		return true;
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		ThreadBuffer buffer = getLocalBuffer();
+		while (!buffer.offer(event, System.nanoTime(), false)) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			Thread.yield();
+		}
+		signalNotEmpty();
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		return ordered? pollOldest(): pollRoundRobin();
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		SinkLogEvent event;
+		while ((event = poll(IDLE_WAIT_NANOS, TimeUnit.NANOSECONDS)) == null);
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + nanos;
+		while (true) {
+			SinkLogEvent event = poll();
+			if (event != null) {
+				return event;
+			}
+			nanos = deadline - System.nanoTime();
+			if (nanos <= 0) {
+				return null;
+			}
+			waiting.incrementAndGet();
+			lock.lockInterruptibly();
+			try {
+				event = poll();
+				if (event != null) {
+					return event;
+				}
+				// timed wait guards against a missed signal, since producers do not lock
+				notEmpty.awaitNanos(Math.min(nanos, IDLE_WAIT_NANOS));
+			} finally {
+				lock.unlock();
+				waiting.decrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public SinkLogEvent peek() {
+		for (ThreadBuffer buffer : buffers) {
+			SinkLogEvent event = buffer.peek();
+			if (event != null) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (ThreadBuffer buffer : buffers) {
+			size += buffer.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Obtain total capacity of buffers of all producer threads, at least
+	 * the capacity of a single producer buffer
+	 *
+	 * @return total number of events which can be buffered
+	 */
+	public int getCapacity() {
+		long capacity = (long) threadCapacity * Math.max(1, buffers.size());
+		return (int) Math.min(capacity, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns remaining capacity of the buffer associated with the calling thread.
+	 *
+	 * @return number of events calling thread can enqueue without being dropped
+	 */
+	@Override
+	public int remainingCapacity() {
+		ThreadBuffer buffer = localBuffer.get();
+		return buffer != null? threadCapacity - buffer.size(): threadCapacity;
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c, int maxElements) {
+		int count = 0;
+		SinkLogEvent event;
+		while (count < maxElements && (event = poll()) != null) {
+			c.add(event);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns an empty iterator, since per thread buffers can only
+	 * be read by the consumer that currently claims them.
+	 */
+	@Override
+	public Iterator<SinkLogEvent> iterator() {
+		return Collections.<SinkLogEvent> emptyList().iterator();
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<String, Object>();
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		stats.put(KEY_THREAD_BUFFERS, buffers.size());
+		stats.put(KEY_THREAD_CAPACITY, threadCapacity);
+		stats.put(KEY_THREAD_DROPPED, getDropCount());
+		stats.put(KEY_THREAD_RELEASED, releasedCount.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		releasedCount.set(0);
+		releasedDrops.set(0);
+		ArrayList<ThreadBuffer> list = new ArrayList<ThreadBuffer>(buffers);
+		for (ThreadBuffer buffer : list) {
+			buffer.dropCount = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{buffers: " + buffers.size() + ", thread.capacity: " + threadCapacity
+				+ ", ordered: " + ordered + "}";
+	}
+}
+
+class ThreadBuffer {
+	final WeakReference<Thread> owner;
+	final SinkLogEvent[] items;
+	final long[] stamps;
+	final int mask;
+	final AtomicLong head = new AtomicLong(0), tail = new AtomicLong(0);
+	final AtomicBoolean claimed = new AtomicBoolean(false);
+	volatile long dropCount = 0;
+
+	ThreadBuffer(Thread thread, int capacity) {
+		owner = new WeakReference<Thread>(thread);
+		items = new SinkLogEvent[capacity];
+		stamps = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	boolean isOwnerAlive() {
+		Thread thread = owner.get();
+		return thread != null && thread.isAlive();
+	}
+
+	boolean isEmpty() {
+		return head.get() >= tail.get();
+	}
+
+	int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Called only by the owner thread
+	 */
+	boolean offer(SinkLogEvent event, long stamp) {
+		return offer(event, stamp, true);
+	}
+
+	/**
+	 * Called only by the owner thread
+	 */
+	boolean offer(SinkLogEvent event, long stamp, boolean countDrop) {
+		long t = tail.get();
+		if (t - head.get() >= items.length) {
+			if (countDrop) dropCount++;
+			return false;
+		}
+		int index = (int) t & mask;
+		items[index] = event;
+		stamps[index] = stamp;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Called only by the consumer that claimed this buffer
+	 */
+	SinkLogEvent poll() {
+		long h = head.get();
+		if (h >= tail.get()) {
+			return null;
+		}
+		int index = (int) h & mask;
+		SinkLogEvent event = items[index];
+		items[index] = null;
+		head.lazySet(h + 1);
+		return event;
+	}
+
+	SinkLogEvent peek() {
+		long h = head.get();
+		return h < tail.get()? items[(int) h & mask]: null;
+	}
+
+	long peekStamp() {
+		return stamps[(int) head.get() & mask];
+	}
+}
@@ -16,6 +16,7 @@
 package com.nastel.jkool.tnt4j.sink;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -23,12 +24,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.nastel.jkool.tnt4j.core.KeyValueStats;
 import com.nastel.jkool.tnt4j.core.Snapshot;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
 import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
+import com.nastel.jkool.tnt4j.utils.StripedStats;
 
 /**
  * <p>
@@ -40,12 +41,24 @@ import com.nastel.jkool.tnt4j.tracker.TrackingEvent;
  * events properly.
  * </p>
  * 
+ * <p>
+ * By default events are queued into a single FIFO queue. A pooled logger can also be
+ * created with any other <code>BlockingQueue</code> implementation such as <code>SeverityLaneQueue</code>,
+ * which queues events into separate severity lanes so that high severity events are never
+ * dropped because of low severity floods, or <code>PerThreadEventQueue</code>, which gives every
+ * producer thread its own buffer to eliminate contention between producers.
+ * Any of these queues can be bounded by estimated heap bytes instead of event count
+ * by wrapping it into a <code>ByteBudgetQueue</code>.
+ * </p>
  * 
- * @version $Revision: 1 $
+ * @version $Revision: 7 $
  * 
  * @see EventSink
  * @see KeyValueStats
  * @see SinkLogEvent
+ * @see SeverityLaneQueue
+ * @see PerThreadEventQueue
+ * @see ByteBudgetQueue
  */
 public class PooledLogger implements KeyValueStats {
 	static final String KEY_Q_SIZE = "pooled-queue-size";
@@ -54,13 +67,15 @@ public class PooledLogger implements KeyValueStats {
 	static final String KEY_OBJECTS_LOGGED = "pooled-objects-logged";
 	static final String KEY_TOTAL_TIME_NANOS = "pooled-total-time-nanos";
 	
-	int poolSize, capacity;
-	ArrayBlockingQueue<SinkLogEvent> eventQ;
+	int poolSize;
+	BlockingQueue<SinkLogEvent> eventQ;
 	ExecutorService threadPool;
 	
-	AtomicLong dropCount = new AtomicLong(0),
-		loggedCount = new AtomicLong(0),
-		totalNanos = new AtomicLong(0);
+	// counter indexes into pooled logger statistics
+	static final int DROP_COUNT = 0;
+	static final int LOGGED_COUNT = 1;
+	static final int TOTAL_NANOS = 2;
+	StripedStats counters = new StripedStats(KEY_OBJECTS_DROPPED, KEY_OBJECTS_LOGGED, KEY_TOTAL_TIME_NANOS);
 	
     /**
      * Create a pooled logger instance.
@@ -69,10 +84,21 @@ public class PooledLogger implements KeyValueStats {
      * @param maxCapacity maximum queue capacity to hold incoming events, exceeding capacity will drop incoming events.
      */
 	public PooledLogger(int threadPoolSize, int maxCapacity) {
+		this(threadPoolSize, new ArrayBlockingQueue<SinkLogEvent>(maxCapacity));
+	}
+
+    /**
+     * Create a pooled logger instance backed by a given event queue.
+     * Queue capacity is determined by the total capacity of the given queue.
+     * 
+     * @param threadPoolSize number of threads that will be used to log all enqueued events.
+     * @param queue blocking queue used to hold incoming events, events are dropped when queue is full.
+     * @see SeverityLaneQueue
+     */
+	public PooledLogger(int threadPoolSize, BlockingQueue<SinkLogEvent> queue) {
 		poolSize = threadPoolSize;
-		capacity = maxCapacity;
-		threadPool = Executors.newFixedThreadPool(poolSize, new LoggingThreadFactory("PooledLogger(" + threadPoolSize + "," + capacity + ")/task-"));
-		eventQ = new ArrayBlockingQueue<SinkLogEvent>(capacity);
+		eventQ = queue;
+		threadPool = Executors.newFixedThreadPool(poolSize, new LoggingThreadFactory("PooledLogger(" + threadPoolSize + "," + getCapacity() + ")/task-"));
 		start();
 	}
 
@@ -86,18 +112,20 @@ public class PooledLogger implements KeyValueStats {
 	@Override
     public KeyValueStats getStats(Map<String, Object> stats) {
 	    stats.put(KEY_Q_SIZE, eventQ.size());
-	    stats.put(KEY_Q_CAPACITY, capacity);
-	    stats.put(KEY_OBJECTS_DROPPED, dropCount.get());
-	    stats.put(KEY_OBJECTS_LOGGED, loggedCount.get());		
-	    stats.put(KEY_TOTAL_TIME_NANOS, totalNanos.get());
+	    stats.put(KEY_Q_CAPACITY, getCapacity());
+	    counters.getStats(stats);
+	    if (eventQ instanceof KeyValueStats) {
+	    	((KeyValueStats) eventQ).getStats(stats);
+	    }
 	    return this;
     }
 
 	@Override
     public void resetStats() {
-		dropCount.set(0);
-		loggedCount.set(0);		
-		totalNanos.set(0);
+		counters.resetStats();
+	    if (eventQ instanceof KeyValueStats) {
+	    	((KeyValueStats) eventQ).resetStats();
+	    }
 	}
 
 	/**
@@ -106,7 +134,7 @@ public class PooledLogger implements KeyValueStats {
 	 * @return total number of dropped messages since last reset
 	 */
 	public long getDropCount() {
-		return dropCount.get();
+		return counters.get(DROP_COUNT);
 	}
 
 	/**
@@ -115,7 +143,7 @@ public class PooledLogger implements KeyValueStats {
 	 * @return total number of logged messages since last reset
 	 */
 	public long getLoggedCount() {
-		return loggedCount.get();
+		return counters.get(LOGGED_COUNT);
 	}
 	
 	/**
@@ -124,7 +152,7 @@ public class PooledLogger implements KeyValueStats {
 	 * @return total number of nanoseconds spent logging to the underlying sink
 	 */
 	public long getTimeNanos() {
-		return totalNanos.get();
+		return counters.get(TOTAL_NANOS);
 	}
 	
 	/**
@@ -143,7 +171,27 @@ public class PooledLogger implements KeyValueStats {
 	 * @return maximum capacity of the sink
 	 */
 	public int getCapacity() {
-		return capacity;
+		return getCapacity(eventQ);
+	}
+
+	/**
+	 * Obtain total capacity of a given event queue. Custom queues report capacity
+	 * across all lanes and producer threads, other queues report the sum of
+	 * their size and remaining capacity.
+	 * 
+	 * @param queue event queue
+	 * @return total queue capacity
+	 */
+	static int getCapacity(BlockingQueue<SinkLogEvent> queue) {
+		if (queue instanceof PerThreadEventQueue) {
+			return ((PerThreadEventQueue) queue).getCapacity();
+		} else if (queue instanceof SeverityLaneQueue) {
+			return ((SeverityLaneQueue) queue).getCapacity();
+		} else if (queue instanceof ByteBudgetQueue) {
+			return ((ByteBudgetQueue) queue).getCapacity();
+		}
+		long capacity = (long) queue.size() + queue.remainingCapacity();
+		return (int) Math.min(capacity, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -154,7 +202,7 @@ public class PooledLogger implements KeyValueStats {
      */
 	public boolean offer(SinkLogEvent event) {
 		boolean flag = eventQ.offer(event);
-		if (!flag) dropCount.incrementAndGet();		
+		if (!flag) counters.increment(DROP_COUNT);		
 		return flag;
 	}
 	
@@ -212,7 +260,7 @@ class LoggingTask implements Runnable {
 	PooledLogger pooledLogger;
 	BlockingQueue<SinkLogEvent> eventQ;
 	
-	public LoggingTask(PooledLogger logger, ArrayBlockingQueue<SinkLogEvent> eq) {
+	public LoggingTask(PooledLogger logger, BlockingQueue<SinkLogEvent> eq) {
 		pooledLogger = logger;
 		eventQ = eq;
     }
@@ -225,8 +273,24 @@ class LoggingTask implements Runnable {
 				long start = System.nanoTime();
 				Object sinkO = event.getSinkObject();
 				EventSink outSink = event.getEventSink();
-				if (sinkO instanceof TrackingEvent) {
-					outSink.log((TrackingEvent)sinkO);
+				if (event.getBatch() != null) {
+					List<TrackingEvent> batch = event.getBatch();
+					try {
+						((BatchEventSink) outSink).log((TrackingActivity) sinkO, batch);
+					} finally {
+						for (TrackingEvent trackingEvent : batch) {
+							trackingEvent.release();
+						}
+					}
+				} else if (sinkO instanceof EncodedEvent) {
+					((EncodingEventSink) outSink).log((EncodedEvent) sinkO);
+				} else if (sinkO instanceof TrackingEvent) {
+					TrackingEvent trackingEvent = (TrackingEvent) sinkO;
+					try {
+						outSink.log(trackingEvent);
+					} finally {
+						trackingEvent.release();
+					}
 				} else if (sinkO instanceof TrackingActivity) {
 					outSink.log((TrackingActivity)sinkO);
 				}  else if (sinkO instanceof Snapshot) {
@@ -238,9 +302,9 @@ class LoggingTask implements Runnable {
 					outSink.log(event.getSeverity(), String.valueOf(sinkO),
 							event.getArguments());
 				}
-				pooledLogger.loggedCount.incrementAndGet();
+				pooledLogger.counters.increment(PooledLogger.LOGGED_COUNT);
 				long elaspedNanos = System.nanoTime() - start;
-				pooledLogger.totalNanos.addAndGet(elaspedNanos);
+				pooledLogger.counters.add(PooledLogger.TOTAL_NANOS, elaspedNanos);
 			}
 		} catch (InterruptedException e) {
 		}
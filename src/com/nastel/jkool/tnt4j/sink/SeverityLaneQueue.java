@@ -0,0 +1,364 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.sink;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+import com.nastel.jkool.tnt4j.core.OpLevel;
+
+/**
+ * <p>
+ * This class implements a blocking queue of <code>SinkLogEvent</code> instances split into
+ * a set of severity lanes. Each lane covers all severities at or above a given <code>OpLevel</code>
+ * threshold and has its own capacity, so a flood of low severity events (e.g. DEBUG, TRACE)
+ * can never drop high severity events such as ERROR or FATAL. Consumers drain lanes using
+ * weighted round robin: a lane with weight 4 is visited 4 times as often as a lane with weight 1.
+ * Every lane has a weight of at least 1, which guarantees minimum service for low priority lanes.
+ * </p>
+ *
+ * <p>
+ * Lanes are defined using a comma separated list of <code>level:capacity:weight</code> entries.
+ * Example: <code>ERROR:1000:4,INFO:3000:2,NONE:1000:1</code>. Events are routed to the lane with
+ * the highest threshold not greater than the event severity. Each level may define at most one lane.
+ * </p>
+ *
+ * @version $Revision: 2 $
+ *
+ * @see PooledLogger
+ * @see SinkLogEvent
+ * @see OpLevel
+ */
+public class SeverityLaneQueue extends AbstractQueue<SinkLogEvent> implements BlockingQueue<SinkLogEvent>, KeyValueStats {
+	public static final String DEFAULT_LANES = "ERROR:1000:4,INFO:3000:2,NONE:1000:1";
+
+	static final String KEY_LANE_PREFIX = "pooled-lane-";
+	static final String KEY_LANE_SIZE = "-size";
+	static final String KEY_LANE_CAPACITY = "-capacity";
+	static final String KEY_LANE_DROPPED = "-dropped";
+
+	private Lane[] lanes;
+	private int[] route = new int[OpLevel.values().length];
+	private int[] schedule;
+	private Semaphore available = new Semaphore(0);
+	private AtomicLong ticket = new AtomicLong(0);
+
+	/**
+	 * Create a severity lane queue with default lane definition
+	 *
+	 * @see #DEFAULT_LANES
+	 */
+	public SeverityLaneQueue() {
+		this(DEFAULT_LANES);
+	}
+
+	/**
+	 * Create a severity lane queue based on a given lane definition
+	 *
+	 * @param laneSpec lane definition (e.g. "ERROR:1000:4,INFO:3000:2,NONE:1000:1")
+	 * @throws IllegalArgumentException if lane definition is invalid or defines the same level more than once
+	 */
+	public SeverityLaneQueue(String laneSpec) {
+		lanes = parseLanes(laneSpec);
+		for (OpLevel level : OpLevel.values()) {
+			route[level.ordinal()] = lanes.length - 1;
+			for (int i = 0; i < lanes.length; i++) {
+				if (level.ordinal() >= lanes[i].level.ordinal()) {
+					route[level.ordinal()] = i;
+					break;
+				}
+			}
+		}
+		schedule = buildSchedule(lanes);
+	}
+
+	private static Lane[] parseLanes(String laneSpec) {
+		ArrayList<Lane> list = new ArrayList<Lane>();
+		for (String item : laneSpec.split(",")) {
+			String[] tokens = item.trim().split(":");
+			if (tokens.length != 3) {
+				throw new IllegalArgumentException("Invalid lane '" + item + "', expected level:capacity:weight");
+			}
+			Lane lane = new Lane(OpLevel.valueOf(tokens[0].trim()), Integer.parseInt(tokens[1].trim()),
+					Integer.parseInt(tokens[2].trim()));
+			if (lane.weight < 1) {
+				throw new IllegalArgumentException("Lane weight must be >= 1, lane=" + item);
+			}
+			int index = 0;
+			while (index < list.size() && list.get(index).level.ordinal() > lane.level.ordinal()) {
+				index++;
+			}
+			if (index < list.size() && list.get(index).level == lane.level) {
+				throw new IllegalArgumentException("Duplicate lane level " + lane.level + ", lane=" + item);
+			}
+			list.add(index, lane);
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("No lanes defined: " + laneSpec);
+		}
+		return list.toArray(new Lane[list.size()]);
+	}
+
+	/**
+	 * Build an interleaved weighted round robin schedule, so that
+	 * lanes with higher weight do not get served in long bursts.
+	 */
+	private static int[] buildSchedule(Lane[] lanes) {
+		int total = 0;
+		for (Lane lane : lanes) {
+			total += lane.weight;
+		}
+		int[] slots = new int[total];
+		int[] current = new int[lanes.length];
+		for (int s = 0; s < total; s++) {
+			int best = 0;
+			for (int i = 0; i < lanes.length; i++) {
+				current[i] += lanes[i].weight;
+				if (current[i] > current[best]) {
+					best = i;
+				}
+			}
+			current[best] -= total;
+			slots[s] = best;
+		}
+		return slots;
+	}
+
+	private Lane laneOf(SinkLogEvent event) {
+		OpLevel level = event.getSeverity();
+		return lanes[route[level != null ? level.ordinal() : 0]];
+	}
+
+	/**
+	 * Remove next available event using lane schedule. Caller must
+	 * own a permit, which guarantees that at least one event is available.
+	 */
+	private SinkLogEvent dequeue() {
+		int first = schedule[(int) (ticket.getAndIncrement() % schedule.length)];
+		while (true) {
+			SinkLogEvent event = lanes[first].queue.poll();
+			if (event != null) {
+				return event;
+			}
+			for (Lane lane : lanes) {
+				event = lane.queue.poll();
+				if (event != null) {
+					return event;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Obtain number of events currently queued in a lane
+	 * serving a given severity level.
+	 *
+	 * @param level severity level
+	 * @return number of events in the lane
+	 */
+	public int size(OpLevel level) {
+		return lanes[route[level.ordinal()]].queue.size();
+	}
+
+	/**
+	 * Obtain number of events dropped by the lane
+	 * serving a given severity level.
+	 *
+	 * @param level severity level
+	 * @return number of events dropped by the lane since last reset
+	 */
+	public long getDropCount(OpLevel level) {
+		return lanes[route[level.ordinal()]].dropCount.get();
+	}
+
+	/**
+	 * Obtain total capacity of all lanes
+	 *
+	 * @return total capacity of all lanes
+	 */
+	public int getCapacity() {
+		int capacity = 0;
+		for (Lane lane : lanes) {
+			capacity += lane.capacity;
+		}
+		return capacity;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		Lane lane = laneOf(event);
+		boolean flag = lane.queue.offer(event);
+		if (flag) {
+			available.release();
+		} else {
+			lane.dropCount.incrementAndGet();
+		}
+		return flag;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event, long timeout, TimeUnit unit) throws InterruptedException {
+		Lane lane = laneOf(event);
+		boolean flag = lane.queue.offer(event, timeout, unit);
+		if (flag) {
+			available.release();
+		} else {
+			lane.dropCount.incrementAndGet();
+		}
+		return flag;
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		laneOf(event).queue.put(event);
+		available.release();
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		available.acquire();
+		return dequeue();
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return available.tryAcquire(timeout, unit) ? dequeue() : null;
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		return available.tryAcquire() ? dequeue() : null;
+	}
+
+	@Override
+	public SinkLogEvent peek() {
+		for (Lane lane : lanes) {
+			SinkLogEvent event = lane.queue.peek();
+			if (event != null) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Lane lane : lanes) {
+			size += lane.queue.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		int remaining = 0;
+		for (Lane lane : lanes) {
+			remaining += lane.queue.remainingCapacity();
+		}
+		return remaining;
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super SinkLogEvent> c, int maxElements) {
+		int count = 0;
+		SinkLogEvent event;
+		while (count < maxElements && (event = poll()) != null) {
+			c.add(event);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a snapshot iterator over all queued events in lane priority order.
+	 * Removal is not supported.
+	 */
+	@Override
+	public Iterator<SinkLogEvent> iterator() {
+		ArrayList<SinkLogEvent> list = new ArrayList<SinkLogEvent>(size());
+		for (Lane lane : lanes) {
+			list.addAll(lane.queue);
+		}
+		return Collections.unmodifiableList(list).iterator();
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<String, Object>();
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		for (Lane lane : lanes) {
+			String prefix = KEY_LANE_PREFIX + lane.level;
+			stats.put(prefix + KEY_LANE_SIZE, lane.queue.size());
+			stats.put(prefix + KEY_LANE_CAPACITY, lane.capacity);
+			stats.put(prefix + KEY_LANE_DROPPED, lane.dropCount.get());
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		for (Lane lane : lanes) {
+			lane.dropCount.set(0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder(128);
+		str.append(getClass().getSimpleName()).append("{");
+		for (int i = 0; i < lanes.length; i++) {
+			if (i > 0) str.append(",");
+			str.append(lanes[i].level).append(":").append(lanes[i].capacity).append(":").append(lanes[i].weight);
+		}
+		return str.append("}").toString();
+	}
+}
+
+class Lane {
+	OpLevel level;
+	int capacity, weight;
+	ArrayBlockingQueue<SinkLogEvent> queue;
+	AtomicLong dropCount = new AtomicLong(0);
+
+	Lane(OpLevel lvl, int cap, int wt) {
+		level = lvl;
+		capacity = cap;
+		weight = wt;
+		queue = new ArrayBlockingQueue<SinkLogEvent>(capacity);
+	}
+}
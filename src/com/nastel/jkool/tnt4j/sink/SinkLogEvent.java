@@ -16,6 +16,7 @@
 package com.nastel.jkool.tnt4j.sink;
 
 import java.util.EventObject;
+import java.util.List;
 
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.Snapshot;
@@ -34,7 +35,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see TrackingActivity
  * @see OpLevel
  * 
- * @version $Revision: 3 $
+ * @version $Revision: 4 $
  * 
  */
 public class SinkLogEvent extends EventObject {
@@ -46,6 +47,8 @@ public class SinkLogEvent extends EventObject {
 	private Source evSrc = null;
 	private OpLevel level = OpLevel.NONE;
 	private Object[] argList = null;
+	private long sizeEstimate = 0;
+	private List<TrackingEvent> batch = null;
 
 	/**
 	 * Create a new log event instance
@@ -75,9 +78,50 @@ public class SinkLogEvent extends EventObject {
 		super(sink);
 		logObj = msg;
 		error = msg.getThrowable();
+		level = msg.getSeverity();
 		evSrc = msg.getSource();
 	}
 
+	/**
+	 * Create a new log event instance for a batch of tracking events followed by
+	 * the tracking activity which tracked them
+	 * 
+	 * @param sink
+	 *            sink associated with the batch
+	 * @param activity
+	 *            tracking activity, null if none
+	 * @param events
+	 *            list of tracking events
+	 * @see BatchEventSink
+	 */
+	public SinkLogEvent(EventSink sink, TrackingActivity activity, List<TrackingEvent> events) {
+		super(sink);
+		logObj = activity;
+		batch = events;
+		if (activity != null) {
+			error = activity.getThrowable();
+			level = activity.getSeverity();
+			evSrc = activity.getSource();
+		} else if (!events.isEmpty()) {
+			level = events.get(0).getSeverity();
+			evSrc = events.get(0).getSource();
+		}
+	}
+
+	/**
+	 * Create a new log event instance for an encoded event record
+	 * 
+	 * @param sink
+	 *            sink associated with the event
+	 * @param record
+	 *            encoded event record
+	 */
+	public SinkLogEvent(EventSink sink, EncodedEvent record) {
+		super(sink);
+		logObj = record;
+		level = record.getSeverity();
+	}
+
 	/**
 	 * Create a new log event instance.
 	 * 
@@ -182,6 +226,36 @@ public class SinkLogEvent extends EventObject {
 		return snapshot;
 	}
 
+	/**
+	 * Return batch of tracking events logged along with the activity
+	 * 
+	 * @return list of tracking events, null if not a batch
+	 * @see BatchEventSink
+	 */
+	public List<TrackingEvent> getBatch() {
+		return batch;
+	}
+
+	/**
+	 * Return estimated number of heap bytes retained by this event
+	 * while queued, 0 if not estimated.
+	 * 
+	 * @return estimated size in bytes
+	 * @see EventSizeEstimator
+	 */
+	public long getSizeEstimate() {
+		return sizeEstimate;
+	}
+
+	/**
+	 * Set estimated number of heap bytes retained by this event
+	 * 
+	 * @param size estimated size in bytes
+	 */
+	void setSizeEstimate(long size) {
+		sizeEstimate = size;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() 
@@ -18,9 +18,11 @@ package com.nastel.jkool.tnt4j.sink;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.format.ByteEventFormatter;
 import com.nastel.jkool.tnt4j.format.EventFormatter;
 import com.nastel.jkool.tnt4j.source.Source;
 import com.nastel.jkool.tnt4j.tracker.TrackingActivity;
@@ -30,24 +32,31 @@ import com.nastel.jkool.tnt4j.utils.Utils;
 /**
  * <p>
  * This class implements <code>EventSink</code> with socket as  the underlying
- * sink implementation.
+ * sink implementation. Formatters implementing <code>ByteEventFormatter</code>
+ * (e.g. <code>JSONFormatter</code>) format events directly into a reusable byte buffer.
+ * Stateful formatters (<code>BinaryFormatter</code> with a string dictionary) are reset
+ * whenever the socket is opened or a write fails.
  * </p>
  * 
  * 
- * @version $Revision: 14 $
+ * @version $Revision: 18 $
  * 
  * @see TrackingActivity
  * @see TrackingEvent
  * @see OpLevel
  * @see EventSink
  * @see EventFormatter
+ * @see AbstractEncodingEventSink
  */
-public class SocketEventSink extends AbstractEventSink {
+public class SocketEventSink extends AbstractEncodingEventSink {
+	static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
 	private Socket socketSink = null;
 	private DataOutputStream outStream = null;
 	private EventSink logSink = null;
 	private String hostName = "localhost";
 	private int portNo = 6400;
+	private LineEncoder encoder = null;
 
 	/**
 	 * Create a socket event sink based on a given host, port and formatter.
@@ -64,6 +73,9 @@ public class SocketEventSink extends AbstractEventSink {
 		hostName = host;
 		portNo = port;
 		logSink = sink;
+		if (frm instanceof ByteEventFormatter) {
+			encoder = new LineEncoder(frm, MAX_RECORD_SIZE);
+		}
 	}
 
 	@Override
@@ -71,7 +83,11 @@ public class SocketEventSink extends AbstractEventSink {
 		if (logSink != null) {
 			logSink.log(activity);
 		}
-		writeLine(getEventFormatter().format(activity));
+		if (encoder != null) {
+			writeRecord(activity, null, null);
+		} else {
+			writeLine(getEventFormatter().format(activity));
+		}
 	}
 
 	@Override
@@ -79,7 +95,11 @@ public class SocketEventSink extends AbstractEventSink {
 		if (logSink != null) {
 			logSink.log(event);
 		}
-		writeLine(getEventFormatter().format(event));
+		if (encoder != null) {
+			writeRecord(event, null, null);
+		} else {
+			writeLine(getEventFormatter().format(event));
+		}
 	}
 
 	@Override
@@ -87,7 +107,11 @@ public class SocketEventSink extends AbstractEventSink {
 		if (logSink != null) {
 			logSink.log(snapshot);
 		}
-		writeLine(getEventFormatter().format(snapshot));		
+		if (encoder != null) {
+			writeRecord(snapshot, null, null);
+		} else {
+			writeLine(getEventFormatter().format(snapshot));
+		}		
 	}
 	
 	@Override
@@ -95,13 +119,36 @@ public class SocketEventSink extends AbstractEventSink {
 		if (logSink != null) {
 			logSink.log(src, sev, msg, args);
 		}
-		writeLine(getEventFormatter().format(src, sev, msg, args));
+		if (encoder != null) {
+			writeRecord(msg, src, sev, args);
+		} else {
+			writeLine(getEventFormatter().format(src, sev, msg, args));
+		}
+	}
+
+	@Override
+	protected void _log(EncodedEvent record) throws IOException {
+		if (encoder != null) {
+			writeRecord(record, null, null);
+			return;
+		}
+		byte[] bytes = record.getBytes();
+		outStream.write(bytes, 0, bytes.length);
+		if (bytes.length == 0 || bytes[bytes.length - 1] != '\n') {
+			outStream.write('\n');
+		}
+		outStream.flush();
 	}
 
 	@Override
 	public void write(Object msg, Object...args) throws IOException {
 		if (isOpen()) {
-			writeLine(getEventFormatter().format(msg, args));
+			if (encoder != null) {
+				writeRecord(new EncodedEvent(OpLevel.NONE, getEventFormatter().format(msg, args),
+				        EncodedEvent.TYPE_MESSAGE), null, null);
+			} else {
+				writeLine(getEventFormatter().format(msg, args));
+			}
 		}
 	}
 
@@ -119,6 +166,9 @@ public class SocketEventSink extends AbstractEventSink {
 	public synchronized void open() throws IOException {
 		socketSink = new Socket(hostName, portNo);
 		outStream = new DataOutputStream(socketSink.getOutputStream());
+		if (encoder != null) {
+			encoder.reset();
+		}
 		if (logSink != null) {
 			logSink.open();
 		}
@@ -149,9 +199,36 @@ public class SocketEventSink extends AbstractEventSink {
 			+ "}";
 	}
 	
+	/**
+	 * Encode and write a record. Records of stateful encoders are encoded and written
+	 * atomically and the encoder is reset if the write fails.
+	 */
+	private void writeRecord(Object obj, Source src, OpLevel sev, Object... args) throws IOException {
+		if (!encoder.isStateful()) {
+			writeLine(encoder.encode(obj, src, sev, args));
+			return;
+		}
+		synchronized (encoder) {
+			boolean written = false;
+			try {
+				writeLine(encoder.encode(obj, src, sev, args));
+				written = true;
+			} finally {
+				if (!written) {
+					encoder.reset();
+				}
+			}
+		}
+	}
+
+	private void writeLine(ByteBuffer line) throws IOException {
+		outStream.write(line.array(), line.arrayOffset() + line.position(), line.remaining());
+		outStream.flush();
+	}
+
 	private void writeLine(String msg) throws IOException {
 		String lineMsg = msg.endsWith("\n")? msg: msg + "\n";
-		byte [] bytes = lineMsg.getBytes();
+		byte [] bytes = lineMsg.getBytes(EncodedEvent.ENCODING);
 		outStream.write(bytes, 0, bytes.length);
 		outStream.flush();
 	}
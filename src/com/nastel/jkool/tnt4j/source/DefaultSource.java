@@ -20,19 +20,27 @@ import com.nastel.jkool.tnt4j.utils.Utils;
 /**
  * <p>
  * Implements Source entity -- container of other sources. Each one identifies a specific entity such as an
- * application, server, device etc.
+ * application, server, device etc. Fully qualified name is computed once and cached until
+ * any source is modified, see <code>SourceCache</code>.
  * </p>
  * 
  * 
- * @version $Revision: 3 $
+ * @version $Revision: 5 $
+ * 
+ * @see SourceCache
  */
 public class DefaultSource implements Source {
+	private static final String DEFAULT_INFO = System.getProperty("os.name") + ", Version: "
+	        + System.getProperty("os.version") + ", Arch: " + System.getProperty("os.arch");
+
 	private Source parentSource;
 	private String sname;
 	private SourceType sourceType;
 	private String user;
 	private String url;
 	private String info;
+	private volatile CachedName fqName;
+	private boolean initialized = false;
 
 	/**
 	 * Creates an Source object with the specified properties.
@@ -51,7 +59,18 @@ public class DefaultSource implements Source {
 		setType(type);
 		setSource(root);
 		setUser(userName);
-		setDefaultInfo();
+		setInfo(DEFAULT_INFO);
+		initialized = true;
+	}
+
+	/**
+	 * Invalidate cached source fragments after an attribute change. Sources under construction
+	 * are not cached yet, so the cache is not invalidated by constructors.
+	 */
+	private void changed() {
+		if (initialized) {
+			SourceCache.invalidate();
+		}
 	}
 
 	@Override
@@ -61,8 +80,15 @@ public class DefaultSource implements Source {
 
 	@Override
 	public String getFQName() {
-		return (parentSource == null) ? sourceType + "=" + sname : sourceType + "=" + sname + "#"
-		        + parentSource.getFQName();
+		long gen = SourceCache.getGeneration();
+		CachedName name = fqName;
+		if (name == null || name.generation != gen) {
+			String fqn = (parentSource == null) ? sourceType + "=" + sname : sourceType + "=" + sname + "#"
+			        + parentSource.getFQName();
+			name = new CachedName(gen, fqn);
+			fqName = name;
+		}
+		return name.value;
 	}
 
 	/**
@@ -73,6 +99,7 @@ public class DefaultSource implements Source {
 	 */
 	public void setName(String name) {
 		this.sname = name;
+		changed();
 	}
 
 	@Override
@@ -94,6 +121,7 @@ public class DefaultSource implements Source {
 	 */
 	public Source setSource(Source parent) {
 		this.parentSource = parent;
+		changed();
 		return this;
 	}
 
@@ -105,6 +133,7 @@ public class DefaultSource implements Source {
 	@Override
 	public void setUser(String user) {
 		this.user = user;
+		changed();
 	}
 
 	@Override
@@ -115,6 +144,7 @@ public class DefaultSource implements Source {
 	@Override
 	public void setUrl(String url) {
 		this.url = url;
+		changed();
 	}
 
 	@Override
@@ -125,6 +155,7 @@ public class DefaultSource implements Source {
 	@Override
 	public void setInfo(String inf) {
 		this.info = inf;
+		changed();
 	}
 
 	@Override
@@ -140,6 +171,7 @@ public class DefaultSource implements Source {
 	 */
 	protected void setType(SourceType ct) {
 		sourceType = ct;
+		changed();
 	}
 
 	/**
@@ -206,9 +238,14 @@ public class DefaultSource implements Source {
 
 		return str.toString();
 	}
+}
+
+class CachedName {
+	final long generation;
+	final String value;
 
-	private void setDefaultInfo() {
-		setInfo(System.getProperty("os.name") + ", Version: " + System.getProperty("os.version") + ", Arch: "
-		        + System.getProperty("os.arch"));
+	CachedName(long gen, String val) {
+		generation = gen;
+		value = val;
 	}
 }
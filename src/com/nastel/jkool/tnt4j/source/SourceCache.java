@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.source;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * This class implements a small identity keyed cache of values derived from <code>Source</code>
+ * instances, such as pre-serialized source fragments used by formatters. Sources are looked up by
+ * reference (not <code>equals()</code>) in a fixed size direct mapped table, so lookups are lock free
+ * and never walk the parent chain. All cached values become stale when any source is mutated:
+ * <code>DefaultSource</code> setters call <code>invalidate()</code>, custom <code>Source</code>
+ * implementations must do the same when their attributes change.
+ * </p>
+ *
+ * @param <V> type of cached values
+ *
+ * @version $Revision: 1 $
+ *
+ * @see Source
+ * @see DefaultSource
+ */
+public abstract class SourceCache<V> {
+	public static final int DEFAULT_CACHE_SIZE = 64;
+
+	private static final AtomicLong generation = new AtomicLong(0);
+
+	private AtomicReferenceArray<CacheEntry<V>> entries;
+	private int mask;
+
+	/**
+	 * Create a source cache with default number of slots
+	 *
+	 */
+	public SourceCache() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a source cache with a given number of slots, rounded up to a power of 2
+	 *
+	 * @param size number of cache slots
+	 */
+	public SourceCache(int size) {
+		int slots = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		entries = new AtomicReferenceArray<CacheEntry<V>>(slots);
+		mask = slots - 1;
+	}
+
+	/**
+	 * Invalidate values cached for all sources. Must be called whenever
+	 * any attribute of any source or its parent chain changes.
+	 *
+	 */
+	public static void invalidate() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Obtain current source generation, which changes on every invalidation
+	 *
+	 * @return current source generation
+	 */
+	public static long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Obtain value associated with a given source, creating it
+	 * if not cached or invalidated since it was created.
+	 *
+	 * @param source source instance
+	 * @return value associated with a given source
+	 */
+	public V get(Source source) {
+		long gen = generation.get();
+		int slot = System.identityHashCode(source) & mask;
+		CacheEntry<V> entry = entries.get(slot);
+		if (entry != null && entry.source == source && entry.generation == gen) {
+			return entry.value;
+		}
+		V value = create(source);
+		entries.set(slot, new CacheEntry<V>(source, gen, value));
+		return value;
+	}
+
+	/**
+	 * Remove all cached values
+	 *
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, null);
+		}
+	}
+
+	/**
+	 * Create a value for a given source
+	 *
+	 * @param source source instance
+	 * @return value associated with a given source
+	 */
+	protected abstract V create(Source source);
+}
+
+class CacheEntry<V> {
+	final Source source;
+	final long generation;
+	final V value;
+
+	CacheEntry(Source src, long gen, V val) {
+		source = src;
+		generation = gen;
+		value = val;
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * This class implements an immutable chain of started activities associated with a thread. Each started
+ * activity is linked to the context in which it was started, so the current context of a thread is the head
+ * of the chain: the most recently started activity. Starting an activity creates a new head, stopping it
+ * restores the parent context. Contexts are never modified, so capturing a context is a single thread local
+ * read and a captured context can be attached to any number of threads at the same time.
+ * </p>
+ *
+ * <p>
+ * Use <code>wrap()</code> methods to carry the context of the submitting thread into tasks executed on other
+ * threads. Activities started inside a wrapped task become children of the activity that was current when
+ * the task was submitted, and the thread's own context is restored when the task completes. Wrapped
+ * executors can be passed to any asynchronous API accepting an <code>Executor</code>, such as
+ * <code>CompletableFuture.supplyAsync(task, executor)</code>.
+ * </p>
+ * <pre>
+ * {@code
+ * ExecutorService pool = ActivityContext.wrap(Executors.newFixedThreadPool(4));
+ * TrackingActivity request = logger.newActivity(OpLevel.INFO, "request");
+ * request.start();
+ * pool.submit(task); // activities started by task are children of request
+ * request.stop();
+ * }
+ * </pre>
+ *
+ * @see TrackingActivity
+ * @see Tracker#getCurrentActivity()
+ *
+ * @version $Revision: 1 $
+ */
+public final class ActivityContext {
+	/**
+	 * Context with no started activities
+	 */
+	public static final ActivityContext EMPTY = new ActivityContext(null, null);
+
+	private static final ThreadLocal<ActivityContext> CURRENT = new ThreadLocal<ActivityContext>();
+
+	private final TrackingActivity activity;
+	private final ActivityContext parent;
+	private final int depth;
+
+	ActivityContext(TrackingActivity activity, ActivityContext parent) {
+		this.activity = activity;
+		this.parent = parent;
+		this.depth = parent != null ? parent.depth + 1 : 0;
+	}
+
+	/**
+	 * Capture activity context of the current thread
+	 *
+	 * @return current thread's activity context, <code>EMPTY</code> if no activities are started
+	 */
+	public static ActivityContext capture() {
+		ActivityContext ctx = CURRENT.get();
+		return ctx != null ? ctx : EMPTY;
+	}
+
+	/**
+	 * Make this context current for the calling thread. Activities started afterwards
+	 * become children of this context's activity.
+	 *
+	 * @return context that was current before this call, which should be attached again when done
+	 */
+	public ActivityContext attach() {
+		ActivityContext previous = capture();
+		CURRENT.set(this == EMPTY ? null : this);
+		return previous;
+	}
+
+	/**
+	 * Create a new context with a given activity started on top of this context
+	 *
+	 * @param item activity being started
+	 * @return new context
+	 */
+	ActivityContext push(TrackingActivity item) {
+		return new ActivityContext(item, this);
+	}
+
+	/**
+	 * Obtain activity at the head of this context
+	 *
+	 * @return most recently started activity, null if context is empty
+	 */
+	public TrackingActivity getActivity() {
+		return activity;
+	}
+
+	/**
+	 * Obtain context in which the head activity was started
+	 *
+	 * @return parent context, null if context is empty
+	 */
+	public ActivityContext getParent() {
+		return parent;
+	}
+
+	/**
+	 * Obtain the first activity started in this context
+	 *
+	 * @return root activity, null if context is empty
+	 */
+	public TrackingActivity getRoot() {
+		ActivityContext ctx = this;
+		while (ctx.depth > 1) {
+			ctx = ctx.parent;
+		}
+		return ctx.activity;
+	}
+
+	/**
+	 * Obtain number of activities in this context
+	 *
+	 * @return number of activities
+	 */
+	public int size() {
+		return depth;
+	}
+
+	/**
+	 * Determine if this context has any activities
+	 *
+	 * @return true if no activities are started in this context, false otherwise
+	 */
+	public boolean isEmpty() {
+		return depth == 0;
+	}
+
+	/**
+	 * Obtain activities in this context, most recently started activity first
+	 *
+	 * @return array of activities, null if context is empty
+	 */
+	public TrackingActivity[] toArray() {
+		if (depth == 0) {
+			return null;
+		}
+		TrackingActivity[] list = new TrackingActivity[depth];
+		int index = 0;
+		for (ActivityContext ctx = this; ctx.depth > 0; ctx = ctx.parent) {
+			list[index++] = ctx.activity;
+		}
+		return list;
+	}
+
+	/**
+	 * Wrap a task so that it runs with activity context of the calling thread
+	 *
+	 * @param task task to be wrapped
+	 * @return task that runs with the captured context
+	 */
+	public static Runnable wrap(Runnable task) {
+		return new ContextRunnable(capture(), task);
+	}
+
+	/**
+	 * Wrap a task so that it runs with activity context of the calling thread
+	 *
+	 * @param task task to be wrapped
+	 * @return task that runs with the captured context
+	 */
+	public static <V> Callable<V> wrap(Callable<V> task) {
+		return new ContextCallable<V>(capture(), task);
+	}
+
+	/**
+	 * Wrap an executor so that each submitted task runs with activity context of the submitting thread
+	 *
+	 * @param executor executor to be wrapped
+	 * @return executor propagating activity context
+	 */
+	public static Executor wrap(Executor executor) {
+		if (executor instanceof ExecutorService) {
+			return wrap((ExecutorService) executor);
+		}
+		return new ContextExecutor(executor);
+	}
+
+	/**
+	 * Wrap an executor service so that each submitted task runs with activity context of the submitting thread
+	 *
+	 * @param executor executor service to be wrapped
+	 * @return executor service propagating activity context
+	 */
+	public static ExecutorService wrap(ExecutorService executor) {
+		if (executor instanceof ContextExecutorService) {
+			return executor;
+		}
+		return new ContextExecutorService(executor);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{depth=" + depth
+			+ ", activity=" + (activity != null? activity.getTrackingId(): null) + "}";
+	}
+}
+
+class ContextRunnable implements Runnable {
+	private final ActivityContext context;
+	private final Runnable task;
+
+	ContextRunnable(ActivityContext ctx, Runnable task) {
+		this.context = ctx;
+		this.task = task;
+	}
+
+	@Override
+	public void run() {
+		ActivityContext previous = context.attach();
+		try {
+			task.run();
+		} finally {
+			previous.attach();
+		}
+	}
+}
+
+class ContextCallable<V> implements Callable<V> {
+	private final ActivityContext context;
+	private final Callable<V> task;
+
+	ContextCallable(ActivityContext ctx, Callable<V> task) {
+		this.context = ctx;
+		this.task = task;
+	}
+
+	@Override
+	public V call() throws Exception {
+		ActivityContext previous = context.attach();
+		try {
+			return task.call();
+		} finally {
+			previous.attach();
+		}
+	}
+}
+
+class ContextExecutor implements Executor {
+	private final Executor executor;
+
+	ContextExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		executor.execute(ActivityContext.wrap(command));
+	}
+}
+
+class ContextExecutorService implements ExecutorService {
+	private final ExecutorService executor;
+
+	ContextExecutorService(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	private <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+		ActivityContext ctx = ActivityContext.capture();
+		List<Callable<T>> list = new ArrayList<Callable<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			list.add(new ContextCallable<T>(ctx, task));
+		}
+		return list;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		executor.execute(ActivityContext.wrap(command));
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		return executor.submit(ActivityContext.wrap(task));
+	}
+
+	@Override
+	public <T> Future<T> submit(Runnable task, T result) {
+		return executor.submit(ActivityContext.wrap(task), result);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(ActivityContext.wrap(task));
+	}
+
+	@Override
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+		return executor.invokeAll(wrapAll(tasks));
+	}
+
+	@Override
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+	        throws InterruptedException {
+		return executor.invokeAll(wrapAll(tasks), timeout, unit);
+	}
+
+	@Override
+	public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+		return executor.invokeAny(wrapAll(tasks));
+	}
+
+	@Override
+	public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+	        throws InterruptedException, ExecutionException, TimeoutException {
+		return executor.invokeAny(wrapAll(tasks), timeout, unit);
+	}
+
+	@Override
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return executor.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return executor.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return executor.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+}
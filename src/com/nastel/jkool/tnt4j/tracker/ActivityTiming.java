@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+/**
+ * <p>
+ * Provides list of timing modes used by <code>TrackingActivity</code> on start/stop.
+ * Modes trade detail of collected thread metrics for start/stop overhead:
+ * </p>
+ * <ul>
+ * <li><code>WALL</code> - elapsed time only (<code>System.nanoTime()</code>), no <code>ThreadMXBean</code> calls.</li>
+ * <li><code>CPU</code> - elapsed and thread CPU time via <code>ThreadMXBean.getCurrentThreadCpuTime()</code>,
+ * no <code>ThreadInfo</code> lookups.</li>
+ * <li><code>FULL</code> - CPU time plus blocked/waited counts and times from <code>ThreadInfo</code> (default).</li>
+ * </ul>
+ * <p>
+ * Timing mode is configured per source using <code>activity.timing</code> property in <code>tnt4j.properties</code>
+ * (e.g. <code>activity.timing: cpu</code>), changed at runtime using <code>Tracker.setActivityTiming()</code> or set for
+ * a single activity using <code>TrackingActivity.setTiming()</code>.
+ * </p>
+ *
+ * @see TrackingActivity
+ * @see Tracker#setActivityTiming(ActivityTiming)
+ *
+ * @version $Revision: 1 $
+ */
+public enum ActivityTiming {
+	WALL, CPU, FULL;
+
+	/**
+	 * Obtain timing mode by case insensitive name
+	 *
+	 * @param name timing mode name (wall, cpu or full)
+	 * @return timing mode matching a given name
+	 * @throws IllegalArgumentException if no timing mode matches given name
+	 */
+	public static ActivityTiming forName(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+}
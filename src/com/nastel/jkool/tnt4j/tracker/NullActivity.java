@@ -32,7 +32,7 @@ import com.nastel.jkool.tnt4j.core.Trackable;
  * @see NullEvent
  * @see ActivityStatus
  *
- * @version $Revision: 5 $
+ * @version $Revision: 6 $
  *
  */
 public class NullActivity extends TrackingActivity {
@@ -40,6 +40,16 @@ public class NullActivity extends TrackingActivity {
 		super(OpLevel.NONE, Operation.NOOP);
 		super.setType(OpType.NOOP);
 	}
+
+	/**
+	 * Create a NOOP activity with a given tracking id, avoiding id generation
+	 * 
+	 * @param id activity tracking id
+	 */
+	NullActivity(String id) {
+		super(id, OpLevel.NONE, Operation.NOOP);
+		super.setType(OpType.NOOP);
+	}
 	
 	@Override
 	public void setType(OpType type) {
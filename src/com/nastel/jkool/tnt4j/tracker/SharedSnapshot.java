@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+import java.util.Collection;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.OpType;
+import com.nastel.jkool.tnt4j.core.Property;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.core.Trackable;
+import com.nastel.jkool.tnt4j.core.UsecTimestamp;
+import com.nastel.jkool.tnt4j.source.Source;
+
+/**
+ * This class implements a per activity view of a snapshot shared by many activities, such as a sample
+ * published by <code>VMMetricsSampler</code>. Properties and time stamp are read from the shared snapshot,
+ * while severity, parent and other tracking attributes belong to the view, so activities report shared
+ * snapshots with their own severity and parent id. Properties of a view can not be modified.
+ *
+ * @see VMMetricsSampler
+ *
+ * @version $Revision: 1 $
+ */
+final class SharedSnapshot implements Snapshot {
+	private final Snapshot shared;
+	private OpLevel level;
+	private String parentId;
+	private String trackingId;
+	private String correlator;
+	private Source source;
+
+	/**
+	 * Create a view of a shared snapshot with a given severity
+	 *
+	 * @param snap shared snapshot
+	 * @param lvl severity of the view
+	 */
+	SharedSnapshot(Snapshot snap, OpLevel lvl) {
+		shared = snap;
+		level = lvl;
+		trackingId = snap.getTrackingId();
+		correlator = snap.getCorrelator();
+		source = snap.getSource();
+	}
+
+	@Override
+	public String getId() {
+		return shared.getId();
+	}
+
+	@Override
+	public String getName() {
+		return shared.getName();
+	}
+
+	@Override
+	public OpLevel getSeverity() {
+		return level;
+	}
+
+	@Override
+	public String getCategory() {
+		return shared.getCategory();
+	}
+
+	@Override
+	public long getTime() {
+		return shared.getTime();
+	}
+
+	@Override
+	public int size() {
+		return shared.size();
+	}
+
+	@Override
+	public UsecTimestamp getTimeStamp() {
+		return shared.getTimeStamp();
+	}
+
+	@Override
+	public Collection<Property> getSnapshot() {
+		return shared.getSnapshot();
+	}
+
+	@Override
+	public Snapshot add(Property property) {
+		throw new UnsupportedOperationException("Shared snapshot can not be modified: " + getId());
+	}
+
+	@Override
+	public Snapshot add(Object key, Object value) {
+		throw new UnsupportedOperationException("Shared snapshot can not be modified: " + getId());
+	}
+
+	@Override
+	public Property remove(Object key) {
+		throw new UnsupportedOperationException("Shared snapshot can not be modified: " + getId());
+	}
+
+	@Override
+	public Property get(Object key) {
+		return shared.get(key);
+	}
+
+	@Override
+	public void setSource(Source src) {
+		source = src;
+	}
+
+	@Override
+	public Source getSource() {
+		return source;
+	}
+
+	@Override
+	public String getCorrelator() {
+		return correlator;
+	}
+
+	@Override
+	public void setCorrelator(String cid) {
+		correlator = cid;
+	}
+
+	@Override
+	public OpType getType() {
+		return shared.getType();
+	}
+
+	@Override
+	public String getTrackingId() {
+		return trackingId;
+	}
+
+	@Override
+	public String getParentId() {
+		return parentId;
+	}
+
+	@Override
+	public void setTrackingId(String signature) {
+		trackingId = signature;
+	}
+
+	@Override
+	public void setParentId(Trackable parentObject) {
+		parentId = parentObject != null? parentObject.getTrackingId(): parentId;
+	}
+
+	@Override
+	public String toString() {
+		return shared.toString();
+	}
+}
@@ -21,6 +21,8 @@ import com.nastel.jkool.tnt4j.core.KeyValueStats;
 import com.nastel.jkool.tnt4j.core.OpLevel;
 import com.nastel.jkool.tnt4j.core.OpType;
 import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.selector.TrackingSelector;
 import com.nastel.jkool.tnt4j.sink.EventSink;
 import com.nastel.jkool.tnt4j.sink.Handle;
@@ -45,7 +47,7 @@ import com.nastel.jkool.tnt4j.source.Source;
  * @see DefaultTrackerFactory
  * @see Activity
  *
- * @version $Revision: 5 $
+ * @version $Revision: 12 $
  *
  */
 public interface Tracker extends Handle, KeyValueStats {
@@ -55,7 +57,11 @@ public interface Tracker extends Handle, KeyValueStats {
 	static final String KEY_SNAPSHOT_COUNT = "tracker-snapshots";
 	static final String KEY_ACTIVITIES_STARTED = "tracker-started-activities";
 	static final String KEY_ACTIVITIES_STOPPED = "tracker-stopped-activities";
+	static final String KEY_ACTIVITIES_STOPPED_ASYNC = "tracker-async-stopped-activities";
 	static final String KEY_NOOP_COUNT = "tracker-track-noops";
+	static final String KEY_UNSAMPLED_COUNT = "tracker-unsampled-activities";
+	static final String KEY_RETAINED_COUNT = "tracker-retained-activities";
+	static final String KEY_DISCARDED_COUNT = "tracker-discarded-items";
 	static final String KEY_ERROR_COUNT = "tracker-track-errors";
 	static final String KEY_STACK_DEPTH = "tracker-track-stack-depth";
 	static final String KEY_OVERHEAD_NANOS = "tracker-total-overhead-nanos";
@@ -252,6 +258,80 @@ public interface Tracker extends Handle, KeyValueStats {
 	 * @see TrackingFilter
 	 */
 	public void setTrackingFilter(TrackingFilter filter);
+
+	/**
+	 * Set timing mode used by activities created by this tracker from now on.
+	 * Initial mode is configured by <code>activity.timing</code> property.
+	 * 
+	 * @param timing activity timing mode
+	 * @see ActivityTiming
+	 */
+	public void setActivityTiming(ActivityTiming timing);
+
+	/**
+	 * Obtain timing mode used by activities created by this tracker
+	 * 
+	 * @return activity timing mode
+	 * @see ActivityTiming
+	 */
+	public ActivityTiming getActivityTiming();
+
+	/**
+	 * Set activity sampler which decides whether new root activities are traced. Child activities
+	 * and events inherit the decision of the current activity. Setting the value to null traces
+	 * all activities. Initial sampler is configured by <code>tracking.sampler</code> property.
+	 * 
+	 * @param sampler activity sampler
+	 * @see ActivitySampler
+	 */
+	public void setActivitySampler(ActivitySampler sampler);
+
+	/**
+	 * Obtain activity sampler associated with this tracker
+	 * 
+	 * @return activity sampler, null if all activities are traced
+	 * @see ActivitySampler
+	 */
+	public ActivitySampler getActivitySampler();
+
+	/**
+	 * Set retention policy used by activities created by this tracker from now on. When set, events
+	 * and snapshots tracked by an activity are buffered until it stops and are reported only if the policy
+	 * retains the activity. Setting the value to null reports all events as they are tracked.
+	 * Initial policy is configured by <code>tracking.retention</code> property.
+	 * 
+	 * @param policy retention policy
+	 * @see RetentionPolicy
+	 */
+	public void setRetentionPolicy(RetentionPolicy policy);
+
+	/**
+	 * Obtain retention policy associated with this tracker
+	 * 
+	 * @return retention policy, null if events are not buffered
+	 * @see RetentionPolicy
+	 */
+	public RetentionPolicy getRetentionPolicy();
+
+	/**
+	 * Set maximum number of events deferred by activities created by this tracker from now on.
+	 * When greater than zero, events tracked by an activity are deferred and logged as a batch when
+	 * the activity stops, or earlier when the given number of events is reached. Activities reported
+	 * before they are stopped are logged in the same batch as their remaining events.
+	 * Setting the value to 0 reports events as they are tracked.
+	 * Initial value is configured by <code>activity.batch.size</code> property.
+	 * 
+	 * @param size maximum number of deferred events per batch, 0 to disable batching
+	 * @see com.nastel.jkool.tnt4j.sink.BatchEventSink
+	 */
+	public void setActivityBatchSize(int size);
+
+	/**
+	 * Obtain maximum number of events deferred by activities created by this tracker
+	 * 
+	 * @return maximum number of deferred events per batch, 0 if batching is disabled
+	 */
+	public int getActivityBatchSize();
 	
 	/**
 	 * Create a new instance of tracking event that can be timed and reported.
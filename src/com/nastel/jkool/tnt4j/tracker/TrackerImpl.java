@@ -17,10 +17,9 @@ package com.nastel.jkool.tnt4j.tracker;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.EmptyStackException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.nastel.jkool.tnt4j.config.TrackerConfig;
 import com.nastel.jkool.tnt4j.core.KeyValueStats;
@@ -29,15 +28,20 @@ import com.nastel.jkool.tnt4j.core.OpType;
 import com.nastel.jkool.tnt4j.core.Operation;
 import com.nastel.jkool.tnt4j.core.PropertySnapshot;
 import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.sampling.ActivitySampler;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.selector.TrackingSelector;
+import com.nastel.jkool.tnt4j.sink.BatchEventSink;
 import com.nastel.jkool.tnt4j.sink.DefaultEventSinkFactory;
 import com.nastel.jkool.tnt4j.sink.EventSink;
 import com.nastel.jkool.tnt4j.sink.Handle;
 import com.nastel.jkool.tnt4j.sink.SinkError;
 import com.nastel.jkool.tnt4j.sink.SinkErrorListener;
 import com.nastel.jkool.tnt4j.source.Source;
-import com.nastel.jkool.tnt4j.utils.LightStack;
+import com.nastel.jkool.tnt4j.utils.StripedStats;
 import com.nastel.jkool.tnt4j.utils.Utils;
+import com.nastel.jkool.tnt4j.uuid.DefaultIdGenerator;
+import com.nastel.jkool.tnt4j.uuid.IdGenerator;
 
 
 /**
@@ -56,38 +60,78 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see OpLevel
  * @see Source
  * 
- * @version $Revision: 21 $
+ * @version $Revision: 33 $
  * 
  */
 public class TrackerImpl implements Tracker, SinkErrorListener {	
 	private static EventSink logger = DefaultEventSinkFactory.defaultEventSink(TrackerImpl.class);
-	private static ThreadLocal<LightStack<TrackingActivity>> ACTIVITY_STACK = new ThreadLocal<LightStack<TrackingActivity>>();
 	
 	public static final NullActivity NULL_ACTIVITY = new NullActivity();	
 	public static final NullEvent NULL_EVENT = new NullEvent();	
+
+	public static final String ACTIVITY_TIMING_KEY = "activity.timing";
+	public static final String ACTIVITY_BATCH_SIZE_KEY = "activity.batch.size";
 	
 	private EventSink eventSink;
 	private TrackerConfig tConfig;
 	private TrackingSelector selector;
+	private IdGenerator idGenerator;
+	private volatile ActivityTiming timing;
+	private volatile ActivitySampler sampler;
+	private volatile RetentionPolicy retention;
+	private volatile int batchSize;
 	private TrackingFilter filter;
 	private volatile boolean openFlag = false;
-	private AtomicLong activityCount = new AtomicLong(0); 
-	private AtomicLong eventCount = new AtomicLong(0); 
-	private AtomicLong msgCount = new AtomicLong(0); 
-	private AtomicLong snapCount = new AtomicLong(0); 
-	private AtomicLong errorCount = new AtomicLong(0); 
-	private AtomicLong pushCount = new AtomicLong(0); 
-	private AtomicLong popCount = new AtomicLong(0); 
-	private AtomicLong noopCount = new AtomicLong(0); 
-	private AtomicLong overheadNanos = new AtomicLong(0); 
+
+	// counter indexes into tracker statistics
+	private static final int ACTIVITY_COUNT = 0;
+	private static final int EVENT_COUNT = 1;
+	private static final int MSG_COUNT = 2;
+	private static final int SNAP_COUNT = 3;
+	private static final int ERROR_COUNT = 4;
+	private static final int PUSH_COUNT = 5;
+	private static final int POP_COUNT = 6;
+	private static final int NOOP_COUNT = 7;
+	private static final int OVERHEAD_NANOS = 8;
+	private static final int ASYNC_STOP_COUNT = 9;
+	private static final int UNSAMPLED_COUNT = 10;
+	private static final int RETAINED_COUNT = 11;
+	private static final int DISCARDED_COUNT = 12;
+	private StripedStats counters = new StripedStats(KEY_ACTIVITY_COUNT, KEY_EVENT_COUNT, KEY_MSG_COUNT,
+	        KEY_SNAPSHOT_COUNT, KEY_ERROR_COUNT, KEY_ACTIVITIES_STARTED, KEY_ACTIVITIES_STOPPED, KEY_NOOP_COUNT,
+	        KEY_OVERHEAD_NANOS, KEY_ACTIVITIES_STOPPED_ASYNC, KEY_UNSAMPLED_COUNT,
+	        KEY_RETAINED_COUNT, KEY_DISCARDED_COUNT);
 	
 	protected TrackerImpl(TrackerConfig config) {
 		tConfig = config;
 		selector = tConfig.getTrackingSelector();
+		idGenerator = tConfig.getIdGenerator() != null? tConfig.getIdGenerator(): DefaultIdGenerator.getInstance();
+		timing = initActivityTiming(tConfig.getProperties().getProperty(ACTIVITY_TIMING_KEY));
+		sampler = tConfig.getActivitySampler();
+		retention = tConfig.getRetentionPolicy();
+		batchSize = initBatchSize(tConfig.getProperties().getProperty(ACTIVITY_BATCH_SIZE_KEY));
 		eventSink = tConfig.getEventSink();
 		open();
 	}
 
+	private static ActivityTiming initActivityTiming(String mode) {
+		try {
+			return mode != null? ActivityTiming.forName(mode): ActivityTiming.FULL;
+		} catch (IllegalArgumentException e) {
+			logger.log(OpLevel.ERROR, "Invalid {0}={1}, using {2}", ACTIVITY_TIMING_KEY, mode, ActivityTiming.FULL);
+			return ActivityTiming.FULL;
+		}
+	}
+
+	private static int initBatchSize(String size) {
+		try {
+			return size != null? Math.max(0, Integer.parseInt(size.trim())): 0;
+		} catch (NumberFormatException e) {
+			logger.log(OpLevel.ERROR, "Invalid {0}={1}, batching disabled", ACTIVITY_BATCH_SIZE_KEY, size);
+			return 0;
+		}
+	}
+
 	private void openIOHandle(Handle handle) {
 		try {
 			handle.open();
@@ -153,11 +197,16 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 			}
 		} finally {
 			if (!activity.isStopped()) {
-				activity.stop();
+				activity.stopForReport();
 			}
-			eventSink.log(activity);	
-			snapCount.addAndGet(activity.getSnapshotCount());
-			activityCount.incrementAndGet();
+			List<TrackingEvent> batch = activity.drainBatch();
+			if (batch != null) {
+				logBatch(activity, batch);
+			} else {
+				eventSink.log(activity);	
+			}
+			counters.add(SNAP_COUNT, activity.getSnapshotCount());
+			counters.increment(ACTIVITY_COUNT);
 		}
 	}
 
@@ -171,8 +220,49 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 				event.stop();
 			}
 			eventSink.log(event);						
-			eventCount.incrementAndGet();
+			counters.increment(EVENT_COUNT);
+		}
+	}
+
+	/**
+	 * Log a batch of events deferred by an activity, optionally followed by the activity. The batch is logged
+	 * in a single call if event sink implements <code>BatchEventSink</code>. Events are released once logged.
+	 * 
+	 * @param activity tracking activity reported with the batch, null to log events only
+	 * @param events list of deferred events
+	 */
+	private void logBatch(TrackingActivity activity, List<TrackingEvent> events) {
+		try {
+			if (eventSink instanceof BatchEventSink) {
+				((BatchEventSink) eventSink).log(activity, events);
+			} else {
+				for (TrackingEvent event : events) {
+					eventSink.log(event);
+				}
+				if (activity != null) {
+					eventSink.log(activity);
+				}
+			}
+			counters.add(EVENT_COUNT, events.size());
+		} finally {
+			for (TrackingEvent event : events) {
+				event.release();
+			}
+		}
+	}
+
+	/**
+	 * Determine if current activity was dropped by an activity sampler, in which case
+	 * all child activities and events are dropped as well.
+	 * 
+	 * @return true if current activity was not sampled, false otherwise
+	 */
+	private boolean isUnsampled() {
+		if (currentContext(null).getActivity() instanceof UnsampledActivity) {
+			counters.increment(UNSAMPLED_COUNT);
+			return true;
 		}
+		return false;
 	}
 
 	private boolean isTrackingEnabled(OpLevel level, Object...args) {
@@ -182,56 +272,126 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 
 	/**
 	 * Push an instance of <code>TrackingActivity</code> on top of the stack.
-	 * Invoke this when activity starts. The stack is maintained per thread in
-	 * thread local.
+	 * Invoke this when activity starts. The stack is maintained per thread as
+	 * an immutable <code>ActivityContext</code> chain.
 	 * 
 	 * @return current tracker instance
+	 * @see ActivityContext
 	 */
 	protected Tracker push(TrackingActivity item) {
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if (stack == null) {
-			stack = new LightStack<TrackingActivity>();
-			ACTIVITY_STACK.set(stack);
-		}
+		ActivityContext ctx = currentContext(null);
 		// associate with the parent activity if there is any
-		TrackingActivity parent = stack.peek(null);
+		TrackingActivity parent = ctx.getActivity();
 		if (parent != null) {
+			// parent may be shared with other threads via captured context, add() is synchronized
 			parent.add(item);
 		}
-		stack.push(item);
-		pushCount.incrementAndGet();
+		ctx.push(item).attach();
+		counters.increment(PUSH_COUNT);
 		return this;
 	}
 	
 	/**
 	 * Pop an instance of <code>TrackingActivity</code> from the top the stack.
-	 * Invoke this method when activity stops. The stack is maintained per thread in
-	 * thread local.
+	 * Invoke this method when activity stops. The stack is maintained per thread as
+	 * an immutable <code>ActivityContext</code> chain. Activities which are not in the
+	 * current thread's context (stopped on a different thread than started) are
+	 * counted as asynchronous stops and leave current context unchanged. Activities
+	 * started on this thread, but already stopped on another thread are removed
+	 * from the top of current context.
 	 * 
 	 * @return current tracker instance
-	 * @exception EmptyStackException
-	 *                if this stack is empty.
 	 * @exception IllegalStateException
-	 *                if the top of the stack is not the item
+	 *                if the item is in current context but not on top of it
 	 */
 	protected Tracker pop(TrackingActivity item) {
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if (stack != null) {
-			stack.pop(item);
-			popCount.incrementAndGet();
+		ActivityContext ctx = currentContext(item);
+		if (ctx.getActivity() == item) {
+			ctx.getParent().attach();
+			counters.increment(POP_COUNT);
+			return this;
+		}
+		for (ActivityContext next = ctx.getParent(); next != null; next = next.getParent()) {
+			if (next.getActivity() == item) {
+				throw new IllegalStateException("Item not on stop of the stack, stack.size=" + ctx.size());
+			}
 		}
+		counters.increment(ASYNC_STOP_COUNT);
 		return this;
 	}
+
+	/**
+	 * Obtain activity context of the current thread, removing activities
+	 * at the top of the context, which were stopped on other threads.
+	 * 
+	 * @param item activity being stopped, which is never removed
+	 * @return current thread's activity context
+	 */
+	private ActivityContext currentContext(TrackingActivity item) {
+		ActivityContext ctx = ActivityContext.capture();
+		if (ctx.isEmpty() || ctx.getActivity() == item || !ctx.getActivity().isFinished()) {
+			return ctx;
+		}
+		ActivityContext live = ctx;
+		while (!live.isEmpty() && live.getActivity() != item && live.getActivity().isFinished()) {
+			live = live.getParent();
+		}
+		live.attach();
+		return live;
+	}
 	
 	/**
 	 * Add a given number of nanoseconds to overhead count.
 	 * Should be called by package members to account for tracking
 	 * overhead.
 	 * 
-	 * @return current tracker instance
+	 * @param delta number of nanoseconds to add
+	 * @return number of nanoseconds added
 	 */
 	protected long countOverheadNanos(long delta) {
-		return overheadNanos.addAndGet(delta);
+		counters.add(OVERHEAD_NANOS, delta);
+		return delta;
+	}
+	
+	/**
+	 * Count outcome of a retention decision made when an activity stops.
+	 * Should be called by package members applying a <code>RetentionPolicy</code>.
+	 * 
+	 * @param retained true if activity buffered items were reported
+	 * @param discarded number of buffered items discarded
+	 */
+	protected void countRetention(boolean retained, int discarded) {
+		if (retained) {
+			counters.increment(RETAINED_COUNT);
+		}
+		if (discarded > 0) {
+			counters.add(DISCARDED_COUNT, discarded);
+		}
+	}
+	
+	/**
+	 * Log a batch of events deferred by an activity.
+	 * Should be called by package members when a batch reaches its maximum size or the activity stops.
+	 * 
+	 * @param events list of deferred events, released once logged
+	 */
+	protected void tnt(List<TrackingEvent> events) {
+		long start = System.nanoTime();
+		try {
+			try {
+				if (!eventSink.isOpen()) {
+					eventSink.open();
+				}
+			} finally {
+				logBatch(null, events);
+			}
+		} catch (Throwable ex) {
+			logger.log(OpLevel.ERROR, 
+				"Failed to track event batch size={0}, tid={1}, event.sink={2}, source={3}",
+				events.size(), Thread.currentThread().getId(), eventSink, getSource(), ex);
+		} finally {
+			countOverheadNanos(System.nanoTime() - start);
+		}
 	}
 	
 	@Override
@@ -252,31 +412,15 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 
 	@Override
 	public  KeyValueStats getStats(Map<String, Object> stats) {
-		stats.put(KEY_ACTIVITY_COUNT, activityCount.get());
-		stats.put(KEY_EVENT_COUNT, eventCount.get());
-		stats.put(KEY_MSG_COUNT, msgCount.get());
-		stats.put(KEY_SNAPSHOT_COUNT, snapCount.get());
-		stats.put(KEY_ERROR_COUNT, errorCount.get());
-		stats.put(KEY_NOOP_COUNT, noopCount.get());
-		stats.put(KEY_ACTIVITIES_STARTED, pushCount.get());
-		stats.put(KEY_ACTIVITIES_STOPPED, popCount.get());
+		counters.getStats(stats);
 		stats.put(KEY_STACK_DEPTH, getStackSize());
-		stats.put(KEY_OVERHEAD_NANOS, overheadNanos.get());
 		if (eventSink != null) eventSink.getStats(stats);
 		return this;
 	}
 	
 	@Override
 	public void resetStats() {
-		activityCount.set(0);
-		eventCount.set(0);
-		msgCount.set(0);
-		snapCount.set(0);
-		errorCount.set(0);
-		pushCount.set(0);
-		popCount.set(0);
-		noopCount.set(0);
-		overheadNanos.set(0);
+		counters.resetStats();
 		if (eventSink != null) {
 			eventSink.resetStats();
 		}
@@ -284,34 +428,25 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 
 	@Override
 	public TrackingActivity getCurrentActivity() {
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if (stack != null) {
-			return stack.peek(NULL_ACTIVITY);
-		} else {
-			return NULL_ACTIVITY;
-		}
+		TrackingActivity current = currentContext(null).getActivity();
+		return current != null? current: NULL_ACTIVITY;
 	}
 	
 	@Override
 	public TrackingActivity getRootActivity() {
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if (stack != null) {
-			TrackingActivity root = stack.get(0);
-			return root != null? root: NULL_ACTIVITY;
-		} else {
-			return NULL_ACTIVITY;
-		}
+		TrackingActivity root = currentContext(null).getRoot();
+		return root != null? root: NULL_ACTIVITY;
 	}
 	
 	@Override
 	public StackTraceElement[] getStackTrace() {
 		StackTraceElement[] activityTrace = null;
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if ((stack != null) && (stack.size() > 0)) {
-			activityTrace = new StackTraceElement[stack.size()];
+		ActivityContext ctx = currentContext(null);
+		if (!ctx.isEmpty()) {
+			activityTrace = new StackTraceElement[ctx.size()];
 			int index = 0;
-			for (int i = (stack.size()-1); i >=0; i--) {
-				TrackingActivity act = stack.get(i);
+			for (; !ctx.isEmpty(); ctx = ctx.getParent()) {
+				TrackingActivity act = ctx.getActivity();
 				activityTrace[index++] = new StackTraceElement(act.getSource().getName(), 
 						act.getResolvedName(), 
 						act.getTrackingId() + ":" + act.getParentId(),
@@ -323,29 +458,58 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 	
 	@Override
 	public TrackingActivity[] getActivityStack() {
-		TrackingActivity[] activityTrace = null;
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		if ((stack != null) && (stack.size() > 0)) {
-			activityTrace = new TrackingActivity[stack.size()];
-			int index = 0;
-			for (int i = (stack.size()-1); i >=0; i--) {
-				TrackingActivity act = stack.get(i);
-				activityTrace[index++] = act;
-			}
-		}
-		return activityTrace;		
+		return currentContext(null).toArray();
 	}
 	
 	@Override
 	public int getStackSize() {
-		LightStack<TrackingActivity> stack = ACTIVITY_STACK.get();
-		return stack != null? stack.size(): 0;
+		return currentContext(null).size();
 	}
 	
 	@Override
 	public void setTrackingFilter(TrackingFilter tfilt) {
 		filter = tfilt;
 	}
+
+	@Override
+	public void setActivitySampler(ActivitySampler activitySampler) {
+		sampler = activitySampler;
+	}
+
+	@Override
+	public ActivitySampler getActivitySampler() {
+		return sampler;
+	}
+
+	@Override
+	public void setRetentionPolicy(RetentionPolicy policy) {
+		retention = policy;
+	}
+
+	@Override
+	public RetentionPolicy getRetentionPolicy() {
+		return retention;
+	}
+
+	@Override
+	public void setActivityTiming(ActivityTiming mode) {
+		timing = mode != null? mode: ActivityTiming.FULL;
+	}
+
+	@Override
+	public ActivityTiming getActivityTiming() {
+		return timing;
+	}
+
+	@Override
+	public void setActivityBatchSize(int size) {
+		batchSize = Math.max(0, size);
+	}
+
+	@Override
+	public int getActivityBatchSize() {
+		return batchSize;
+	}
 	
 	@Override
 	public Source getSource() {
@@ -370,17 +534,40 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 
 	@Override
 	public TrackingActivity newActivity(OpLevel level, String name) {
-		return newActivity(level, name, TrackingEvent.newUUID());
+		return createActivity(level, name, null);
 	}
 
 	@Override
 	public TrackingActivity newActivity(OpLevel level, String name, String signature) {
+		return createActivity(level, name, signature);
+	}
+
+	private TrackingActivity createActivity(OpLevel level, String name, String signature) {
 		long start = System.nanoTime();
 		try {
+			TrackingActivity parent = currentContext(null).getActivity();
+			if (parent instanceof UnsampledActivity) {
+				counters.increment(UNSAMPLED_COUNT);
+				return NULL_ACTIVITY;
+			}
+			if (signature == null) {
+				signature = idGenerator.newId();
+			}
 			if (!isTrackingEnabled(level, name, signature)) {
 				return NULL_ACTIVITY;
 			}
+			double rate = 0;
+			if (parent != null) {
+				rate = parent.getSampleRate();
+			} else if (sampler != null) {
+				rate = sampler.sample(this, level, name);
+				if (rate <= 0) {
+					counters.increment(UNSAMPLED_COUNT);
+					return new UnsampledActivity();
+				}
+			}
 			TrackingActivity luw = new TrackingActivity(level, name, signature, this);
+			luw.setSampleRate(rate);
 			luw.setPID(Utils.getVMPID());
 			if (tConfig.getActivityListener() != null) {
 				luw.addActivityListener(tConfig.getActivityListener());
@@ -398,7 +585,7 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 			if (!activity.isNoop()) {
 				reportActivity(activity); 
 			} else {
-				noopCount.incrementAndGet();
+				counters.increment(NOOP_COUNT);
 			}
 		}
 		catch (Throwable ex) {
@@ -417,13 +604,14 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 			if (!event.isNoop()) {
 				reportEvent(event);
 			} else {
-				noopCount.incrementAndGet();
+				counters.increment(NOOP_COUNT);
 			}
 		} catch (Throwable ex) {
 			logger.log(OpLevel.ERROR, 
 				"Failed to track event signature={0}, tid={1}, event.sink={2}, source={3}",
 				event.getTrackingId(), Thread.currentThread().getId(), eventSink, getSource(), ex);
 		} finally {
+			event.release();
 			countOverheadNanos(System.nanoTime() - start);
 		}
 	}
@@ -434,7 +622,7 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 		long start = System.nanoTime();
 		try {
 			eventSink.log(snapshot);
-			snapCount.incrementAndGet();
+			counters.increment(SNAP_COUNT);
 		} catch (Throwable ex) {
 			logger.log(OpLevel.ERROR, 
 				"Failed to track snapshot{0}", snapshot, ex);
@@ -447,10 +635,10 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 	public TrackingEvent newEvent(OpLevel severity, String opName, String correlator, String msg, Object... args) {
 		long start = System.nanoTime();
 		try {
-			if (!isTrackingEnabled(severity, opName, correlator, msg, args)) {
+			if (isUnsampled() || !isTrackingEnabled(severity, opName, correlator, msg, args)) {
 				return NULL_EVENT;
 			}
-			TrackingEvent event = new TrackingEvent(getSource(), severity, opName, correlator, msg, args);
+			TrackingEvent event = createEvent(severity, OpType.EVENT, opName, correlator, null, msg, args);
 			event.getOperation().setUser(tConfig.getSource().getUser());
 			return event;
 		} finally {
@@ -464,10 +652,10 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 	        String msg, Object... args) {
 		long start = System.nanoTime();
 		try {
-			if (!isTrackingEnabled(severity, opName, correlator, tag, msg, args)) {
+			if (isUnsampled() || !isTrackingEnabled(severity, opName, correlator, tag, msg, args)) {
 				return NULL_EVENT;
 			}
-			TrackingEvent event = new TrackingEvent(getSource(), severity, opType, opName, correlator, tag, msg, args);
+			TrackingEvent event = createEvent(severity, opType, opName, correlator, tag, msg, args);
 			event.getOperation().setUser(tConfig.getSource().getUser());
 			return event;
 		} finally {
@@ -479,10 +667,10 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 	public TrackingEvent newEvent(OpLevel severity, String opName, String correlator, byte[] msg, Object... args) {
 		long start = System.nanoTime();
 		try {
-			if (!isTrackingEnabled(severity, opName, correlator, msg, args)) {
+			if (isUnsampled() || !isTrackingEnabled(severity, opName, correlator, msg, args)) {
 				return NULL_EVENT;
 			}
-			TrackingEvent event = new TrackingEvent(getSource(), severity, opName, correlator, msg, args);
+			TrackingEvent event = createEvent(severity, OpType.EVENT, opName, correlator, null, msg, args);
 			event.getOperation().setUser(tConfig.getSource().getUser());
 			return event;
 		} finally {
@@ -496,10 +684,10 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 	        byte[] msg, Object... args) {
 		long start = System.nanoTime();
 		try {
-			if (!isTrackingEnabled(severity, opName, correlator, tag, msg, args)) {
+			if (isUnsampled() || !isTrackingEnabled(severity, opName, correlator, tag, msg, args)) {
 				return NULL_EVENT;
 			}
-			TrackingEvent event = new TrackingEvent(getSource(), severity, opType, opName, correlator, tag, msg, args);
+			TrackingEvent event = createEvent(severity, opType, opName, correlator, tag, msg, args);
 			event.getOperation().setUser(tConfig.getSource().getUser());
 			return event;
 		} finally {
@@ -507,6 +695,24 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 		}
 	}
 	
+	private TrackingEvent createEvent(OpLevel severity, OpType opType, String opName, String correlator, String tag,
+	        String msg, Object... args) {
+		if (TrackingEventPool.POOL_ENABLED) {
+			return TrackingEventPool.newEvent(idGenerator.newId(), getSource(), severity, opType, opName, correlator,
+			        tag, msg, args);
+		}
+		return new TrackingEvent(idGenerator.newId(), getSource(), severity, opType, opName, correlator, tag, msg, args);
+	}
+
+	private TrackingEvent createEvent(OpLevel severity, OpType opType, String opName, String correlator, String tag,
+	        byte[] msg, Object... args) {
+		if (TrackingEventPool.POOL_ENABLED) {
+			return TrackingEventPool.newEvent(idGenerator.newId(), getSource(), severity, opType, opName, correlator,
+			        tag, msg, args);
+		}
+		return new TrackingEvent(idGenerator.newId(), getSource(), severity, opType, opName, correlator, tag, msg, args);
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		try {
@@ -563,10 +769,10 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 
 	@Override
     public void sinkError(SinkError ev) {
-		errorCount.incrementAndGet();
+		counters.increment(ERROR_COUNT);
 		logger.log(OpLevel.ERROR, 
 				"Sink write error: count={4}, vm.name={0}, tid={1}, event.sink={2}, source={3}",
-				Utils.getVMName(), Thread.currentThread().getId(), eventSink, getSource(), errorCount.get(), ev.getCause());
+				Utils.getVMName(), Thread.currentThread().getId(), eventSink, getSource(), counters.get(ERROR_COUNT), ev.getCause());
 		resetEventSink();
 	}
 
@@ -575,7 +781,7 @@ public class TrackerImpl implements Tracker, SinkErrorListener {
 		long start = System.nanoTime();
 		try {
 			eventSink.log(getSource(), sev, msg, args);				
-			msgCount.incrementAndGet();
+			counters.increment(MSG_COUNT);
 		} finally {
 			countOverheadNanos(System.nanoTime() - start);
 		}
@@ -15,10 +15,10 @@
  */
 package com.nastel.jkool.tnt4j.tracker;
 
-import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.nastel.jkool.tnt4j.TrackingLogger;
@@ -33,6 +33,8 @@ import com.nastel.jkool.tnt4j.core.Operation;
 import com.nastel.jkool.tnt4j.core.Property;
 import com.nastel.jkool.tnt4j.core.PropertySnapshot;
 import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.core.Trackable;
+import com.nastel.jkool.tnt4j.sampling.RetentionPolicy;
 import com.nastel.jkool.tnt4j.utils.Useconds;
 import com.nastel.jkool.tnt4j.utils.Utils;
 
@@ -60,7 +62,7 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see TrackingEvent
  * @see TrackingLogger
  * 
- * @version $Revision: 9 $
+ * @version $Revision: 20 $
  */
 public class TrackingActivity extends Activity {
 	public static final String DEFAULT_SNAPSHOT_CATEGORY = "Java";
@@ -70,6 +72,8 @@ public class TrackingActivity extends Activity {
 	public static final String SNAPSHOT_ACTIVITY = "Activity";
 	public static final String SNAPSHOT_MEMORY = "Memory";
 	public static final String SNAPSHOT_THREAD = "Thread";
+	public static final String SNAPSHOT_SAMPLING = "Sampling";
+	public static final String SNAPSHOT_RETENTION = "Retention";
 
 	public static final String DEFAULT_PROPERTY_LOAD_AVG = "SystemLoadAvg";
 	public static final String DEFAULT_PROPERTY_CPU_TIME = "TotalCpuUsec";
@@ -96,14 +100,27 @@ public class TrackingActivity extends Activity {
 
 	public static final String DEFAULT_PROPERTY_TIME = "Time";
 	public static final String DEFAULT_PROPERTY_VALID = "isValid";
+	public static final String DEFAULT_PROPERTY_SAMPLE_RATE = "SampleRate";
+	public static final String DEFAULT_PROPERTY_RETAINED = "Retained";
+	public static final String DEFAULT_PROPERTY_BUFFERED_COUNT = "BufferedCount";
+	public static final String DEFAULT_PROPERTY_OVERFLOW_COUNT = "OverflowCount";
 
 	private boolean reportStarts = false;
 	private int startStopCount = 0;
+	private boolean stopHandled = false, deferFlush = false;
 	private long startCPUTime = 0, stopCPUTime = 0, startBlockTime = 0, stopBlockTime = 0, startWaitTime = 0,
 	        stopWaitTime = 0, startBlockCount = 0, stopBlockCount = 0, startWaitCount = 0, stopWaitCount = 0,
 	        overHeadTimeNano = 0, lastEventNanos = 0;
 	private ThreadMXBean tmbean = ManagementFactory.getThreadMXBean();
 	private ThreadInfo ownerThread = null;
+	private long ownerThreadId = -1;
+	private ActivityTiming timing = ActivityTiming.FULL;
+	private double sampleRate = 0;
+	private RetentionPolicy retention = null;
+	private ArrayList<Trackable> retentionBuffer = null;
+	private int overflowCount = 0;
+	private int batchSize = 0;
+	private ArrayList<TrackingEvent> batch = null;
 	private boolean appendProps = true, cpuTimingSupported = false, contTimingSupported = false, enableTiming = false;
 	private TrackerImpl tracker = null;
 
@@ -120,7 +137,19 @@ public class TrackingActivity extends Activity {
 	 * @see #setTrackingId(String)
 	 */
 	protected TrackingActivity(OpLevel level, String name) {
-		super(Utils.newUUID(), name);
+		this(Utils.newUUID(), level, name);
+	}
+
+	/**
+	 * Creates a logical application activity object with the specified tracking id.
+	 * 
+	 * @param id activity tracking id
+	 * @param level activity severity level
+	 * @param name
+	 *            activity name
+	 */
+	TrackingActivity(String id, OpLevel level, String name) {
+		super(id, name);
 		setSeverity(level);
 	}
 
@@ -171,6 +200,9 @@ public class TrackingActivity extends Activity {
 	}
 
 	private void initJavaTiming() {
+		timing = tracker.getActivityTiming();
+		retention = tracker.getRetentionPolicy();
+		batchSize = tracker.getActivityBatchSize();
 		cpuTimingSupported = tmbean.isThreadCpuTimeEnabled();
 		contTimingSupported = tmbean.isThreadContentionMonitoringEnabled();
 	}
@@ -181,30 +213,167 @@ public class TrackingActivity extends Activity {
 	}
 	
 	/**
-	 * Track and Trace given <code>TrackingEvent</code> instance correlated with current activity
+	 * Track and Trace given <code>TrackingEvent</code> instance correlated with current activity.
+	 * When a retention policy is set, it is buffered and reported only if this activity is retained
+	 * when it stops. When batching is enabled, it is deferred and logged as a batch when this activity stops,
+	 * or together with this activity when it is reported using <code>Tracker.tnt()</code> without being stopped.
 	 * 
+	 * @see RetentionPolicy
+	 * @see #setBatchSize(int)
 	 */
 	public void tnt(TrackingEvent event) {
 		if (isStopped()) {
 			throw new IllegalStateException("Activity already stopped: name=" + getName() + ", id=" + this.getTrackingId());
 		}
-		add(event);
 		lastEventNanos = System.nanoTime();
-		tracker.tnt(event);
+		if (retention != null) {
+			hold(event);
+			return;
+		}
+		add(event);
+		emit(event);
+	}
+
+	/**
+	 * Report a tracked event, or defer it until this activity stops when batching is enabled.
+	 * Deferred events are flushed early once the batch reaches its maximum size.
+	 * 
+	 * @param event tracking event
+	 */
+	private void emit(TrackingEvent event) {
+		if (batchSize <= 0 || event.isNoop()) {
+			tracker.tnt(event);
+			return;
+		}
+		if (!event.isStopped()) {
+			event.stop();
+		}
+		if (batch == null) {
+			batch = new ArrayList<TrackingEvent>(Math.min(16, batchSize));
+		}
+		batch.add(event);
+		if (batch.size() >= batchSize) {
+			flushBatch();
+		}
+	}
+
+	/**
+	 * Log events deferred by this activity as a single batch
+	 */
+	private void flushBatch() {
+		if (batch != null) {
+			tracker.tnt(drainBatch());
+		}
 	}
 
 	/**
-	 * Track and Trace given <code>Snapshot</code> instance correlated with current activity
+	 * Obtain and clear events deferred by this activity
 	 * 
+	 * @return list of deferred events, null if none
+	 */
+	List<TrackingEvent> drainBatch() {
+		List<TrackingEvent> pending = batch;
+		batch = null;
+		return pending;
+	}
+
+	/**
+	 * Stop this activity keeping deferred events, so that they can be logged together with
+	 * the activity by the tracker reporting it. Should be called by package members only.
+	 */
+	void stopForReport() {
+		deferFlush = true;
+		try {
+			stop();
+		} finally {
+			deferFlush = false;
+		}
+	}
+
+	/**
+	 * Track and Trace given <code>Snapshot</code> instance correlated with current activity.
+	 * When a retention policy is set, it is buffered and reported only if this activity is retained
+	 * when it stops.
+	 * 
+	 * @see RetentionPolicy
 	 */
 	public void tnt(Snapshot snapshot) {
 		if (isStopped()) {
 			throw new IllegalStateException("Activity already stopped: name=" + getName() + ", id=" + this.getTrackingId());
 		}
+		if (retention != null) {
+			hold(snapshot);
+			return;
+		}
 		add(snapshot);
 		tracker.tnt(snapshot);
 	}
 
+	/**
+	 * Buffer a tracked item until this activity stops and its retention is decided.
+	 * Events are stopped when buffered, so their timing is not extended to the activity stop.
+	 * 
+	 * @param item event or snapshot
+	 */
+	private void hold(Trackable item) {
+		if ((item instanceof TrackingEvent) && !((TrackingEvent) item).isStopped()) {
+			((TrackingEvent) item).stop();
+		}
+		if (retentionBuffer == null) {
+			retentionBuffer = new ArrayList<Trackable>(Math.min(8, Math.max(1, retention.getMaxBuffered())));
+		}
+		if (retentionBuffer.size() < retention.getMaxBuffered()) {
+			retentionBuffer.add(item);
+		} else {
+			overflowCount++;
+			if (item instanceof TrackingEvent) {
+				((TrackingEvent) item).release();
+			}
+		}
+	}
+
+	/**
+	 * Report or discard buffered items based on the retention policy and append
+	 * a retention summary snapshot
+	 * 
+	 * @return true if activity was retained, false otherwise
+	 */
+	private boolean applyRetention() {
+		boolean retained = retention.isRetained(this);
+		int buffered = retentionBuffer != null ? retentionBuffer.size() : 0;
+		for (int i = 0; i < buffered; i++) {
+			Trackable item = retentionBuffer.get(i);
+			if (retained) {
+				add(item);
+				if (item instanceof TrackingEvent) {
+					emit((TrackingEvent) item);
+				} else {
+					tracker.tnt((Snapshot) item);
+				}
+			} else if (item instanceof TrackingEvent) {
+				((TrackingEvent) item).release();
+			}
+		}
+		retentionBuffer = null;
+		PropertySnapshot summary = new PropertySnapshot(DEFAULT_SNAPSHOT_CATEGORY, SNAPSHOT_RETENTION, getSeverity());
+		summary.add(new Property(DEFAULT_PROPERTY_RETAINED, retained));
+		summary.add(new Property(DEFAULT_PROPERTY_BUFFERED_COUNT, buffered));
+		summary.add(new Property(DEFAULT_PROPERTY_OVERFLOW_COUNT, overflowCount));
+		this.add(summary);
+		tracker.countRetention(retained, (retained ? 0 : buffered) + overflowCount);
+		return retained;
+	}
+
+	/**
+	 * Obtain retention policy applied when this activity stops
+	 * 
+	 * @return retention policy, null if tracked items are reported immediately
+	 * @see RetentionPolicy
+	 */
+	public RetentionPolicy getRetentionPolicy() {
+		return retention;
+	}
+
 	/**
 	 * Track and Trace a given event and associate it with this activity
 	 * 
@@ -393,25 +562,79 @@ public class TrackingActivity extends Activity {
 	 * It is possible, but not recommended to use the same <code>TrackingActivity</code>
 	 * instance across multiple threads, where start/stop are run across thread boundaries.
 	 * 
-	 * @return thread owner info
+	 * @return thread owner info, null unless activity was started using <code>ActivityTiming.FULL</code>
 	 */	
 	public ThreadInfo getThreadInfo() {
 		return ownerThread;
 	}
+
+	/**
+	 * Set timing mode used when this activity starts and stops. Activities use the
+	 * timing mode of the tracker that created them by default. Must be set before the activity is started.
+	 * 
+	 * @param mode activity timing mode
+	 * @return this activity
+	 * @see ActivityTiming
+	 */
+	public TrackingActivity setTiming(ActivityTiming mode) {
+		timing = mode;
+		return this;
+	}
+
+	/**
+	 * Obtain timing mode used when this activity starts and stops.
+	 * 
+	 * @return activity timing mode
+	 * @see ActivityTiming
+	 */
+	public ActivityTiming getTiming() {
+		return timing;
+	}
+
+	/**
+	 * Set maximum number of events deferred by this activity. Events tracked by this activity
+	 * are logged as a batch when the activity stops, or earlier when the given number of events is reached,
+	 * so deferred events are logged even if the activity itself is never reported. When an activity is reported
+	 * using <code>Tracker.tnt()</code> before it is stopped, remaining events are logged in one batch together
+	 * with the activity.
+	 * Activities use the batch size of the tracker that created them by default.
+	 * 
+	 * @param size maximum number of deferred events per batch, 0 to report events as they are tracked
+	 * @return this activity
+	 * @see com.nastel.jkool.tnt4j.sink.BatchEventSink
+	 */
+	public TrackingActivity setBatchSize(int size) {
+		batchSize = Math.max(0, size);
+		return this;
+	}
+
+	/**
+	 * Obtain maximum number of events deferred by this activity
+	 * 
+	 * @return maximum number of deferred events per batch, 0 if batching is disabled
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
 	
 	private void initActivity() {
 		if (startStopCount == 0) {
 			long start = System.nanoTime();
-			ownerThread = tmbean.getThreadInfo(Thread.currentThread().getId());
+			ownerThreadId = Thread.currentThread().getId();
+			if (timing == ActivityTiming.FULL) {
+				ownerThread = tmbean.getThreadInfo(ownerThreadId);
+			}
 			startStopCount++;
 			tracker.push(this);
-			if (enableTiming) {
-				startCPUTime = cpuTimingSupported ? tmbean.getThreadCpuTime(ownerThread.getThreadId()) : 0;
-				startBlockCount = ownerThread.getBlockedCount();
-				startWaitCount = ownerThread.getWaitedCount();
-				if (contTimingSupported) {
-					startBlockTime = ownerThread.getBlockedTime();
-					startWaitTime = ownerThread.getWaitedTime();
+			if (enableTiming && timing != ActivityTiming.WALL) {
+				startCPUTime = cpuTimingSupported ? tmbean.getCurrentThreadCpuTime() : 0;
+				if (ownerThread != null) {
+					startBlockCount = ownerThread.getBlockedCount();
+					startWaitCount = ownerThread.getWaitedCount();
+					if (contTimingSupported) {
+						startBlockTime = ownerThread.getBlockedTime();
+						startWaitTime = ownerThread.getWaitedTime();
+					}
 				}
 			}
 			if (reportStarts) {
@@ -575,17 +798,30 @@ public class TrackingActivity extends Activity {
 		return this;
 	}
 
+	/**
+	 * Determine if this activity has finished timing and was removed from its activity context
+	 *
+	 * @return true if activity was started and stopped, false otherwise
+	 */
+	boolean isFinished() {
+		return startStopCount > 1;
+	}
+
 	private void finishTiming() {
 		if (startStopCount == 1) {
 			long start = System.nanoTime();
 			startStopCount++;
 			if (startCPUTime > 0) {
-				stopBlockCount = ownerThread.getBlockedCount();
-				stopWaitCount = ownerThread.getWaitedCount();
-				if (contTimingSupported) {
-					stopBlockTime = ownerThread.getBlockedTime();
-					stopWaitTime = ownerThread.getWaitedTime();
-					setWaitTime(((stopWaitTime - startWaitTime) + (stopBlockTime - startBlockTime)) * 1000);
+				ThreadInfo info = ownerThread != null ? tmbean.getThreadInfo(ownerThreadId) : null;
+				if (info != null) {
+					ownerThread = info;
+					stopBlockCount = ownerThread.getBlockedCount();
+					stopWaitCount = ownerThread.getWaitedCount();
+					if (contTimingSupported) {
+						stopBlockTime = ownerThread.getBlockedTime();
+						stopWaitTime = ownerThread.getWaitedTime();
+						setWaitTime(((stopWaitTime - startWaitTime) + (stopBlockTime - startBlockTime)) * 1000);
+					}
 				}
 				stopCPUTime = getCurrentCpuTimeNanos();
 			}
@@ -596,19 +832,63 @@ public class TrackingActivity extends Activity {
 		}
 	}
 
+	/**
+	 * Apply retention, flush deferred events and record sampling once, when activity is first stopped
+	 * (whether started or not). Default snapshot is appended only to activities which were started and stopped.
+	 */
 	private void finishActivity() {
-		if (appendProps && (startStopCount == 2)) {
+		if (stopHandled) {
+			return;
+		}
+		stopHandled = true;
+		boolean retained = retention != null ? applyRetention() : true;
+		if (!deferFlush) {
+			flushBatch();
+		}
+		if (sampleRate > 0) {
+			PropertySnapshot sampling = new PropertySnapshot(DEFAULT_SNAPSHOT_CATEGORY, SNAPSHOT_SAMPLING, getSeverity());
+			sampling.add(new Property(DEFAULT_PROPERTY_SAMPLE_RATE, sampleRate));
+			this.add(sampling);
+		}
+		if (startStopCount == 2) {
 			startStopCount++;
-			appendProperties();
+			if (appendProps && retained) {
+				appendProperties();
+			}
 		}
 	}
 
+	/**
+	 * Set rate at which this activity was sampled, inherited by child activities
+	 * 
+	 * @param rate sample rate in (0, 1], 0 if activity was not subject to sampling
+	 * @see com.nastel.jkool.tnt4j.sampling.ActivitySampler
+	 */
+	void setSampleRate(double rate) {
+		sampleRate = rate;
+	}
+
+	/**
+	 * Obtain rate at which this activity was sampled. Sample rate is recorded in a <code>Sampling</code>
+	 * snapshot when activity stops.
+	 * 
+	 * @return sample rate in (0, 1], 0 if activity was not subject to sampling
+	 * @see com.nastel.jkool.tnt4j.sampling.ActivitySampler
+	 */
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
 	/**
 	 * This method returns total CPU time in nanoseconds currently used by the current thread.
 	 * run this method only after activity is started.
 	 */
 	public long getCurrentCpuTimeNanos() {
-		return (cpuTimingSupported && (ownerThread != null)? tmbean.getThreadCpuTime(ownerThread.getThreadId()) : -1);
+		if (!cpuTimingSupported || ownerThreadId < 0 || timing == ActivityTiming.WALL) {
+			return -1;
+		}
+		return ownerThreadId == Thread.currentThread().getId() ? tmbean.getCurrentThreadCpuTime() : tmbean
+		        .getThreadCpuTime(ownerThreadId);
 	}
 
 	/**
@@ -658,54 +938,18 @@ public class TrackingActivity extends Activity {
 
 	/**
 	 * This method appends a default set of properties when activity timing stops. Developers should override this
-	 * method to add user defined set of properties. By default this method appends default set of properties defined by
-	 * <code>DEFAULT_PROPERTY_XXX</code> property values. Example:
+	 * method to add user defined set of properties. By default this method attaches the latest JVM wide sample taken by
+	 * <code>VMMetricsSampler</code> (CPU, thread, memory and GC snapshots shared with other activities, reported with
+	 * this activity's severity and parent id) and appends
+	 * an activity snapshot with per thread deltas defined by <code>DEFAULT_PROPERTY_XXX</code> property values. Example:
 	 * <code>TrackingActivity.DEFAULT_PROPERTY_CPU_TOTAL_TIME</code>.
+	 * 
+	 * @see VMMetricsSampler
 	 */
 	protected void appendProperties() {
 		long start = System.nanoTime();
-		PropertySnapshot cpu = new PropertySnapshot(DEFAULT_SNAPSHOT_CATEGORY, SNAPSHOT_CPU, getSeverity());
-		double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
-		if (load >= 0) {
-			cpu.add(new Property(DEFAULT_PROPERTY_LOAD_AVG, load));
-		}
-		if (cpuTimingSupported) {
-			cpu.add(DEFAULT_PROPERTY_COUNT, ManagementFactory.getOperatingSystemMXBean().getAvailableProcessors());
-			cpu.add(new Property(DEFAULT_PROPERTY_CPU_TIME, ((double) tmbean.getThreadCpuTime(ownerThread.getThreadId()) / 1000.0d)));
-			cpu.add(new Property(DEFAULT_PROPERTY_TOTAL_USER_TIME, ((double) tmbean.getThreadUserTime(ownerThread.getThreadId()) / 1000.0d)));
-		}
-		this.add(cpu);
-
-		PropertySnapshot thread = new PropertySnapshot(DEFAULT_SNAPSHOT_CATEGORY, SNAPSHOT_THREAD, getSeverity());
-		thread.add(new Property(DEFAULT_PROPERTY_COUNT, tmbean.getThreadCount()));
-		thread.add(new Property(DEFAULT_PROPERTY_DAEMON_COUNT, tmbean.getDaemonThreadCount()));
-		thread.add(new Property(DEFAULT_PROPERTY_STARTED_COUNT, tmbean.getTotalStartedThreadCount()));
-		thread.add(new Property(DEFAULT_PROPERTY_PEAK_COUNT, tmbean.getPeakThreadCount()));
-		thread.add(new Property(DEFAULT_PROPERTY_BLOCKED_COUNT, ownerThread.getBlockedCount()));
-		thread.add(new Property(DEFAULT_PROPERTY_WAITED_COUNT, ownerThread.getWaitedCount()));
-		if (contTimingSupported) {
-			thread.add(new Property(DEFAULT_PROPERTY_BLOCKED_TIME, ownerThread.getBlockedTime() * 1000));
-			thread.add(new Property(DEFAULT_PROPERTY_WAITED_TIME, ownerThread.getWaitedTime() * 1000));
-		}
-		this.add(thread);
-
-		PropertySnapshot mem = new PropertySnapshot(DEFAULT_SNAPSHOT_CATEGORY, SNAPSHOT_MEMORY, getSeverity());
-		long usedMem = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-		long memPct = (long) (((double) usedMem / (double) Runtime.getRuntime().totalMemory()) * 100.0d);
-		mem.add(new Property(DEFAULT_PROPERTY_MAX_BYTES, Runtime.getRuntime().maxMemory()));
-		mem.add(new Property(DEFAULT_PROPERTY_TOTAL_BYTES, Runtime.getRuntime().totalMemory()));
-		mem.add(new Property(DEFAULT_PROPERTY_FREE_BYTES, Runtime.getRuntime().freeMemory()));
-		mem.add(new Property(DEFAULT_PROPERTY_USED_BYTES, usedMem));
-		mem.add(new Property(DEFAULT_PROPERTY_USAGE, memPct));
-		this.add(mem);
-
-		List<GarbageCollectorMXBean> gcList = ManagementFactory.getGarbageCollectorMXBeans();
-		for (GarbageCollectorMXBean gc : gcList) {
-			PropertySnapshot gcSnap = new PropertySnapshot(SNAPSHOT_CATEGORY_GC, gc.getName(), getSeverity());
-			gcSnap.add(new Property(DEFAULT_PROPERTY_COUNT, gc.getCollectionCount()));
-			gcSnap.add(new Property(DEFAULT_PROPERTY_TIME, gc.getCollectionTime()));
-			gcSnap.add(new Property(DEFAULT_PROPERTY_VALID, gc.isValid()));
-			this.add(gcSnap);
+		for (Snapshot snap : VMMetricsSampler.getInstance().getSample()) {
+			this.add(new SharedSnapshot(snap, getSeverity()));
 		}
 
 		if (startCPUTime > 0) {
@@ -718,9 +962,11 @@ public class TrackingActivity extends Activity {
 				activity.add(new Property(DEFAULT_PROPERTY_SLACK_TIME, slackTime));
 				activity.add(new Property(DEFAULT_PROPERTY_WALL_TIME, (cpuUsec + getWaitTime())));
 			}
-			activity.add(new Property(DEFAULT_PROPERTY_BLOCKED_COUNT, (stopBlockCount - startBlockCount)));
-			activity.add(new Property(DEFAULT_PROPERTY_WAITED_COUNT, (stopWaitCount - startWaitCount)));
-			if (contTimingSupported) {
+			if (ownerThread != null) {
+				activity.add(new Property(DEFAULT_PROPERTY_BLOCKED_COUNT, (stopBlockCount - startBlockCount)));
+				activity.add(new Property(DEFAULT_PROPERTY_WAITED_COUNT, (stopWaitCount - startWaitCount)));
+			}
+			if (ownerThread != null && contTimingSupported) {
 				activity.add(new Property(DEFAULT_PROPERTY_BLOCKED_TIME, ((stopBlockTime - startBlockTime) * 1000)));
 				activity.add(new Property(DEFAULT_PROPERTY_WAITED_TIME, ((stopWaitTime - startWaitTime) * 1000)));
 			}
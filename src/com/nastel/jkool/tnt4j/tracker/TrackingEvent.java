@@ -15,6 +15,8 @@
  */
 package com.nastel.jkool.tnt4j.tracker;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 import com.nastel.jkool.tnt4j.core.Message;
 import com.nastel.jkool.tnt4j.core.OpCompCode;
 import com.nastel.jkool.tnt4j.core.OpLevel;
@@ -104,15 +106,24 @@ import com.nastel.jkool.tnt4j.utils.Utils;
  * @see OpCompCode
  * @see OpType
  *
- * @version $Revision: 7 $
+ * @version $Revision: 10 $
  *
  */
 public class TrackingEvent extends Message implements Trackable {
 
+	private static final AtomicIntegerFieldUpdater<TrackingEvent> REFS = AtomicIntegerFieldUpdater.newUpdater(
+	        TrackingEvent.class, "refs");
+
 	private Source	source;
 	private String	parent;
 	Operation operation;
 
+	// pooled event state, see TrackingEventPool
+	TrackingEventPool pool;
+	TrackingEvent nextFree;
+	private volatile int refs;
+	private Throwable releasedAt;
+
 	/**
 	 * Return string representation of this tracking event
 	 *
@@ -133,7 +144,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @return true if operation is a NOOP, false otherwise
 	 */
 	public boolean isNoop() {
-		return operation.isNoop();
+		return op().isNoop();
 	}
 
 	/**
@@ -142,7 +153,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @return true if operation was started, false otherwise
 	 */
 	public boolean isStarted() {
-		return operation.isStarted();
+		return op().isStarted();
 	}
 
 	/**
@@ -151,7 +162,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @return true if operation was stopped, false otherwise
 	 */
 	public boolean isStopped() {
-		return operation.isStopped();
+		return op().isStopped();
 	}
 
 	/**
@@ -227,15 +238,28 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpType
 	 */
 	protected TrackingEvent(Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, String msg, Object...args) {
-		super(newUUID(), msg, args);
+		this(newUUID(), src, severity, opType, opName, correlator, tag, msg, args);
+	}
+
+	/**
+	 * Create a new instance of tracking event that can be timed and reported.
+	 *
+	 * @param signature unique event signature
+	 * @param src event source
+	 * @param severity severity level
+	 * @param opType operation type
+	 * @param opName operation name associated with this event (tracking event name)
+	 * @param correlator associated with this event (could be unique or passed from a correlated activity)
+	 * @param tag associated with this event
+	 * @param msg text message associated with this event
+	 * @param args argument list passed along side the message
+	 * @see OpLevel
+	 * @see OpType
+	 */
+	protected TrackingEvent(String signature, Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, String msg, Object...args) {
+		super(signature, msg, args);
 		operation = new Operation(opName, opType);
-		operation.setSeverity(severity);
-		operation.setCorrelator(correlator);
-		operation.setResource(Utils.getVMName());
-		operation.setException(Utils.getThrowable(args));
-		setSource(src);
-		setLocation(src);
-		setTag(tag);
+		init(src, severity, correlator, tag, args);
 	}
 
 	/**
@@ -253,8 +277,31 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpType
 	 */
 	protected TrackingEvent(Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, byte[] msg, Object...args) {
-		super(newUUID(), msg, args);
+		this(newUUID(), src, severity, opType, opName, correlator, tag, msg, args);
+	}
+
+	/**
+	 * Create a new instance of tracking event that can be timed and reported.
+	 *
+	 * @param signature unique event signature
+	 * @param src event source
+	 * @param severity severity level
+	 * @param opType operation type
+	 * @param opName operation name associated with this event (tracking event name)
+	 * @param correlator associated with this event (could be unique or passed from a correlated activity)
+	 * @param tag associated with this event
+	 * @param msg binary message associated with this event
+	 * @param args argument list passed along side the message
+	 * @see OpLevel
+	 * @see OpType
+	 */
+	protected TrackingEvent(String signature, Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, byte[] msg, Object...args) {
+		super(signature, msg, args);
 		operation = new Operation(opName, opType);
+		init(src, severity, correlator, tag, args);
+	}
+
+	private void init(Source src, OpLevel severity, String correlator, String tag, Object...args) {
 		operation.setSeverity(severity);
 		operation.setCorrelator(correlator);
 		operation.setResource(Utils.getVMName());
@@ -264,6 +311,135 @@ public class TrackingEvent extends Message implements Trackable {
 		setTag(tag);
 	}
 
+	/**
+	 * Reinitialize a recycled pooled event, same as a newly created event
+	 *
+	 * @return this event
+	 */
+	TrackingEvent reuse(String signature, Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, String msg, Object...args) {
+		reset(signature, msg, args);
+		reuse(opType, opName);
+		init(src, severity, correlator, tag, args);
+		return this;
+	}
+
+	/**
+	 * Reinitialize a recycled pooled event, same as a newly created event
+	 *
+	 * @return this event
+	 */
+	TrackingEvent reuse(String signature, Source src, OpLevel severity, OpType opType, String opName, String correlator, String tag, byte[] msg, Object...args) {
+		reset(signature, msg, args);
+		reuse(opType, opName);
+		init(src, severity, correlator, tag, args);
+		return this;
+	}
+
+	/**
+	 * Associate a newly created event with a pool, which owns the event once released
+	 */
+	void setPool(TrackingEventPool owner) {
+		pool = owner;
+		refs = 1;
+	}
+
+	private void reuse(OpType opType, String opName) {
+		operation.reset(opName, opType);
+		parent = null;
+		releasedAt = null;
+		refs = 1;
+	}
+
+	/**
+	 * Determine if this event was obtained from a <code>TrackingEventPool</code>
+	 * and is recycled once released.
+	 *
+	 * @return true if event is pooled, false otherwise
+	 * @see TrackingEventPool
+	 */
+	public boolean isPooled() {
+		return pool != null;
+	}
+
+	/**
+	 * Determine if this pooled event has been released, in which case
+	 * it must no longer be used.
+	 *
+	 * @return true if pooled event has been released, false otherwise
+	 */
+	public boolean isReleased() {
+		return pool != null && refs <= 0;
+	}
+
+	/**
+	 * Retain this pooled event, so that it is not recycled until a matching
+	 * <code>release()</code> call. Components which hold on to a pooled event after
+	 * <code>Tracker.tnt()</code> returns (e.g. queue it for asynchronous logging) must retain it.
+	 * Has no effect for events which are not pooled.
+	 *
+	 * @return this event
+	 * @throws IllegalStateException if event has already been released
+	 */
+	public TrackingEvent retain() {
+		if (pool != null) {
+			int count;
+			do {
+				count = refs;
+				if (count <= 0) {
+					throw newReleasedException();
+				}
+			} while (!REFS.compareAndSet(this, count, count + 1));
+		}
+		return this;
+	}
+
+	/**
+	 * Release this pooled event. Event is recycled into its pool when the last
+	 * reference is released. <code>Tracker.tnt()</code> releases the reference
+	 * obtained when the event was created. Has no effect for events which are not pooled.
+	 *
+	 * @throws IllegalStateException if event has already been released
+	 */
+	public void release() {
+		if (pool != null) {
+			int count = REFS.decrementAndGet(this);
+			if (count == 0) {
+				if (TrackingEventPool.DEBUG) {
+					// quarantine released events so that any later use is detected
+					releasedAt = new Exception("Tracking event released by thread=" + Thread.currentThread().getName());
+				} else {
+					pool.recycle(this);
+				}
+			} else if (count < 0) {
+				throw newReleasedException();
+			}
+		}
+	}
+
+	private IllegalStateException newReleasedException() {
+		return new IllegalStateException("Tracking event already released: id=" + getTrackingId(), releasedAt);
+	}
+
+	/**
+	 * Check for use after release in pool debug mode
+	 *
+	 * @throws IllegalStateException if pooled event has already been released
+	 */
+	@Override
+	protected void _checkState() throws IllegalStateException {
+		if (TrackingEventPool.DEBUG && pool != null && refs <= 0) {
+			throw newReleasedException();
+		}
+	}
+
+	/**
+	 * Obtain operation, checking for use after release in pool debug mode
+	 */
+	private Operation op() {
+		_checkState();
+		return operation;
+	}
+
 	@Override
 	public void setParentId(Trackable parentObject) {
 		parent = parentObject.getTrackingId();
@@ -288,7 +464,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @throws IllegalArgumentException if correlator is too long
 	 */
 	public void setCorrelator(String cid) {
-		operation.setCorrelator(cid);
+		op().setCorrelator(cid);
 	}
 
 	/**
@@ -298,7 +474,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @return user-defined operation correlator
 	 */
 	public String getCorrelator() {
-		return operation.getCorrelator();
+		return op().getCorrelator();
 	}
 
 	/**
@@ -307,7 +483,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @return location string for tracking event
 	 */
 	public String getLocation() {
-		return operation.getLocation();
+		return op().getLocation();
 	}
 
 	/**
@@ -316,7 +492,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param location location string for tracking event
 	 */
 	public void setLocation(String location) {
-		operation.setLocation(location);
+		op().setLocation(location);
 	}
 
 	/**
@@ -325,7 +501,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param location location string for tracking event
 	 */
 	public void setLocation(Source location) {
-		operation.setLocation(location);
+		op().setLocation(location);
 	}
 
 	/**
@@ -334,7 +510,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param startTimeUsc start time of the tracking event (usec)
 	 */
 	public void start(long startTimeUsc) {
-		operation.start(startTimeUsc);
+		op().start(startTimeUsc);
 	}
 
 	/**
@@ -342,7 +518,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 *
 	 */
 	public void start() {
-		operation.start();
+		op().start();
 	}
 
 	/**
@@ -352,7 +528,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param time when operation started
 	 */
 	public void start(UsecTimestamp time) {
-		operation.start(time);
+		op().start(time);
 	}
 
 	/**
@@ -360,7 +536,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 *
 	 */
 	public void stop() {
-		operation.stop();
+		op().stop();
 	}
 
 	/**
@@ -370,7 +546,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param elapsedUsec elapsed time of the event in microseconds
 	 */
 	public void stop(UsecTimestamp time, long elapsedUsec) {
-		operation.stop(time, elapsedUsec);
+		op().stop(time, elapsedUsec);
 	}
 
 	/**
@@ -379,7 +555,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param elaspedTime elapsed time of this event in (usec)
 	 */
 	public void stop(long elaspedTime) {
-		operation.stop(Useconds.CURRENT.get(), elaspedTime);
+		op().stop(Useconds.CURRENT.get(), elaspedTime);
 	}
 
 	/**
@@ -389,7 +565,7 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param elapsedUsec elapsed time in (usec)
 	 */
 	public void stop(long endTimeUsec, long elapsedUsec) {
-		operation.stop(endTimeUsec, elapsedUsec);
+		op().stop(endTimeUsec, elapsedUsec);
 	}
 
 	/**
@@ -399,9 +575,9 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param opEx exception associated with this tracking event
 	 */
 	public void stop(Throwable opEx) {
-		operation.setException(opEx);
-		operation.stop();
-		operation.setCompCode(opEx != null? OpCompCode.WARNING: OpCompCode.SUCCESS);
+		op().setException(opEx);
+		op().stop();
+		op().setCompCode(opEx != null? OpCompCode.WARNING: OpCompCode.SUCCESS);
 	}
 
 	/**
@@ -412,9 +588,9 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @param elapsedUsec elapsed time in (usec)
 	 */
 	public void stop(Throwable opEx, long elapsedUsec) {
-		operation.setException(opEx);
-		operation.setCompCode(opEx != null? OpCompCode.WARNING: OpCompCode.SUCCESS);
-		operation.stop(Useconds.CURRENT.get(), elapsedUsec);
+		op().setException(opEx);
+		op().setCompCode(opEx != null? OpCompCode.WARNING: OpCompCode.SUCCESS);
+		op().stop(Useconds.CURRENT.get(), elapsedUsec);
 	}
 
 	/**
@@ -425,9 +601,9 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, int rcode) {
-		operation.stop();
-		operation.setCompCode(ccode);
-		operation.setReasonCode(rcode);
+		op().stop();
+		op().setCompCode(ccode);
+		op().setReasonCode(rcode);
 	}
 
 	/**
@@ -438,9 +614,9 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, Throwable opEx) {
-		operation.stop();
-		operation.setException(opEx);
-		operation.setCompCode(ccode);
+		op().stop();
+		op().setException(opEx);
+		op().setCompCode(ccode);
 	}
 
 	/**
@@ -452,10 +628,10 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, int rcode, Throwable opEx) {
-		operation.setException(opEx);
-		operation.setCompCode(ccode);
-		operation.setReasonCode(rcode);
-		operation.stop();
+		op().setException(opEx);
+		op().setCompCode(ccode);
+		op().setReasonCode(rcode);
+		op().stop();
 	}
 
 	/**
@@ -468,10 +644,10 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, int rcode, Throwable opEx, long endTimeUsec) {
-		operation.setException(opEx);
-		operation.setCompCode(ccode);
-		operation.setReasonCode(rcode);
-		operation.stop(endTimeUsec);
+		op().setException(opEx);
+		op().setCompCode(ccode);
+		op().setReasonCode(rcode);
+		op().stop(endTimeUsec);
 	}
 
 	/**
@@ -485,10 +661,10 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, int rcode, Throwable opEx, long endTimeUsec, long elpasedUsec) {
-		operation.setException(opEx);
-		operation.setCompCode(ccode);
-		operation.setReasonCode(rcode);
-		operation.stop(endTimeUsec, elpasedUsec);
+		op().setException(opEx);
+		op().setCompCode(ccode);
+		op().setReasonCode(rcode);
+		op().stop(endTimeUsec, elpasedUsec);
 	}
 
 	/**
@@ -502,10 +678,10 @@ public class TrackingEvent extends Message implements Trackable {
 	 * @see OpCompCode
 	 */
 	public void stop(OpCompCode ccode, int rcode, Throwable opEx, UsecTimestamp endTime, long elpasedUsec) {
-		operation.setException(opEx);
-		operation.setCompCode(ccode);
-		operation.setReasonCode(rcode);
-		operation.stop(endTime, elpasedUsec);
+		op().setException(opEx);
+		op().setCompCode(ccode);
+		op().setReasonCode(rcode);
+		op().stop(endTime, elpasedUsec);
 	}
 
 	/**
@@ -514,12 +690,12 @@ public class TrackingEvent extends Message implements Trackable {
 	 *@return operation handle associated with this event
 	 */
 	public Operation getOperation() {
-		return operation;
+		return op();
 	}
 
 	@Override
     public OpType getType() {
-	    return operation.getType();
+	    return op().getType();
     }
 
 	@Override
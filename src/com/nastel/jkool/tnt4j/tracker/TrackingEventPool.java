@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.OpType;
+import com.nastel.jkool.tnt4j.source.Source;
+
+/**
+ * <p>
+ * This class implements per thread pools of recyclable <code>TrackingEvent</code> instances, used by
+ * <code>Tracker.newEvent()</code> when enabled with <code>-Dtnt4j.tracking.event.pool=true</code>.
+ * Pooled events (together with their <code>Operation</code>, snapshot map and time stamps) are recycled
+ * once released: <code>Tracker.tnt()</code> releases the event after the event sink has consumed it, sinks which
+ * queue events for asynchronous logging (e.g. <code>BufferedEventSink</code>) retain them until logged.
+ * </p>
+ *
+ * <p>
+ * Applications must not use or hold on to a pooled event after passing it to <code>Tracker.tnt()</code>,
+ * and events must be reported only once. Events returned by other threads (e.g. logging threads)
+ * are handed back to the owner thread's pool through a lock free stack and reused by the owner. Events which
+ * are never released (e.g. dropped by a full queue) are simply garbage collected.
+ * </p>
+ *
+ * <p>
+ * Configuration system properties:
+ * <code>tnt4j.tracking.event.pool.size</code> - maximum number of pooled events per thread (default 64),
+ * <code>tnt4j.tracking.event.pool.debug</code> - when true released events are never recycled
+ * and any use after release, other than obtaining its tracking id, throws <code>IllegalStateException</code>
+ * with the releasing thread as cause.
+ * </p>
+ *
+ * @version $Revision: 3 $
+ *
+ * @see TrackingEvent#retain()
+ * @see TrackingEvent#release()
+ */
+public class TrackingEventPool {
+	public static final boolean POOL_ENABLED = Boolean.getBoolean("tnt4j.tracking.event.pool");
+	public static final int POOL_SIZE = Integer.getInteger("tnt4j.tracking.event.pool.size", 64);
+	public static final boolean DEBUG = Boolean.getBoolean("tnt4j.tracking.event.pool.debug");
+
+	private static final ThreadLocal<TrackingEventPool> POOLS = new ThreadLocal<TrackingEventPool>() {
+		@Override
+		protected TrackingEventPool initialValue() {
+			return new TrackingEventPool(POOL_SIZE);
+		}
+	};
+
+	private final Thread owner;
+	private final TrackingEvent[] free;
+	private int count = 0;
+	private final AtomicReference<TrackingEvent> returned = new AtomicReference<TrackingEvent>();
+
+	/**
+	 * Create a pool owned by the current thread
+	 *
+	 * @param size maximum number of pooled events
+	 */
+	TrackingEventPool(int size) {
+		owner = Thread.currentThread();
+		free = new TrackingEvent[size];
+	}
+
+	/**
+	 * Obtain event pool owned by the current thread
+	 *
+	 * @return event pool owned by the current thread
+	 */
+	public static TrackingEventPool getInstance() {
+		return POOLS.get();
+	}
+
+	/**
+	 * Obtain number of events available for reuse by the owner thread
+	 *
+	 * @return number of pooled events
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Obtain a pooled event from the current thread's pool, initialized same as a newly created event
+	 *
+	 * @param signature unique event signature
+	 * @param src event source
+	 * @param severity severity level
+	 * @param opType operation type
+	 * @param opName operation name associated with this event (tracking event name)
+	 * @param correlator associated with this event (could be unique or passed from a correlated activity)
+	 * @param tag associated with this event
+	 * @param msg text message associated with this event
+	 * @param args argument list passed along side the message
+	 * @return pooled tracking event
+	 */
+	static TrackingEvent newEvent(String signature, Source src, OpLevel severity, OpType opType, String opName,
+	        String correlator, String tag, String msg, Object... args) {
+		TrackingEventPool pool = POOLS.get();
+		TrackingEvent event = pool.borrow();
+		if (event != null) {
+			return event.reuse(signature, src, severity, opType, opName, correlator, tag, msg, args);
+		}
+		return pool.adopt(new TrackingEvent(signature, src, severity, opType, opName, correlator, tag, msg, args));
+	}
+
+	/**
+	 * Obtain a pooled event from the current thread's pool, initialized same as a newly created event
+	 *
+	 * @param signature unique event signature
+	 * @param src event source
+	 * @param severity severity level
+	 * @param opType operation type
+	 * @param opName operation name associated with this event (tracking event name)
+	 * @param correlator associated with this event (could be unique or passed from a correlated activity)
+	 * @param tag associated with this event
+	 * @param msg binary message associated with this event
+	 * @param args argument list passed along side the message
+	 * @return pooled tracking event
+	 */
+	static TrackingEvent newEvent(String signature, Source src, OpLevel severity, OpType opType, String opName,
+	        String correlator, String tag, byte[] msg, Object... args) {
+		TrackingEventPool pool = POOLS.get();
+		TrackingEvent event = pool.borrow();
+		if (event != null) {
+			return event.reuse(signature, src, severity, opType, opName, correlator, tag, msg, args);
+		}
+		return pool.adopt(new TrackingEvent(signature, src, severity, opType, opName, correlator, tag, msg, args));
+	}
+
+	private TrackingEvent adopt(TrackingEvent event) {
+		event.setPool(this);
+		return event;
+	}
+
+	private TrackingEvent borrow() {
+		if (count == 0) {
+			drain();
+		}
+		if (count > 0) {
+			TrackingEvent event = free[--count];
+			free[count] = null;
+			return event;
+		}
+		return null;
+	}
+
+	/**
+	 * Return a released event to this pool, may be called by any thread
+	 *
+	 * @param event released event
+	 */
+	void recycle(TrackingEvent event) {
+		if (Thread.currentThread() == owner) {
+			if (count < free.length) {
+				free[count++] = event;
+			}
+			return;
+		}
+		TrackingEvent head;
+		do {
+			head = returned.get();
+			event.nextFree = head;
+		} while (!returned.compareAndSet(head, event));
+	}
+
+	/**
+	 * Move events returned by other threads into the owner's free list,
+	 * events exceeding pool size are discarded
+	 */
+	private void drain() {
+		TrackingEvent event = returned.getAndSet(null);
+		while (event != null) {
+			TrackingEvent next = event.nextFree;
+			event.nextFree = null;
+			if (count < free.length) {
+				free[count++] = event;
+			}
+			event = next;
+		}
+	}
+}
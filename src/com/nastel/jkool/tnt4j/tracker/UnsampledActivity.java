@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+import com.nastel.jkool.tnt4j.core.ActivityStatus;
+import com.nastel.jkool.tnt4j.core.OpCompCode;
+import com.nastel.jkool.tnt4j.core.Operation;
+
+/**
+ * This class represents a NOOP activity returned by tracker when an <code>ActivitySampler</code>
+ * drops a root activity. Unlike <code>NullActivity</code>, it is placed on the current thread's
+ * <code>ActivityContext</code> when started, so child activities and events created while it is current
+ * inherit the sampling decision and are returned as NOOPs without consulting filters or samplers.
+ * One instance is created per dropped root activity, without generating a tracking id, and is never logged.
+ * Once stopped on any thread it is finished, so it is removed from the context of the thread which started it
+ * like any other activity stopped asynchronously.
+ *
+ * @see NullActivity
+ * @see com.nastel.jkool.tnt4j.sampling.ActivitySampler
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class UnsampledActivity extends NullActivity {
+	private volatile boolean stopped = false;
+
+	protected UnsampledActivity() {
+		super(Operation.NOOP);
+	}
+
+	@Override
+	boolean isFinished() {
+		return stopped;
+	}
+
+	private void enter() {
+		ActivityContext.capture().push(this).attach();
+	}
+
+	private void exit() {
+		stopped = true;
+		ActivityContext ctx = ActivityContext.capture();
+		if (ctx.getActivity() == this) {
+			ctx.getParent().attach();
+		}
+	}
+
+	@Override
+	public void start() {
+		enter();
+	}
+
+	@Override
+	public void start(long startTimeUsec) {
+		enter();
+	}
+
+	@Override
+	public void stop() {
+		exit();
+	}
+
+	@Override
+	public void stop(long elapsedUsec) {
+		exit();
+	}
+
+	@Override
+	public void stop(long stopTimeUsec, long elapsedUsec) {
+		exit();
+	}
+
+	@Override
+	public void stop(Throwable ex) {
+		exit();
+	}
+
+	@Override
+	public void stop(Throwable ex, long elapsedUsec) {
+		exit();
+	}
+
+	@Override
+	public void stop(ActivityStatus status, Throwable ex) {
+		exit();
+	}
+
+	@Override
+	public void stop(ActivityStatus status, Throwable ex, long elapsedUsec) {
+		exit();
+	}
+
+	@Override
+	public void stop(ActivityStatus status, OpCompCode ccode, Throwable ex) {
+		exit();
+	}
+
+	@Override
+	public void stop(ActivityStatus status, OpCompCode ccode, Throwable ex, long elapsedUsec) {
+		exit();
+	}
+}
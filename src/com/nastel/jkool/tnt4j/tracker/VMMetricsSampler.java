@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.tracker;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.nastel.jkool.tnt4j.core.OpLevel;
+import com.nastel.jkool.tnt4j.core.Property;
+import com.nastel.jkool.tnt4j.core.PropertySnapshot;
+import com.nastel.jkool.tnt4j.core.Snapshot;
+import com.nastel.jkool.tnt4j.sink.DefaultEventSinkFactory;
+import com.nastel.jkool.tnt4j.sink.EventSink;
+
+/**
+ * <p>
+ * This class samples JVM wide metrics (CPU load, thread counts, memory and garbage collectors) on a shared
+ * background thread and publishes the latest sample as an unmodifiable list of snapshots. Activities attach the
+ * latest sample when they stop instead of querying MXBeans each time, so the cost of collecting JVM metrics does not
+ * grow with the activity rate. Snapshots in a published sample are shared by many activities and must not be
+ * modified. Activities attach them through lightweight per activity views carrying the activity's severity and
+ * parent id.
+ * </p>
+ *
+ * <p>
+ * Sampling interval is set by <code>tnt4j.vm.metrics.interval.ms</code> java property (default 1000). When set to 0
+ * or less no background thread is started and every call to <code>getSample()</code> takes a new sample.
+ * </p>
+ *
+ * @see TrackingActivity#appendProperties()
+ *
+ * @version $Revision: 2 $
+ */
+public class VMMetricsSampler {
+	private static EventSink logger = DefaultEventSinkFactory.defaultEventSink(VMMetricsSampler.class);
+
+	public static final long INTERVAL_MS = Long.getLong("tnt4j.vm.metrics.interval.ms", 1000);
+
+	private static VMMetricsSampler instance;
+
+	private final OperatingSystemMXBean osbean = ManagementFactory.getOperatingSystemMXBean();
+	private final ThreadMXBean tmbean = ManagementFactory.getThreadMXBean();
+	private final List<GarbageCollectorMXBean> gcList = ManagementFactory.getGarbageCollectorMXBeans();
+	private final long interval;
+	private ScheduledExecutorService scheduler;
+	private volatile List<Snapshot> sample;
+
+	/**
+	 * Create a sampler with a given sampling interval
+	 *
+	 * @param intervalMs sampling interval in milliseconds, 0 or less to sample on every request
+	 */
+	protected VMMetricsSampler(long intervalMs) {
+		interval = intervalMs;
+		sample = takeSample();
+	}
+
+	/**
+	 * Obtain the shared sampler instance, background sampling starts on first call
+	 *
+	 * @return shared sampler instance
+	 */
+	public static synchronized VMMetricsSampler getInstance() {
+		if (instance == null) {
+			instance = new VMMetricsSampler(INTERVAL_MS);
+			instance.start();
+		}
+		return instance;
+	}
+
+	private void start() {
+		if (interval > 0) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new SamplerThreadFactory("VMMetricsSampler/sample"));
+			scheduler.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					refresh();
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Obtain sampling interval
+	 *
+	 * @return sampling interval in milliseconds, 0 or less if sampled on every request
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Obtain the latest sample of JVM wide metrics
+	 *
+	 * @return unmodifiable list of snapshots, which must not be modified
+	 */
+	public List<Snapshot> getSample() {
+		return interval > 0 ? sample : takeSample();
+	}
+
+	/**
+	 * Take a new sample and publish it as the latest sample
+	 *
+	 * @return newly published sample
+	 */
+	public List<Snapshot> refresh() {
+		try {
+			sample = takeSample();
+		} catch (Throwable e) {
+			logger.log(OpLevel.ERROR, "Failed to sample JVM metrics, tid={0}", Thread.currentThread().getId(), e);
+		}
+		return sample;
+	}
+
+	private List<Snapshot> takeSample() {
+		List<Snapshot> snaps = new ArrayList<Snapshot>(3 + gcList.size());
+		String category = TrackingActivity.DEFAULT_SNAPSHOT_CATEGORY;
+		PropertySnapshot cpu = new PropertySnapshot(category, TrackingActivity.SNAPSHOT_CPU, OpLevel.INFO);
+		double load = osbean.getSystemLoadAverage();
+		if (load >= 0) {
+			cpu.add(new Property(TrackingActivity.DEFAULT_PROPERTY_LOAD_AVG, load));
+		}
+		cpu.add(TrackingActivity.DEFAULT_PROPERTY_COUNT, osbean.getAvailableProcessors());
+		snaps.add(cpu);
+
+		PropertySnapshot thread = new PropertySnapshot(category, TrackingActivity.SNAPSHOT_THREAD, OpLevel.INFO);
+		thread.add(new Property(TrackingActivity.DEFAULT_PROPERTY_COUNT, tmbean.getThreadCount()));
+		thread.add(new Property(TrackingActivity.DEFAULT_PROPERTY_DAEMON_COUNT, tmbean.getDaemonThreadCount()));
+		thread.add(new Property(TrackingActivity.DEFAULT_PROPERTY_STARTED_COUNT, tmbean.getTotalStartedThreadCount()));
+		thread.add(new Property(TrackingActivity.DEFAULT_PROPERTY_PEAK_COUNT, tmbean.getPeakThreadCount()));
+		snaps.add(thread);
+
+		Runtime runtime = Runtime.getRuntime();
+		long totalMem = runtime.totalMemory(), freeMem = runtime.freeMemory();
+		long usedMem = totalMem - freeMem;
+		PropertySnapshot mem = new PropertySnapshot(category, TrackingActivity.SNAPSHOT_MEMORY, OpLevel.INFO);
+		mem.add(new Property(TrackingActivity.DEFAULT_PROPERTY_MAX_BYTES, runtime.maxMemory()));
+		mem.add(new Property(TrackingActivity.DEFAULT_PROPERTY_TOTAL_BYTES, totalMem));
+		mem.add(new Property(TrackingActivity.DEFAULT_PROPERTY_FREE_BYTES, freeMem));
+		mem.add(new Property(TrackingActivity.DEFAULT_PROPERTY_USED_BYTES, usedMem));
+		long memPct = (long) (((double) usedMem / (double) totalMem) * 100.0d);
+		mem.add(new Property(TrackingActivity.DEFAULT_PROPERTY_USAGE, memPct));
+		snaps.add(mem);
+
+		for (GarbageCollectorMXBean gc : gcList) {
+			PropertySnapshot gcSnap = new PropertySnapshot(TrackingActivity.SNAPSHOT_CATEGORY_GC, gc.getName(), OpLevel.INFO);
+			gcSnap.add(new Property(TrackingActivity.DEFAULT_PROPERTY_COUNT, gc.getCollectionCount()));
+			gcSnap.add(new Property(TrackingActivity.DEFAULT_PROPERTY_TIME, gc.getCollectionTime()));
+			gcSnap.add(new Property(TrackingActivity.DEFAULT_PROPERTY_VALID, gc.isValid()));
+			snaps.add(gcSnap);
+		}
+		return Collections.unmodifiableList(snaps);
+	}
+}
+
+class SamplerThreadFactory implements ThreadFactory {
+	int count = 0;
+	String prefix;
+
+	SamplerThreadFactory(String pfix) {
+		prefix = pfix;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread task = new Thread(r, prefix + "-" + count++);
+		task.setDaemon(true);
+		return task;
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>
+ * This class implements a map optimized for a small number of entries. Up to <code>ARRAY_LIMIT</code>
+ * entries are kept in an exactly grown array of key/value pairs and looked up by linear search,
+ * larger maps are kept in a <code>HashMap</code>. Nothing is allocated until the first entry is added,
+ * and <code>clear()</code> retains the allocated storage for reuse. Iteration order is insertion order
+ * until the map is converted into a hash table. This class is not thread safe.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see CompactSet
+ */
+public class CompactMap<K, V> extends AbstractMap<K, V> {
+	public static final int ARRAY_LIMIT = 8;
+
+	private Object[] table;
+	private int size;
+	private HashMap<K, V> hash;
+	private Set<Map.Entry<K, V>> entries;
+
+	@Override
+	public int size() {
+		return hash != null ? hash.size() : size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return hash != null ? hash.containsKey(key) : indexOf(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		if (hash != null) {
+			return hash.get(key);
+		}
+		int index = indexOf(key);
+		return index >= 0 ? (V) table[index + 1] : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value) {
+		if (hash != null) {
+			return hash.put(key, value);
+		}
+		int index = indexOf(key);
+		if (index >= 0) {
+			V old = (V) table[index + 1];
+			table[index + 1] = value;
+			return old;
+		}
+		if (size == ARRAY_LIMIT) {
+			hash = new HashMap<K, V>(ARRAY_LIMIT * 4);
+			for (int i = 0; i < size * 2; i += 2) {
+				hash.put((K) table[i], (V) table[i + 1]);
+			}
+			clearTable();
+			return hash.put(key, value);
+		}
+		if (table == null) {
+			table = new Object[2];
+		} else if (table.length == size * 2) {
+			Object[] grown = new Object[table.length * 2];
+			System.arraycopy(table, 0, grown, 0, table.length);
+			table = grown;
+		}
+		table[size * 2] = key;
+		table[size * 2 + 1] = value;
+		size++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		if (hash != null) {
+			return hash.remove(key);
+		}
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		V old = (V) table[index + 1];
+		removeAt(index);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		hash = null;
+		clearTable();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entries == null) {
+			entries = new EntrySet();
+		}
+		return entries;
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < size * 2; i += 2) {
+			Object k = table[i];
+			if (k == key || (key != null && key.equals(k))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int last = (size - 1) * 2;
+		System.arraycopy(table, index + 2, table, index, last - index);
+		table[last] = null;
+		table[last + 1] = null;
+		size--;
+	}
+
+	private void clearTable() {
+		for (int i = 0; i < size * 2; i++) {
+			table[i] = null;
+		}
+		size = 0;
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		@Override
+		public int size() {
+			return CompactMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			CompactMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return hash != null ? hash.entrySet().iterator() : new ArrayIterator();
+		}
+	}
+
+	private class ArrayIterator implements Iterator<Map.Entry<K, V>> {
+		int next = 0, last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return next < size * 2;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			next += 2;
+			return new ArrayEntry(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+	}
+
+	private class ArrayEntry implements Map.Entry<K, V> {
+		final int index;
+		final K key;
+		V value;
+
+		@SuppressWarnings("unchecked")
+		ArrayEntry(int index) {
+			this.index = index;
+			this.key = (K) table[index];
+			this.value = (V) table[index + 1];
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			V old = this.value;
+			this.value = value;
+			if (hash == null && index < size * 2 && table[index] == key) {
+				table[index + 1] = value;
+			} else {
+				put(key, value);
+			}
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) obj;
+			Object k = getKey(), v = getValue();
+			return (k == null ? e.getKey() == null : k.equals(e.getKey()))
+			        && (v == null ? e.getValue() == null : v.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object k = getKey(), v = getValue();
+			return (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * This class implements a set optimized for a small number of elements. Up to <code>ARRAY_LIMIT</code>
+ * elements are kept in an exactly grown array and looked up by linear search, larger sets are kept in a
+ * <code>HashSet</code>. Nothing is allocated until the first element is added, and <code>clear()</code>
+ * retains the allocated storage for reuse. Iteration order is insertion order until the set is converted
+ * into a hash table. This class is not thread safe.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see CompactMap
+ */
+public class CompactSet<E> extends AbstractSet<E> {
+	public static final int ARRAY_LIMIT = 8;
+
+	private Object[] table;
+	private int size;
+	private HashSet<E> hash;
+
+	@Override
+	public int size() {
+		return hash != null ? hash.size() : size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return hash != null ? hash.contains(obj) : indexOf(obj) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean add(E obj) {
+		if (hash != null) {
+			return hash.add(obj);
+		}
+		if (indexOf(obj) >= 0) {
+			return false;
+		}
+		if (size == ARRAY_LIMIT) {
+			hash = new HashSet<E>(ARRAY_LIMIT * 4);
+			for (int i = 0; i < size; i++) {
+				hash.add((E) table[i]);
+			}
+			clearTable();
+			return hash.add(obj);
+		}
+		if (table == null) {
+			table = new Object[1];
+		} else if (table.length == size) {
+			Object[] grown = new Object[table.length * 2];
+			System.arraycopy(table, 0, grown, 0, table.length);
+			table = grown;
+		}
+		table[size++] = obj;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		if (hash != null) {
+			return hash.remove(obj);
+		}
+		int index = indexOf(obj);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		hash = null;
+		clearTable();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return hash != null ? hash.iterator() : new ArrayIterator();
+	}
+
+	private int indexOf(Object obj) {
+		for (int i = 0; i < size; i++) {
+			Object e = table[i];
+			if (e == obj || (obj != null && obj.equals(e))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		System.arraycopy(table, index + 1, table, index, size - index - 1);
+		table[--size] = null;
+	}
+
+	private void clearTable() {
+		for (int i = 0; i < size; i++) {
+			table[i] = null;
+		}
+		size = 0;
+	}
+
+	private class ArrayIterator implements Iterator<E> {
+		int next = 0, last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return (E) table[last];
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+	}
+}
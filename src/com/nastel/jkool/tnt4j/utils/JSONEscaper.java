@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * This class implements JSON string escaping with output identical to
+ * <code>StringEscapeUtils.escapeJson()</code>: quotes, back and forward slashes are escaped with a backslash,
+ * <code>\b \n \t \f \r</code> use short escapes and all other control and non ASCII characters are escaped as
+ * 4 digit hexadecimal unicode escapes. Strings are scanned first and returned or appended unchanged when nothing needs
+ * escaping, otherwise unescaped runs are appended in bulk straight into the output.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ */
+public class JSONEscaper {
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	private static final char[] SHORT_ESCAPES = new char[128];
+
+	static {
+		SHORT_ESCAPES['"'] = '"';
+		SHORT_ESCAPES['\\'] = '\\';
+		SHORT_ESCAPES['/'] = '/';
+		SHORT_ESCAPES['\b'] = 'b';
+		SHORT_ESCAPES['\n'] = 'n';
+		SHORT_ESCAPES['\t'] = 't';
+		SHORT_ESCAPES['\f'] = 'f';
+		SHORT_ESCAPES['\r'] = 'r';
+	}
+
+	/**
+	 * Determine if a given character must be escaped
+	 *
+	 * @param ch character
+	 * @return true if character must be escaped, false otherwise
+	 */
+	public static boolean needsEscape(char ch) {
+		return ch < 32 || ch > 0x7f || ch == '"' || ch == '\\' || ch == '/';
+	}
+
+	/**
+	 * Find first character that must be escaped starting at a given index
+	 *
+	 * @param str string to scan
+	 * @param from index to start from
+	 * @return index of the first character to be escaped, -1 if none
+	 */
+	public static int indexOfEscape(CharSequence str, int from) {
+		for (int i = from, len = str.length(); i < len; i++) {
+			if (needsEscape(str.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Escape a given string
+	 *
+	 * @param str string to escape
+	 * @return escaped string, or <code>str</code> itself if nothing needs escaping
+	 */
+	public static String escape(String str) {
+		int first = indexOfEscape(str, 0);
+		if (first < 0) {
+			return str;
+		}
+		return escape(str, first, new StringBuilder(str.length() + 16)).toString();
+	}
+
+	/**
+	 * Escape a given string and append it to a given <code>StringBuilder</code>
+	 *
+	 * @param str string to escape
+	 * @param out string builder to append to
+	 * @return string builder passed as argument
+	 */
+	public static StringBuilder escape(CharSequence str, StringBuilder out) {
+		return escape(str, 0, out);
+	}
+
+	/**
+	 * Escape a given string and append it to a given <code>Appendable</code>
+	 *
+	 * @param str string to escape
+	 * @param out appendable to append to
+	 * @throws IOException if appending fails
+	 */
+	public static void escape(CharSequence str, Appendable out) throws IOException {
+		appendEscaped(str, 0, out);
+	}
+
+	private static StringBuilder escape(CharSequence str, int from, StringBuilder out) {
+		try {
+			appendEscaped(str, from, out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out;
+	}
+
+	/**
+	 * Append string escaping all characters, first character to be escaped is at or after <code>from</code>
+	 */
+	private static void appendEscaped(CharSequence str, int from, Appendable out) throws IOException {
+		int len = str.length(), start = 0;
+		for (int i = indexOfEscape(str, from); i >= 0; i = indexOfEscape(str, start)) {
+			if (i > start) {
+				out.append(str, start, i);
+			}
+			escapeChar(str.charAt(i), out);
+			start = i + 1;
+		}
+		if (start < len) {
+			out.append(str, start, len);
+		}
+	}
+
+	/**
+	 * Append escape sequence for a given character, which must need escaping
+	 *
+	 * @param ch character to escape
+	 * @param out appendable to append to
+	 * @throws IOException if appending fails
+	 * @see #needsEscape(char)
+	 */
+	public static void escapeChar(char ch, Appendable out) throws IOException {
+		char code = ch < 128 ? SHORT_ESCAPES[ch] : 0;
+		if (code != 0) {
+			out.append('\\').append(code);
+		} else {
+			out.append('\\').append('u').append(HEX[(ch >> 12) & 0xF]).append(HEX[(ch >> 8) & 0xF])
+			        .append(HEX[(ch >> 4) & 0xF]).append(HEX[ch & 0xF]);
+		}
+	}
+}
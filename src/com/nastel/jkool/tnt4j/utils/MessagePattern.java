@@ -0,0 +1,381 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.lang.reflect.Method;
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * This class implements a compiled, thread safe message pattern. Patterns are parsed once into literal
+ * text and argument slots and cached (bounded) by pattern text. Simple <code>{n}</code> placeholders and
+ * quoting are handled exactly as <code>MessageFormat</code> does, including rendering of numbers and dates
+ * using the default format locale. Patterns with typed sub-formats (e.g. <code>{0,number,#.##}</code>,
+ * <code>{1,choice,...}</code>) or invalid syntax fall back to <code>MessageFormat.format()</code>.
+ * </p>
+ * <p>
+ * Optionally (anchor mode) SLF4J style <code>{}</code> anchors are supported in addition to
+ * <code>{n}</code>: each anchor is replaced by the next argument in order using <code>String.valueOf()</code>,
+ * unmatched anchors are left as <code>{}</code>. Anchor mode is enabled for <code>Utils.format()</code>
+ * by setting <code>tnt4j.format.anchors=true</code> system property.
+ * </p>
+ *
+ * @version $Revision: 2 $
+ *
+ * @see MessageFormat
+ * @see Utils#format(String, Object...)
+ */
+public class MessagePattern {
+	public static final int MAX_PATTERNS = 4096;
+	public static final int MAX_PATTERN_LENGTH = 1024;
+	public static final boolean DEFAULT_ANCHORS = Boolean.getBoolean("tnt4j.format.anchors");
+
+	private static final int MAX_ARG_DIGITS = 4;
+	private static final ConcurrentMap<String, MessagePattern> patterns = new ConcurrentHashMap<String, MessagePattern>();
+	private static final ConcurrentMap<String, MessagePattern> anchorPatterns = new ConcurrentHashMap<String, MessagePattern>();
+	private static final ThreadLocal<LocaleFormats> localeFormats = new ThreadLocal<LocaleFormats>();
+
+	// Locale.getDefault(Locale.Category.FORMAT) used by MessageFormat, resolved reflectively (Java 7+)
+	private static final Method getDefaultLocale;
+	private static final Object formatCategory;
+
+	static {
+		Method method = null;
+		Object category = null;
+		try {
+			Class<?> categoryClass = Class.forName("java.util.Locale$Category");
+			category = categoryClass.getField("FORMAT").get(null);
+			method = Locale.class.getMethod("getDefault", categoryClass);
+		} catch (Throwable ex) {
+			// pre Java 7, no locale categories
+		}
+		getDefaultLocale = method;
+		formatCategory = category;
+	}
+
+	private final String pattern;
+	private final boolean anchors;
+	private String[] text;
+	private int[] slots;
+	private int textLength;
+	private boolean compiled;
+
+	/**
+	 * Create and compile a message pattern
+	 *
+	 * @param pattern message pattern
+	 * @param anchors true to support SLF4J style <code>{}</code> anchors, false otherwise
+	 */
+	public MessagePattern(String pattern, boolean anchors) {
+		this.pattern = pattern;
+		this.anchors = anchors;
+		compile();
+	}
+
+	/**
+	 * Obtain a shared compiled pattern using default anchor mode
+	 *
+	 * @param pattern message pattern
+	 * @return compiled message pattern
+	 */
+	public static MessagePattern getInstance(String pattern) {
+		return getInstance(pattern, DEFAULT_ANCHORS);
+	}
+
+	/**
+	 * Obtain a shared compiled pattern. Patterns longer than <code>MAX_PATTERN_LENGTH</code>
+	 * are compiled but not cached.
+	 *
+	 * @param pattern message pattern
+	 * @param anchors true to support SLF4J style <code>{}</code> anchors, false otherwise
+	 * @return compiled message pattern
+	 */
+	public static MessagePattern getInstance(String pattern, boolean anchors) {
+		ConcurrentMap<String, MessagePattern> cache = anchors ? anchorPatterns : patterns;
+		MessagePattern mp = cache.get(pattern);
+		if (mp == null) {
+			mp = new MessagePattern(pattern, anchors);
+			if (pattern.length() <= MAX_PATTERN_LENGTH) {
+				if (cache.size() >= MAX_PATTERNS) {
+					cache.clear();
+				}
+				cache.putIfAbsent(pattern, mp);
+			}
+		}
+		return mp;
+	}
+
+	/**
+	 * Format a given pattern and a list of arguments using a shared compiled pattern
+	 *
+	 * @param pattern message pattern
+	 * @param args list of arguments
+	 * @return formatted string
+	 */
+	public static String format(String pattern, Object... args) {
+		if (pattern.indexOf('{') < 0 && pattern.indexOf('\'') < 0) {
+			return pattern;
+		}
+		return getInstance(pattern).format(args);
+	}
+
+	/**
+	 * Obtain pattern text
+	 *
+	 * @return message pattern
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Determine if this pattern is compiled or uses <code>MessageFormat</code>
+	 *
+	 * @return true if compiled, false if formatted by <code>MessageFormat</code>
+	 */
+	public boolean isCompiled() {
+		return compiled;
+	}
+
+	/**
+	 * Format this pattern with a list of arguments
+	 *
+	 * @param args list of arguments
+	 * @return formatted string
+	 */
+	public String format(Object... args) {
+		if (!compiled) {
+			return MessageFormat.format(pattern, args);
+		}
+		if (slots.length == 0) {
+			return text[0];
+		}
+		return format(new StringBuilder(textLength + 16 * slots.length), args).toString();
+	}
+
+	/**
+	 * Format this pattern with a list of arguments and append to a given builder
+	 *
+	 * @param out string builder to append to
+	 * @param args list of arguments
+	 * @return string builder passed as argument
+	 */
+	public StringBuilder format(StringBuilder out, Object... args) {
+		if (!compiled) {
+			return out.append(MessageFormat.format(pattern, args));
+		}
+		int argc = args != null ? args.length : 0;
+		for (int i = 0; i < slots.length; i++) {
+			out.append(text[i]);
+			int slot = slots[i];
+			if (slot >= 0) {
+				if (slot < argc) {
+					appendArg(out, args[slot]);
+				} else {
+					out.append('{').append(slot).append('}');
+				}
+			} else {
+				int index = -slot - 1;
+				if (index < argc) {
+					appendAnchor(out, args[index]);
+				} else {
+					out.append("{}");
+				}
+			}
+		}
+		return out.append(text[slots.length]);
+	}
+
+	/**
+	 * Render argument the same way <code>MessageFormat</code> does for a plain <code>{n}</code>
+	 */
+	private static void appendArg(StringBuilder out, Object arg) {
+		if (arg == null) {
+			out.append("null");
+		} else if (arg instanceof String) {
+			out.append((String) arg);
+		} else if (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) {
+			getLocaleFormats().appendInteger(out, ((Number) arg).longValue());
+		} else if (arg instanceof Number) {
+			out.append(getLocaleFormats().numberFormat().format(arg));
+		} else if (arg instanceof Date) {
+			out.append(getLocaleFormats().dateFormat().format(arg));
+		} else {
+			out.append(String.valueOf(arg.toString()));
+		}
+	}
+
+	/**
+	 * Render argument the same way SLF4J does for <code>{}</code>
+	 */
+	private static void appendAnchor(StringBuilder out, Object arg) {
+		if (arg instanceof Object[]) {
+			out.append(Arrays.deepToString((Object[]) arg));
+		} else {
+			out.append(String.valueOf(arg));
+		}
+	}
+
+	/**
+	 * Obtain default locale used for formatting, same as <code>MessageFormat</code>:
+	 * <code>Locale.getDefault(Locale.Category.FORMAT)</code> when available, <code>Locale.getDefault()</code> otherwise.
+	 *
+	 * @return default locale for formatting
+	 */
+	private static Locale getFormatLocale() {
+		if (getDefaultLocale != null) {
+			try {
+				return (Locale) getDefaultLocale.invoke(null, formatCategory);
+			} catch (Throwable ex) {
+				// fall back to default locale
+			}
+		}
+		return Locale.getDefault();
+	}
+
+	private static LocaleFormats getLocaleFormats() {
+		Locale locale = getFormatLocale();
+		LocaleFormats formats = localeFormats.get();
+		if (formats == null || !formats.locale.equals(locale)) {
+			formats = new LocaleFormats(locale);
+			localeFormats.set(formats);
+		}
+		return formats;
+	}
+
+	/**
+	 * Parse pattern into literal text and argument slots following <code>MessageFormat</code>
+	 * quoting rules. Leaves pattern uncompiled on anything other than plain <code>{n}</code>
+	 * or <code>{}</code> (anchor mode only).
+	 */
+	private void compile() {
+		String[] parts = new String[8];
+		int[] args = new int[8];
+		int count = 0, anchor = 0, len = pattern.length();
+		boolean inQuote = false;
+		StringBuilder segment = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			char ch = pattern.charAt(i);
+			if (ch == '\'') {
+				if (i + 1 < len && pattern.charAt(i + 1) == '\'') {
+					segment.append(ch);
+					i++;
+				} else {
+					inQuote = !inQuote;
+				}
+			} else if (ch == '{' && !inQuote) {
+				int end = i + 1;
+				while (end < len && end - i - 1 <= MAX_ARG_DIGITS && isDigit(pattern.charAt(end))) {
+					end++;
+				}
+				int digits = end - i - 1;
+				if (end >= len || pattern.charAt(end) != '}' || digits > MAX_ARG_DIGITS || (digits == 0 && !anchors)) {
+					return;
+				}
+				if (count == args.length) {
+					parts = Arrays.copyOf(parts, count * 2);
+					args = Arrays.copyOf(args, count * 2);
+				}
+				parts[count] = segment.toString();
+				args[count++] = digits > 0 ? Integer.parseInt(pattern.substring(i + 1, end)) : -(++anchor);
+				textLength += segment.length();
+				segment.setLength(0);
+				i = end;
+			} else {
+				segment.append(ch);
+			}
+		}
+		parts[count] = segment.toString();
+		textLength += segment.length();
+		text = Arrays.copyOf(parts, count + 1);
+		slots = Arrays.copyOf(args, count);
+		compiled = true;
+	}
+
+	private static boolean isDigit(char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{pattern: " + pattern + ", anchors: " + anchors + ", compiled: "
+		        + compiled + "}";
+	}
+}
+
+class LocaleFormats {
+	final Locale locale;
+	private NumberFormat numberFormat;
+	private DateFormat dateFormat;
+	private char groupSeparator;
+	private boolean fastIntegers;
+
+	LocaleFormats(Locale loc) {
+		locale = loc;
+		NumberFormat nf = numberFormat();
+		if (nf instanceof DecimalFormat) {
+			DecimalFormat df = (DecimalFormat) nf;
+			DecimalFormatSymbols symbols = df.getDecimalFormatSymbols();
+			groupSeparator = symbols.getGroupingSeparator();
+			fastIntegers = df.isGroupingUsed() && df.getGroupingSize() == 3 && symbols.getZeroDigit() == '0'
+			        && "-".equals(df.getNegativePrefix()) && df.getNegativeSuffix().length() == 0
+			        && df.getPositivePrefix().length() == 0 && df.getPositiveSuffix().length() == 0;
+		}
+	}
+
+	/**
+	 * Append integer digits with grouping, same as default locale <code>NumberFormat</code>
+	 */
+	void appendInteger(StringBuilder out, long value) {
+		if (!fastIntegers || value == Long.MIN_VALUE) {
+			out.append(numberFormat().format(value));
+			return;
+		}
+		if (value < 0) {
+			out.append('-');
+			value = -value;
+		}
+		String digits = Long.toString(value);
+		int len = digits.length(), lead = len % 3 == 0 ? 3 : len % 3;
+		out.append(digits, 0, lead);
+		for (int i = lead; i < len; i += 3) {
+			out.append(groupSeparator).append(digits, i, i + 3);
+		}
+	}
+
+	NumberFormat numberFormat() {
+		if (numberFormat == null) {
+			numberFormat = NumberFormat.getInstance(locale);
+		}
+		return numberFormat;
+	}
+
+	DateFormat dateFormat() {
+		if (dateFormat == null) {
+			dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+		}
+		return dateFormat;
+	}
+}
@@ -48,6 +48,16 @@ public class SizeOf {
 		SizeOf.inst = inst;
 	}
 
+	/**
+	 * Determine if object sizing is available. Sizing is only available
+	 * when this class is specified in the "javaagent:" command line option.
+	 * 
+	 * @return true if object sizes can be computed, false otherwise
+	 */
+	public static boolean isAvailable() {
+		return inst != null;
+	}
+
 	/**
 	 * Calls java.lang.instrument.Instrument.getObjectSize(object).
 	 * 
@@ -88,8 +98,36 @@ public class SizeOf {
 		return deepSizeOf(objectToSize, doneObj, doneFields, 0);
 	}
 
+	/**
+	 * Compute an implementation-specific approximation of the amount of storage consumed by objectToSize and by all the
+	 * objects reachable from it, excluding instances of given shared types (e.g. sources, sinks) and everything
+	 * reachable only through them.
+	 * 
+	 * @param objectToSize
+	 * @param sharedTypes types whose instances are considered shared and not counted
+	 * @return an implementation-specific approximation of the amount of storage consumed by objectToSize and by all the
+	 *         objects reachable from it
+	 */
+	public static long deepSizeOf(Object objectToSize, Class<?>... sharedTypes) {
+		Map<Object, Long> doneObj = new IdentityHashMap<Object, Long>();
+		return deepSizeOf(objectToSize, doneObj, null, 0, sharedTypes);
+	}
+
 	private static long deepSizeOf(Object o, Map<Object, Long> doneObj, Map<Field, Long> doneFields, int depth) {
-		if (o == null || (inst == null)) {
+		return deepSizeOf(o, doneObj, doneFields, depth, (Class<?>[]) null);
+	}
+
+	private static boolean isShared(Object o, Class<?>[] sharedTypes) {
+		if (sharedTypes != null) {
+			for (Class<?> type : sharedTypes) {
+				if (type.isInstance(o)) return true;
+			}
+		}
+		return false;
+	}
+
+	private static long deepSizeOf(Object o, Map<Object, Long> doneObj, Map<Field, Long> doneFields, int depth, Class<?>[] sharedTypes) {
+		if (o == null || (inst == null) || (depth > 0 && isShared(o, sharedTypes))) {
 			return 0;
 		}
 
@@ -105,7 +143,7 @@ public class SizeOf {
 		if (clazz.isArray()) {
 			int length = Array.getLength(o);
 			for (int i = 0; i < length; i++) {
-				size += deepSizeOf(Array.get(o, i), doneObj, doneFields, depth + 1);
+				size += deepSizeOf(Array.get(o, i), doneObj, doneFields, depth + 1, sharedTypes);
 			}
 		} else {
 			do {
@@ -119,7 +157,7 @@ public class SizeOf {
 						throw new RuntimeException(e);
 					} 
 					if (isComputable(field)) {
-						long fSize = deepSizeOf(obj, doneObj, doneFields, depth + 1);
+						long fSize = deepSizeOf(obj, doneObj, doneFields, depth + 1, sharedTypes);
 						size += fSize;
 						if (doneFields != null) doneFields.put(field, fSize);
 					}
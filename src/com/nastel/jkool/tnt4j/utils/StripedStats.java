@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.nastel.jkool.tnt4j.core.KeyValueStats;
+
+/**
+ * <p>
+ * This class implements a set of named counters updated by many threads with little
+ * contention, in the spirit of <code>java.util.concurrent.atomic.LongAdder</code>. Counters are
+ * first updated with CAS on a single shared row. Once a CAS fails due to contention, the set inflates
+ * into striped rows: each thread updates counters in a row selected by its thread id, rows are padded
+ * so that different stripes never share a cache line. Reading a counter sums all rows and is only weakly
+ * consistent with concurrent updates, which is sufficient for statistics.
+ * </p>
+ * <p>
+ * Counters are identified by index in the key array given at construction and reported under
+ * these keys by <code>getStats()</code>.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see KeyValueStats
+ */
+public class StripedStats implements KeyValueStats {
+	private static final int LINE_LONGS = 8; // longs per 64 byte cache line
+	private static final int MAX_STRIPES = nextPowerOf2(Runtime.getRuntime().availableProcessors());
+
+	private final String[] keys;
+	private final int rowSize;
+	private final AtomicLongArray base;
+	private volatile AtomicLongArray cells;
+
+	/**
+	 * Create a set of counters reported under given keys
+	 *
+	 * @param keys counter keys, counters are addressed by key index
+	 */
+	public StripedStats(String... keys) {
+		this.keys = keys.clone();
+		this.base = new AtomicLongArray(keys.length);
+		this.rowSize = ((keys.length + LINE_LONGS - 1) / LINE_LONGS) * LINE_LONGS + LINE_LONGS;
+	}
+
+	/**
+	 * Obtain number of counters
+	 *
+	 * @return number of counters
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Obtain key of a given counter
+	 *
+	 * @param index counter index
+	 * @return counter key
+	 */
+	public String getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * Increment a given counter by one
+	 *
+	 * @param index counter index
+	 */
+	public void increment(int index) {
+		add(index, 1);
+	}
+
+	/**
+	 * Add a given value to a given counter
+	 *
+	 * @param index counter index
+	 * @param delta value to add
+	 */
+	public void add(int index, long delta) {
+		AtomicLongArray rows = cells;
+		if (rows == null) {
+			long value = base.get(index);
+			if (base.compareAndSet(index, value, value + delta)) {
+				return;
+			}
+			rows = inflate();
+		}
+		rows.getAndAdd(stripe() * rowSize + LINE_LONGS + index, delta);
+	}
+
+	/**
+	 * Obtain current value of a given counter
+	 *
+	 * @param index counter index
+	 * @return sum of all updates since creation or last reset
+	 */
+	public long get(int index) {
+		long sum = base.get(index);
+		AtomicLongArray rows = cells;
+		if (rows != null) {
+			for (int i = LINE_LONGS + index; i < rows.length(); i += rowSize) {
+				sum += rows.get(i);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Obtain current values of all counters in a single pass
+	 *
+	 * @return array of counter values indexed by counter index
+	 */
+	public long[] snapshot() {
+		long[] values = new long[keys.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = base.get(i);
+		}
+		AtomicLongArray rows = cells;
+		if (rows != null) {
+			for (int row = 0; row < MAX_STRIPES * rowSize; row += rowSize) {
+				for (int i = 0; i < values.length; i++) {
+					values[i] += rows.get(row + LINE_LONGS + i);
+				}
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<String, Object>();
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		long[] values = snapshot();
+		for (int i = 0; i < values.length; i++) {
+			stats.put(keys[i], values[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Reset all counters to 0. Updates concurrent with reset may be lost.
+	 *
+	 */
+	@Override
+	public void resetStats() {
+		for (int i = 0; i < base.length(); i++) {
+			base.set(i, 0);
+		}
+		AtomicLongArray rows = cells;
+		if (rows != null) {
+			for (int i = 0; i < rows.length(); i++) {
+				rows.set(i, 0);
+			}
+		}
+	}
+
+	private synchronized AtomicLongArray inflate() {
+		if (cells == null) {
+			cells = new AtomicLongArray(MAX_STRIPES * rowSize + LINE_LONGS);
+		}
+		return cells;
+	}
+
+	private static int stripe() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (MAX_STRIPES - 1);
+	}
+
+	private static int nextPowerOf2(int value) {
+		int n = Integer.highestOneBit(Math.max(1, value));
+		return n < value ? n << 1 : n;
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * This class implements a thread safe timestamp formatter with microsecond precision based on a
+ * <code>SimpleDateFormat</code> pattern. The pattern is precompiled into the text before
+ * and after fractional seconds (first run of <code>S</code>), which is formatted once per second
+ * and cached, while milliseconds and microseconds are appended as digits on every call.
+ * Output is identical to <code>SimpleDateFormat</code> with the fractional seconds
+ * replaced by <code>SSS</code> followed by 3 microsecond digits
+ * (e.g. "2014-03-06 10:15:01.123456 UTC" for the default pattern).
+ * Patterns with quoted text or multiple fractional second fields are formatted with a new
+ * <code>SimpleDateFormat</code> on every call. Time zones are identified by ID.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see SimpleDateFormat
+ */
+public class TimestampFormatter {
+	public static final String DEFAULT_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS z";
+	public static final int MAX_FORMATTERS = 256;
+
+	private static final int CACHED_SECONDS = 8;
+	private static final ConcurrentMap<String, ConcurrentMap<String, TimestampFormatter>> formatters = new ConcurrentHashMap<String, ConcurrentMap<String, TimestampFormatter>>();
+
+	private String pattern;
+	private TimeZone timeZone;
+	private boolean compiled, fraction;
+	private SimpleDateFormat prefixFormat, suffixFormat;
+	private final SecondEntry[] seconds = new SecondEntry[CACHED_SECONDS];
+
+	/**
+	 * Create a timestamp formatter for a given pattern and time zone
+	 *
+	 * @param pattern <code>SimpleDateFormat</code> pattern, default pattern if null
+	 * @param tz time zone
+	 */
+	public TimestampFormatter(String pattern, TimeZone tz) {
+		this.pattern = pattern != null ? pattern : DEFAULT_PATTERN;
+		this.timeZone = (TimeZone) tz.clone();
+		compile();
+	}
+
+	/**
+	 * Obtain a shared formatter for the default pattern and a given time zone
+	 *
+	 * @param tz time zone
+	 * @return shared timestamp formatter
+	 */
+	public static TimestampFormatter getInstance(TimeZone tz) {
+		return getInstance(DEFAULT_PATTERN, tz);
+	}
+
+	/**
+	 * Obtain a shared formatter for a given pattern and time zone
+	 *
+	 * @param pattern <code>SimpleDateFormat</code> pattern, default pattern if null
+	 * @param tz time zone
+	 * @return shared timestamp formatter
+	 */
+	public static TimestampFormatter getInstance(String pattern, TimeZone tz) {
+		pattern = pattern != null ? pattern : DEFAULT_PATTERN;
+		ConcurrentMap<String, TimestampFormatter> zones = formatters.get(pattern);
+		if (zones == null) {
+			if (formatters.size() >= MAX_FORMATTERS) {
+				formatters.clear();
+			}
+			zones = new ConcurrentHashMap<String, TimestampFormatter>();
+			ConcurrentMap<String, TimestampFormatter> prev = formatters.putIfAbsent(pattern, zones);
+			zones = prev != null ? prev : zones;
+		}
+		TimestampFormatter formatter = zones.get(tz.getID());
+		if (formatter == null) {
+			if (zones.size() >= MAX_FORMATTERS) {
+				zones.clear();
+			}
+			formatter = new TimestampFormatter(pattern, tz);
+			TimestampFormatter prev = zones.putIfAbsent(tz.getID(), formatter);
+			formatter = prev != null ? prev : formatter;
+		}
+		return formatter;
+	}
+
+	/**
+	 * Obtain formatter pattern
+	 *
+	 * @return <code>SimpleDateFormat</code> pattern
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Obtain formatter time zone id
+	 *
+	 * @return time zone id
+	 */
+	public String getTimeZoneId() {
+		return timeZone.getID();
+	}
+
+	/**
+	 * Format a given timestamp
+	 *
+	 * @param msecs milliseconds
+	 * @param usecs microseconds (0-999)
+	 * @return formatted timestamp
+	 */
+	public String format(long msecs, long usecs) {
+		return format(new StringBuilder(40), msecs, usecs).toString();
+	}
+
+	/**
+	 * Format a given timestamp and append it to a given builder
+	 *
+	 * @param out string builder to append to
+	 * @param msecs milliseconds
+	 * @param usecs microseconds (0-999)
+	 * @return string builder passed as argument
+	 */
+	public StringBuilder format(StringBuilder out, long msecs, long usecs) {
+		if (!compiled) {
+			return out.append(formatUncompiled(msecs, usecs));
+		}
+		long second = msecs >= 0 ? msecs / 1000 : (msecs - 999) / 1000;
+		int index = (int) (second & (CACHED_SECONDS - 1));
+		SecondEntry entry = seconds[index];
+		if (entry == null || entry.second != second) {
+			entry = newEntry(second);
+			seconds[index] = entry;
+		}
+		out.append(entry.prefix);
+		if (fraction) {
+			digits3(out, msecs - second * 1000);
+			if (usecs >= 0 && usecs < 1000) {
+				digits3(out, usecs);
+			} else {
+				out.append(String.format("%03d", usecs));
+			}
+		}
+		return out.append(entry.suffix);
+	}
+
+	private static void digits3(StringBuilder out, long value) {
+		int v = (int) value;
+		out.append((char) ('0' + v / 100)).append((char) ('0' + (v / 10) % 10)).append((char) ('0' + v % 10));
+	}
+
+	private synchronized SecondEntry newEntry(long second) {
+		Date date = new Date(second * 1000);
+		return new SecondEntry(second, prefixFormat.format(date), suffixFormat != null ? suffixFormat.format(date) : "");
+	}
+
+	/**
+	 * Split pattern at the first run of fractional seconds into prefix and suffix formats
+	 */
+	private void compile() {
+		if (pattern.indexOf('\'') >= 0) {
+			return;
+		}
+		int start = pattern.indexOf('S');
+		if (start < 0) {
+			prefixFormat = newFormat(pattern);
+		} else {
+			int end = start;
+			while (end < pattern.length() && pattern.charAt(end) == 'S') {
+				end++;
+			}
+			String suffix = pattern.substring(end);
+			if (suffix.indexOf('S') >= 0) {
+				return;
+			}
+			prefixFormat = newFormat(pattern.substring(0, start));
+			suffixFormat = newFormat(suffix);
+			fraction = true;
+		}
+		compiled = true;
+	}
+
+	private SimpleDateFormat newFormat(String fmt) {
+		SimpleDateFormat df = new SimpleDateFormat(fmt);
+		df.setTimeZone(timeZone);
+		return df;
+	}
+
+	private String formatUncompiled(long msecs, long usecs) {
+		String fmt = pattern.indexOf('S') < 0 ? pattern : pattern.replaceFirst("SS*", "SSS" + String.format("%03d", usecs));
+		return newFormat(fmt).format(new Date(msecs));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{pattern: " + pattern + ", tz: " + timeZone.getID() + ", compiled: "
+		        + compiled + "}";
+	}
+}
+
+class SecondEntry {
+	final long second;
+	final String prefix, suffix;
+
+	SecondEntry(long sec, String pre, String post) {
+		second = sec;
+		prefix = pre;
+		suffix = post;
+	}
+}
@@ -32,11 +32,13 @@ import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.text.MessageFormat;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.SerializationUtils;
 
@@ -49,7 +51,7 @@ import com.nastel.jkool.tnt4j.config.ConfigException;
 /**
  * General utility methods.
  * 
- * @version $Revision: 5 $
+ * @version $Revision: 7 $
  */
 public class Utils {
 
@@ -217,17 +219,57 @@ public class Utils {
 	}
 	
 	/**
-	 * Format a given string pattern and a list of arguments 
-	 * as defined by <code>MessageFormat</code>
-	 * 
+	 * Format a given string pattern and a list of arguments
+	 * as defined by <code>MessageFormat</code>. Patterns are compiled
+	 * and cached.
+	 *
 	 * @return formatted string
+	 * @see MessagePattern
 	 */
 	public static String format(String pattern, Object...args) {
 		if (args != null && args.length > 0) {
-			return MessageFormat.format(pattern, args);	
+			return MessagePattern.format(pattern, args);
 		} else return String.valueOf(pattern);
 	}
-	
+
+	/**
+	 * Create a snapshot of message arguments that renders the same way
+	 * as the original arguments at a later time. Immutable values, throwables,
+	 * primitive arrays and unknown <code>Number</code> types are kept, atomic numbers are
+	 * replaced by their value, dates and object arrays are copied and all other
+	 * objects are replaced by their <code>toString()</code>.
+	 *
+	 * @param args list of arguments
+	 * @return snapshot of arguments, or <code>args</code> if all arguments are immutable
+	 */
+	public static Object[] snapshotArgs(Object...args) {
+		if (args == null) return null;
+		Object[] copy = null;
+		for (int i = 0; i < args.length; i++) {
+			Object arg = args[i];
+			Object frozen = arg;
+			if (arg == null || arg instanceof String || arg instanceof Boolean || arg instanceof Character
+			        || arg instanceof Enum || arg instanceof Throwable) {
+				continue;
+			} else if (arg instanceof AtomicInteger || arg instanceof AtomicLong) {
+				frozen = ((Number) arg).longValue();
+			} else if (arg instanceof Number) {
+				continue;
+			} else if (arg instanceof Date) {
+				frozen = ((Date) arg).clone();
+			} else if (arg instanceof Object[]) {
+				frozen = snapshotArgs(((Object[]) arg).clone());
+			} else if (!arg.getClass().isArray()) {
+				frozen = String.valueOf(arg.toString());
+			}
+			if (copy == null) {
+				copy = args.clone();
+			}
+			copy[i] = frozen;
+		}
+		return copy != null? copy: args;
+	}
+
 	/**
 	 * Return a <code>Throwable</code> object if it is the last element 
 	 * in the object array
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.uuid;
+
+import com.nastel.jkool.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class provides a static way to get the default tracking id generator, used by trackers
+ * whose configuration does not specify <code>tracking.id.generator</code>. Default generator is
+ * <code>UUIDGenerator</code>, which may be changed using <code>tnt4j.id.generator</code> java property
+ * set to the name of the class that implements <code>IdGenerator</code> interface, or at runtime:
+ * </p>
+ * <pre>
+ * {@code
+ * DefaultIdGenerator.setDefaultIdGenerator(new SnowflakeIdGenerator(17));
+ * }
+ * </pre>
+ *
+ * @see IdGenerator
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class DefaultIdGenerator {
+	private static final String DEFAULT_GENERATOR_CLASS = "com.nastel.jkool.tnt4j.uuid.UUIDGenerator";
+	private static IdGenerator defaultGenerator = createIdGenerator(System.getProperty("tnt4j.id.generator",
+	        DEFAULT_GENERATOR_CLASS));
+
+	/**
+	 * Private constructor to prevent object instantiation
+	 *
+	 */
+	private DefaultIdGenerator() {}
+
+	private static IdGenerator createIdGenerator(String className) {
+		try {
+			return (IdGenerator) Utils.createInstance(className);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return new UUIDGenerator();
+	}
+
+	/**
+	 * Obtain default tracking id generator
+	 *
+	 * @return default <code>IdGenerator</code> instance
+	 */
+	public static IdGenerator getInstance() {
+		return defaultGenerator;
+	}
+
+	/**
+	 * Set default tracking id generator
+	 *
+	 * @param generator new default generator, ignored if null
+	 * @return default <code>IdGenerator</code> instance
+	 */
+	public static IdGenerator setDefaultIdGenerator(IdGenerator generator) {
+		defaultGenerator = generator != null ? generator : defaultGenerator;
+		return defaultGenerator;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.uuid;
+
+/**
+ * <p>
+ * Classes that implement this interface generate unique tracking ids, used as signatures of
+ * tracking events and activities. Implementations must be thread safe and should avoid locking,
+ * since a new id is generated for every event and activity. Implementations may also implement
+ * <code>Configurable</code> to be configured in <code>tnt4j.properties</code>, e.g.:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * tracking.id.generator: com.nastel.jkool.tnt4j.uuid.SnowflakeIdGenerator
+ * tracking.id.generator.NodeId: 17
+ * }
+ * </pre>
+ *
+ * @see DefaultIdGenerator
+ * @see UUIDGenerator
+ * @see SequenceIdGenerator
+ * @see SnowflakeIdGenerator
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public interface IdGenerator {
+	/**
+	 * Generate a new unique id
+	 *
+	 * @return new unique id string
+	 */
+	public String newId();
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.uuid;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+
+/**
+ * <p>
+ * This class generates ids of the form <code>node-boot-thread-sequence</code>, where node identifies this
+ * generator instance (random by default), boot is a random value chosen once per JVM, thread is a slot assigned
+ * to each thread on first use and sequence is a per thread counter. Numbers are rendered in base 36. Thread slots
+ * are allocated once per node id for the whole JVM, so generators sharing a node id never hand out the same id,
+ * and the boot value keeps ids apart across JVM restarts and processes configured with the same node id.
+ * Threads never share sequence state, so generating an id is lock free and costs a single string allocation.
+ * Ids are not time ordered across threads.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>NodeId</code> - node prefix (default is a random 60 bit base 36 value chosen
+ * per generator instance).
+ * </p>
+ *
+ * @see IdGenerator
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class SequenceIdGenerator implements IdGenerator, Configurable {
+	public static final String NODE_ID = "NodeId";
+
+	private static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+	private static final int MAX_DIGITS = 13; // base 36 digits of a positive long
+	private static final String BOOT_ID = Long.toString(new SecureRandom().nextLong() >>> 24, 36);
+	private static final ConcurrentMap<String, AtomicInteger> NODE_SLOTS = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private volatile String node;
+	private Map<String, Object> config = null;
+
+	private final ThreadLocal<Sequence> sequence = new ThreadLocal<Sequence>() {
+		@Override
+		protected Sequence initialValue() {
+			return newSequence(node);
+		}
+	};
+
+	/**
+	 * Create a generator with a random node id
+	 *
+	 */
+	public SequenceIdGenerator() {
+		this(Long.toString(new SecureRandom().nextLong() >>> 4, 36));
+	}
+
+	/**
+	 * Create a generator with a given node id
+	 *
+	 * @param nodeId node id prefix, must be unique across all generators producing ids for the same consumer
+	 */
+	public SequenceIdGenerator(String nodeId) {
+		node = nodeId;
+	}
+
+	/**
+	 * Obtain node id used as prefix of all generated ids
+	 *
+	 * @return node id
+	 */
+	public String getNodeId() {
+		return node;
+	}
+
+	@Override
+	public String newId() {
+		Sequence seq = sequence.get();
+		if (seq.node != node) {
+			seq = newSequence(node);
+			sequence.set(seq);
+		}
+		return seq.next();
+	}
+
+	/**
+	 * Create sequence for the calling thread, using a thread slot unique within this JVM for a given node id
+	 */
+	private static Sequence newSequence(String nodeId) {
+		AtomicInteger slots = NODE_SLOTS.get(nodeId);
+		if (slots == null) {
+			AtomicInteger prev = NODE_SLOTS.putIfAbsent(nodeId, slots = new AtomicInteger(0));
+			slots = prev != null ? prev : slots;
+		}
+		return new Sequence(nodeId, slots.incrementAndGet());
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object nodeId = config.get(NODE_ID);
+		node = nodeId != null ? nodeId.toString() : node;
+	}
+
+	private static class Sequence {
+		final String node;
+		final int slot;
+		final char[] buffer;
+		final int prefixLength;
+		long count = 0;
+
+		Sequence(String node, int slot) {
+			this.node = node;
+			this.slot = slot;
+			String prefix = node + "-" + BOOT_ID + "-" + Integer.toString(slot, 36) + "-";
+			prefixLength = prefix.length();
+			buffer = new char[prefixLength + MAX_DIGITS];
+			prefix.getChars(0, prefixLength, buffer, 0);
+		}
+
+		String next() {
+			long value = ++count;
+			int digits = 1;
+			for (long v = value / 36; v > 0; v /= 36) {
+				digits++;
+			}
+			for (int pos = prefixLength + digits - 1; pos >= prefixLength; pos--) {
+				buffer[pos] = DIGITS[(int) (value % 36)];
+				value /= 36;
+			}
+			return new String(buffer, 0, prefixLength + digits);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.uuid;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nastel.jkool.tnt4j.config.Configurable;
+
+/**
+ * <p>
+ * This class generates 64 bit time ordered ids in the style of Twitter Snowflake: 41 bits of milliseconds since
+ * a given epoch, 10 bits of node id and 12 bits of sequence within a millisecond. Ids are generated lock free with a
+ * single CAS on shared state. When more than 4096 ids are requested within a millisecond, or the clock steps back,
+ * the generator borrows from following milliseconds instead of waiting, so ids always increase.
+ * Time and sequence state is kept once per node id for the whole JVM, so all generators sharing a node id
+ * (e.g. one per tracker configuration) never hand out the same id.
+ * </p>
+ *
+ * <p>
+ * Ids are rendered as fixed width strings, so that string order matches numeric (time) order:
+ * <code>base62</code> (11 characters, default), <code>base32</code> (13 characters, Crockford alphabet) or
+ * <code>decimal</code>.
+ * </p>
+ *
+ * <p>
+ * Configuration properties: <code>NodeId</code> - node id 0-1023, must be unique across all generating JVMs
+ * (default random), <code>Epoch</code> - epoch in milliseconds, not in the future and the same for all generators
+ * sharing a node id (default 2014-01-01T00:00:00Z),
+ * <code>Encoding</code> - base62, base32 or decimal.
+ * </p>
+ *
+ * @see IdGenerator
+ *
+ * @version $Revision: 2 $
+ *
+ */
+public class SnowflakeIdGenerator implements IdGenerator, Configurable {
+	public static final String NODE_ID = "NodeId";
+	public static final String EPOCH = "Epoch";
+	public static final String ENCODING = "Encoding";
+
+	public static final String ENCODING_BASE62 = "base62";
+	public static final String ENCODING_BASE32 = "base32";
+	public static final String ENCODING_DECIMAL = "decimal";
+
+	public static final long DEFAULT_EPOCH = 1388534400000L;
+	public static final int NODE_BITS = 10;
+	public static final int SEQUENCE_BITS = 12;
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+	private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+	private static final int BASE62_WIDTH = 11;
+	private static final int BASE32_WIDTH = 13;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private static final ConcurrentMap<Long, AtomicLong> NODE_STATE = new ConcurrentHashMap<Long, AtomicLong>();
+
+	private volatile AtomicLong state;
+	private long epoch = DEFAULT_EPOCH;
+	private long node;
+	private String encoding = ENCODING_BASE62;
+	private Map<String, Object> config = null;
+
+	/**
+	 * Create a generator with a random node id
+	 *
+	 */
+	public SnowflakeIdGenerator() {
+		this(new SecureRandom().nextInt(MAX_NODE_ID + 1));
+	}
+
+	/**
+	 * Create a generator with a given node id
+	 *
+	 * @param nodeId node id 0-1023
+	 */
+	public SnowflakeIdGenerator(int nodeId) {
+		setNodeId(nodeId);
+	}
+
+	/**
+	 * Obtain node id embedded in all generated ids
+	 *
+	 * @return node id
+	 */
+	public int getNodeId() {
+		return (int) node;
+	}
+
+	/**
+	 * Generate a new 64 bit id
+	 *
+	 * @return new unique, time ordered id
+	 */
+	public long nextId() {
+		AtomicLong nodeState = state;
+		long next;
+		for (;;) {
+			long prev = nodeState.get();
+			long now = System.currentTimeMillis() << SEQUENCE_BITS;
+			next = now > prev ? now : prev + 1;
+			if (nodeState.compareAndSet(prev, next)) {
+				break;
+			}
+		}
+		return (((next >>> SEQUENCE_BITS) - epoch) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS)
+		        | (next & SEQUENCE_MASK);
+	}
+
+	@Override
+	public String newId() {
+		return encode(nextId(), encoding);
+	}
+
+	/**
+	 * Obtain time stamp in milliseconds when a given id was generated
+	 *
+	 * @param id generated by this generator
+	 * @return time stamp in milliseconds since 1970
+	 */
+	public long getTimeMillis(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + epoch;
+	}
+
+	/**
+	 * Render a given id using a given encoding
+	 *
+	 * @param id positive 64 bit id
+	 * @param encoding base62, base32 or decimal
+	 * @return id as string
+	 * @throws IllegalArgumentException if id is negative
+	 */
+	public static String encode(long id, String encoding) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Id must be non-negative: " + id);
+		}
+		if (ENCODING_BASE62.equalsIgnoreCase(encoding)) {
+			return encode(id, BASE62, BASE62_WIDTH);
+		} else if (ENCODING_BASE32.equalsIgnoreCase(encoding)) {
+			return encode(id, BASE32, BASE32_WIDTH);
+		}
+		return Long.toString(id);
+	}
+
+	private static String encode(long id, char[] digits, int width) {
+		char[] chars = new char[width];
+		int radix = digits.length;
+		for (int pos = width - 1; pos >= 0; pos--) {
+			chars[pos] = digits[(int) (id % radix)];
+			id /= radix;
+		}
+		return new String(chars);
+	}
+
+	private void setNodeId(long nodeId) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("NodeId must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+		}
+		node = nodeId;
+		state = stateOf(nodeId);
+	}
+
+	private void setEpoch(long epochMillis) {
+		if (epochMillis < 0 || epochMillis > System.currentTimeMillis()) {
+			throw new IllegalArgumentException("Epoch must not be negative or in the future: " + epochMillis);
+		}
+		epoch = epochMillis;
+	}
+
+	/**
+	 * Obtain time and sequence state shared by all generators with a given node id.
+	 * State holds milliseconds since 1970 shifted by sequence bits plus sequence within the millisecond.
+	 */
+	private static AtomicLong stateOf(long nodeId) {
+		AtomicLong nodeState = NODE_STATE.get(nodeId);
+		if (nodeState == null) {
+			AtomicLong prev = NODE_STATE.putIfAbsent(nodeId, nodeState = new AtomicLong(0));
+			nodeState = prev != null ? prev : nodeState;
+		}
+		return nodeState;
+	}
+
+	@Override
+	public Map<String, Object> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, Object> settings) {
+		config = settings;
+		Object nodeId = config.get(NODE_ID);
+		if (nodeId != null) {
+			setNodeId(Long.parseLong(nodeId.toString()));
+		}
+		Object epochStr = config.get(EPOCH);
+		if (epochStr != null) {
+			setEpoch(Long.parseLong(epochStr.toString()));
+		}
+
+		Object encodingStr = config.get(ENCODING);
+		encoding = encodingStr != null ? encodingStr.toString() : encoding;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Nastel Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nastel.jkool.tnt4j.uuid;
+
+import com.nastel.jkool.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class generates time based UUIDs (36 characters) using <code>Utils.newUUID()</code>.
+ * This is the default generator and produces the same ids as previous releases.
+ * </p>
+ *
+ * @see Utils#newUUID()
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class UUIDGenerator implements IdGenerator {
+	@Override
+	public String newId() {
+		return Utils.newUUID();
+	}
+}